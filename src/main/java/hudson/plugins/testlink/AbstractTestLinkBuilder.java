@@ -31,6 +31,8 @@ import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
 import hudson.plugins.testlink.result.ReportFilesPatterns;
 import hudson.plugins.testlink.util.ExecutionOrderComparator;
+import hudson.plugins.testlink.util.FailedTestCasesFilter;
+import hudson.plugins.testlink.util.HistoricalOrderComparator;
 import hudson.tasks.BuildStep;
 import hudson.tasks.Builder;
 import hudson.util.VariableResolver;
@@ -128,6 +130,40 @@ extends Builder
 	 */
 	protected final ReportFilesPatterns reportFilesPatterns;
 	
+	/**
+	 * Number of threads used to parse the report files in the workspace. 
+	 * <code>null</code> or lower than 2 parses the files sequentially.
+	 */
+	protected final Integer parsingParallelism;
+	
+	/**
+	 * How the automated test cases are sorted before the iterative build 
+	 * steps: by execution order, by their duration in the last build or by 
+	 * how often they failed. <code>null</code> sorts them by execution order.
+	 */
+	protected final String executionOrder;
+	
+	/**
+	 * Runs again only the automated test cases that failed or were blocked, 
+	 * as found in the previous build report or in TestLink. 
+	 * <code>null</code> runs all the automated test cases.
+	 */
+	protected final String rerunFailed;
+	
+	/**
+	 * Maximum number of test cases whose iterative build steps run at the 
+	 * same time. <code>null</code> or lower than 2 runs them one after 
+	 * another.
+	 */
+	protected final Integer iterativeParallelism;
+	
+	/**
+	 * Maximum number of test cases executed by each invocation of the 
+	 * iterative build steps. <code>null</code> or lower than 2 invokes them 
+	 * once per test case.
+	 */
+	protected final Integer iterativeBatchSize;
+	
 	/* --- Other members --- */
 	
 	/**
@@ -140,6 +176,55 @@ extends Builder
 	 */
 	protected boolean failure = false;
 	
+	/**
+	 * Creates a builder with the default values of the options added after 
+	 * 3.0.2.
+	 * 
+	 * @deprecated since 3.0.3, use the constructor with all the options.
+	 */
+	@Deprecated
+	public AbstractTestLinkBuilder(
+		String testLinkName, 
+		String testProjectName, 
+		String testPlanName, 
+		String buildName, 
+		String customFields, 
+		String keyCustomField, 
+		List<BuildStep> singleBuildSteps, 
+		List<BuildStep> beforeIteratingAllTestCasesBuildSteps, 
+		List<BuildStep> iterativeBuildSteps, 
+		List<BuildStep> afterIteratingAllTestCasesBuildSteps, 
+		Boolean transactional, 
+		Boolean failedTestsMarkBuildAsUnstable, 
+		String junitXmlReportFilesPattern, 
+		String testNGXmlReportFilesPattern, 
+		String tapStreamReportFilesPattern
+	)
+	{
+		this(
+			testLinkName, 
+			testProjectName, 
+			testPlanName, 
+			buildName, 
+			customFields, 
+			keyCustomField, 
+			singleBuildSteps, 
+			beforeIteratingAllTestCasesBuildSteps, 
+			iterativeBuildSteps, 
+			afterIteratingAllTestCasesBuildSteps, 
+			transactional, 
+			failedTestsMarkBuildAsUnstable, 
+			junitXmlReportFilesPattern, 
+			testNGXmlReportFilesPattern, 
+			tapStreamReportFilesPattern, 
+			null, 
+			null, 
+			null, 
+			null, 
+			null
+		);
+	}
+	
 	/**
 	 * This constructor is bound to a stapler request. All parameters here are 
 	 * passed by Jenkins.
@@ -159,6 +244,17 @@ extends Builder
 	 * @param tapStreamReportFilesPattern Pattern for TAP report files.
 	 * @param beforeIteratingAllTestCasesBuildSteps Command executed before iterating all test cases.
 	 * @param afterIteratingAllTestCasesBuildSteps Command executed after iterating all test cases.
+	 * @param parsingParallelism Number of threads used to parse the report files.
+	 * @param executionOrder How the automated test cases are sorted, one of 
+	 * the orders of {@link HistoricalOrderComparator}. <code>null</code> 
+	 * sorts them by execution order.
+	 * @param rerunFailed Where the failed test cases to run again are taken 
+	 * from, one of the sources of {@link FailedTestCasesFilter}. 
+	 * <code>null</code> runs all the automated test cases.
+	 * @param iterativeParallelism Maximum number of test cases whose 
+	 * iterative build steps run at the same time.
+	 * @param iterativeBatchSize Maximum number of test cases executed by 
+	 * each invocation of the iterative build steps.
 	 */
 	public AbstractTestLinkBuilder(
 		String testLinkName, 
@@ -175,7 +271,12 @@ extends Builder
 		Boolean failedTestsMarkBuildAsUnstable, 
 		String junitXmlReportFilesPattern, 
 		String testNGXmlReportFilesPattern, 
-		String tapStreamReportFilesPattern
+		String tapStreamReportFilesPattern, 
+		Integer parsingParallelism, 
+		String executionOrder, 
+		String rerunFailed, 
+		Integer iterativeParallelism, 
+		Integer iterativeBatchSize
 	)
 	{
 		super();
@@ -196,6 +297,12 @@ extends Builder
 				junitXmlReportFilesPattern, 
 				testNGXmlReportFilesPattern, 
 				tapStreamReportFilesPattern);
+		
+		this.parsingParallelism = parsingParallelism;
+		this.executionOrder = executionOrder;
+		this.rerunFailed = rerunFailed;
+		this.iterativeParallelism = iterativeParallelism;
+		this.iterativeBatchSize = iterativeBatchSize;
 	}
 	
 	public String getTestLinkName()
@@ -318,6 +425,48 @@ extends Builder
 		return reportFilesPatterns;
 	}
 
+	/**
+	 * @return number of threads used to parse the report files.
+	 */
+	public Integer getParsingParallelism()
+	{
+		return this.parsingParallelism;
+	}
+
+	/**
+	 * @return how the automated test cases are sorted.
+	 */
+	public String getExecutionOrder()
+	{
+		return this.executionOrder;
+	}
+
+	/**
+	 * @return where the failed test cases to run again are taken from.
+	 */
+	public String getRerunFailed()
+	{
+		return this.rerunFailed;
+	}
+
+	/**
+	 * @return maximum number of test cases whose iterative build steps run 
+	 * at the same time.
+	 */
+	public Integer getIterativeParallelism()
+	{
+		return this.iterativeParallelism;
+	}
+
+	/**
+	 * @return maximum number of test cases executed by each invocation of 
+	 * the iterative build steps.
+	 */
+	public Integer getIterativeBatchSize()
+	{
+		return this.iterativeBatchSize;
+	}
+
 	public String getJunitXmlReportFilesPattern()
 	{
 		return reportFilesPatterns.getJunitXmlReportFilesPattern();
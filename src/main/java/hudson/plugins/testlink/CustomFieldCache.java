@@ -0,0 +1,309 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.XmlFile;
+import hudson.model.Hudson;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import br.eti.kinoshita.testlinkjavaapi.model.CustomField;
+import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
+
+/**
+ * Cache of custom field design values, kept in the master and persisted 
+ * under the Jenkins root directory. The design values of a test case only 
+ * change with a new version of the test case, so a value is reused until 
+ * TestLink returns a different version of the test case or until the entry 
+ * is older than the time to live given by the installation.
+ * 
+ * <p>Entries are keyed by the TestLink installation, the test case id and 
+ * the custom field name, and hold the version they were fetched for. The 
+ * least recently used entries are evicted once the cache holds more than 
+ * its maximum number of entries.</p>
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class CustomFieldCache
+{
+
+	/**
+	 * Default maximum number of custom field values kept in the cache.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 100000;
+	
+	private static CustomFieldCache instance;
+	
+	private final XmlFile file;
+	
+	private final int maxEntries;
+	
+	private final LinkedHashMap<String, Entry> entries;
+	
+	private boolean dirty = false;
+	
+	private int evictions = 0;
+	
+	/**
+	 * @param file file where the cache is persisted, <code>null</code> to 
+	 * keep it only in memory.
+	 * @param maxEntries maximum number of custom field values kept.
+	 */
+	public CustomFieldCache( XmlFile file, final int maxEntries )
+	{
+		super();
+		this.file = file;
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<String, Entry>( 16, 0.75f, true )
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<String, CustomFieldCache.Entry> eldest )
+			{
+				if ( size() > maxEntries )
+				{
+					evictions += 1;
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * Gets the cache of this Jenkins, loading it from the disk when first used.
+	 * 
+	 * @return the cache of custom field values.
+	 */
+	public static synchronized CustomFieldCache getInstance()
+	{
+		if ( instance == null )
+		{
+			final File cacheFile = new File( Hudson.getInstance().getRootDir(), CustomFieldCache.class.getName() + ".xml" );
+			instance = new CustomFieldCache( new XmlFile( Hudson.XSTREAM, cacheFile ), DEFAULT_MAX_ENTRIES );
+			try
+			{
+				instance.load();
+			}
+			catch ( IOException ioe )
+			{
+				// A cache that cannot be read is simply rebuilt
+				instance.clear();
+			}
+		}
+		return instance;
+	}
+	
+	/**
+	 * Gets a custom field value, if it was fetched for the same version of 
+	 * the test case within the time to live. Entries of other versions or 
+	 * that expired are removed.
+	 * 
+	 * @param installation name of the TestLink installation.
+	 * @param testCase test case, with its id and version.
+	 * @param customFieldName custom field name.
+	 * @param timeToLive time to live of the entries, in milliseconds.
+	 * @return the custom field value, or <code>null</code> if it must be 
+	 * fetched from TestLink.
+	 */
+	public synchronized CustomField get( String installation, TestCase testCase, String customFieldName, long timeToLive )
+	{
+		final String key = getKey( installation, testCase, customFieldName );
+		final Entry entry = this.entries.get( key );
+		if ( entry == null )
+		{
+			return null;
+		}
+		if ( ! equals( entry.getVersion(), testCase.getVersion() ) 
+				|| System.currentTimeMillis() - entry.getFetched() > timeToLive )
+		{
+			this.entries.remove( key );
+			this.dirty = true;
+			return null;
+		}
+		return entry.getCustomField();
+	}
+	
+	/**
+	 * Puts a custom field value fetched from TestLink.
+	 * 
+	 * @param installation name of the TestLink installation.
+	 * @param testCase test case, with its id and version.
+	 * @param customFieldName custom field name.
+	 * @param customField the custom field value.
+	 */
+	public synchronized void put( String installation, TestCase testCase, String customFieldName, CustomField customField )
+	{
+		final String key = getKey( installation, testCase, customFieldName );
+		this.entries.put( key, new Entry( key, testCase.getVersion(), customField, System.currentTimeMillis() ) );
+		this.dirty = true;
+	}
+	
+	/**
+	 * Loads the entries persisted, in least recently used order.
+	 * 
+	 * @throws IOException
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized void load()
+	throws IOException
+	{
+		this.entries.clear();
+		if ( this.file != null && this.file.exists() )
+		{
+			final List<Entry> list = (List<Entry>) this.file.read();
+			if ( list != null )
+			{
+				for ( Entry entry : list )
+				{
+					this.entries.put( entry.getKey(), entry );
+				}
+			}
+		}
+		this.dirty = false;
+	}
+	
+	/**
+	 * Persists the entries, if any of them changed since the last time the 
+	 * cache was loaded or saved.
+	 * 
+	 * @throws IOException
+	 */
+	public synchronized void save()
+	throws IOException
+	{
+		if ( this.file != null && this.dirty )
+		{
+			this.file.write( new ArrayList<Entry>( this.entries.values() ) );
+			this.dirty = false;
+		}
+	}
+	
+	/**
+	 * Removes all entries.
+	 */
+	public synchronized void clear()
+	{
+		this.entries.clear();
+		this.dirty = true;
+	}
+	
+	/**
+	 * @return number of custom field values kept.
+	 */
+	public synchronized int size()
+	{
+		return this.entries.size();
+	}
+	
+	/**
+	 * @return maximum number of custom field values kept.
+	 */
+	public int getMaxEntries()
+	{
+		return this.maxEntries;
+	}
+	
+	/**
+	 * @return number of entries evicted to keep the cache within its 
+	 * maximum number of entries.
+	 */
+	public synchronized int getEvictions()
+	{
+		return this.evictions;
+	}
+	
+	private static String getKey( String installation, TestCase testCase, String customFieldName )
+	{
+		return installation + '|' + testCase.getId() + '|' + customFieldName;
+	}
+	
+	private static boolean equals( Integer a, Integer b )
+	{
+		return a == null ? b == null : a.equals( b );
+	}
+	
+	/**
+	 * A custom field value and the version of the test case it was fetched 
+	 * for.
+	 * 
+	 * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+	 * @since 3.0.3
+	 */
+	public static class Entry
+	implements Serializable
+	{
+
+		private static final long serialVersionUID = -2296356934528458563L;
+		
+		private final String key;
+		
+		private final Integer version;
+		
+		private final CustomField customField;
+		
+		private final long fetched;
+		
+		public Entry( String key, Integer version, CustomField customField, long fetched )
+		{
+			this.key = key;
+			this.version = version;
+			this.customField = customField;
+			this.fetched = fetched;
+		}
+		
+		public String getKey()
+		{
+			return this.key;
+		}
+		
+		public Integer getVersion()
+		{
+			return this.version;
+		}
+		
+		public CustomField getCustomField()
+		{
+			return this.customField;
+		}
+		
+		/**
+		 * @return time the value was fetched, in milliseconds.
+		 */
+		public long getFetched()
+		{
+			return this.fetched;
+		}
+		
+	}
+	
+}
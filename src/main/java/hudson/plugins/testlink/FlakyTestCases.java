@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.model.AbstractProject;
+import hudson.model.Api;
+import hudson.model.ModelObject;
+import hudson.plugins.testlink.util.Messages;
+
+import java.util.List;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Test cases of a project that flipped between passed and failed in their 
+ * last builds, shown at <code>testLinkResult/flaky</code> of the project.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+@ExportedBean
+public class FlakyTestCases
+implements ModelObject
+{
+
+	private final AbstractProject<?, ?> project;
+	
+	private final List<TestLinkFlakiness.FlakyTestCase> testCases;
+	
+	public FlakyTestCases( AbstractProject<?, ?> project, List<TestLinkFlakiness.FlakyTestCase> testCases )
+	{
+		super();
+		this.project = project;
+		this.testCases = testCases;
+	}
+	
+	public AbstractProject<?, ?> getProject()
+	{
+		return this.project;
+	}
+	
+	/**
+	 * @return remote API of the flaky test cases.
+	 */
+	public Api getApi()
+	{
+		return new Api( this );
+	}
+	
+	/**
+	 * @return the flaky test cases, the highest flip rate first.
+	 */
+	@Exported
+	public List<TestLinkFlakiness.FlakyTestCase> getTestCases()
+	{
+		return this.testCases;
+	}
+	
+	/**
+	 * @param testCase a flaky test case.
+	 * @return the flip rate as a percentage.
+	 */
+	public String getFlipRateText( TestLinkFlakiness.FlakyTestCase testCase )
+	{
+		return Math.round( testCase.getFlipRate() * 100 ) + "%";
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.model.ModelObject#getDisplayName()
+	 */
+	public String getDisplayName()
+	{
+		return Messages.FlakyTestCases_DisplayName();
+	}
+	
+}
@@ -0,0 +1,405 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import javax.imageio.ImageIO;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.jfree.chart.ChartRenderingInfo;
+import org.jfree.chart.ChartUtilities;
+import org.jfree.chart.JFreeChart;
+
+/**
+ * Cache of rendered trend graphs, shared by every project. A graph is 
+ * rendered once into both its PNG image and its image map, and reused until 
+ * it is evicted or invalidated. Requests for a graph that is being rendered 
+ * wait for that rendering instead of rendering it again.
+ * 
+ * <p>The cache holds at most a maximum number of graphs and a maximum number 
+ * of bytes, evicting the least recently used graphs first.</p>
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class GraphCache
+{
+
+	/**
+	 * Default maximum number of graphs kept in the cache.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 200;
+	
+	/**
+	 * Default maximum number of bytes kept in the cache.
+	 */
+	public static final long DEFAULT_MAX_BYTES = 16L * 1024L * 1024L;
+	
+	/**
+	 * Separator of the parts of the keys. It cannot be used in job names.
+	 */
+	public static final char SEPARATOR = '|';
+	
+	private static final GraphCache instance = new GraphCache( DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES );
+	
+	private final int maxEntries;
+	
+	private final long maxBytes;
+	
+	/**
+	 * Key -> slot, least recently used first.
+	 */
+	private final LinkedHashMap<String, Slot> entries = new LinkedHashMap<String, Slot>( 16, 0.75f, true );
+	
+	private long bytes = 0L;
+	
+	private int renders = 0;
+	
+	private int hits = 0;
+	
+	/**
+	 * @param maxEntries maximum number of graphs kept.
+	 * @param maxBytes maximum number of bytes kept.
+	 */
+	public GraphCache( int maxEntries, long maxBytes )
+	{
+		super();
+		this.maxEntries = maxEntries;
+		this.maxBytes = maxBytes;
+	}
+	
+	/**
+	 * @return the cache of this Jenkins.
+	 */
+	public static GraphCache getInstance()
+	{
+		return instance;
+	}
+	
+	/**
+	 * Creates the key of a graph.
+	 * 
+	 * @param projectName full name of the project.
+	 * @param parts other parts of the key, like the size of the graph.
+	 * @return the key.
+	 */
+	public static String getKey( String projectName, Object... parts )
+	{
+		final StringBuilder key = new StringBuilder( projectName );
+		for ( Object part : parts )
+		{
+			key.append( SEPARATOR ).append( part );
+		}
+		return key.toString();
+	}
+	
+	/**
+	 * Gets a graph, rendering it if it is not in the cache.
+	 * 
+	 * @param key key of the graph, created with {@link #getKey(String, Object...)}.
+	 * @param renderer renders the graph.
+	 * @return the rendered graph.
+	 * @throws IOException if the graph cannot be rendered.
+	 */
+	public RenderedGraph get( String key, Callable<RenderedGraph> renderer ) 
+	throws IOException
+	{
+		final Slot slot;
+		boolean owner = false;
+		synchronized ( this )
+		{
+			Slot existing = this.entries.get( key );
+			if ( existing == null )
+			{
+				existing = new Slot( new FutureTask<RenderedGraph>( renderer ) );
+				this.entries.put( key, existing );
+				owner = true;
+			}
+			else
+			{
+				this.hits += 1;
+			}
+			slot = existing;
+		}
+		
+		if ( owner )
+		{
+			slot.task.run();
+		}
+		
+		try
+		{
+			final RenderedGraph graph = slot.task.get();
+			if ( owner )
+			{
+				synchronized ( this )
+				{
+					this.renders += 1;
+					if ( this.entries.get( key ) == slot )
+					{
+						slot.size = graph.getSize();
+						this.bytes += slot.size;
+						this.evict();
+					}
+				}
+			}
+			return graph;
+		}
+		catch ( ExecutionException ee )
+		{
+			synchronized ( this )
+			{
+				if ( this.entries.get( key ) == slot )
+				{
+					this.entries.remove( key );
+				}
+			}
+			final Throwable cause = ee.getCause();
+			if ( cause instanceof IOException )
+			{
+				throw (IOException) cause;
+			}
+			if ( cause instanceof RuntimeException )
+			{
+				throw (RuntimeException) cause;
+			}
+			throw new IOException( cause );
+		}
+		catch ( InterruptedException ie )
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+	}
+	
+	/**
+	 * Removes the graphs of a project.
+	 * 
+	 * @param projectName full name of the project.
+	 */
+	public synchronized void invalidate( String projectName )
+	{
+		final String prefix = projectName + SEPARATOR;
+		for ( Iterator<Map.Entry<String, Slot>> it = this.entries.entrySet().iterator() ; it.hasNext() ; )
+		{
+			final Map.Entry<String, Slot> entry = it.next();
+			if ( entry.getKey().startsWith( prefix ) )
+			{
+				this.remove( it, entry.getValue() );
+			}
+		}
+	}
+	
+	/**
+	 * Removes every graph.
+	 */
+	public synchronized void clear()
+	{
+		for ( Iterator<Slot> it = this.entries.values().iterator() ; it.hasNext() ; )
+		{
+			this.remove( it, it.next() );
+		}
+	}
+	
+	/**
+	 * Evicts the least recently used rendered graphs while the cache holds too 
+	 * many graphs or bytes. Graphs being rendered are not evicted.
+	 */
+	private void evict()
+	{
+		for ( Iterator<Slot> it = this.entries.values().iterator() ; it.hasNext() && ( this.entries.size() > this.maxEntries || this.bytes > this.maxBytes ) ; )
+		{
+			final Slot slot = it.next();
+			if ( slot.size >= 0 )
+			{
+				this.remove( it, slot );
+			}
+		}
+	}
+	
+	private void remove( Iterator<?> it, Slot slot )
+	{
+		it.remove();
+		if ( slot.size > 0 )
+		{
+			this.bytes -= slot.size;
+		}
+	}
+	
+	/**
+	 * @return number of graphs in the cache.
+	 */
+	public synchronized int size()
+	{
+		return this.entries.size();
+	}
+	
+	/**
+	 * @return number of bytes of the rendered graphs in the cache.
+	 */
+	public synchronized long getBytes()
+	{
+		return this.bytes;
+	}
+	
+	/**
+	 * @return number of graphs rendered.
+	 */
+	public synchronized int getRenders()
+	{
+		return this.renders;
+	}
+	
+	/**
+	 * @return number of graphs found in the cache.
+	 */
+	public synchronized int getHits()
+	{
+		return this.hits;
+	}
+	
+	/**
+	 * Renders a chart into its PNG image and its image map.
+	 * 
+	 * @param chart the chart.
+	 * @param width width of the image.
+	 * @param height height of the image.
+	 * @return the rendered graph.
+	 * @throws IOException if the image cannot be encoded.
+	 */
+	public static RenderedGraph render( JFreeChart chart, int width, int height ) 
+	throws IOException
+	{
+		final ChartRenderingInfo info = new ChartRenderingInfo();
+		final BufferedImage image = chart.createBufferedImage( width, height, info );
+		final ByteArrayOutputStream png = new ByteArrayOutputStream();
+		ImageIO.write( image, "PNG", png );
+		return new RenderedGraph( png.toByteArray(), ChartUtilities.getImageMap( "map", info ) );
+	}
+	
+	/**
+	 * Checks if the value of an If-None-Match header matches an ETag.
+	 * 
+	 * @param ifNoneMatch value of the header, may be <code>null</code>.
+	 * @param etag the ETag.
+	 * @return <code>true</code> if the client has the same content.
+	 */
+	public static boolean matches( String ifNoneMatch, String etag )
+	{
+		if ( ifNoneMatch == null )
+		{
+			return false;
+		}
+		for ( String value : ifNoneMatch.split( "," ) )
+		{
+			value = value.trim();
+			if ( value.startsWith( "W/" ) )
+			{
+				value = value.substring( 2 );
+			}
+			if ( value.equals( "*" ) || value.equals( etag ) )
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * A graph in the cache. The size is set once it is rendered.
+	 */
+	private static class Slot
+	{
+		private final FutureTask<RenderedGraph> task;
+		private int size = -1;
+		
+		public Slot( FutureTask<RenderedGraph> task )
+		{
+			this.task = task;
+		}
+	}
+	
+	/**
+	 * PNG image and image map of a rendered graph, with their ETags.
+	 * 
+	 * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+	 * @since 3.0.3
+	 */
+	public static class RenderedGraph
+	{
+		
+		private final byte[] png;
+		private final String map;
+		private final String pngETag;
+		private final String mapETag;
+		
+		public RenderedGraph( byte[] png, String map )
+		{
+			this.png = png;
+			this.map = map;
+			this.pngETag = '"' + DigestUtils.md5Hex( png ) + '"';
+			this.mapETag = '"' + DigestUtils.md5Hex( map ) + '"';
+		}
+		
+		public byte[] getPng()
+		{
+			return this.png;
+		}
+		
+		public String getMap()
+		{
+			return this.map;
+		}
+		
+		public String getPngETag()
+		{
+			return this.pngETag;
+		}
+		
+		public String getMapETag()
+		{
+			return this.mapETag;
+		}
+		
+		/**
+		 * @return approximate number of bytes used by this graph.
+		 */
+		public int getSize()
+		{
+			return this.png.length + this.map.length() * 2;
+		}
+		
+	}
+	
+}
@@ -1,7 +1,5 @@
 package hudson.plugins.testlink;
 
-import hudson.plugins.testlink.result.Report;
-import hudson.util.ChartUtil.NumberOnlyBuildLabel;
 import hudson.util.ColorPalette;
 import hudson.util.ShiftedCategoryAxis;
 import hudson.util.StackedAreaRenderer2;
@@ -91,31 +89,17 @@ public class GraphHelper
 
 		@Override
 		public String generateURL(CategoryDataset dataset, int row, int column) {
-			NumberOnlyBuildLabel label = (NumberOnlyBuildLabel) dataset.getColumnKey(column);
+			TestLinkTrend.Bucket bucket = (TestLinkTrend.Bucket) dataset.getColumnKey(column);
             //return  label.build.getNumber() + "/" + PluginImpl.URL + "/";
-			return  label.build.getNumber() + "/" + TestLinkBuildAction.URL_NAME;
+			return  bucket.getLastBuildNumber() + "/" + TestLinkBuildAction.URL_NAME;
         }
 
           @Override
         public String generateToolTip(CategoryDataset dataset, int row, int column) 
         {
-              NumberOnlyBuildLabel label = (NumberOnlyBuildLabel) dataset.getColumnKey(column);
-              TestLinkBuildAction build = label.build.getAction(TestLinkBuildAction.class);
-              TestLinkResult result = build.getResult();
-              Report report = result.getReport();
-              
-              switch (row) {
-                  case 0:
-                	  return String.valueOf(report.getTestsBlocked()) + " Blocked";
-                  case 1:
-                	  return String.valueOf(report.getTestsFailed()) + " Failed";
-                  case 2:
-                	  return String.valueOf(report.getTestsNotRun()) + " Not Run";
-                  case 3:
-                	  return String.valueOf(report.getTestsPassed()) + " Passed";
-                  default:
-                     return "";
-              }
+              // rows are sorted by name, like TestLinkTrend.SERIES
+              TestLinkTrend.Bucket bucket = (TestLinkTrend.Bucket) dataset.getColumnKey(column);
+              return bucket.getToolTip(row);
           }
 
       };
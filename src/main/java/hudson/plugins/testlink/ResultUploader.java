@@ -0,0 +1,609 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.plugins.testlink.result.AttachmentContentCache;
+import hudson.plugins.testlink.result.FileAttachment;
+import hudson.plugins.testlink.result.TestCaseWrapper;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import br.eti.kinoshita.testlinkjavaapi.TestLinkAPI;
+import br.eti.kinoshita.testlinkjavaapi.TestLinkAPIException;
+import br.eti.kinoshita.testlinkjavaapi.model.Attachment;
+import br.eti.kinoshita.testlinkjavaapi.model.Build;
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
+import br.eti.kinoshita.testlinkjavaapi.model.ReportTCResultResponse;
+import br.eti.kinoshita.testlinkjavaapi.model.TestPlan;
+
+/**
+ * Uploads the test results to TestLink. Each test case is reported and then 
+ * its attachments are uploaded, and up to {@link #getConcurrency()} test 
+ * cases are handled at the same time, so the attachments of a test case 
+ * are uploaded while the next test cases are reported.
+ * 
+ * <p>The attachments are only read and encoded when uploaded, and the 
+ * content encoded at the same time is bounded by 
+ * {@link #getMaxInFlightBytes()}. As the TestLink API takes the encoded 
+ * content as a String, a file attachment larger than this maximum is not 
+ * uploaded, and is listed in {@link Outcome#getSkippedAttachments()} 
+ * instead. Attachment uploads that fail with an 
+ * I/O error, such as a connection reset or a timeout, are retried with 
+ * exponential backoff. As TestLink may have stored an execution whose 
+ * response was lost, reporting a test case is only retried when the 
+ * connection could not be made. A test case that still fails does not stop 
+ * the others, and its error is kept in its {@link Outcome}.</p>
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class ResultUploader
+{
+
+	/**
+	 * Default maximum size of the encoded attachments held at the same 
+	 * time (32 MB).
+	 */
+	public static final long DEFAULT_MAX_IN_FLIGHT_BYTES = 32L * 1024L * 1024L;
+	
+	/**
+	 * Default time to wait before the first retry, in milliseconds. Doubles 
+	 * after each retry.
+	 */
+	public static final long DEFAULT_INITIAL_BACKOFF = 500L;
+	
+	private final TestLinkAPI api;
+	
+	private final TestPlan testPlan;
+	
+	private final Build build;
+	
+	private int concurrency = 1;
+	
+	private int retries = 0;
+	
+	private long maxInFlightBytes = DEFAULT_MAX_IN_FLIGHT_BYTES;
+	
+	private long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+	
+	/**
+	 * In flight attachments, in kilobytes.
+	 */
+	private Semaphore inFlight;
+	
+	private int maxInFlightKilobytes;
+	
+	private AttachmentContentCache attachmentContentCache;
+	
+	/**
+	 * @param api TestLink Java API object
+	 * @param testPlan TestLink Test Plan
+	 * @param build TestLink Build
+	 */
+	public ResultUploader( TestLinkAPI api, TestPlan testPlan, Build build )
+	{
+		super();
+		this.api = api;
+		this.testPlan = testPlan;
+		this.build = build;
+	}
+	
+	/**
+	 * @return maximum number of test cases uploaded at the same time.
+	 */
+	public int getConcurrency()
+	{
+		return this.concurrency;
+	}
+	
+	/**
+	 * @param concurrency maximum number of test cases uploaded at the same 
+	 * time. 1 uploads them one after another in the calling thread.
+	 */
+	public void setConcurrency( int concurrency )
+	{
+		this.concurrency = concurrency;
+	}
+	
+	/**
+	 * @return number of times a call that failed with an I/O error is retried.
+	 */
+	public int getRetries()
+	{
+		return this.retries;
+	}
+	
+	/**
+	 * @param retries number of times a call that failed with an I/O error 
+	 * is retried.
+	 */
+	public void setRetries( int retries )
+	{
+		this.retries = retries;
+	}
+	
+	/**
+	 * @return maximum size of the encoded attachments held at the same time.
+	 */
+	public long getMaxInFlightBytes()
+	{
+		return this.maxInFlightBytes;
+	}
+	
+	/**
+	 * @param maxInFlightBytes maximum size of the encoded attachments held 
+	 * at the same time. A larger attachment is uploaded alone.
+	 */
+	public void setMaxInFlightBytes( long maxInFlightBytes )
+	{
+		this.maxInFlightBytes = maxInFlightBytes;
+	}
+	
+	/**
+	 * @return time to wait before the first retry, in milliseconds.
+	 */
+	public long getInitialBackoff()
+	{
+		return this.initialBackoff;
+	}
+	
+	/**
+	 * @param initialBackoff time to wait before the first retry, in 
+	 * milliseconds.
+	 */
+	public void setInitialBackoff( long initialBackoff )
+	{
+		this.initialBackoff = initialBackoff;
+	}
+	
+	/**
+	 * Uploads the test results.
+	 * 
+	 * @param testCases test cases.
+	 * @return outcome of each test case, in the same order of the test cases.
+	 * @throws InterruptedException
+	 */
+	@SuppressWarnings("rawtypes")
+	public List<Outcome> upload( Collection<TestCaseWrapper> testCases ) 
+	throws InterruptedException
+	{
+		this.maxInFlightKilobytes = (int) Math.max( 1L, Math.min( Integer.MAX_VALUE, this.maxInFlightBytes / 1024L ) );
+		this.inFlight = new Semaphore( this.maxInFlightKilobytes, true );
+		this.attachmentContentCache = new AttachmentContentCache( TestLinkSite.UPLOAD_CACHE_MAX_SIZE );
+		
+		final List<Outcome> outcomes = new ArrayList<Outcome>( testCases.size() );
+		
+		if ( this.concurrency <= 1 || testCases.size() <= 1 )
+		{
+			for( TestCaseWrapper testCase : testCases )
+			{
+				outcomes.add( this.upload( testCase ) );
+			}
+			return outcomes;
+		}
+		
+		final int threads = Math.min( this.concurrency, testCases.size() );
+		final ExecutorService executor = Executors.newFixedThreadPool( threads, new ThreadFactory()
+		{
+			private final AtomicInteger count = new AtomicInteger();
+			
+			public Thread newThread( Runnable r )
+			{
+				final Thread thread = new Thread( r, "TestLink result uploader #" + count.incrementAndGet() );
+				thread.setDaemon( true );
+				return thread;
+			}
+		});
+		
+		try
+		{
+			final List<Future<Outcome>> futures = new ArrayList<Future<Outcome>>( testCases.size() );
+			for( final TestCaseWrapper testCase : testCases )
+			{
+				futures.add( executor.submit( new Callable<Outcome>()
+				{
+					public Outcome call() 
+					throws InterruptedException
+					{
+						return upload( testCase );
+					}
+				}));
+			}
+			
+			for( Future<Outcome> future : futures )
+			{
+				try
+				{
+					outcomes.add( future.get() );
+				}
+				catch ( ExecutionException ee )
+				{
+					final Throwable cause = ee.getCause();
+					if ( cause instanceof InterruptedException )
+					{
+						throw (InterruptedException) cause;
+					}
+					if ( cause instanceof Error )
+					{
+						throw (Error) cause;
+					}
+					throw new TestLinkAPIException( cause.getMessage(), cause );
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		
+		return outcomes;
+	}
+	
+	/**
+	 * Reports a test case and uploads its attachments.
+	 */
+	@SuppressWarnings("rawtypes")
+	private Outcome upload( final TestCaseWrapper testCase ) 
+	throws InterruptedException
+	{
+		final Outcome outcome = new Outcome( testCase );
+		
+		if ( testCase.getExecutionStatus() != null || testCase.getExecutionStatus() != ExecutionStatus.NOT_RUN )
+		{
+			try
+			{
+				// Update Test Case status. Not idempotent, each call creates an 
+				// execution in TestLink
+				final ReportTCResultResponse reportTCResultResponse = this.call( outcome, false, new Callable<ReportTCResultResponse>()
+				{
+					public ReportTCResultResponse call()
+					{
+						return reportTCResult( testCase );
+					}
+				});
+				outcome.executionId = reportTCResultResponse.getExecutionId();
+			
+				@SuppressWarnings("unchecked")
+				final List<Attachment> attachments = testCase.getAttachments();
+				for ( final Attachment attachment :  attachments)
+				{
+					if ( this.isTooLarge( attachment ) )
+					{
+						outcome.skippedAttachments.add( attachment );
+						continue;
+					}
+					final int permits = this.getPermits( attachment );
+					this.inFlight.acquire( permits );
+					try
+					{
+						final String content = this.getContent( attachment );
+						this.call( outcome, true, new Callable<Attachment>()
+						{
+							public Attachment call()
+							{
+								return uploadExecutionAttachment( outcome.executionId, attachment, content );
+							}
+						});
+					}
+					finally
+					{
+						this.inFlight.release( permits );
+					}
+					outcome.attachments += 1;
+				}
+			}
+			catch ( IOException ioe )
+			{
+				outcome.error = ioe;
+			}
+			catch ( RuntimeException re )
+			{
+				outcome.error = re;
+			}
+		}
+		
+		return outcome;
+	}
+	
+	/**
+	 * Reports the execution status of a test case to TestLink.
+	 * 
+	 * @param testCase test case.
+	 * @return TestLink response, with the id of the execution.
+	 */
+	@SuppressWarnings("rawtypes")
+	protected ReportTCResultResponse reportTCResult( TestCaseWrapper testCase )
+	{
+		return this.api.reportTCResult(
+				testCase.getId(), 
+				testCase.getInternalId(), 
+				this.testPlan.getId(), 
+				testCase.getExecutionStatus(), 
+				this.build.getId(), 
+				this.build.getName(), 
+				testCase.getNotes(), 
+				null, // guess
+				null, // bug id
+				null, // platform id 
+				testCase.getPlatform(), // platform name
+				null, // custom fields
+				null);
+	}
+	
+	/**
+	 * Uploads an attachment of an execution to TestLink.
+	 * 
+	 * @param executionId id of the execution.
+	 * @param attachment attachment.
+	 * @param content content of the attachment, encoded in Base64.
+	 * @return TestLink attachment.
+	 */
+	protected Attachment uploadExecutionAttachment( Integer executionId, Attachment attachment, String content )
+	{
+		return this.api.uploadExecutionAttachment(
+				executionId, 
+				attachment.getTitle(), 
+				attachment.getDescription(), 
+				attachment.getFileName(), 
+				attachment.getFileType(), 
+				content);
+	}
+	
+	/**
+	 * Calls TestLink, retrying with exponential backoff when the call fails 
+	 * with an I/O error. Calls that are not idempotent are only retried when 
+	 * the connection could not be made, as otherwise TestLink may have 
+	 * handled the request.
+	 */
+	private <T> T call( Outcome outcome, boolean idempotent, Callable<T> callable ) 
+	throws InterruptedException
+	{
+		long backoff = this.initialBackoff;
+		for ( int attempt = 0 ; ; ++attempt )
+		{
+			try
+			{
+				return callable.call();
+			}
+			catch ( RuntimeException re )
+			{
+				if ( attempt >= this.retries || ! ( idempotent ? isTransient( re ) : isConnectFailure( re ) ) )
+				{
+					throw re;
+				}
+			}
+			catch ( InterruptedException ie )
+			{
+				throw ie;
+			}
+			catch ( Exception e )
+			{
+				throw new TestLinkAPIException( e.getMessage(), e );
+			}
+			
+			outcome.retries += 1;
+			Thread.sleep( backoff );
+			backoff *= 2;
+		}
+	}
+	
+	/**
+	 * A failure is transient when it was caused by an I/O error, such as a 
+	 * connection refused or reset, or a timeout. Errors returned by TestLink 
+	 * are not retried.
+	 */
+	static boolean isTransient( Throwable t )
+	{
+		for ( Throwable cause = t ; cause != null ; cause = cause.getCause() )
+		{
+			if ( cause instanceof IOException )
+			{
+				return true;
+			}
+			if ( cause.getCause() == cause )
+			{
+				break;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * A failure happened before the request was sent when the connection was 
+	 * refused, the host could not be found or reached, or connecting timed 
+	 * out. A read timeout or a connection reset is not, as TestLink may have 
+	 * handled the request.
+	 */
+	static boolean isConnectFailure( Throwable t )
+	{
+		for ( Throwable cause = t ; cause != null ; cause = cause.getCause() )
+		{
+			if ( cause instanceof ConnectException || 
+				 cause instanceof NoRouteToHostException || 
+				 cause instanceof UnknownHostException )
+			{
+				return true;
+			}
+			if ( cause instanceof SocketTimeoutException && 
+				 cause.getMessage() != null && 
+				 cause.getMessage().toLowerCase().contains( "connect" ) )
+			{
+				return true;
+			}
+			if ( cause.getCause() == cause )
+			{
+				break;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * A file attachment is too large when its encoded content would not fit 
+	 * in the maximum in flight. Attachments whose content was given are 
+	 * already in memory, and are uploaded alone.
+	 */
+	private boolean isTooLarge( Attachment attachment )
+	{
+		return attachment instanceof FileAttachment && 
+			attachment.getContent() == null && 
+			( (FileAttachment) attachment ).getBase64Length() > this.maxInFlightBytes;
+	}
+	
+	/**
+	 * Gets the number of kilobytes of the encoded attachment, bounded by the 
+	 * maximum, so that a larger attachment is uploaded alone.
+	 */
+	private int getPermits( Attachment attachment )
+	{
+		long size;
+		if ( attachment.getContent() != null )
+		{
+			size = attachment.getContent().length();
+		}
+		else if ( attachment.getFileSize() != null )
+		{
+			size = ( attachment.getFileSize() + 2 ) / 3 * 4;
+		}
+		else
+		{
+			size = 0L;
+		}
+		return (int) Math.max( 1L, Math.min( this.maxInFlightKilobytes, size / 1024L ) );
+	}
+	
+	/**
+	 * Gets the content of an attachment encoded in Base64, reading it from 
+	 * the file when it is a file attachment.
+	 */
+	private String getContent( Attachment attachment ) 
+	throws IOException, InterruptedException
+	{
+		if ( attachment instanceof FileAttachment && attachment.getContent() == null )
+		{
+			return this.attachmentContentCache.getBase64Content( (FileAttachment) attachment );
+		}
+		return attachment.getContent();
+	}
+	
+	/**
+	 * Outcome of the upload of a test case.
+	 * 
+	 * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+	 * @since 3.0.3
+	 */
+	public static class Outcome
+	{
+		
+		@SuppressWarnings("rawtypes")
+		private final TestCaseWrapper testCase;
+		
+		private Integer executionId;
+		
+		private int attachments = 0;
+		
+		private final List<Attachment> skippedAttachments = new ArrayList<Attachment>();
+		
+		private int retries = 0;
+		
+		private Throwable error;
+		
+		@SuppressWarnings("rawtypes")
+		public Outcome( TestCaseWrapper testCase )
+		{
+			this.testCase = testCase;
+		}
+		
+		@SuppressWarnings("rawtypes")
+		public TestCaseWrapper getTestCase()
+		{
+			return this.testCase;
+		}
+		
+		/**
+		 * @return id of the execution created in TestLink, <code>null</code> 
+		 * if the test case was not reported.
+		 */
+		public Integer getExecutionId()
+		{
+			return this.executionId;
+		}
+		
+		/**
+		 * @return number of attachments uploaded.
+		 */
+		public int getAttachments()
+		{
+			return this.attachments;
+		}
+		
+		/**
+		 * @return attachments not uploaded because their encoded content 
+		 * was larger than the maximum in flight.
+		 */
+		public List<Attachment> getSkippedAttachments()
+		{
+			return this.skippedAttachments;
+		}
+		
+		/**
+		 * @return number of calls retried.
+		 */
+		public int getRetries()
+		{
+			return this.retries;
+		}
+		
+		/**
+		 * @return error that stopped the upload of the test case, or 
+		 * <code>null</code>.
+		 */
+		public Throwable getError()
+		{
+			return this.error;
+		}
+		
+		public boolean isSuccessful()
+		{
+			return this.error == null;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,197 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.Util;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Api;
+import hudson.model.ModelObject;
+import hudson.plugins.testlink.result.Report;
+import hudson.plugins.testlink.result.TestCaseRecord;
+import hudson.plugins.testlink.util.Messages;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Durations of the TestLink test cases of a project: the slowest test cases 
+ * of the last build, and the sum of the durations of each build. Shown at 
+ * <code>testLinkResult/durations</code> of the project.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+@ExportedBean
+public class TestCaseDurations
+implements ModelObject
+{
+
+	private final AbstractProject<?, ?> project;
+	
+	private final AbstractBuild<?, ?> lastBuild;
+	
+	private final List<TestCaseRecord> slowest;
+	
+	private final List<TestLinkTrend.Point> trend;
+	
+	/**
+	 * Report of the build before the last one, loaded when first used.
+	 */
+	private Report previousReport;
+	private boolean previousReportLoaded;
+	
+	/**
+	 * @param project the project.
+	 * @param lastBuild last build with TestLink results, or <code>null</code>.
+	 * @param slowest slowest test cases of the last build.
+	 * @param trend points of the trend, oldest first.
+	 */
+	public TestCaseDurations( 
+		AbstractProject<?, ?> project, 
+		AbstractBuild<?, ?> lastBuild, 
+		List<TestCaseRecord> slowest, 
+		List<TestLinkTrend.Point> trend )
+	{
+		super();
+		this.project = project;
+		this.lastBuild = lastBuild;
+		this.slowest = slowest;
+		this.trend = new ArrayList<TestLinkTrend.Point>( trend );
+		Collections.reverse( this.trend );
+	}
+	
+	public AbstractProject<?, ?> getProject()
+	{
+		return this.project;
+	}
+	
+	public AbstractBuild<?, ?> getLastBuild()
+	{
+		return this.lastBuild;
+	}
+	
+	/**
+	 * @return remote API of the durations.
+	 */
+	public Api getApi()
+	{
+		return new Api( this );
+	}
+	
+	/**
+	 * @return slowest test cases of the last build, the slowest first.
+	 */
+	@Exported
+	public List<TestCaseRecord> getSlowest()
+	{
+		return this.slowest;
+	}
+	
+	/**
+	 * @return points of the trend, newest first.
+	 */
+	@Exported
+	public List<TestLinkTrend.Point> getTrend()
+	{
+		return this.trend;
+	}
+	
+	/**
+	 * Gets how much longer a test case took than in the build before the 
+	 * last one.
+	 * 
+	 * @param record a test case of the last build.
+	 * @return the difference, empty if either duration is unknown.
+	 */
+	public synchronized String getChangeText( TestCaseRecord record )
+	{
+		if ( ! this.previousReportLoaded )
+		{
+			this.previousReportLoaded = true;
+			final TestLinkBuildAction action = this.lastBuild != null ? 
+				this.lastBuild.getAction( TestLinkBuildAction.class ) : null;
+			final TestLinkResult previousResult = action != null ? action.getPreviousResult() : null;
+			this.previousReport = previousResult != null ? previousResult.getReport() : null;
+		}
+		final TestCaseRecord previous = this.previousReport != null ? this.previousReport.getTestCase( record.getId() ) : null;
+		if ( previous == null || previous.getDuration() < 0 || record.getDuration() < 0 )
+		{
+			return "";
+		}
+		return getChangeText( record.getDuration(), previous.getDuration() );
+	}
+	
+	/**
+	 * @param point a point of the trend.
+	 * @param index index of the point in {@link #getTrend()}.
+	 * @return how much longer the build took than the one before it, empty 
+	 * if either duration is unknown.
+	 */
+	public String getChangeText( TestLinkTrend.Point point, int index )
+	{
+		if ( index + 1 >= this.trend.size() )
+		{
+			return "";
+		}
+		final long previous = this.trend.get( index + 1 ).getDuration();
+		if ( previous < 0 || point.getDuration() < 0 )
+		{
+			return "";
+		}
+		return getChangeText( point.getDuration(), previous );
+	}
+	
+	private static String getChangeText( long duration, long previous )
+	{
+		final long change = duration - previous;
+		if ( change == 0 )
+		{
+			return "";
+		}
+		return ( change > 0 ? "+" : "-" ) + Util.getTimeSpanString( Math.abs( change ) );
+	}
+	
+	/**
+	 * @param duration a duration in milliseconds.
+	 * @return the duration, empty if unknown.
+	 */
+	public String getDurationText( long duration )
+	{
+		return duration < 0 ? "" : Util.getTimeSpanString( duration );
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.model.ModelObject#getDisplayName()
+	 */
+	public String getDisplayName()
+	{
+		return Messages.TestCaseDurations_DisplayName();
+	}
+	
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.EnvVars;
+import hudson.model.EnvironmentContributingAction;
+import hudson.model.AbstractBuild;
+
+/**
+ * Contributes the environment variables of the Test Case being executed by 
+ * the current thread. Added once to the build while the iterative build 
+ * steps run, one Test Case after another or concurrently, so that each 
+ * worker sees only the variables of its own Test Case, and removed 
+ * afterwards. If the build is saved meanwhile, 
+ * the action is written without state and contributes nothing once loaded.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestCaseEnvironmentAction 
+implements EnvironmentContributingAction
+{
+
+	/**
+	 * Environment variables of the Test Case of each worker thread.
+	 */
+	private transient ThreadLocal<EnvVars> overlay = new ThreadLocal<EnvVars>();
+	
+	/**
+	 * Recreates the transient state, which XStream leaves null.
+	 * 
+	 * @return this action.
+	 */
+	protected Object readResolve()
+	{
+		this.overlay = new ThreadLocal<EnvVars>();
+		return this;
+	}
+	
+	/**
+	 * @param envVars environment variables of the Test Case executed by the 
+	 * current thread.
+	 */
+	public void set( EnvVars envVars )
+	{
+		this.overlay.set( envVars );
+	}
+	
+	/**
+	 * Removes the environment variables of the current thread.
+	 */
+	public void clear()
+	{
+		this.overlay.remove();
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.model.EnvironmentContributingAction#buildEnvVars(hudson.model.AbstractBuild, hudson.EnvVars)
+	 */
+	public void buildEnvVars( AbstractBuild<?, ?> build, EnvVars env )
+	{
+		if ( this.overlay == null )
+		{
+			return;
+		}
+		final EnvVars envVars = this.overlay.get();
+		if ( envVars != null )
+		{
+			env.putAll( envVars );
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getUrlName()
+	 */
+	public String getUrlName()
+	{
+		return null;
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getIconFileName()
+	 */
+	public String getIconFileName()
+	{
+		return null;
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.model.Action#getDisplayName()
+	 */
+	public String getDisplayName()
+	{
+		return null;
+	}
+	
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Api;
+import hudson.model.ModelObject;
+import hudson.plugins.testlink.result.TestCaseRecord;
+import hudson.plugins.testlink.util.TestLinkHelper;
+
+import java.util.List;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Status of a test case in the builds of a project, shown at 
+ * <code>testLinkResult/caseHistory/{id}</code> of the project.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+@ExportedBean
+public class TestCaseHistory
+implements ModelObject
+{
+
+	private final AbstractProject<?, ?> project;
+	
+	private final int id;
+	
+	private final List<TestLinkHistory.Entry> entries;
+	
+	public TestCaseHistory( AbstractProject<?, ?> project, int id, List<TestLinkHistory.Entry> entries )
+	{
+		super();
+		this.project = project;
+		this.id = id;
+		this.entries = entries;
+	}
+	
+	public AbstractProject<?, ?> getProject()
+	{
+		return this.project;
+	}
+	
+	/**
+	 * @return remote API of this history.
+	 */
+	public Api getApi()
+	{
+		return new Api( this );
+	}
+	
+	@Exported
+	public int getId()
+	{
+		return this.id;
+	}
+	
+	/**
+	 * @return status of the test case in each build, newest first.
+	 */
+	@Exported
+	public List<TestLinkHistory.Entry> getEntries()
+	{
+		return this.entries;
+	}
+	
+	/**
+	 * @param entry an entry of this history.
+	 * @return the colored execution status, as HTML.
+	 */
+	public String getStatusText( TestLinkHistory.Entry entry )
+	{
+		return TestLinkHelper.getExecutionStatusTextColored( entry.getExecutionStatus() );
+	}
+	
+	/**
+	 * Gets the record of the test case in the newest build of this history, 
+	 * loading the report of that build.
+	 * 
+	 * @return the record, or <code>null</code> if the build is gone.
+	 */
+	public TestCaseRecord getLastRecord()
+	{
+		if ( this.entries.isEmpty() )
+		{
+			return null;
+		}
+		final AbstractBuild<?, ?> build = this.project.getBuildByNumber( this.entries.get( 0 ).getBuildNumber() );
+		final TestLinkBuildAction action = build != null ? build.getAction( TestLinkBuildAction.class ) : null;
+		if ( action == null || action.getResult() == null )
+		{
+			return null;
+		}
+		return action.getResult().getReport().getTestCase( this.id );
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.model.ModelObject#getDisplayName()
+	 */
+	public String getDisplayName()
+	{
+		final TestCaseRecord record = this.getLastRecord();
+		return record != null ? record.getName() : String.valueOf( this.id );
+	}
+	
+}
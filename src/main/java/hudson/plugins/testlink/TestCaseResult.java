@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.model.AbstractBuild;
+import hudson.model.ModelObject;
+import hudson.plugins.testlink.result.ReportPage;
+import hudson.plugins.testlink.result.TestCaseRecord;
+
+/**
+ * A test case of a TestLink result, shown at 
+ * <code>testLinkResult/case/{id}</code>.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestCaseResult
+implements ModelObject
+{
+
+	private final TestLinkResult result;
+	
+	private final TestCaseRecord record;
+	
+	public TestCaseResult( TestLinkResult result, TestCaseRecord record )
+	{
+		super();
+		this.result = result;
+		this.record = record;
+	}
+	
+	public TestLinkResult getResult()
+	{
+		return this.result;
+	}
+	
+	public AbstractBuild<?, ?> getOwner()
+	{
+		return this.result.getOwner();
+	}
+	
+	public TestCaseRecord getRecord()
+	{
+		return this.record;
+	}
+	
+	/**
+	 * @return the colored execution status, as HTML.
+	 */
+	public String getStatusText()
+	{
+		return ReportPage.getStatusText( this.record );
+	}
+	
+	/**
+	 * @return the duration, empty if unknown.
+	 */
+	public String getDurationText()
+	{
+		return ReportPage.getDurationText( this.record );
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.model.ModelObject#getDisplayName()
+	 */
+	public String getDisplayName()
+	{
+		return this.record.getName();
+	}
+	
+}
@@ -23,25 +23,34 @@
  */
 package hudson.plugins.testlink;
 
-import hudson.model.Action;
 import hudson.model.AbstractBuild;
+import hudson.model.Run;
+import hudson.model.RunAction;
 import hudson.plugins.testlink.result.Report;
+import hudson.plugins.testlink.result.ReportDiff;
 import hudson.plugins.testlink.util.TestLinkHelper;
 
+import java.io.IOException;
 import java.io.Serializable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.kohsuke.stapler.StaplerProxy;
 
+import br.eti.kinoshita.testlinkjavaapi.model.Build;
+
 /**
  * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
  * @since 1.0
  */
 public class TestLinkBuildAction 
-implements Action, Serializable, StaplerProxy
+implements RunAction, Serializable, StaplerProxy
 {
 
 	private static final long serialVersionUID = -914904584770393909L;
 	
+	private static final Logger LOGGER = Logger.getLogger( TestLinkBuildAction.class.getName() );
+	
 	public static final String DISPLAY_NAME = "TestLink";
 	public static final String ICON_FILE_NAME = "/plugin/testlink/icons/testlink-24.png";
 	public static final String URL_NAME = "testLinkResult";
@@ -49,10 +58,182 @@ implements Action, Serializable, StaplerProxy
 	private AbstractBuild<?, ?> build;
 	private TestLinkResult result;
 	
+	/*
+	 * Counters of the report, kept here so that the project page and the 
+	 * summaries do not need to load the report with every test case. Builds 
+	 * recorded before 3.0.3 have them set when loaded.
+	 */
+	private Build testLinkBuild;
+	private Integer testsTotal;
+	private int testsPassed;
+	private int testsFailed;
+	private int testsBlocked;
+	private int testsNotRun;
+	
+	/**
+	 * Sum of the durations of the test cases, in milliseconds. It is 
+	 * <code>null</code> for builds recorded before 3.0.3.
+	 */
+	private Long duration;
+	
+	/*
+	 * Counters of the previous build with TestLink results, set when this 
+	 * action is created, so that the summary shows the deltas without loading 
+	 * the previous build. Builds recorded before 3.0.3 have them set the 
+	 * first time the summary is shown.
+	 */
+	private boolean previousCounted;
+	private Integer previousBuildNumber;
+	private Integer previousTestsTotal;
+	private int previousTestsPassed;
+	private int previousTestsFailed;
+	private int previousTestsBlocked;
+	private int previousTestsNotRun;
+	
+	/**
+	 * Number of test cases in each category of the differences with the 
+	 * previous build, set when this action is created. They are 
+	 * <code>null</code> for builds recorded before 3.0.3 or without a 
+	 * previous build.
+	 */
+	private Integer newFailures;
+	private Integer fixed;
+	private Integer stillFailing;
+	private Integer added;
+	private Integer removed;
+	
+	/**
+	 * Whether the counters were set when this action was loaded.
+	 */
+	private transient boolean migrated;
+	
 	public TestLinkBuildAction(AbstractBuild<?, ?> build, TestLinkResult result)
 	{
 		this.build = build;
 		this.result = result;
+		this.countTests();
+		this.countPreviousTests();
+		this.countChanges();
+	}
+	
+	/**
+	 * Sets the counters of builds recorded before 3.0.3.
+	 * 
+	 * @return this action.
+	 */
+	protected Object readResolve()
+	{
+		if ( this.testsTotal == null )
+		{
+			this.countTests();
+			this.migrated = true;
+		}
+		return this;
+	}
+	
+	/**
+	 * Saves the builds recorded before 3.0.3 once they are loaded, so that 
+	 * their report is left out of the build record and their counters are 
+	 * kept in it, instead of migrating them again on every load.
+	 * 
+	 * @see hudson.model.RunAction#onLoad()
+	 */
+	public void onLoad()
+	{
+		if ( this.build == null )
+		{
+			return;
+		}
+		if ( this.migrated || ( this.result != null && this.result.isMigrated() ) )
+		{
+			try
+			{
+				this.build.save();
+				this.migrated = false;
+			}
+			catch ( IOException ioe )
+			{
+				LOGGER.log( Level.WARNING, "Failed to save the migrated TestLink results of " + this.build, ioe );
+			}
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.model.RunAction#onAttached(hudson.model.Run)
+	 */
+	public void onAttached( Run r )
+	{
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.model.RunAction#onBuildComplete()
+	 */
+	public void onBuildComplete()
+	{
+	}
+	
+	private void countTests()
+	{
+		final Report report = this.result != null ? this.result.getReport() : null;
+		if ( report != null )
+		{
+			this.testLinkBuild = report.getBuild();
+			this.testsTotal = report.getTestsTotal();
+			this.testsPassed = report.getTestsPassed();
+			this.testsFailed = report.getTestsFailed();
+			this.testsBlocked = report.getTestsBlocked();
+			this.testsNotRun = report.getTestsNotRun();
+			this.duration = report.getDuration();
+		}
+		else
+		{
+			this.testsTotal = 0;
+		}
+	}
+	
+	private synchronized void countPreviousTests()
+	{
+		final TestLinkBuildAction previous = this.getPreviousAction();
+		if ( previous != null )
+		{
+			this.previousBuildNumber = previous.getBuild() != null ? previous.getBuild().getNumber() : null;
+			this.previousTestsTotal = previous.getTestsTotal();
+			this.previousTestsPassed = previous.getTestsPassed();
+			this.previousTestsFailed = previous.getTestsFailed();
+			this.previousTestsBlocked = previous.getTestsBlocked();
+			this.previousTestsNotRun = previous.getTestsNotRun();
+		}
+		this.previousCounted = true;
+	}
+	
+	private void countChanges()
+	{
+		final TestLinkResult previousResult = this.getPreviousResult();
+		if ( this.result != null && previousResult != null )
+		{
+			final ReportDiff diff = this.result.getDiff( previousResult );
+			this.newFailures = diff.getNewFailures().size();
+			this.fixed = diff.getFixed().size();
+			this.stillFailing = diff.getStillFailing().size();
+			this.added = diff.getAdded().size();
+			this.removed = diff.getRemoved().size();
+		}
+	}
+	
+	/**
+	 * Counts the tests of the previous build if it was not done when this 
+	 * action was created.
+	 */
+	private void ensurePreviousCounted()
+	{
+		synchronized ( this )
+		{
+			if ( this.previousCounted )
+			{
+				return;
+			}
+		}
+		this.countPreviousTests();
 	}
 	
 	public String getDisplayName()
@@ -88,17 +269,179 @@ implements Action, Serializable, StaplerProxy
 	}
 	
 	/**
-	 * @return Previous TestLink report
+	 * @return TestLink build
+	 * @since 3.0.3
 	 */
-	private Report getPreviousReport()
+	public Build getTestLinkBuild()
 	{
-		TestLinkResult previousResult = this.getPreviousResult();
-		Report previousReport = null;
-		if ( previousResult != null )
-		{
-			previousReport = previousResult.getReport();
-		}
-		return previousReport;
+		return this.testLinkBuild;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	public int getTestsTotal()
+	{
+		return this.testsTotal;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	public int getTestsPassed()
+	{
+		return this.testsPassed;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	public int getTestsFailed()
+	{
+		return this.testsFailed;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	public int getTestsBlocked()
+	{
+		return this.testsBlocked;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	public int getTestsNotRun()
+	{
+		return this.testsNotRun;
+	}
+	
+	/**
+	 * @return sum of the durations of the test cases, in milliseconds, -1 if 
+	 * unknown.
+	 * @since 3.0.3
+	 */
+	public long getDuration()
+	{
+		return this.duration != null ? this.duration : -1L;
+	}
+	
+	/**
+	 * @return whether there was a previous build with TestLink results when 
+	 * this build finished.
+	 * @since 3.0.3
+	 */
+	public boolean hasPreviousTests()
+	{
+		this.ensurePreviousCounted();
+		return this.previousTestsTotal != null;
+	}
+	
+	/**
+	 * @return number of the previous build with TestLink results, or 
+	 * <code>null</code> if there was none.
+	 * @since 3.0.3
+	 */
+	public Integer getPreviousBuildNumber()
+	{
+		this.ensurePreviousCounted();
+		return this.previousBuildNumber;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	public int getPreviousTestsTotal()
+	{
+		this.ensurePreviousCounted();
+		return this.previousTestsTotal != null ? this.previousTestsTotal : 0;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	public int getPreviousTestsPassed()
+	{
+		this.ensurePreviousCounted();
+		return this.previousTestsPassed;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	public int getPreviousTestsFailed()
+	{
+		this.ensurePreviousCounted();
+		return this.previousTestsFailed;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	public int getPreviousTestsBlocked()
+	{
+		this.ensurePreviousCounted();
+		return this.previousTestsBlocked;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	public int getPreviousTestsNotRun()
+	{
+		this.ensurePreviousCounted();
+		return this.previousTestsNotRun;
+	}
+	
+	/**
+	 * @return whether the differences with the previous build were counted 
+	 * when this action was created.
+	 * @since 3.0.3
+	 */
+	public boolean hasChanges()
+	{
+		return this.newFailures != null;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	public int getNewFailures()
+	{
+		return this.newFailures != null ? this.newFailures : 0;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	public int getFixed()
+	{
+		return this.fixed != null ? this.fixed : 0;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	public int getStillFailing()
+	{
+		return this.stillFailing != null ? this.stillFailing : 0;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	public int getAdded()
+	{
+		return this.added != null ? this.added : 0;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	public int getRemoved()
+	{
+		return this.removed != null ? this.removed : 0;
 	}
 	
 	/**
@@ -116,13 +459,18 @@ implements Action, Serializable, StaplerProxy
 	}
 	
 	/**
+	 * Gets the action of the previous build with TestLink results, found 
+	 * through the index of the project trend, without loading the builds in 
+	 * between.
+	 * 
 	 * @return Previous Build Action
 	 */
 	public TestLinkBuildAction getPreviousAction()
 	{
 		if ( this.build != null )
 		{
-			AbstractBuild<?, ?> previousBuild = this.build.getPreviousBuild();
+			AbstractBuild<?, ?> previousBuild = TestLinkTrend.getInstance( this.build.getProject() )
+					.getBuildBefore( this.build.getProject(), this.build.getNumber() );
 			if ( previousBuild != null )
 			{
 				return previousBuild.getAction(TestLinkBuildAction.class);
@@ -135,14 +483,17 @@ implements Action, Serializable, StaplerProxy
 	 * @return Report summary
 	 */
 	public String getSummary(){
-        return TestLinkHelper.createReportSummary(result.getReport(), this.getPreviousReport());
+        return TestLinkHelper.createReportSummary(this);
     }
 	
 	/**
 	 * @return Detailed Report summary
+	 * @deprecated the test cases are listed, a page at a time, in the 
+	 * TestLink result page.
 	 */
+    @Deprecated
     public String getDetails(){
-        return TestLinkHelper.createReportSummaryDetails(result.getReport(), this.getPreviousReport());
+        return TestLinkHelper.createReportSummaryDetails(result.getReport(), null);
     }
 	
 }
@@ -26,12 +26,15 @@ package hudson.plugins.testlink;
 import hudson.AbortException;
 import hudson.EnvVars;
 import hudson.Extension;
+import hudson.FilePath;
 import hudson.Launcher;
 import hudson.model.BuildListener;
-import hudson.model.EnvironmentContributingAction;
+import hudson.model.StreamBuildListener;
 import hudson.model.Result;
 import hudson.model.AbstractBuild;
 import hudson.plugins.testlink.parser.testng.Suite;
+import hudson.plugins.testlink.result.FileAttachment;
+import hudson.plugins.testlink.result.KeyCustomFieldIndex;
 import hudson.plugins.testlink.result.Report;
 import hudson.plugins.testlink.result.TestCaseWrapper;
 import hudson.plugins.testlink.result.TestResultSeeker;
@@ -42,16 +45,30 @@ import hudson.plugins.testlink.result.junit.JUnitTestCasesTestResultSeeker;
 import hudson.plugins.testlink.result.tap.TAPTestResultSeeker;
 import hudson.plugins.testlink.result.testng.TestNGClassesTestResultSeeker;
 import hudson.plugins.testlink.result.testng.TestNGSuitesTestResultSeeker;
+import hudson.plugins.testlink.util.FailedTestCasesFilter;
+import hudson.plugins.testlink.util.HistoricalOrderComparator;
 import hudson.plugins.testlink.util.Messages;
+import hudson.plugins.testlink.util.PrefixedOutputStream;
 import hudson.plugins.testlink.util.TestLinkHelper;
 import hudson.tasks.BuildStep;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -59,6 +76,7 @@ import org.tap4j.model.TestSet;
 
 import br.eti.kinoshita.testlinkjavaapi.TestLinkAPI;
 import br.eti.kinoshita.testlinkjavaapi.TestLinkAPIException;
+import br.eti.kinoshita.testlinkjavaapi.model.Attachment;
 import br.eti.kinoshita.testlinkjavaapi.model.Build;
 import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
 import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
@@ -81,7 +99,13 @@ extends AbstractTestLinkBuilder
 	@Extension 
 	public static final TestLinkBuilderDescriptor DESCRIPTOR = new TestLinkBuilderDescriptor();
 
-	@DataBoundConstructor
+	/**
+	 * Creates a builder with the default values of the options added after 
+	 * 3.0.2.
+	 * 
+	 * @deprecated since 3.0.3, use the constructor with all the options.
+	 */
+	@Deprecated
 	public TestLinkBuilder(
 		String testLinkName, 
 		String testProjectName, 
@@ -99,6 +123,54 @@ extends AbstractTestLinkBuilder
 		String testNGXmlReportFilesPattern, 
 		String tapStreamReportFilesPattern
 	)
+	{
+		this(
+			testLinkName, 
+			testProjectName, 
+			testPlanName, 
+			buildName, 
+			customFields, 
+			keyCustomField, 
+			singleBuildSteps, 
+			beforeIteratingAllTestCasesBuildSteps, 
+			iterativeBuildSteps, 
+			afterIteratingAllTestCasesBuildSteps, 
+			transactional, 
+			failedTestsMarkBuildAsFailure, 
+			junitXmlReportFilesPattern, 
+			testNGXmlReportFilesPattern, 
+			tapStreamReportFilesPattern, 
+			null, 
+			null, 
+			null, 
+			null, 
+			null
+		);
+	}
+	
+	@DataBoundConstructor
+	public TestLinkBuilder(
+		String testLinkName, 
+		String testProjectName, 
+		String testPlanName, 
+		String buildName, 
+		String customFields, 
+		String keyCustomField, 
+		List<BuildStep> singleBuildSteps, 
+		List<BuildStep> beforeIteratingAllTestCasesBuildSteps,
+		List<BuildStep> iterativeBuildSteps, 
+		List<BuildStep> afterIteratingAllTestCasesBuildSteps, 
+		Boolean transactional, 
+		Boolean failedTestsMarkBuildAsFailure, 
+		String junitXmlReportFilesPattern, 
+		String testNGXmlReportFilesPattern, 
+		String tapStreamReportFilesPattern, 
+		Integer parsingParallelism, 
+		String executionOrder, 
+		String rerunFailed, 
+		Integer iterativeParallelism, 
+		Integer iterativeBatchSize
+	)
 	{
 		super(
 			testLinkName, 
@@ -115,7 +187,12 @@ extends AbstractTestLinkBuilder
 			failedTestsMarkBuildAsFailure, 
 			junitXmlReportFilesPattern, 
 			testNGXmlReportFilesPattern, 
-			tapStreamReportFilesPattern
+			tapStreamReportFilesPattern, 
+			parsingParallelism, 
+			executionOrder, 
+			rerunFailed, 
+			iterativeParallelism, 
+			iterativeBatchSize
 		);
 	}
 	
@@ -153,14 +230,58 @@ extends AbstractTestLinkBuilder
 			final String buildNotes 	 = Messages.TestLinkBuilder_Build_Notes();
 			// TestLink Site object
 			testLinkSite = this.getTestLinkSite(testLinkUrl, testLinkDevKey, testProjectName, testPlanName, buildName, buildNotes);
+			if ( installation.getCustomFieldsConcurrency() != null )
+			{
+				testLinkSite.setCustomFieldsConcurrency( installation.getCustomFieldsConcurrency() );
+			}
+			if ( installation.getCustomFieldsTimeout() != null )
+			{
+				testLinkSite.setCustomFieldsTimeout( installation.getCustomFieldsTimeout() );
+			}
+			if ( installation.getUploadConcurrency() != null )
+			{
+				testLinkSite.setUploadConcurrency( installation.getUploadConcurrency() );
+			}
+			if ( installation.getUploadRetries() != null )
+			{
+				testLinkSite.setUploadRetries( installation.getUploadRetries() );
+			}
+			if ( installation.getCustomFieldsCacheTtl() != null && installation.getCustomFieldsCacheTtl() > 0 )
+			{
+				testLinkSite.setCustomFieldCache( 
+						CustomFieldCache.getInstance(), 
+						installation.getName(), 
+						TimeUnit.MINUTES.toMillis( installation.getCustomFieldsCacheTtl() ) );
+			}
 			final String[] customFieldsNames = this.createArrayOfCustomFieldsNames();
 			// Array of automated test cases
-			automatedTestCases = testLinkSite.getAutomatedTestCases( customFieldsNames );
-			listener.getLogger().println( Messages.TestLinkBuilder_ShowFoundAutomatedTestCases( automatedTestCases.length ) );
+			final TestCase[] foundTestCases = testLinkSite.getAutomatedTestCases( customFieldsNames );
+			listener.getLogger().println( Messages.TestLinkBuilder_ShowFoundAutomatedTestCases( foundTestCases.length ) );
+			listener.getLogger().println( Messages.TestLinkBuilder_CustomFieldsFetched( 
+					testLinkSite.getCustomFieldsFetched(), 
+					Math.max( 1, testLinkSite.getCustomFieldsConcurrency() ), 
+					testLinkSite.getCustomFieldsFetchTime() ) );
+			if ( testLinkSite.getCustomFieldCache() != null )
+			{
+				listener.getLogger().println( Messages.TestLinkBuilder_CustomFieldsCached( 
+						testLinkSite.getCustomFieldsCached(), 
+						testLinkSite.getCustomFieldCache().size() ) );
+				try
+				{
+					testLinkSite.getCustomFieldCache().save();
+				}
+				catch ( IOException ioe )
+				{
+					listener.getLogger().println( Messages.TestLinkBuilder_CustomFieldsCacheSaveFailed( ioe.getMessage() ) );
+				}
+			}
+			
+			automatedTestCases = this.filterFailedTestCases( foundTestCases, testLinkSite, build, listener );
 			
 			// Sorts test cases by each execution order (this info comes from TestLink)
 			listener.getLogger().println( Messages.TestLinkBuilder_SortingTestCases() );
 			Arrays.sort( automatedTestCases, this.executionOrderComparator );
+			this.sortByHistory( automatedTestCases, build, listener );
 		}
 		catch (MalformedURLException mue) 
 		{
@@ -188,6 +309,8 @@ extends AbstractTestLinkBuilder
 		// This report is used to generate the graphs and to store the list of 
 		// test cases with each found status.
 		final Report report;
+		// Number of test cases that could not be uploaded to TestLink
+		final int uploadFailures;
 		// Here we search for test results. The return if a wrapped Test Case that 
 		// contains attachments, platform and notes.
 		try
@@ -197,7 +320,9 @@ extends AbstractTestLinkBuilder
 			listener.getLogger().println( Messages.TestLinkBuilder_ShowFoundTestResults(wrappedTestCases.size()) );
 			// Update TestLink with test results and uploads attachments
 			listener.getLogger().println( Messages.TestLinkBuilder_Update_AutomatedTestCases() );
-			testLinkSite.updateTestCases( wrappedTestCases.values() );
+			final long uploadStart = System.currentTimeMillis();
+			final List<ResultUploader.Outcome> outcomes = testLinkSite.updateTestCases( wrappedTestCases.values() );
+			uploadFailures = this.printUploadSummary( outcomes, System.currentTimeMillis() - uploadStart, listener );
 			report = new Report(testLinkSite.getBuild());
 			for(TestCaseWrapper<?> wrappedTestCase : wrappedTestCases.values() )
 			{
@@ -219,7 +344,13 @@ extends AbstractTestLinkBuilder
         final TestLinkBuildAction buildAction = new TestLinkBuildAction(build, result);
         build.addAction( buildAction );
         
-        if ( report.getTestsFailed() > 0 )
+        if ( uploadFailures > 0 )
+        {
+        	listener.error( Messages.TestLinkBuilder_FailedToUpdateTL( 
+        			Messages.TestLinkBuilder_UploadFailures( uploadFailures ) ) );
+        	build.setResult( Result.FAILURE );
+        }
+        else if ( report.getTestsFailed() > 0 )
 		{
 			if ( this.failedTestsMarkBuildAsFailure != null && this.failedTestsMarkBuildAsFailure )
 			{
@@ -235,6 +366,67 @@ extends AbstractTestLinkBuilder
 		return Boolean.TRUE;
 	}
 	
+	/**
+	 * Prints the outcome of the upload of each test case, and the stack 
+	 * trace of each failed upload. The build is not aborted here, so that 
+	 * the test results are still recorded in the build before it is marked 
+	 * as failed.
+	 * 
+	 * @param outcomes outcomes of the upload.
+	 * @param time time spent uploading, in milliseconds.
+	 * @param listener Jenkins build listener.
+	 * @return number of test cases that could not be uploaded.
+	 */
+	protected int printUploadSummary( List<ResultUploader.Outcome> outcomes, long time, BuildListener listener ) 
+	{
+		int failed = 0;
+		int retries = 0;
+		for( ResultUploader.Outcome outcome : outcomes )
+		{
+			retries += outcome.getRetries();
+			if ( outcome.isSuccessful() )
+			{
+				listener.getLogger().println( Messages.TestLinkBuilder_UploadOutcome( 
+						String.valueOf( outcome.getTestCase().getId() ), 
+						outcome.getTestCase().getName(), 
+						outcome.getTestCase().getExecutionStatus(), 
+						String.valueOf( outcome.getExecutionId() ), 
+						outcome.getAttachments(), 
+						outcome.getRetries() ) );
+				for( Attachment attachment : outcome.getSkippedAttachments() )
+				{
+					listener.getLogger().println( Messages.TestLinkBuilder_AttachmentSkipped( 
+							attachment.getFileName(), 
+							String.valueOf( outcome.getTestCase().getId() ), 
+							String.valueOf( ( (FileAttachment) attachment ).getBase64Length() ) ) );
+				}
+			}
+			else
+			{
+				failed += 1;
+				listener.getLogger().println( Messages.TestLinkBuilder_UploadOutcomeFailed( 
+						String.valueOf( outcome.getTestCase().getId() ), 
+						outcome.getTestCase().getName(), 
+						outcome.getRetries(), 
+						outcome.getError().getMessage() ) );
+			}
+		}
+		listener.getLogger().println( Messages.TestLinkBuilder_UploadSummary( 
+				outcomes.size() - failed, failed, retries, time ) );
+		
+		if ( failed > 0 )
+		{
+			for( ResultUploader.Outcome outcome : outcomes )
+			{
+				if ( ! outcome.isSuccessful() )
+				{
+					outcome.getError().printStackTrace( listener.getLogger() );
+				}
+			}
+		}
+		return failed;
+	}
+	
 	/**
 	 * Gets object to interact with TestLink site.
 	 * @throws MalformedURLException
@@ -255,6 +447,77 @@ extends AbstractTestLinkBuilder
 		return new TestLinkSite(api, testProject, testPlan, build);
 	}
 
+	/**
+	 * Keeps only the automated test cases that failed or were blocked in the 
+	 * previous build report, or in their last execution in TestLink, as 
+	 * configured. All the test cases are kept when there is no previous 
+	 * report.
+	 * 
+	 * @param automatedTestCases automated test cases.
+	 * @param testLinkSite TestLink site, with the last execution statuses.
+	 * @param build Jenkins build.
+	 * @param listener Jenkins build listener.
+	 * @return automated test cases to run.
+	 */
+	protected TestCase[] filterFailedTestCases( TestCase[] automatedTestCases, TestLinkSite testLinkSite, AbstractBuild<?, ?> build, BuildListener listener )
+	{
+		final Set<Integer> failedTestCases;
+		if ( FailedTestCasesFilter.RERUN_REPORT.equals( this.rerunFailed ) )
+		{
+			final AbstractBuild<?, ?> previousBuild = TestLinkTrend.getInstance( build.getProject() ).getBuildBefore( build.getProject(), build.getNumber() );
+			final TestLinkBuildAction previousAction = previousBuild != null ? previousBuild.getAction( TestLinkBuildAction.class ) : null;
+			if ( previousAction == null || previousAction.getResult() == null )
+			{
+				listener.getLogger().println( Messages.TestLinkBuilder_RerunFailedNoPreviousReport() );
+				return automatedTestCases;
+			}
+			failedTestCases = FailedTestCasesFilter.getFailedTestCases( previousAction.getResult().getReport() );
+		}
+		else if ( FailedTestCasesFilter.RERUN_TESTLINK.equals( this.rerunFailed ) )
+		{
+			failedTestCases = testLinkSite.getLastFailedTestCases();
+		}
+		else
+		{
+			return automatedTestCases;
+		}
+		final TestCase[] filtered = FailedTestCasesFilter.filter( automatedTestCases, failedTestCases );
+		listener.getLogger().println( Messages.TestLinkBuilder_RerunFailed( 
+				filtered.length, automatedTestCases.length - filtered.length ) );
+		return filtered;
+	}
+	
+	/**
+	 * Sorts the automated test cases by their average duration, or by how 
+	 * often they failed, in the last builds, as configured. Both are taken 
+	 * from the {@link TestLinkHistory} of the project, without loading the 
+	 * reports of the builds. Test cases without history and test cases with 
+	 * the same duration or failure rate keep the execution order.
+	 * 
+	 * @param automatedTestCases automated test cases, sorted by execution 
+	 * order.
+	 * @param build Jenkins build.
+	 * @param listener Jenkins build listener.
+	 */
+	protected void sortByHistory( TestCase[] automatedTestCases, AbstractBuild<?, ?> build, BuildListener listener )
+	{
+		final Map<Integer, Double> weights;
+		if ( HistoricalOrderComparator.ORDER_DURATION.equals( this.executionOrder ) )
+		{
+			weights = TestLinkHistory.getInstance( build.getProject() ).getAverageDurations( TestLinkFlakiness.WINDOW );
+		}
+		else if ( HistoricalOrderComparator.ORDER_FAILURE.equals( this.executionOrder ) )
+		{
+			weights = TestLinkHistory.getInstance( build.getProject() ).getFailureRates();
+		}
+		else
+		{
+			return;
+		}
+		listener.getLogger().println( Messages.TestLinkBuilder_SortingTestCasesByHistory( this.executionOrder, weights.size() ) );
+		Arrays.sort( automatedTestCases, new HistoricalOrderComparator( weights, this.executionOrderComparator ) );
+	}
+	
 	/**
 	 * Executes the list of single build steps.
 	 * 
@@ -285,6 +548,11 @@ extends AbstractTestLinkBuilder
 	 * array of automated test cases, this method executes the iterative builds steps 
 	 * using Jenkins objects.</p>
 	 * 
+	 * <p>The environment variables of the test case being executed are 
+	 * contributed by a single {@link TestCaseEnvironmentAction}, removed once 
+	 * all the test cases were executed, instead of an action per test 
+	 * case.</p>
+	 * 
 	 * @param automatedTestCases  array of automated test cases
 	 * @param testLinkSite The TestLink Site object
 	 * @param launcher
@@ -308,51 +576,52 @@ extends AbstractTestLinkBuilder
 			}
 		}
 		
-		for( TestCase automatedTestCase : automatedTestCases ) 
+		if ( iterativeBuildSteps != null && 
+			 ( ( this.iterativeParallelism != null && this.iterativeParallelism > 1 ) || 
+			   ( this.iterativeBatchSize != null && this.iterativeBatchSize > 1 ) ) )
 		{
-			if ( this.failure  && this.transactional )
-			{
-				automatedTestCase.setExecutionStatus( ExecutionStatus.BLOCKED );
-			}
-			else
+			this.executeIterativeBuildStepsConcurrently( automatedTestCases, testLinkSite, build, launcher, listener );
+		}
+		else
+		{
+			final TestCaseEnvironmentAction environment = new TestCaseEnvironmentAction();
+			build.addAction( environment );
+			try
 			{
-				if( iterativeBuildSteps != null ) 
+				for( TestCase automatedTestCase : automatedTestCases ) 
 				{
-					final EnvVars iterativeEnvVars = TestLinkHelper.buildTestCaseEnvVars( automatedTestCase, testLinkSite.getTestProject(), testLinkSite.getTestPlan(), testLinkSite.getBuild(), listener );
-
-					build.addAction(new EnvironmentContributingAction()
+					if ( this.failure  && this.transactional )
 					{
-						public void buildEnvVars( AbstractBuild<?, ?> build, EnvVars env )
-						{
-							env.putAll(iterativeEnvVars);
-						}
-						
-						public String getUrlName()
-						{
-							return null;
-						}
-						
-						public String getIconFileName()
-						{
-							return null;
-						}
-						
-						public String getDisplayName()
-						{
-							return null;
-						}
-					});
-					
-					for( BuildStep b : iterativeBuildSteps ) 
+						automatedTestCase.setExecutionStatus( ExecutionStatus.BLOCKED );
+					}
+					else
 					{
-						final boolean success = b.perform(build, launcher, listener);
-						if ( ! success ) 
+						if( iterativeBuildSteps != null ) 
 						{
-							this.failure = Boolean.TRUE;
+							environment.set( TestLinkHelper.buildTestCaseEnvVars( automatedTestCase, testLinkSite.getTestProject(), testLinkSite.getTestPlan(), testLinkSite.getBuild(), listener ) );
+							try
+							{
+								for( BuildStep b : iterativeBuildSteps ) 
+								{
+									final boolean success = b.perform(build, launcher, listener);
+									if ( ! success ) 
+									{
+										this.failure = Boolean.TRUE;
+									}
+								}
+							}
+							finally
+							{
+								environment.clear();
+							}
 						}
 					}
 				}
 			}
+			finally
+			{
+				build.getActions().remove( environment );
+			}
 		}
 		
 		if( afterIteratingAllTestCasesBuildSteps != null )
@@ -368,6 +637,211 @@ extends AbstractTestLinkBuilder
 		}
 	}
 	
+	/**
+	 * Executes the iterative build steps of up to 
+	 * <code>iterativeParallelism</code> test cases, or batches of test cases, 
+	 * at the same time. Instead of adding an action with the environment 
+	 * variables of each test case to the build, a single 
+	 * {@link TestCaseEnvironmentAction} gives each worker the variables of its 
+	 * own test case, and is removed at the end.
+	 * 
+	 * When <code>iterativeBatchSize</code> is greater than 1, the iterative 
+	 * build steps are invoked once per batch of test cases, with the list 
+	 * valued variables of {@link TestLinkHelper#createBatchEnvironmentVariables} 
+	 * and a manifest of the batch written in the workspace, which is deleted 
+	 * once the batch is executed.
+	 * 
+	 * When the build is transactional, the test cases that have not started 
+	 * yet when a build step fails are marked as blocked. The test cases 
+	 * already running are not interrupted.
+	 * 
+	 * Each worker gives the build steps its own listener, which writes whole 
+	 * lines to the build log prefixed with the batch number or the test case 
+	 * id, so that the output of the test cases running at the same time can 
+	 * be told apart.
+	 * 
+	 * @param automatedTestCases array of automated test cases
+	 * @param testLinkSite TestLink Site
+	 * @param build Jenkins Build
+	 * @param launcher Jenkins Launcher
+	 * @param listener Jenkins Build Listener
+	 * @throws InterruptedException 
+	 * @throws IOException 
+	 * @since 3.0.3
+	 */
+	protected void executeIterativeBuildStepsConcurrently( TestCase[] automatedTestCases, final TestLinkSite testLinkSite, final AbstractBuild<?, ?> build, final Launcher launcher, final BuildListener listener ) 
+	throws IOException, InterruptedException 
+	{
+		final int batchSize = this.iterativeBatchSize != null ? Math.max( 1, this.iterativeBatchSize ) : 1;
+		final List<TestCase[]> batches = new ArrayList<TestCase[]>();
+		for ( int i = 0 ; i < automatedTestCases.length ; i += batchSize )
+		{
+			batches.add( Arrays.copyOfRange( automatedTestCases, i, Math.min( i + batchSize, automatedTestCases.length ) ) );
+		}
+		final int parallelism = this.iterativeParallelism != null ? this.iterativeParallelism : 1;
+		final int threads = Math.max( 1, Math.min( parallelism, batches.size() ) );
+		if ( batchSize > 1 )
+		{
+			listener.getLogger().println( Messages.TestLinkBuilder_ExecutingIterativeBuildStepsInBatches( automatedTestCases.length, batches.size(), batchSize, threads ) );
+		}
+		else
+		{
+			listener.getLogger().println( Messages.TestLinkBuilder_ExecutingIterativeBuildStepsConcurrently( automatedTestCases.length, threads ) );
+		}
+		
+		final AtomicBoolean failed = new AtomicBoolean( this.failure );
+		final boolean blockOnFailure = Boolean.TRUE.equals( this.transactional );
+		final TestCaseEnvironmentAction environment = new TestCaseEnvironmentAction();
+		build.addAction( environment );
+		
+		final ExecutorService executor = Executors.newFixedThreadPool( threads, new ThreadFactory()
+		{
+			private final AtomicInteger count = new AtomicInteger();
+			
+			public Thread newThread( Runnable r )
+			{
+				final Thread thread = new Thread( r, "TestLink iterative build steps #" + count.incrementAndGet() );
+				thread.setDaemon( true );
+				return thread;
+			}
+		});
+		
+		final List<Future<Void>> futures = new ArrayList<Future<Void>>( batches.size() );
+		try
+		{
+			for( int i = 0 ; i < batches.size() ; ++i ) 
+			{
+				final TestCase[] batch = batches.get( i );
+				final int batchNumber = i + 1;
+				futures.add( executor.submit( new Callable<Void>()
+				{
+					public Void call() 
+					throws IOException, InterruptedException
+					{
+						if ( failed.get() && blockOnFailure )
+						{
+							for ( TestCase automatedTestCase : batch )
+							{
+								automatedTestCase.setExecutionStatus( ExecutionStatus.BLOCKED );
+							}
+							return null;
+						}
+						final FilePath manifest = batchSize > 1 ? build.getWorkspace().child( "testlink-batch-" + batchNumber + ".tsv" ) : null;
+						// Each worker writes whole lines, prefixed with its 
+						// batch or test case, to the build log
+						final String prefix = batchSize > 1 ? 
+								Messages.TestLinkBuilder_BatchLogPrefix( String.valueOf( batchNumber ) ) : 
+								Messages.TestLinkBuilder_TestCaseLogPrefix( String.valueOf( batch[0].getId() ) );
+						final BuildListener workerListener = new StreamBuildListener( new PrefixedOutputStream( prefix, listener.getLogger() ), build.getCharset() );
+						try
+						{
+							if ( manifest != null )
+							{
+								environment.set( createBatchEnvVars( batch, batchNumber, manifest, testLinkSite, workerListener ) );
+							}
+							else
+							{
+								environment.set( TestLinkHelper.buildTestCaseEnvVars( batch[0], testLinkSite.getTestProject(), testLinkSite.getTestPlan(), testLinkSite.getBuild(), workerListener ) );
+							}
+							for( BuildStep b : iterativeBuildSteps ) 
+							{
+								final boolean success = b.perform(build, launcher, workerListener);
+								if ( ! success ) 
+								{
+									failed.set( true );
+								}
+							}
+						}
+						finally
+						{
+							environment.clear();
+							if ( manifest != null )
+							{
+								try
+								{
+									manifest.delete();
+								}
+								catch ( IOException ioe )
+								{
+									workerListener.getLogger().println( Messages.TestLinkBuilder_FailedToDeleteBatchManifest( manifest.getRemote(), ioe.getMessage() ) );
+								}
+							}
+							workerListener.getLogger().flush();
+						}
+						return null;
+					}
+				}));
+			}
+			
+			for( Future<Void> future : futures )
+			{
+				try
+				{
+					future.get();
+				}
+				catch ( ExecutionException ee )
+				{
+					final Throwable cause = ee.getCause();
+					if ( cause instanceof IOException )
+					{
+						throw (IOException) cause;
+					}
+					if ( cause instanceof InterruptedException )
+					{
+						throw (InterruptedException) cause;
+					}
+					if ( cause instanceof RuntimeException )
+					{
+						throw (RuntimeException) cause;
+					}
+					if ( cause instanceof Error )
+					{
+						throw (Error) cause;
+					}
+					throw new IOException( cause );
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+			build.getActions().remove( environment );
+			if ( failed.get() )
+			{
+				this.failure = Boolean.TRUE;
+			}
+		}
+	}
+	
+	/**
+	 * Writes the manifest of a batch of test cases, and creates the 
+	 * environment variables of the batch.
+	 * 
+	 * @param batch test cases of the batch.
+	 * @param batchNumber number of the batch, starting at 1.
+	 * @param manifest file, in the workspace, where the manifest is written.
+	 * @param testLinkSite TestLink Site
+	 * @param listener Jenkins Build Listener
+	 * @return environment variables of the batch.
+	 * @throws InterruptedException 
+	 * @throws IOException 
+	 * @since 3.0.3
+	 */
+	protected EnvVars createBatchEnvVars( TestCase[] batch, int batchNumber, FilePath manifest, TestLinkSite testLinkSite, BuildListener listener ) 
+	throws IOException, InterruptedException
+	{
+		manifest.write( TestLinkHelper.createBatchManifest( batch, this.keyCustomField ), "UTF-8" );
+		listener.getLogger().println( Messages.TestLinkBuilder_ExecutingBatch( batchNumber, batch.length, manifest.getRemote() ) );
+		return new EnvVars( TestLinkHelper.createBatchEnvironmentVariables( 
+				batch, 
+				batchNumber, 
+				manifest.getRemote(), 
+				this.keyCustomField, 
+				testLinkSite.getTestProject(), 
+				testLinkSite.getTestPlan(), 
+				testLinkSite.getBuild() ) );
+	}
+	
 	/**
 	 * Inits a test results callable. For each test reports pattern, if not 
 	 * empty, a seeker is created and added to the results callable.
@@ -377,23 +851,27 @@ extends AbstractTestLinkBuilder
 	 */
 	protected TestResultsCallable initTestResultsCallable( TestCase[] automatedTestCases, BuildListener listener )
 	{
-		final TestResultsCallable testResultsCallable = new TestResultsCallable();
+		final TestResultsCallable testResultsCallable = new TestResultsCallable( automatedTestCases, this.keyCustomField );
+		final KeyCustomFieldIndex keyCustomFieldIndex = testResultsCallable.getKeyCustomFieldIndex();
+		
+		if ( this.parsingParallelism != null )
+		{
+			testResultsCallable.setParallelism( this.parsingParallelism );
+		}
 		
 		if ( StringUtils.isNotBlank( reportFilesPatterns.getJunitXmlReportFilesPattern() ) )
 		{
 			final TestResultSeeker<?> junitSuitesSeeker = 
 				new JUnitSuitesTestResultSeeker<hudson.plugins.testlink.parser.junit.TestSuite>(
 						reportFilesPatterns.getJunitXmlReportFilesPattern(), 
-						automatedTestCases, 
-						this.keyCustomField, 
+						keyCustomFieldIndex, 
 						listener);
 			testResultsCallable.addTestResultSeeker(junitSuitesSeeker);
 			
 			final TestResultSeeker<?> junitTestsSeeker = 
 				new JUnitTestCasesTestResultSeeker<hudson.plugins.testlink.parser.junit.TestCase>(
 						reportFilesPatterns.getJunitXmlReportFilesPattern(), 
-						automatedTestCases, 
-						this.keyCustomField, 
+						keyCustomFieldIndex, 
 						listener);
 			testResultsCallable.addTestResultSeeker(junitTestsSeeker);
 		}
@@ -403,16 +881,14 @@ extends AbstractTestLinkBuilder
 			final TestResultSeeker<?> testNGSuitesSeeker = 
 				new TestNGSuitesTestResultSeeker<Suite>(
 						reportFilesPatterns.getTestNGXmlReportFilesPattern(), 
-						automatedTestCases, 
-						this.keyCustomField, 
+						keyCustomFieldIndex, 
 						listener);
 			testResultsCallable.addTestResultSeeker(testNGSuitesSeeker);
 			
 			final TestResultSeeker<?> testNGTestsSeeker = 
 				new TestNGClassesTestResultSeeker<hudson.plugins.testlink.parser.testng.Class>(
 						reportFilesPatterns.getTestNGXmlReportFilesPattern(), 
-						automatedTestCases, 
-						this.keyCustomField, 
+						keyCustomFieldIndex, 
 						listener);
 			testResultsCallable.addTestResultSeeker(testNGTestsSeeker);
 		}
@@ -422,8 +898,7 @@ extends AbstractTestLinkBuilder
 			final TestResultSeeker<?> tapTestsSeeker = 
 				new TAPTestResultSeeker<TestSet>(
 						reportFilesPatterns.getTapStreamReportFilesPattern(), 
-						automatedTestCases, 
-						this.keyCustomField, 
+						keyCustomFieldIndex, 
 						listener);
 			testResultsCallable.addTestResultSeeker(tapTestsSeeker);
 		}
@@ -0,0 +1,271 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Flakiness of the test cases of a project. The last passed or failed 
+ * executions of each test case are kept as bits of a <code>long</code>, so 
+ * a completed build only shifts one bit per test case, and the number of 
+ * times a test case flipped between passed and failed is counted from the 
+ * bits when asked.
+ * 
+ * <p>The rows are the rows of the dictionary of {@link TestLinkHistory}, 
+ * which keeps this index up to date as builds are added.</p>
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestLinkFlakiness
+{
+
+	/**
+	 * Number of executions of a test case that are kept.
+	 */
+	public static final int WINDOW = 64;
+	
+	/**
+	 * Executions of each row, the newest in the lowest bit. A set bit is a 
+	 * failure.
+	 */
+	private long[] outcomes = new long[ 64 ];
+	
+	/**
+	 * Number of executions of each row, up to {@link #WINDOW}.
+	 */
+	private byte[] executions = new byte[ 64 ];
+	
+	public TestLinkFlakiness()
+	{
+		super();
+	}
+	
+	/**
+	 * Adds the column of a build. Only passed and failed executions are 
+	 * counted, blocked or not run test cases keep their bits.
+	 * 
+	 * @param column status of each row in the build.
+	 */
+	public void add( byte[] column )
+	{
+		if ( column.length > this.outcomes.length )
+		{
+			final int length = Math.max( column.length, this.outcomes.length * 2 );
+			this.outcomes = Arrays.copyOf( this.outcomes, length );
+			this.executions = Arrays.copyOf( this.executions, length );
+		}
+		for ( int row = 0 ; row < column.length ; row++ )
+		{
+			final byte status = column[ row ];
+			if ( status != TestLinkHistory.PASSED && status != TestLinkHistory.FAILED )
+			{
+				continue;
+			}
+			this.outcomes[ row ] = ( this.outcomes[ row ] << 1 ) | ( status == TestLinkHistory.FAILED ? 1L : 0L );
+			if ( this.executions[ row ] < WINDOW )
+			{
+				this.executions[ row ] += 1;
+			}
+		}
+	}
+	
+	/**
+	 * Forgets every execution.
+	 */
+	public void clear()
+	{
+		Arrays.fill( this.outcomes, 0L );
+		Arrays.fill( this.executions, (byte) 0 );
+	}
+	
+	/**
+	 * @param row a row.
+	 * @return number of passed or failed executions of the row, up to 
+	 * {@link #WINDOW}.
+	 */
+	public int getExecutions( int row )
+	{
+		return row < this.executions.length ? this.executions[ row ] : 0;
+	}
+	
+	/**
+	 * @param row a row.
+	 * @return number of failed executions of the row.
+	 */
+	public int getFailures( int row )
+	{
+		return Long.bitCount( this.outcomes[ row ] & mask( this.getExecutions( row ) ) );
+	}
+	
+	/**
+	 * @param row a row.
+	 * @return failed executions per execution of the row, from 0 to 1, or -1 
+	 * if it has no passed or failed execution.
+	 */
+	public double getFailureRate( int row )
+	{
+		final int executions = this.getExecutions( row );
+		return executions == 0 ? -1d : (double) this.getFailures( row ) / executions;
+	}
+	
+	/**
+	 * @param row a row.
+	 * @return number of times the row flipped between passed and failed.
+	 */
+	public int getFlips( int row )
+	{
+		final int executions = this.getExecutions( row );
+		if ( executions < 2 )
+		{
+			return 0;
+		}
+		final long bits = this.outcomes[ row ];
+		return Long.bitCount( ( bits ^ ( bits >>> 1 ) ) & mask( executions - 1 ) );
+	}
+	
+	private static long mask( int bits )
+	{
+		return bits >= 64 ? -1L : ( 1L << bits ) - 1;
+	}
+	
+	/**
+	 * Ranks the test cases that flipped, the highest flip rate first.
+	 * 
+	 * @param ids test case id of each row.
+	 * @param rows number of rows.
+	 * @param minExecutions minimum number of passed or failed executions of 
+	 * a test case to be ranked.
+	 * @param max maximum number of test cases, or a negative number for all 
+	 * of them.
+	 * @return the ranked test cases.
+	 */
+	public List<FlakyTestCase> rank( int[] ids, int rows, int minExecutions, int max )
+	{
+		final List<FlakyTestCase> flaky = new ArrayList<FlakyTestCase>();
+		for ( int row = 0 ; row < rows && row < this.executions.length ; row++ )
+		{
+			final int flips = this.getFlips( row );
+			if ( flips > 0 && this.getExecutions( row ) >= minExecutions )
+			{
+				flaky.add( new FlakyTestCase( ids[ row ], flips, this.getFailures( row ), this.getExecutions( row ) ) );
+			}
+		}
+		Collections.sort( flaky, new Comparator<FlakyTestCase>()
+		{
+			public int compare( FlakyTestCase o1, FlakyTestCase o2 )
+			{
+				int c = Double.compare( o2.getFlipRate(), o1.getFlipRate() );
+				if ( c == 0 )
+				{
+					c = o2.getFlips() - o1.getFlips();
+				}
+				if ( c == 0 )
+				{
+					c = o1.getId() < o2.getId() ? -1 : ( o1.getId() == o2.getId() ? 0 : 1 );
+				}
+				return c;
+			}
+		} );
+		if ( max >= 0 && flaky.size() > max )
+		{
+			return new ArrayList<FlakyTestCase>( flaky.subList( 0, max ) );
+		}
+		return flaky;
+	}
+	
+	/**
+	 * A test case that flipped between passed and failed.
+	 * 
+	 * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+	 * @since 3.0.3
+	 */
+	@ExportedBean
+	public static class FlakyTestCase
+	{
+		
+		private final int id;
+		private final int flips;
+		private final int failures;
+		private final int executions;
+		
+		public FlakyTestCase( int id, int flips, int failures, int executions )
+		{
+			super();
+			this.id = id;
+			this.flips = flips;
+			this.failures = failures;
+			this.executions = executions;
+		}
+		
+		@Exported
+		public int getId()
+		{
+			return this.id;
+		}
+		
+		/**
+		 * @return number of times the test case flipped between passed and 
+		 * failed.
+		 */
+		@Exported
+		public int getFlips()
+		{
+			return this.flips;
+		}
+		
+		@Exported
+		public int getFailures()
+		{
+			return this.failures;
+		}
+		
+		/**
+		 * @return number of passed or failed executions.
+		 */
+		@Exported
+		public int getExecutions()
+		{
+			return this.executions;
+		}
+		
+		/**
+		 * @return flips per pair of consecutive executions, from 0 to 1.
+		 */
+		@Exported
+		public double getFlipRate()
+		{
+			return this.executions < 2 ? 0 : (double) this.flips / ( this.executions - 1 );
+		}
+		
+	}
+	
+}
@@ -0,0 +1,837 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.plugins.testlink.result.Report;
+import hudson.plugins.testlink.result.TestCaseRecord;
+import hudson.plugins.testlink.util.LoadingMap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
+
+/**
+ * Status of every TestLink test case of a project in every build. The test 
+ * case ids are kept in a dictionary, and each build has a column with one 
+ * status byte per test case of the dictionary, so the history of thousands 
+ * of test cases over hundreds of builds takes a few megabytes. Builds whose 
+ * reports had durations also have a column with the duration of each test 
+ * case, so the test cases can be ordered by their average duration without 
+ * loading the reports.
+ * 
+ * <p>The history is kept in a binary file in the project directory, to 
+ * which the new test case ids and the column of each completed build are 
+ * appended. Deleted builds are appended as tombstones. When the file is 
+ * missing, e.g. after an upgrade, it is rebuilt from the builds once.</p>
+ * 
+ * <p>The history also keeps the {@link TestLinkFlakiness flakiness} of the 
+ * test cases, updated in time proportional to the number of test cases as 
+ * each build is appended.</p>
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestLinkHistory
+{
+
+	private static final Logger LOGGER = Logger.getLogger( TestLinkHistory.class.getName() );
+	
+	/**
+	 * Name of the file, in the project directory, with the history.
+	 */
+	public static final String FILE_NAME = "testlink-history.bin";
+	
+	/**
+	 * Status of a test case absent from a build.
+	 */
+	public static final byte ABSENT = 0;
+	public static final byte PASSED = 1;
+	public static final byte FAILED = 2;
+	public static final byte BLOCKED = 3;
+	public static final byte NOT_RUN = 4;
+	
+	/**
+	 * Duration of a test case absent from a build, or whose duration is 
+	 * unknown.
+	 */
+	public static final int NO_DURATION = -1;
+	
+	private static final int MAGIC = 0x544C4832;
+	/**
+	 * Histories written before the durations were kept, rebuilt when loaded.
+	 */
+	private static final int MAGIC_WITHOUT_DURATIONS = 0x544C4831;
+	private static final byte IDS_RECORD = 'I';
+	private static final byte BUILD_RECORD = 'B';
+	private static final byte DURATIONS_RECORD = 'D';
+	private static final byte REMOVE_RECORD = 'R';
+	
+	private static final LoadingMap<AbstractProject<?, ?>, TestLinkHistory> instances = 
+		new LoadingMap<AbstractProject<?, ?>, TestLinkHistory>();
+	
+	private File file;
+	
+	/**
+	 * Dictionary of test case ids, in the order of the rows of the columns.
+	 */
+	private int[] ids = new int[ 64 ];
+	private int idsSize = 0;
+	
+	/**
+	 * Number of ids of the dictionary already in the file.
+	 */
+	private int idsPersisted = 0;
+	
+	/**
+	 * Test case id -> row.
+	 */
+	private final Map<Integer, Integer> rows = new HashMap<Integer, Integer>();
+	
+	/**
+	 * Build number -> status of each row. Columns are as long as the 
+	 * dictionary was when the build was added.
+	 */
+	private final TreeMap<Integer, byte[]> columns = new TreeMap<Integer, byte[]>();
+	
+	/**
+	 * Build number -> duration of each row, in milliseconds, only for the 
+	 * builds with at least one duration.
+	 */
+	private final TreeMap<Integer, int[]> durations = new TreeMap<Integer, int[]>();
+	
+	/**
+	 * Flakiness of the rows, updated as builds are appended and replayed from 
+	 * the columns when it is not valid, e.g. after a build is removed.
+	 */
+	private final TestLinkFlakiness flakiness = new TestLinkFlakiness();
+	private boolean flakinessValid = true;
+	
+	/**
+	 * @param file file where the history is persisted, <code>null</code> to 
+	 * keep it only in memory.
+	 */
+	public TestLinkHistory( File file )
+	{
+		super();
+		this.file = file;
+	}
+	
+	/**
+	 * Gets the history of a project, loading it from the project directory 
+	 * when first used, or rebuilding it out of the builds if it cannot be 
+	 * loaded. Only the threads asking for the history of the same project 
+	 * wait while it is loaded.
+	 * 
+	 * @param project the project.
+	 * @return the history of the project.
+	 */
+	public static TestLinkHistory getInstance( final AbstractProject<?, ?> project )
+	{
+		final File file = new File( project.getRootDir(), FILE_NAME );
+		final TestLinkHistory history = instances.get( project, new Callable<TestLinkHistory>()
+		{
+			public TestLinkHistory call()
+			{
+				return open( project, file );
+			}
+		});
+		// The project directory changes when the project is renamed
+		history.setFile( file );
+		return history;
+	}
+	
+	/**
+	 * Loads the history of a project, or rebuilds it.
+	 */
+	private static TestLinkHistory open( AbstractProject<?, ?> project, File file )
+	{
+		final TestLinkHistory history = new TestLinkHistory( file );
+		boolean loaded = false;
+		try
+		{
+			loaded = history.load();
+		}
+		catch ( IOException ioe )
+		{
+			LOGGER.log( Level.WARNING, "Failed to load " + file + ", rebuilding it", ioe );
+		}
+		if ( ! loaded )
+		{
+			history.rebuild( project );
+			try
+			{
+				history.save();
+			}
+			catch ( IOException ioe )
+			{
+				LOGGER.log( Level.WARNING, "Failed to save " + file, ioe );
+			}
+		}
+		return history;
+	}
+	
+	private synchronized void setFile( File file )
+	{
+		this.file = file;
+	}
+	
+	/**
+	 * Loads the history from its file. A record cut short, e.g. by a crash 
+	 * while it was appended, ends the history, and is cut from the file so 
+	 * that the next records are appended after the last complete one. A 
+	 * history written before the durations were kept is not loaded, so that 
+	 * it is rebuilt with them.
+	 * 
+	 * @return <code>true</code> if the file exists and was loaded.
+	 * @throws IOException if the file cannot be read or is not a history.
+	 */
+	public synchronized boolean load() 
+	throws IOException
+	{
+		this.clear();
+		if ( this.file == null || ! this.file.exists() )
+		{
+			return false;
+		}
+		final DataInputStream in = new DataInputStream( new BufferedInputStream( new FileInputStream( this.file ) ) );
+		// Length of the complete records read so far
+		long length = 0L;
+		boolean truncated = false;
+		try
+		{
+			final int magic = in.readInt();
+			if ( magic == MAGIC_WITHOUT_DURATIONS )
+			{
+				LOGGER.log( Level.INFO, "TestLink history " + this.file + " has no durations, rebuilding it" );
+				return false;
+			}
+			if ( magic != MAGIC )
+			{
+				throw new IOException( "Not a TestLink history: " + this.file );
+			}
+			length = 4L;
+			while ( true )
+			{
+				final int type = in.read();
+				if ( type == -1 )
+				{
+					break;
+				}
+				if ( type == IDS_RECORD )
+				{
+					final int count = in.readInt();
+					final int[] newIds = new int[ count ];
+					for ( int i = 0 ; i < count ; i++ )
+					{
+						newIds[ i ] = in.readInt();
+					}
+					for ( int id : newIds )
+					{
+						this.addId( id );
+					}
+					length += 5L + 4L * count;
+				}
+				else if ( type == BUILD_RECORD )
+				{
+					final int buildNumber = in.readInt();
+					final byte[] column = new byte[ in.readInt() ];
+					in.readFully( column );
+					this.columns.put( buildNumber, column );
+					length += 9L + column.length;
+				}
+				else if ( type == DURATIONS_RECORD )
+				{
+					final int buildNumber = in.readInt();
+					final int[] column = new int[ in.readInt() ];
+					for ( int i = 0 ; i < column.length ; i++ )
+					{
+						column[ i ] = in.readInt();
+					}
+					this.durations.put( buildNumber, column );
+					length += 9L + 4L * column.length;
+				}
+				else if ( type == REMOVE_RECORD )
+				{
+					final int buildNumber = in.readInt();
+					this.columns.remove( buildNumber );
+					this.durations.remove( buildNumber );
+					length += 5L;
+				}
+				else
+				{
+					throw new IOException( "Corrupted TestLink history: " + this.file );
+				}
+			}
+		}
+		catch ( EOFException eofe )
+		{
+			if ( length == 0L )
+			{
+				throw new IOException( "Not a TestLink history: " + this.file );
+			}
+			LOGGER.log( Level.WARNING, "Truncated TestLink history " + this.file + ", the last record was dropped" );
+			truncated = true;
+		}
+		finally
+		{
+			in.close();
+		}
+		if ( truncated )
+		{
+			final RandomAccessFile out = new RandomAccessFile( this.file, "rw" );
+			try
+			{
+				out.setLength( length );
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		this.idsPersisted = this.idsSize;
+		this.flakinessValid = false;
+		return true;
+	}
+	
+	/**
+	 * Writes the whole history into its file, without tombstones.
+	 * 
+	 * @throws IOException if the file cannot be written.
+	 */
+	public synchronized void save() 
+	throws IOException
+	{
+		if ( this.file == null )
+		{
+			return;
+		}
+		final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( this.file ) ) );
+		try
+		{
+			out.writeInt( MAGIC );
+			this.idsPersisted = 0;
+			this.writeIds( out );
+			for ( Map.Entry<Integer, byte[]> column : this.columns.entrySet() )
+			{
+				writeColumn( out, column.getKey(), column.getValue() );
+				writeDurations( out, column.getKey(), this.durations.get( column.getKey() ) );
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+	
+	/**
+	 * Rebuilds the history out of the TestLink results of a project.
+	 * 
+	 * @param project the project.
+	 */
+	public synchronized void rebuild( AbstractProject<?, ?> project )
+	{
+		this.clear();
+		for ( AbstractBuild<?, ?> build = project.getLastBuild(); build != null; build = build.getPreviousBuild() )
+		{
+			final TestLinkBuildAction action = build.getAction( TestLinkBuildAction.class );
+			if ( action != null && action.getResult() != null )
+			{
+				this.add( build.getNumber(), action.getResult().getReport() );
+			}
+		}
+	}
+	
+	private void clear()
+	{
+		this.ids = new int[ 64 ];
+		this.idsSize = 0;
+		this.idsPersisted = 0;
+		this.rows.clear();
+		this.columns.clear();
+		this.durations.clear();
+		this.flakiness.clear();
+		this.flakinessValid = true;
+	}
+	
+	/**
+	 * Adds, or replaces, the column of a build, and appends it to the file. 
+	 * When a report has more than one record for the same test case id, the 
+	 * first one is kept.
+	 * 
+	 * @param buildNumber build number.
+	 * @param report the report of the build.
+	 * @throws IOException if the column cannot be appended to the file.
+	 */
+	public synchronized void append( int buildNumber, Report report ) 
+	throws IOException
+	{
+		final byte[] column = this.add( buildNumber, report );
+		if ( this.file == null )
+		{
+			return;
+		}
+		if ( ! this.file.exists() )
+		{
+			this.save();
+			return;
+		}
+		final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( this.file, true ) ) );
+		try
+		{
+			this.writeIds( out );
+			writeColumn( out, buildNumber, column );
+			writeDurations( out, buildNumber, this.durations.get( buildNumber ) );
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+	
+	/**
+	 * Removes the column of a build, appending a tombstone to the file.
+	 * 
+	 * @param buildNumber build number.
+	 * @return <code>true</code> if there was a column for the build.
+	 * @throws IOException if the tombstone cannot be appended to the file.
+	 */
+	public synchronized boolean remove( int buildNumber ) 
+	throws IOException
+	{
+		if ( this.columns.remove( buildNumber ) == null )
+		{
+			return false;
+		}
+		this.durations.remove( buildNumber );
+		this.flakinessValid = false;
+		if ( this.file != null && this.file.exists() )
+		{
+			final DataOutputStream out = new DataOutputStream( new BufferedOutputStream( new FileOutputStream( this.file, true ) ) );
+			try
+			{
+				out.writeByte( REMOVE_RECORD );
+				out.writeInt( buildNumber );
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		return true;
+	}
+	
+	private byte[] add( int buildNumber, Report report )
+	{
+		for ( TestCaseRecord record : report.getTestCases() )
+		{
+			if ( record.getId() != null && ! this.rows.containsKey( record.getId() ) )
+			{
+				this.addId( record.getId() );
+			}
+		}
+		final byte[] column = new byte[ this.idsSize ];
+		final int[] durationColumn = new int[ this.idsSize ];
+		Arrays.fill( durationColumn, NO_DURATION );
+		boolean hasDurations = false;
+		for ( TestCaseRecord record : report.getTestCases() )
+		{
+			if ( record.getId() == null )
+			{
+				continue;
+			}
+			final int row = this.rows.get( record.getId() );
+			if ( column[ row ] == ABSENT )
+			{
+				column[ row ] = toByte( record.getExecutionStatus() );
+				if ( record.getDuration() >= 0 )
+				{
+					durationColumn[ row ] = (int) Math.min( record.getDuration(), Integer.MAX_VALUE );
+					hasDurations = true;
+				}
+			}
+		}
+		if ( this.flakinessValid && ( this.columns.isEmpty() || this.columns.lastKey() < buildNumber ) )
+		{
+			this.flakiness.add( column );
+		}
+		else
+		{
+			this.flakinessValid = false;
+		}
+		this.columns.put( buildNumber, column );
+		if ( hasDurations )
+		{
+			this.durations.put( buildNumber, durationColumn );
+		}
+		else
+		{
+			this.durations.remove( buildNumber );
+		}
+		return column;
+	}
+	
+	private void addId( int id )
+	{
+		if ( this.idsSize == this.ids.length )
+		{
+			this.ids = Arrays.copyOf( this.ids, this.ids.length * 2 );
+		}
+		this.rows.put( id, this.idsSize );
+		this.ids[ this.idsSize++ ] = id;
+	}
+	
+	private void writeIds( DataOutputStream out ) 
+	throws IOException
+	{
+		if ( this.idsPersisted < this.idsSize )
+		{
+			out.writeByte( IDS_RECORD );
+			out.writeInt( this.idsSize - this.idsPersisted );
+			for ( int i = this.idsPersisted ; i < this.idsSize ; i++ )
+			{
+				out.writeInt( this.ids[ i ] );
+			}
+			this.idsPersisted = this.idsSize;
+		}
+	}
+	
+	private static void writeColumn( DataOutputStream out, int buildNumber, byte[] column ) 
+	throws IOException
+	{
+		out.writeByte( BUILD_RECORD );
+		out.writeInt( buildNumber );
+		out.writeInt( column.length );
+		out.write( column );
+	}
+	
+	private static void writeDurations( DataOutputStream out, int buildNumber, int[] durations ) 
+	throws IOException
+	{
+		if ( durations == null )
+		{
+			return;
+		}
+		out.writeByte( DURATIONS_RECORD );
+		out.writeInt( buildNumber );
+		out.writeInt( durations.length );
+		for ( int duration : durations )
+		{
+			out.writeInt( duration );
+		}
+	}
+	
+	/**
+	 * @param executionStatus an execution status.
+	 * @return the status byte of the execution status.
+	 */
+	public static byte toByte( ExecutionStatus executionStatus )
+	{
+		if ( executionStatus == ExecutionStatus.PASSED )
+		{
+			return PASSED;
+		}
+		else if ( executionStatus == ExecutionStatus.FAILED )
+		{
+			return FAILED;
+		}
+		else if ( executionStatus == ExecutionStatus.BLOCKED )
+		{
+			return BLOCKED;
+		}
+		return NOT_RUN;
+	}
+	
+	/**
+	 * @param status a status byte.
+	 * @return the execution status, or <code>null</code> if the test case 
+	 * was absent.
+	 */
+	public static ExecutionStatus toExecutionStatus( byte status )
+	{
+		switch ( status )
+		{
+			case PASSED: 
+				return ExecutionStatus.PASSED;
+			case FAILED: 
+				return ExecutionStatus.FAILED;
+			case BLOCKED: 
+				return ExecutionStatus.BLOCKED;
+			case NOT_RUN: 
+				return ExecutionStatus.NOT_RUN;
+			default: 
+				return null;
+		}
+	}
+	
+	/**
+	 * @param buildNumber build number.
+	 * @param id test case id.
+	 * @return the status byte of the test case in the build, 
+	 * {@link #ABSENT} if it was not in the build.
+	 */
+	public synchronized byte getStatus( int buildNumber, int id )
+	{
+		final byte[] column = this.columns.get( buildNumber );
+		final Integer row = this.rows.get( id );
+		if ( column == null || row == null || row >= column.length )
+		{
+			return ABSENT;
+		}
+		return column[ row ];
+	}
+	
+	/**
+	 * Gets the history of a test case, newest build first, skipping the 
+	 * builds without it.
+	 * 
+	 * @param id test case id.
+	 * @param max maximum number of builds, or a negative number for all of 
+	 * them.
+	 * @return the history of the test case.
+	 */
+	public synchronized List<Entry> getHistory( int id, int max )
+	{
+		final List<Entry> history = new ArrayList<Entry>();
+		final Integer row = this.rows.get( id );
+		if ( row == null )
+		{
+			return history;
+		}
+		for ( Map.Entry<Integer, byte[]> column : this.columns.descendingMap().entrySet() )
+		{
+			if ( max >= 0 && history.size() >= max )
+			{
+				break;
+			}
+			final byte[] statuses = column.getValue();
+			if ( row < statuses.length && statuses[ row ] != ABSENT )
+			{
+				history.add( new Entry( column.getKey(), statuses[ row ] ) );
+			}
+		}
+		return history;
+	}
+	
+	/**
+	 * Ranks the test cases that flipped between passed and failed in their 
+	 * last executions, the highest flip rate first.
+	 * 
+	 * @param minExecutions minimum number of passed or failed executions of 
+	 * a test case to be ranked.
+	 * @param max maximum number of test cases, or a negative number for all 
+	 * of them.
+	 * @return the flaky test cases.
+	 */
+	public synchronized List<TestLinkFlakiness.FlakyTestCase> getFlakyTestCases( int minExecutions, int max )
+	{
+		this.validateFlakiness();
+		return this.flakiness.rank( this.ids, this.idsSize, minExecutions, max );
+	}
+	
+	/**
+	 * Gets how often each test case failed in its last passed or failed 
+	 * executions.
+	 * 
+	 * @return test case id -> failed executions per execution, from 0 to 1, 
+	 * for the test cases that passed or failed at least once.
+	 */
+	public synchronized Map<Integer, Double> getFailureRates()
+	{
+		this.validateFlakiness();
+		final Map<Integer, Double> rates = new HashMap<Integer, Double>();
+		for ( int row = 0 ; row < this.idsSize ; row++ )
+		{
+			final double rate = this.flakiness.getFailureRate( row );
+			if ( rate >= 0 )
+			{
+				rates.put( this.ids[ row ], rate );
+			}
+		}
+		return rates;
+	}
+	
+	/**
+	 * Gets the average duration of each test case in the last builds with 
+	 * durations.
+	 * 
+	 * @param window maximum number of builds with durations averaged.
+	 * @return test case id -> average duration in milliseconds, for the test 
+	 * cases with a duration in any of these builds.
+	 */
+	public synchronized Map<Integer, Double> getAverageDurations( int window )
+	{
+		final long[] totals = new long[ this.idsSize ];
+		final int[] counts = new int[ this.idsSize ];
+		int builds = 0;
+		for ( int[] column : this.durations.descendingMap().values() )
+		{
+			if ( builds++ >= window )
+			{
+				break;
+			}
+			for ( int row = 0 ; row < column.length ; row++ )
+			{
+				if ( column[ row ] != NO_DURATION )
+				{
+					totals[ row ] += column[ row ];
+					counts[ row ] += 1;
+				}
+			}
+		}
+		final Map<Integer, Double> averages = new HashMap<Integer, Double>();
+		for ( int row = 0 ; row < this.idsSize ; row++ )
+		{
+			if ( counts[ row ] > 0 )
+			{
+				averages.put( this.ids[ row ], (double) totals[ row ] / counts[ row ] );
+			}
+		}
+		return averages;
+	}
+	
+	/**
+	 * @param buildNumber build number.
+	 * @param id test case id.
+	 * @return the duration of the test case in the build, in milliseconds, 
+	 * or {@link #NO_DURATION}.
+	 */
+	public synchronized int getDuration( int buildNumber, int id )
+	{
+		final int[] column = this.durations.get( buildNumber );
+		final Integer row = this.rows.get( id );
+		if ( column == null || row == null || row >= column.length )
+		{
+			return NO_DURATION;
+		}
+		return column[ row ];
+	}
+	
+	private void validateFlakiness()
+	{
+		if ( ! this.flakinessValid )
+		{
+			this.flakiness.clear();
+			for ( byte[] column : this.columns.values() )
+			{
+				this.flakiness.add( column );
+			}
+			this.flakinessValid = true;
+		}
+	}
+	
+	/**
+	 * @return whether a test case was in any build of the history.
+	 */
+	public synchronized boolean contains( int id )
+	{
+		return this.rows.containsKey( id );
+	}
+	
+	/**
+	 * @return the build numbers of the history, oldest first.
+	 */
+	public synchronized List<Integer> getBuildNumbers()
+	{
+		return new ArrayList<Integer>( this.columns.keySet() );
+	}
+	
+	/**
+	 * @return number of test cases in the dictionary.
+	 */
+	public synchronized int getTestCaseCount()
+	{
+		return this.idsSize;
+	}
+	
+	/**
+	 * @return number of builds in the history.
+	 */
+	public synchronized int size()
+	{
+		return this.columns.size();
+	}
+	
+	/**
+	 * Status of a test case in a build.
+	 * 
+	 * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+	 * @since 3.0.3
+	 */
+	@ExportedBean
+	public static class Entry
+	{
+		
+		private final int buildNumber;
+		private final byte status;
+		
+		public Entry( int buildNumber, byte status )
+		{
+			super();
+			this.buildNumber = buildNumber;
+			this.status = status;
+		}
+		
+		@Exported
+		public int getBuildNumber()
+		{
+			return this.buildNumber;
+		}
+		
+		@Exported
+		public ExecutionStatus getExecutionStatus()
+		{
+			return toExecutionStatus( this.status );
+		}
+		
+		public byte getStatus()
+		{
+			return this.status;
+		}
+		
+	}
+	
+}
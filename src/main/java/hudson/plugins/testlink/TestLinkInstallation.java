@@ -59,18 +59,70 @@ implements Serializable
 	 */
 	private String testLinkJavaAPIProperties;
 	
-	@DataBoundConstructor
+	/**
+	 * Maximum number of custom field values fetched at the same time
+	 */
+	private Integer customFieldsConcurrency;
+	
+	/**
+	 * Timeout of each custom field value call, in seconds
+	 */
+	private Integer customFieldsTimeout;
+	
+	/**
+	 * Time to live of the cached custom field values, in minutes
+	 */
+	private Integer customFieldsCacheTtl;
+	
+	/**
+	 * Maximum number of test cases uploaded at the same time
+	 */
+	private Integer uploadConcurrency;
+	
+	/**
+	 * Number of times an upload that failed with an I/O error is retried
+	 */
+	private Integer uploadRetries;
+	
+	/**
+	 * Creates an installation with the default values of the options added 
+	 * after 3.0.2.
+	 * 
+	 * @deprecated since 3.0.3, use the constructor with all the options.
+	 */
+	@Deprecated
 	public TestLinkInstallation(
 		String name, 
 		String url, 
 		String devKey, 
 		String testLinkJavaAPIProperties
 	)
+	{
+		this( name, url, devKey, testLinkJavaAPIProperties, null, null, null, null, null );
+	}
+	
+	@DataBoundConstructor
+	public TestLinkInstallation(
+		String name, 
+		String url, 
+		String devKey, 
+		String testLinkJavaAPIProperties, 
+		Integer customFieldsConcurrency, 
+		Integer customFieldsTimeout, 
+		Integer customFieldsCacheTtl, 
+		Integer uploadConcurrency, 
+		Integer uploadRetries
+	)
 	{
 		this.name = name;
 		this.url = url;
 		this.devKey = devKey;
 		this.testLinkJavaAPIProperties = testLinkJavaAPIProperties;
+		this.customFieldsConcurrency = customFieldsConcurrency;
+		this.customFieldsTimeout = customFieldsTimeout;
+		this.customFieldsCacheTtl = customFieldsCacheTtl;
+		this.uploadConcurrency = uploadConcurrency;
+		this.uploadRetries = uploadRetries;
 	}
 	
 	public String getName()
@@ -93,4 +145,50 @@ implements Serializable
 		return testLinkJavaAPIProperties;
 	}
 	
+	/**
+	 * @return maximum number of custom field values fetched at the same time.
+	 * @since 3.0.3
+	 */
+	public Integer getCustomFieldsConcurrency()
+	{
+		return customFieldsConcurrency;
+	}
+	
+	/**
+	 * @return timeout of each custom field value call, in seconds.
+	 * @since 3.0.3
+	 */
+	public Integer getCustomFieldsTimeout()
+	{
+		return customFieldsTimeout;
+	}
+	
+	/**
+	 * @return time to live of the cached custom field values, in minutes.
+	 * @since 3.0.3
+	 */
+	public Integer getCustomFieldsCacheTtl()
+	{
+		return customFieldsCacheTtl;
+	}
+	
+	/**
+	 * @return maximum number of test cases uploaded at the same time.
+	 * @since 3.0.3
+	 */
+	public Integer getUploadConcurrency()
+	{
+		return uploadConcurrency;
+	}
+	
+	/**
+	 * @return number of times an upload that failed with an I/O error is 
+	 * retried.
+	 * @since 3.0.3
+	 */
+	public Integer getUploadRetries()
+	{
+		return uploadRetries;
+	}
+	
 }
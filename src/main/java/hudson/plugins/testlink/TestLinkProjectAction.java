@@ -25,14 +25,19 @@ package hudson.plugins.testlink;
 
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
-import hudson.plugins.testlink.result.Report;
+import hudson.plugins.testlink.result.TestCaseRecord;
 import hudson.util.ChartUtil;
 import hudson.util.DataSetBuilder;
 
 import java.io.IOException;
-import java.util.Calendar;
-import java.util.HashMap;
-import java.util.Map;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.jfree.chart.JFreeChart;
 import org.kohsuke.stapler.StaplerRequest;
@@ -48,15 +53,44 @@ extends AbstractTestLinkProjectAction
 	
 	private static final int DEFAULT_GRAPH_WIDTH  = 500;
 	private static final int DEFAULT_GRAPH_HEIGHT = 200;
-
-	private AbstractProject<?, ?> project;
 	
 	/**
-	 * Used to figure out if we need to regenerate the graphs or not. Only used
-	 * in newGraphNotNeeded() method. Key is the request URI and value is the
-	 * number of builds for the project.
+	 * Maximum width and height of the graphs, so that a request cannot make 
+	 * the graph cache hold huge images.
 	 */
-	private transient Map<String, Integer> requestMap = new HashMap<String, Integer>();
+	private static final int MAX_GRAPH_SIZE = 2000;
+	
+	/**
+	 * Default maximum number of columns of the graphs. Longer trends are 
+	 * downsampled into buckets of builds.
+	 */
+	private static final int DEFAULT_GRAPH_COLUMNS = 100;
+	
+	/**
+	 * Minimum width of a column of the graphs, in pixels.
+	 */
+	private static final int MIN_COLUMN_WIDTH = 4;
+	
+	/**
+	 * Format of the from and to dates of the trend window.
+	 */
+	private static final String DATE_FORMAT = "yyyy-MM-dd";
+	
+	/**
+	 * Minimum number of passed or failed executions of a test case to be 
+	 * ranked as flaky, and maximum number of flaky test cases shown.
+	 */
+	private static final int FLAKY_MIN_EXECUTIONS = 4;
+	private static final int FLAKY_MAX_TEST_CASES = 100;
+	
+	/**
+	 * Number of slowest test cases, and of builds of the duration trend, 
+	 * shown.
+	 */
+	private static final int DURATIONS_MAX_TEST_CASES = 50;
+	private static final int DURATIONS_MAX_BUILDS = 50;
+
+	private AbstractProject<?, ?> project;
 
 	public TestLinkProjectAction(AbstractProject<?, ?> project)
 	{
@@ -91,20 +125,75 @@ extends AbstractTestLinkProjectAction
 	}
 	
 	/**
-	 * Retrieves the last build with TestLink in the project.
+	 * Retrieves the last build with TestLink in the project, through the 
+	 * index of the project trend.
 	 * 
 	 * @return Last build with TestLink in the project or <code>null</code>, 
 	 * 		   if there is no build with TestLink in the project.
 	 */
 	private AbstractBuild<?, ?> getLastBuildWithTestLink()
 	{
-		AbstractBuild<?, ?> lastBuild = (AbstractBuild<?, ?>) project.getLastBuild();
-		while (lastBuild != null
-				&& lastBuild.getAction( getBuildActionClass() ) == null)
+		return TestLinkTrend.getInstance( project ).getLastBuild( project );
+	}
+	
+	/**
+	 * Gets the status of a test case in the builds of this project, bound to 
+	 * the URL <code>testLinkResult/caseHistory/{id}</code>.
+	 * 
+	 * @param id test case id.
+	 * @return the history of the test case, or <code>null</code> if it was 
+	 * never in a build of this project.
+	 * @since 3.0.3
+	 */
+	public TestCaseHistory getCaseHistory( String id )
+	{
+		final int testCaseId;
+		try
+		{
+			testCaseId = Integer.parseInt( id );
+		}
+		catch ( NumberFormatException nfe )
 		{
-			lastBuild = lastBuild.getPreviousBuild();
+			return null;
 		}
-		return lastBuild;
+		final TestLinkHistory history = TestLinkHistory.getInstance( project );
+		if ( ! history.contains( testCaseId ) )
+		{
+			return null;
+		}
+		return new TestCaseHistory( project, testCaseId, history.getHistory( testCaseId, -1 ) );
+	}
+	
+	/**
+	 * Gets the test cases of this project that flipped between passed and 
+	 * failed in their last builds, bound to the URL 
+	 * <code>testLinkResult/flaky</code>.
+	 * 
+	 * @return the flaky test cases.
+	 * @since 3.0.3
+	 */
+	public FlakyTestCases getFlaky()
+	{
+		return new FlakyTestCases( project, TestLinkHistory.getInstance( project )
+				.getFlakyTestCases( FLAKY_MIN_EXECUTIONS, FLAKY_MAX_TEST_CASES ) );
+	}
+	
+	/**
+	 * Gets the slowest test cases of the last build and the duration trend 
+	 * of this project, bound to the URL <code>testLinkResult/durations</code>.
+	 * 
+	 * @return the durations.
+	 * @since 3.0.3
+	 */
+	public TestCaseDurations getDurations()
+	{
+		final AbstractBuild<?, ?> lastBuild = getLastBuildWithTestLink();
+		final TestLinkBuildAction action = lastBuild != null ? lastBuild.getAction( getBuildActionClass() ) : null;
+		final List<TestCaseRecord> slowest = action != null && action.getResult() != null ? 
+			action.getResult().getReport().getSlowest( DURATIONS_MAX_TEST_CASES ) : 
+			Collections.<TestCaseRecord>emptyList();
+		return new TestCaseDurations( project, lastBuild, slowest, 
+				TestLinkTrend.getInstance( project ).getPoints( DURATIONS_MAX_BUILDS ) );
 	}
 	
 	/**
@@ -144,112 +233,170 @@ extends AbstractTestLinkProjectAction
 			return;
 		}
 		
-		if (newGraphNotNeeded(req, res))
+		final GraphCache.RenderedGraph graph = getRenderedGraph(req);
+		if (notModified(req, res, graph.getPngETag()))
 		{
 			return;
 		}
 		
-		final DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> dataSetBuilder = new DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel>();
-
-		populateDataSetBuilder(dataSetBuilder);
-		new hudson.util.Graph(-1, getGraphWidth(), getGraphHeight())
-		{
-			protected JFreeChart createGraph()
-			{
-				return GraphHelper.createChart(req, dataSetBuilder.build());
-			}
-		}.doPng(req, res);
+		res.setContentType("image/png");
+		res.setContentLength(graph.getPng().length);
+		res.getOutputStream().write(graph.getPng());
 	}
 	
 	public void doGraphMap( final StaplerRequest req, StaplerResponse res )
 			throws IOException
 	{
-		if (newGraphNotNeeded(req, res))
+		final GraphCache.RenderedGraph graph = getRenderedGraph(req);
+		if (notModified(req, res, graph.getMapETag()))
 		{
 			return;
 		}
-
-		final DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> dataSetBuilder = new DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel>();
-
-		// TODO: optimize by using cache
-		populateDataSetBuilder(dataSetBuilder);
-		new hudson.util.Graph(-1, getGraphWidth(), getGraphHeight())
+		
+		res.setContentType("text/plain;charset=UTF-8");
+		res.getWriter().println(graph.getMap());
+	}
+	
+	/**
+	 * Gets the trend graph from the graph cache, rendering it if needed. The 
+	 * graph is keyed by the project, the size of the graph, the trend window 
+	 * and the last build of the trend.
+	 * 
+	 * <p>The window is given by the optional request parameters 
+	 * <code>builds</code>, the number of last builds shown, and 
+	 * <code>from</code> and <code>to</code>, dates in the yyyy-MM-dd format. 
+	 * The parameter <code>columns</code> gives the maximum number of columns, 
+	 * the builds of the window are downsampled to fit in them.</p>
+	 * 
+	 * @param req Stapler request, with the optional size and window.
+	 * @return the rendered graph.
+	 * @throws IOException if the graph cannot be rendered.
+	 */
+	private GraphCache.RenderedGraph getRenderedGraph( final StaplerRequest req ) 
+	throws IOException
+	{
+		final int width = getIntParameter(req.getParameter("width"), getGraphWidth(), MAX_GRAPH_SIZE);
+		final int height = getIntParameter(req.getParameter("height"), getGraphHeight(), MAX_GRAPH_SIZE);
+		final int builds = getIntParameter(req.getParameter("builds"), -1, Integer.MAX_VALUE);
+		final long from = getDateParameter(req.getParameter("from"), 0L, false);
+		final long to = getDateParameter(req.getParameter("to"), Long.MAX_VALUE, true);
+		final int columns = Math.min(
+				getIntParameter(req.getParameter("columns"), DEFAULT_GRAPH_COLUMNS, MAX_GRAPH_SIZE), 
+				Math.max(1, width / MIN_COLUMN_WIDTH));
+		final TestLinkTrend trend = TestLinkTrend.getInstance(getProject());
+		final TestLinkTrend.Point lastPoint = trend.getLastPoint();
+		final String key = GraphCache.getKey(getProject().getFullName(), 
+				width + "x" + height, 
+				builds + ":" + from + ":" + to + ":" + columns, 
+				lastPoint == null ? 0 : lastPoint.getBuildNumber(), 
+				trend.size());
+		
+		return GraphCache.getInstance().get(key, new Callable<GraphCache.RenderedGraph>()
 		{
-			protected JFreeChart createGraph()
+			public GraphCache.RenderedGraph call() throws IOException
 			{
-				return GraphHelper.createChart(req, dataSetBuilder.build());
+				final List<TestLinkTrend.Bucket> buckets = 
+					TestLinkTrend.downsample(trend.getPoints(builds, from, to), columns);
+				final DataSetBuilder<String, TestLinkTrend.Bucket> dataSetBuilder = new DataSetBuilder<String, TestLinkTrend.Bucket>();
+				populateDataSetBuilder(dataSetBuilder, buckets);
+				final JFreeChart chart = GraphHelper.createChart(req, dataSetBuilder.build());
+				return GraphCache.render(chart, width, height);
 			}
-		}.doMap(req, res);
+		});
 	}
 	
 	/**
-	 * Checks if it should display graph.
-	 * 
-	 * @return <code>true</code> if it should display graph and 
-	 * 		   <code>false</code> otherwise.
+	 * @return the value of an int parameter, or the default value if it is 
+	 * missing, invalid or lower than 1. 
 	 */
-	public final boolean isDisplayGraph()
+	private static int getIntParameter( String value, int defaultValue, int max )
 	{
-		return project.getBuilds().size() > 0;
+		int result = defaultValue;
+		if (value != null)
+		{
+			try
+			{
+				result = Integer.parseInt(value);
+			}
+			catch (NumberFormatException nfe)
+			{
+				result = defaultValue;
+			}
+		}
+		return result < 1 ? defaultValue : Math.min(result, max);
 	}
 	
 	/**
-	 * If number of builds hasn't changed and if checkIfModified() returns true,
-	 * no need to regenerate the graph. Browser should reuse it's cached image
-	 * 
-	 * @param req
-	 * @param res
-	 * @return true, if new image does NOT need to be generated, false otherwise
+	 * @return the time of a date parameter, at the start of the day, or at 
+	 * its end if <code>endOfDay</code> is true, or the default value if it is 
+	 * missing or invalid. 
 	 */
-	private boolean newGraphNotNeeded( final StaplerRequest req, StaplerResponse res )
+	private static long getDateParameter( String value, long defaultValue, boolean endOfDay )
 	{
-		boolean newGraphNotNeeded = false;
-		Calendar t = getProject().getLastCompletedBuild().getTimestamp();
-		Integer prevNumBuilds = requestMap.get(req.getRequestURI());
-		int numBuilds = getProject().getBuilds().size();
-
-		// change null to 0
-		prevNumBuilds = prevNumBuilds == null ? 0 : prevNumBuilds;
-		if (prevNumBuilds != numBuilds)
+		if (value == null || value.trim().length() == 0)
 		{
-			requestMap.put(req.getRequestURI(), numBuilds);
+			return defaultValue;
 		}
-
-		if (requestMap.keySet().size() > 10)
+		try
 		{
-			// keep map size in check
-			requestMap.clear();
+			final long start = new SimpleDateFormat(DATE_FORMAT).parse(value.trim()).getTime();
+			return endOfDay ? start + TimeUnit.DAYS.toMillis(1) - 1 : start;
 		}
-
-		if (prevNumBuilds == numBuilds && req.checkIfModified(t, res))
+		catch (ParseException pe)
 		{
-			/*
-			 * checkIfModified() is after '&&' because we want it evaluated only
-			 * if number of builds is different
-			 */
-			newGraphNotNeeded = true;
+			return defaultValue;
 		}
-
-		return newGraphNotNeeded;
 	}
 	
+	/**
+	 * Sets the ETag of the response, or answers with 304 if the browser 
+	 * already has the same content.
+	 * 
+	 * @param req Stapler request
+	 * @param res Stapler response
+	 * @param etag ETag of the content
+	 * @return true, if the browser has the content and nothing else must be 
+	 * sent, false otherwise
+	 */
+	private boolean notModified( StaplerRequest req, StaplerResponse res, String etag )
+	{
+		res.setHeader("ETag", etag);
+		res.setHeader("Cache-Control", "private, no-cache");
+		if (GraphCache.matches(req.getHeader("If-None-Match"), etag))
+		{
+			res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return true;
+		}
+		return false;
+	}
+	
+	/**
+	 * Checks if it should display graph.
+	 * 
+	 * @return <code>true</code> if it should display graph and 
+	 * 		   <code>false</code> otherwise.
+	 */
+	public final boolean isDisplayGraph()
+	{
+		return project.getBuilds().size() > 0;
+	}
+	
+	/**
+	 * Adds the buckets of the project trend to the data set. The values are 
+	 * the averages of the builds of each bucket.
+	 * 
+	 * @param dataset data set of the trend graphs.
+	 * @param buckets buckets of the trend, oldest first.
+	 */
 	protected void populateDataSetBuilder(
-			DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> dataset )
+			DataSetBuilder<String, TestLinkTrend.Bucket> dataset, 
+			List<TestLinkTrend.Bucket> buckets )
 	{
-		for (AbstractBuild<?, ?> build = getProject().getLastBuild(); build != null; build = build
-				.getPreviousBuild())
+		for ( TestLinkTrend.Bucket bucket : buckets )
 		{
-			ChartUtil.NumberOnlyBuildLabel label = new ChartUtil.NumberOnlyBuildLabel(
-					build);
-			TestLinkBuildAction action = build.getAction(getBuildActionClass());
-			if (action != null)
+			for ( int series = 0 ; series < TestLinkTrend.SERIES.length ; series++ )
 			{
-				final TestLinkResult result = action.getResult();
-				final Report report = result.getReport();
-				dataset.add(report.getTestsBlocked(), "Blocked", label);
-				dataset.add(report.getTestsFailed(), "Failed", label);
-				dataset.add(report.getTestsNotRun(), "Not Run", label);
-				dataset.add(report.getTestsPassed(), "Passed", label);
+				dataset.add(bucket.getAverage(series), TestLinkTrend.SERIES[series], bucket);
 			}
 		}
 	}
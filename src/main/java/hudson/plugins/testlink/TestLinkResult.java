@@ -23,28 +23,156 @@
  */
 package hudson.plugins.testlink;
 
+import hudson.XmlFile;
 import hudson.model.AbstractBuild;
+import hudson.model.Api;
+import hudson.model.Hudson;
 import hudson.plugins.testlink.result.Report;
+import hudson.plugins.testlink.result.ReportDiff;
+import hudson.plugins.testlink.result.ReportPage;
+import hudson.plugins.testlink.result.TestCaseRecord;
 
+import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.lang.ref.SoftReference;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
 
 /**
+ * TestLink result of a build. The report, with a record per test case, is 
+ * kept in a file in the build directory, and is loaded only when needed. 
+ * Once loaded, it is kept through a soft reference, so it can be garbage 
+ * collected when memory is needed.
+ * 
  * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
  * @since 1.0
  */
+@ExportedBean
 public class TestLinkResult 
 implements Serializable
 {
 	
 	private static final long serialVersionUID = 3355678827881770594L;
 	
+	private static final Logger LOGGER = Logger.getLogger( TestLinkResult.class.getName() );
+	
+	/**
+	 * Name of the file, in the build directory, with the report.
+	 */
+	public static final String REPORT_FILE_NAME = "testlink-report.xml";
+	
+	/**
+	 * Default and maximum number of test cases per page of the result page.
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 50;
+	public static final int MAX_PAGE_SIZE = 500;
+	
+	/**
+	 * The report, when it could not be saved in the report file. Builds 
+	 * recorded before 3.0.3 kept the report here too.
+	 */
 	private Report report;
 	private AbstractBuild<?, ?> build;
+	
+	private transient SoftReference<Report> reportReference;
+	
+	/**
+	 * Counters of the report, kept in the build record so that the remote 
+	 * API does not load the report file. <code>null</code> total in builds 
+	 * recorded before they were kept.
+	 */
+	private Integer testsTotal;
+	private int testsPassed;
+	private int testsFailed;
+	private int testsBlocked;
+	private int testsNotRun;
+	
+	/**
+	 * Whether the report was read from the build record, written before 
+	 * 3.0.3, so that the build must be saved to remove it from there.
+	 */
+	private transient boolean migrated;
+	
+	/**
+	 * Differences with the report of the previous build, and the number of 
+	 * that build.
+	 */
+	private transient SoftReference<ReportDiff> diffReference;
+	private transient int diffPreviousBuildNumber;
 
 	public TestLinkResult(Report report, AbstractBuild<?, ?> build)
 	{
 		this.report = report;
 		this.build = build;
+		this.countTests( report );
+		this.saveReport();
+	}
+	
+	/**
+	 * Moves the report of builds recorded before 3.0.3 into the report file, 
+	 * unless an earlier load already wrote it. The build must then be saved 
+	 * once, see {@link #isMigrated()}. Sets the counters of the builds 
+	 * recorded before they were kept.
+	 * 
+	 * @return this result.
+	 */
+	protected Object readResolve()
+	{
+		if ( this.testsTotal == null )
+		{
+			this.countTests( this.report != null ? this.report : this.getReport() );
+			this.migrated = true;
+		}
+		if ( this.report != null )
+		{
+			this.migrated = true;
+			final XmlFile reportFile = this.getReportFile();
+			if ( reportFile != null && reportFile.exists() )
+			{
+				this.reportReference = new SoftReference<Report>( this.report );
+				this.report = null;
+			}
+			else
+			{
+				this.saveReport();
+			}
+		}
+		return this;
+	}
+	
+	/**
+	 * @return <code>true</code> if the report was read from a build record 
+	 * written before 3.0.3, or the record had no counters, so that it must be 
+	 * saved again to leave the report out of it and keep the counters.
+	 * @since 3.0.3
+	 */
+	public boolean isMigrated()
+	{
+		return this.migrated || ( this.report != null && this.report.isMigrated() );
+	}
+	
+	private void countTests( Report report )
+	{
+		if ( report != null )
+		{
+			this.testsTotal = report.getTestsTotal();
+			this.testsPassed = report.getTestsPassed();
+			this.testsFailed = report.getTestsFailed();
+			this.testsBlocked = report.getTestsBlocked();
+			this.testsNotRun = report.getTestsNotRun();
+		}
+		else
+		{
+			this.testsTotal = 0;
+		}
 	}
 	
 	public AbstractBuild<?, ?> getOwner()
@@ -52,9 +180,268 @@ implements Serializable
 		return this.build;
 	}
 	
-	public Report getReport()
+	/**
+	 * @return remote API of this result.
+	 * @since 3.0.3
+	 */
+	public Api getApi()
+	{
+		return new Api( this );
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	@Exported
+	public int getTestsTotal()
+	{
+		return this.testsTotal;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	@Exported
+	public int getTestsPassed()
+	{
+		return this.testsPassed;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	@Exported
+	public int getTestsFailed()
+	{
+		return this.testsFailed;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	@Exported
+	public int getTestsBlocked()
+	{
+		return this.testsBlocked;
+	}
+	
+	/**
+	 * @since 3.0.3
+	 */
+	@Exported
+	public int getTestsNotRun()
+	{
+		return this.testsNotRun;
+	}
+	
+	/**
+	 * Gets the differences with the previous build with TestLink results, 
+	 * shown at <code>testLinkResult/changes</code>. They are not exported 
+	 * with the result, as they load the reports of both builds, but have 
+	 * their own remote API at <code>testLinkResult/diff/api</code>.
+	 * 
+	 * @return the differences, or <code>null</code> if there is no previous 
+	 * build with TestLink results.
+	 * @since 3.0.3
+	 */
+	public ReportDiff getDiff()
+	{
+		if ( this.build == null )
+		{
+			return null;
+		}
+		final AbstractBuild<?, ?> previousBuild = TestLinkTrend.getInstance( this.build.getProject() )
+				.getBuildBefore( this.build.getProject(), this.build.getNumber() );
+		if ( previousBuild == null )
+		{
+			return null;
+		}
+		final TestLinkBuildAction previousAction = previousBuild.getAction( TestLinkBuildAction.class );
+		if ( previousAction == null || previousAction.getResult() == null )
+		{
+			return null;
+		}
+		return this.getDiff( previousAction.getResult() );
+	}
+	
+	/**
+	 * Gets the differences with the result of another build. They are kept 
+	 * while there is memory for them, for the same build.
+	 * 
+	 * @param previous result of the previous build.
+	 * @return the differences.
+	 * @since 3.0.3
+	 */
+	public synchronized ReportDiff getDiff( TestLinkResult previous )
+	{
+		final int previousBuildNumber = previous.getOwner() != null ? previous.getOwner().getNumber() : -1;
+		ReportDiff diff = null;
+		if ( this.diffReference != null && this.diffPreviousBuildNumber == previousBuildNumber )
+		{
+			diff = this.diffReference.get();
+		}
+		if ( diff == null )
+		{
+			diff = new ReportDiff( this.getReport(), previous.getReport() );
+			this.diffReference = new SoftReference<ReportDiff>( diff );
+			this.diffPreviousBuildNumber = previousBuildNumber;
+		}
+		return diff;
+	}
+	
+	/**
+	 * Gets the page of test cases of the result page. The request parameters 
+	 * <code>page</code>, <code>size</code>, <code>sort</code>, 
+	 * <code>order</code> (asc or desc) and <code>status</code> (passed, 
+	 * failed, blocked or not_run) are all optional.
+	 * 
+	 * @param req Stapler request.
+	 * @return the page of test cases.
+	 * @since 3.0.3
+	 */
+	public ReportPage getPage( StaplerRequest req )
+	{
+		final int page = getIntParameter( req.getParameter( "page" ), 1, Integer.MAX_VALUE );
+		final int size = getIntParameter( req.getParameter( "size" ), DEFAULT_PAGE_SIZE, MAX_PAGE_SIZE );
+		final boolean descending = "desc".equals( req.getParameter( "order" ) );
+		return this.getReport().getPage( page, size, req.getParameter( "sort" ), descending, getExecutionStatus( req.getParameter( "status" ) ) );
+	}
+	
+	/**
+	 * Gets a test case of this result, bound to the URL 
+	 * <code>testLinkResult/case/{id}</code>.
+	 * 
+	 * @param id test case id.
+	 * @return the test case, or <code>null</code> if it is not in the report.
+	 * @since 3.0.3
+	 */
+	public TestCaseResult getCase( String id )
+	{
+		final Integer testCaseId;
+		try
+		{
+			testCaseId = Integer.valueOf( id );
+		}
+		catch ( NumberFormatException nfe )
+		{
+			return null;
+		}
+		final TestCaseRecord record = this.getReport().getTestCase( testCaseId );
+		return record == null ? null : new TestCaseResult( this, record );
+	}
+	
+	private static int getIntParameter( String value, int defaultValue, int max )
+	{
+		int result = defaultValue;
+		if ( value != null )
+		{
+			try
+			{
+				result = Integer.parseInt( value );
+			}
+			catch ( NumberFormatException nfe )
+			{
+				result = defaultValue;
+			}
+		}
+		return result < 1 ? defaultValue : Math.min( result, max );
+	}
+	
+	/**
+	 * @return the execution status of a status parameter, or 
+	 * <code>null</code> if it is missing or invalid.
+	 */
+	private static ExecutionStatus getExecutionStatus( String status )
+	{
+		if ( status == null )
+		{
+			return null;
+		}
+		try
+		{
+			return ExecutionStatus.valueOf( status.trim().toUpperCase( Locale.ENGLISH ) );
+		}
+		catch ( IllegalArgumentException iae )
+		{
+			return null;
+		}
+	}
+	
+	/**
+	 * Gets the report, loading it from the report file if it is not in 
+	 * memory.
+	 * 
+	 * @return the report.
+	 */
+	public synchronized Report getReport()
+	{
+		if ( this.report != null )
+		{
+			return this.report;
+		}
+		
+		Report loaded = this.reportReference != null ? this.reportReference.get() : null;
+		if ( loaded == null )
+		{
+			final XmlFile reportFile = this.getReportFile();
+			try
+			{
+				if ( reportFile != null && reportFile.exists() )
+				{
+					loaded = (Report) reportFile.read();
+					if ( loaded.isMigrated() )
+					{
+						reportFile.write( loaded );
+					}
+				}
+			}
+			catch ( IOException ioe )
+			{
+				LOGGER.log( Level.WARNING, "Failed to load " + reportFile.getFile(), ioe );
+			}
+			if ( loaded == null )
+			{
+				loaded = new Report( null );
+			}
+			this.reportReference = new SoftReference<Report>( loaded );
+		}
+		return loaded;
+	}
+	
+	/**
+	 * Writes the report into the report file, keeping only a soft reference 
+	 * to it. If the report cannot be written, it is kept in this object.
+	 */
+	private synchronized void saveReport()
+	{
+		final XmlFile reportFile = this.getReportFile();
+		if ( this.report == null || reportFile == null )
+		{
+			return;
+		}
+		try
+		{
+			reportFile.write( this.report );
+			this.reportReference = new SoftReference<Report>( this.report );
+			this.report = null;
+		}
+		catch ( IOException ioe )
+		{
+			LOGGER.log( Level.WARNING, "Failed to save " + reportFile.getFile(), ioe );
+		}
+	}
+	
+	/**
+	 * @return the report file, or <code>null</code> if there is no build 
+	 * directory.
+	 */
+	private XmlFile getReportFile()
 	{
-		return this.report;
+		if ( this.build == null || this.build.getRootDir() == null )
+		{
+			return null;
+		}
+		return new XmlFile( Hudson.XSTREAM, new File( this.build.getRootDir(), REPORT_FILE_NAME ) );
 	}
 	
 }
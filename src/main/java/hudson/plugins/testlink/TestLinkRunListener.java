@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.Extension;
+import hudson.model.AbstractBuild;
+import hudson.model.TaskListener;
+import hudson.model.listeners.RunListener;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the project data of TestLink, like the trend of the results, the 
+ * rendered trend graphs and the history of the test cases, up to date as 
+ * builds complete or are deleted.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+@Extension
+@SuppressWarnings("rawtypes")
+public class TestLinkRunListener 
+extends RunListener<AbstractBuild>
+{
+
+	private static final Logger LOGGER = Logger.getLogger( TestLinkRunListener.class.getName() );
+	
+	public TestLinkRunListener()
+	{
+		super( AbstractBuild.class );
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.model.listeners.RunListener#onCompleted(hudson.model.Run, hudson.model.TaskListener)
+	 */
+	@Override
+	public void onCompleted( AbstractBuild r, TaskListener listener )
+	{
+		final AbstractBuild<?, ?> build = r;
+		final TestLinkBuildAction action = build.getAction( TestLinkBuildAction.class );
+		if ( action == null )
+		{
+			return;
+		}
+		final TestLinkTrend trend = TestLinkTrend.getInstance( build.getProject() );
+		trend.add( build.getNumber(), build.getTimeInMillis(), action );
+		this.save( trend );
+		GraphCache.getInstance().invalidate( build.getProject().getFullName() );
+		if ( action.getResult() != null )
+		{
+			try
+			{
+				TestLinkHistory.getInstance( build.getProject() ).append( build.getNumber(), action.getResult().getReport() );
+			}
+			catch ( IOException ioe )
+			{
+				LOGGER.log( Level.WARNING, "Failed to append to the TestLink history", ioe );
+			}
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.model.listeners.RunListener#onDeleted(hudson.model.Run)
+	 */
+	@Override
+	public void onDeleted( AbstractBuild r )
+	{
+		final AbstractBuild<?, ?> build = r;
+		if ( build.getAction( TestLinkBuildAction.class ) == null )
+		{
+			return;
+		}
+		final TestLinkTrend trend = TestLinkTrend.getInstance( build.getProject() );
+		if ( trend.remove( build.getNumber() ) )
+		{
+			this.save( trend );
+			GraphCache.getInstance().invalidate( build.getProject().getFullName() );
+		}
+		try
+		{
+			TestLinkHistory.getInstance( build.getProject() ).remove( build.getNumber() );
+		}
+		catch ( IOException ioe )
+		{
+			LOGGER.log( Level.WARNING, "Failed to remove a build from the TestLink history", ioe );
+		}
+	}
+	
+	private void save( TestLinkTrend trend )
+	{
+		try
+		{
+			trend.save();
+		}
+		catch ( IOException ioe )
+		{
+			LOGGER.log( Level.WARNING, "Failed to save the TestLink trend", ioe );
+		}
+	}
+	
+}
@@ -24,25 +24,43 @@
 package hudson.plugins.testlink;
 
 import hudson.plugins.testlink.result.TestCaseWrapper;
+import hudson.plugins.testlink.util.Messages;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import br.eti.kinoshita.testlinkjavaapi.TestLinkAPI;
-import br.eti.kinoshita.testlinkjavaapi.model.Attachment;
+import br.eti.kinoshita.testlinkjavaapi.TestLinkAPIException;
 import br.eti.kinoshita.testlinkjavaapi.model.Build;
 import br.eti.kinoshita.testlinkjavaapi.model.CustomField;
 import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
 import br.eti.kinoshita.testlinkjavaapi.model.ExecutionType;
-import br.eti.kinoshita.testlinkjavaapi.model.ReportTCResultResponse;
 import br.eti.kinoshita.testlinkjavaapi.model.ResponseDetails;
 import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
 import br.eti.kinoshita.testlinkjavaapi.model.TestPlan;
 import br.eti.kinoshita.testlinkjavaapi.model.TestProject;
 
 /**
- * Immutable object that represents the TestLink site with a Test Project, 
- * a Test Plan and a Build.
+ * Represents the TestLink site with a Test Project, a Test Plan and a 
+ * Build. The site itself is fixed, but the object is not immutable: the 
+ * concurrency, retries, timeout and custom field cache used to talk to 
+ * TestLink are set after it is created, and it keeps the statistics of the 
+ * custom fields fetched. It is meant to be used by a single build, and is 
+ * not safe to configure from several threads.
  * 
  * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
  * @since 3.0
@@ -50,11 +68,76 @@ import br.eti.kinoshita.testlinkjavaapi.model.TestProject;
 public class TestLinkSite
 {
 
+	/**
+	 * Maximum size of the encoded attachments kept while uploading (8 MB), 
+	 * so that a file attached to several test cases is read only once.
+	 */
+	public static final long UPLOAD_CACHE_MAX_SIZE = 8L * 1024L * 1024L;
+	
 	private final TestLinkAPI api;
 	private final TestProject testProject;
 	private final TestPlan testPlan;
 	private final Build build;
 	
+	/**
+	 * Maximum number of custom field values fetched at the same time.
+	 */
+	private int customFieldsConcurrency = 1;
+	
+	/**
+	 * Maximum number of test cases uploaded at the same time.
+	 */
+	private int uploadConcurrency = 1;
+	
+	/**
+	 * Number of times an upload that failed with an I/O error is retried.
+	 */
+	private int uploadRetries = 0;
+	
+	/**
+	 * Timeout of each custom field value call, in seconds. 0 means no timeout.
+	 */
+	private int customFieldsTimeout = 0;
+	
+	/**
+	 * Number of custom field values fetched by the last call to 
+	 * {@link #getAutomatedTestCases(String[])}.
+	 */
+	private int customFieldsFetched = 0;
+	
+	/**
+	 * Time spent fetching the custom field values, in milliseconds.
+	 */
+	private long customFieldsFetchTime = 0L;
+	
+	/**
+	 * Cache of custom field values, <code>null</code> when disabled.
+	 */
+	private CustomFieldCache customFieldCache;
+	
+	/**
+	 * Name of the TestLink installation, part of the keys of the cache.
+	 */
+	private String customFieldCacheInstallation;
+	
+	/**
+	 * Time to live of the cached custom field values, in milliseconds.
+	 */
+	private long customFieldCacheTimeToLive;
+	
+	/**
+	 * Number of custom field values found in the cache by the last call to 
+	 * {@link #getAutomatedTestCases(String[])}.
+	 */
+	private int customFieldsCached = 0;
+	
+	/**
+	 * Ids of the Test Cases whose last execution status in TestLink, as 
+	 * returned by the last call to {@link #getAutomatedTestCases(String[])}, 
+	 * is failed or blocked.
+	 */
+	private final Set<Integer> lastFailedTestCases = new HashSet<Integer>();
+	
 	/**
 	 * @param api TestLink Java API object
 	 * @param testProject TestLink Test Project
@@ -102,92 +185,432 @@ public class TestLinkSite
 		return build;
 	}
 
+	/**
+	 * @return maximum number of custom field values fetched at the same time.
+	 * @since 3.0.3
+	 */
+	public int getCustomFieldsConcurrency()
+	{
+		return this.customFieldsConcurrency;
+	}
+	
+	/**
+	 * @param customFieldsConcurrency maximum number of custom field values 
+	 * fetched at the same time. 1 fetches them one after another.
+	 * @since 3.0.3
+	 */
+	public void setCustomFieldsConcurrency( int customFieldsConcurrency )
+	{
+		this.customFieldsConcurrency = customFieldsConcurrency;
+	}
+	
+	/**
+	 * @return timeout of each custom field value call, in seconds.
+	 * @since 3.0.3
+	 */
+	public int getCustomFieldsTimeout()
+	{
+		return this.customFieldsTimeout;
+	}
+	
+	/**
+	 * @param customFieldsTimeout timeout of each custom field value call, 
+	 * in seconds. 0 means no timeout.
+	 * @since 3.0.3
+	 */
+	public void setCustomFieldsTimeout( int customFieldsTimeout )
+	{
+		this.customFieldsTimeout = customFieldsTimeout;
+	}
+	
+	/**
+	 * @return number of custom field values fetched by the last call to 
+	 * {@link #getAutomatedTestCases(String[])}.
+	 * @since 3.0.3
+	 */
+	public int getCustomFieldsFetched()
+	{
+		return this.customFieldsFetched;
+	}
+	
+	/**
+	 * @return time spent fetching the custom field values by the last call 
+	 * to {@link #getAutomatedTestCases(String[])}, in milliseconds.
+	 * @since 3.0.3
+	 */
+	public long getCustomFieldsFetchTime()
+	{
+		return this.customFieldsFetchTime;
+	}
+
+	/**
+	 * Uses a cache for the custom field values, so that only the values of 
+	 * new or changed test cases are fetched from TestLink.
+	 * 
+	 * @param customFieldCache cache of custom field values.
+	 * @param installation name of the TestLink installation.
+	 * @param timeToLive time to live of the cached values, in milliseconds.
+	 * @since 3.0.3
+	 */
+	public void setCustomFieldCache( CustomFieldCache customFieldCache, String installation, long timeToLive )
+	{
+		this.customFieldCache = customFieldCache;
+		this.customFieldCacheInstallation = installation;
+		this.customFieldCacheTimeToLive = timeToLive;
+	}
+	
+	/**
+	 * @return cache of custom field values, <code>null</code> when disabled.
+	 * @since 3.0.3
+	 */
+	public CustomFieldCache getCustomFieldCache()
+	{
+		return this.customFieldCache;
+	}
+	
+	/**
+	 * @return number of custom field values found in the cache by the last 
+	 * call to {@link #getAutomatedTestCases(String[])}.
+	 * @since 3.0.3
+	 */
+	public int getCustomFieldsCached()
+	{
+		return this.customFieldsCached;
+	}
+	
+	/**
+	 * @return ids of the Test Cases whose last execution status in TestLink 
+	 * was failed or blocked, as returned with the automated Test Cases by 
+	 * the last call to {@link #getAutomatedTestCases(String[])}.
+	 * @since 3.0.3
+	 */
+	public Set<Integer> getLastFailedTestCases()
+	{
+		return Collections.unmodifiableSet( this.lastFailedTestCases );
+	}
+	
 	/**
 	 * @param customFieldsNames Array of custom fields names
 	 * @return Array of automated test cases with custom fields
 	 */
 	public TestCase[] getAutomatedTestCases( String[] customFieldsNames ) 
 	{
-		final TestCase[] testCases = this.api.getTestCasesForTestPlan(
-				getTestPlan().getId(), 
-				null, 
-				null, 
-				null, 
-				null,
-				null, 
-				null, 
-				null, 
-				ExecutionType.AUTOMATED, 
-				Boolean.TRUE);			
+		final TestCase[] testCases = this.getTestCasesForTestPlan();
 
+		this.lastFailedTestCases.clear();
 		for( final TestCase testCase : testCases )
 		{
+			if ( testCase.getExecutionStatus() == ExecutionStatus.FAILED || 
+				 testCase.getExecutionStatus() == ExecutionStatus.BLOCKED )
+			{
+				this.lastFailedTestCases.add( testCase.getId() );
+			}
 			testCase.setTestProjectId(getTestProject().getId());
 			testCase.setExecutionStatus(ExecutionStatus.NOT_RUN);
-			if ( customFieldsNames != null )
+		}
+		
+		final long start = System.nanoTime();
+		this.customFieldsFetched = 0;
+		this.customFieldsCached = 0;
+		
+		if ( customFieldsNames != null && customFieldsNames.length > 0 )
+		{
+			// Values are found or fetched by call index: test case index 
+			// times the number of custom fields plus the custom field index
+			final CustomField[] values = new CustomField[ testCases.length * customFieldsNames.length ];
+			final List<Integer> missing = new ArrayList<Integer>( values.length );
+			for ( int i = 0 ; i < values.length ; ++i )
 			{
-				for( String customFieldName : customFieldsNames )
+				if ( this.customFieldCache != null )
+				{
+					values[i] = this.customFieldCache.get( 
+							this.customFieldCacheInstallation, 
+							testCases[ i / customFieldsNames.length ], 
+							customFieldsNames[ i % customFieldsNames.length ], 
+							this.customFieldCacheTimeToLive );
+				}
+				if ( values[i] == null )
 				{
-					final CustomField customField = 
-							this.api.getTestCaseCustomFieldDesignValue(
-									testCase.getId(), 
-									null, /* testCaseExternalId */ 
-									testCase.getVersion(), 
-									testCase.getTestProjectId(), 
-									customFieldName, 
-									ResponseDetails.FULL);
-					testCase.getCustomFields().add(customField);
+					missing.add( i );
+				}
+				else
+				{
+					this.customFieldsCached += 1;
+				}
+			}
+			
+			if ( this.customFieldsConcurrency <= 1 && this.customFieldsTimeout <= 0 )
+			{
+				for( Integer index : missing )
+				{
+					values[ index ] = this.getCustomField( 
+							testCases[ index / customFieldsNames.length ], 
+							customFieldsNames[ index % customFieldsNames.length ] );
+					this.customFieldsFetched += 1;
+				}
+			}
+			else
+			{
+				this.fetchCustomFieldsConcurrently( testCases, customFieldsNames, values, missing );
+			}
+			
+			for ( int i = 0 ; i < values.length ; ++i )
+			{
+				final TestCase testCase = testCases[ i / customFieldsNames.length ];
+				testCase.getCustomFields().add( values[i] );
+			}
+			
+			if ( this.customFieldCache != null )
+			{
+				for( Integer index : missing )
+				{
+					this.customFieldCache.put( 
+							this.customFieldCacheInstallation, 
+							testCases[ index / customFieldsNames.length ], 
+							customFieldsNames[ index % customFieldsNames.length ], 
+							values[ index ] );
 				}
 			}
 		}
 		
+		this.customFieldsFetchTime = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+		
 		return testCases;
 	}
 	
 	/**
-	 * Updates the test cases status in TestLink (note and status) and 
-	 * uploads any existing attachments.
+	 * Fetches the custom field values with up to 
+	 * {@link #getCustomFieldsConcurrency()} calls at the same time. As many 
+	 * calls as threads are in flight, and each value is stored at the index 
+	 * of its call, so the test cases get their custom fields in the same 
+	 * order of the sequential fetch.
 	 * 
-	 * @param testCases Test Cases
+	 * @param testCases automated test cases.
+	 * @param customFieldsNames custom fields names.
+	 * @param values custom field values, by call index.
+	 * @param missing indexes of the calls to make.
 	 */
-	@SuppressWarnings("rawtypes")
-	public void updateTestCases( Collection<TestCaseWrapper> testCases ) 
+	private void fetchCustomFieldsConcurrently( TestCase[] testCases, String[] customFieldsNames, CustomField[] values, List<Integer> missing )
 	{
-		// Update TestLink Test Status
-		for( TestCaseWrapper testCase : testCases )
+		final int calls = missing.size();
+		if ( calls == 0 )
 		{
-			if ( testCase.getExecutionStatus() != null || testCase.getExecutionStatus() != ExecutionStatus.NOT_RUN )
+			return;
+		}
+		final int threads = Math.max( 1, Math.min( this.customFieldsConcurrency, calls ) );
+		final long timeoutNanos = TimeUnit.SECONDS.toNanos( this.customFieldsTimeout );
+		
+		final ExecutorService executor = Executors.newFixedThreadPool( threads, new ThreadFactory()
+		{
+			private final AtomicInteger count = new AtomicInteger();
+			
+			public Thread newThread( Runnable r )
+			{
+				final Thread thread = new Thread( r, "TestLink custom field fetcher #" + count.incrementAndGet() );
+				thread.setDaemon( true );
+				return thread;
+			}
+		});
+		
+		final LinkedList<CustomFieldCall> inFlight = new LinkedList<CustomFieldCall>();
+		try
+		{
+			int next = 0;
+			while ( next < calls || ! inFlight.isEmpty() )
 			{
-				// Update Test Case status
-				final ReportTCResultResponse reportTCResultResponse = api.reportTCResult(
-						testCase.getId(), 
-						testCase.getInternalId(), 
-						testPlan.getId(), 
-						testCase.getExecutionStatus(), 
-						build.getId(), 
-						build.getName(), 
-						testCase.getNotes(), 
-						null, // guess
-						null, // bug id
-						null, // platform id 
-						testCase.getPlatform(), // platform name
-						null, // custom fields
-						null);
+				while ( next < calls && inFlight.size() < threads )
+				{
+					final int index = missing.get( next );
+					final TestCase testCase = testCases[ index / customFieldsNames.length ];
+					final String customFieldName = customFieldsNames[ index % customFieldsNames.length ];
+					inFlight.add( new CustomFieldCall( index, testCase, customFieldName, executor.submit( new Callable<CustomField>()
+					{
+						public CustomField call()
+						{
+							return getCustomField( testCase, customFieldName );
+						}
+					})));
+					next += 1;
+				}
 				
-				@SuppressWarnings("unchecked")
-				List<Attachment> attachments = testCase.getAttachments();
-				for ( Attachment attachment :  attachments)
+				final CustomFieldCall call = inFlight.removeFirst();
+				values[ call.index ] = call.get( timeoutNanos );
+				this.customFieldsFetched += 1;
+			}
+		}
+		finally
+		{
+			for ( CustomFieldCall call : inFlight )
+			{
+				call.future.cancel( true );
+			}
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Gets the automated test cases of the Test Plan, with the status of 
+	 * their last execution.
+	 * 
+	 * @return automated test cases.
+	 * @since 3.0.3
+	 */
+	protected TestCase[] getTestCasesForTestPlan()
+	{
+		return this.api.getTestCasesForTestPlan(
+				getTestPlan().getId(), 
+				null, 
+				null, 
+				null, 
+				null,
+				null, 
+				null, 
+				null, 
+				ExecutionType.AUTOMATED, 
+				Boolean.TRUE);
+	}
+	
+	/**
+	 * Gets the design value of a custom field of a test case. Called by 
+	 * several threads at the same time when the custom fields are fetched 
+	 * concurrently.
+	 * 
+	 * @param testCase test case.
+	 * @param customFieldName name of the custom field.
+	 * @return value of the custom field.
+	 * @since 3.0.3
+	 */
+	protected CustomField getCustomField( TestCase testCase, String customFieldName )
+	{
+		return this.api.getTestCaseCustomFieldDesignValue(
+				testCase.getId(), 
+				null, /* testCaseExternalId */ 
+				testCase.getVersion(), 
+				testCase.getTestProjectId(), 
+				customFieldName, 
+				ResponseDetails.FULL);
+	}
+	
+	/**
+	 * A custom field value call in flight.
+	 * 
+	 * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+	 * @since 3.0.3
+	 */
+	private static class CustomFieldCall
+	{
+		private final int index;
+		private final TestCase testCase;
+		private final String customFieldName;
+		private final Future<CustomField> future;
+		private final long submitted;
+		
+		public CustomFieldCall( int index, TestCase testCase, String customFieldName, Future<CustomField> future )
+		{
+			this.index = index;
+			this.testCase = testCase;
+			this.customFieldName = customFieldName;
+			this.future = future;
+			this.submitted = System.nanoTime();
+		}
+		
+		/**
+		 * Waits for the custom field value. As there are never more calls in 
+		 * flight than threads, the timeout counts from the submission.
+		 * 
+		 * @param timeoutNanos timeout in nanoseconds, 0 for no timeout.
+		 */
+		public CustomField get( long timeoutNanos )
+		{
+			try
+			{
+				if ( timeoutNanos <= 0 )
 				{
-					api.uploadExecutionAttachment(
-							reportTCResultResponse.getExecutionId(), 
-							attachment.getTitle(), 
-							attachment.getDescription(), 
-							attachment.getFileName(), 
-							attachment.getFileType(), 
-							attachment.getContent());
+					return this.future.get();
 				}
+				final long remaining = Math.max( 0L, this.submitted + timeoutNanos - System.nanoTime() );
+				return this.future.get( remaining, TimeUnit.NANOSECONDS );
+			}
+			catch ( TimeoutException te )
+			{
+				throw new TestLinkAPIException( Messages.TestLinkSite_CustomFieldTimeout( 
+						this.customFieldName, this.testCase.getId(), TimeUnit.NANOSECONDS.toSeconds( timeoutNanos ) ), te );
+			}
+			catch ( InterruptedException ie )
+			{
+				Thread.currentThread().interrupt();
+				throw new TestLinkAPIException( Messages.TestLinkSite_CustomFieldInterrupted( 
+						this.customFieldName, this.testCase.getId() ), ie );
+			}
+			catch ( ExecutionException ee )
+			{
+				final Throwable cause = ee.getCause();
+				if ( cause instanceof RuntimeException )
+				{
+					throw (RuntimeException) cause;
+				}
+				throw new TestLinkAPIException( cause.getMessage(), cause );
 			}
 		}
 	}
 	
+	/**
+	 * @return maximum number of test cases uploaded at the same time.
+	 * @since 3.0.3
+	 */
+	public int getUploadConcurrency()
+	{
+		return this.uploadConcurrency;
+	}
+	
+	/**
+	 * @param uploadConcurrency maximum number of test cases uploaded at the 
+	 * same time. 1 uploads them one after another.
+	 * @since 3.0.3
+	 */
+	public void setUploadConcurrency( int uploadConcurrency )
+	{
+		this.uploadConcurrency = uploadConcurrency;
+	}
+	
+	/**
+	 * @return number of times an upload that failed with an I/O error is 
+	 * retried.
+	 * @since 3.0.3
+	 */
+	public int getUploadRetries()
+	{
+		return this.uploadRetries;
+	}
+	
+	/**
+	 * @param uploadRetries number of times an upload that failed with an 
+	 * I/O error is retried.
+	 * @since 3.0.3
+	 */
+	public void setUploadRetries( int uploadRetries )
+	{
+		this.uploadRetries = uploadRetries;
+	}
+	
+	/**
+	 * Updates the test cases status in TestLink (note and status) and 
+	 * uploads any existing attachments. The content of the file attachments 
+	 * is read and encoded only now.
+	 * 
+	 * @param testCases Test Cases
+	 * @return outcome of each test case, in the same order of the test cases.
+	 * @throws InterruptedException
+	 * @see ResultUploader
+	 */
+	@SuppressWarnings("rawtypes")
+	public List<ResultUploader.Outcome> updateTestCases( Collection<TestCaseWrapper> testCases ) 
+	throws InterruptedException
+	{
+		final ResultUploader uploader = new ResultUploader( this.api, this.testPlan, this.build );
+		uploader.setConcurrency( this.uploadConcurrency );
+		uploader.setRetries( this.uploadRetries );
+		return uploader.upload( testCases );
+	}
+	
 }
@@ -0,0 +1,688 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.XmlFile;
+import hudson.model.AbstractBuild;
+import hudson.model.AbstractProject;
+import hudson.model.Hudson;
+import hudson.plugins.testlink.util.LoadingMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * Trend of the TestLink results of a project, with the counters of each 
+ * build. It is kept in the project directory and updated when a build 
+ * completes or is deleted, so the trend graphs do not need to load every 
+ * build of the project. When the file is missing, e.g. after an upgrade, it 
+ * is rebuilt from the builds once.
+ * 
+ * <p>As the trend has a point for every build with TestLink results, it is 
+ * also the index used to find the last or the previous TestLink build of a 
+ * project without loading the builds in between.</p>
+ * 
+ * <p>Long trends can be narrowed to a window of builds and downsampled into 
+ * buckets, so the graphs never draw more columns than they can show.</p>
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestLinkTrend
+{
+
+	private static final Logger LOGGER = Logger.getLogger( TestLinkTrend.class.getName() );
+	
+	/**
+	 * Name of the file, in the project directory, with the trend.
+	 */
+	public static final String FILE_NAME = "testlink-trend.xml";
+	
+	/**
+	 * Names of the series of the trend, in the order of the rows of the 
+	 * graphs.
+	 */
+	public static final String[] SERIES = { "Blocked", "Failed", "Not Run", "Passed" };
+	
+	private static final LoadingMap<AbstractProject<?, ?>, TestLinkTrend> instances = 
+		new LoadingMap<AbstractProject<?, ?>, TestLinkTrend>();
+	
+	private XmlFile file;
+	
+	/**
+	 * Build number -> point.
+	 */
+	private final TreeMap<Integer, Point> points = new TreeMap<Integer, Point>();
+	
+	/**
+	 * @param file file where the trend is persisted, <code>null</code> to 
+	 * keep it only in memory.
+	 */
+	public TestLinkTrend( XmlFile file )
+	{
+		super();
+		this.file = file;
+	}
+	
+	/**
+	 * Gets the trend of a project, loading it from the project directory when 
+	 * first used, or rebuilding it out of the builds if it cannot be loaded. 
+	 * Only the threads asking for the trend of the same project wait while 
+	 * it is loaded.
+	 * 
+	 * @param project the project.
+	 * @return the trend of the project.
+	 */
+	public static TestLinkTrend getInstance( final AbstractProject<?, ?> project )
+	{
+		final XmlFile file = getFile( project );
+		final TestLinkTrend trend = instances.get( project, new Callable<TestLinkTrend>()
+		{
+			public TestLinkTrend call()
+			{
+				return open( project, file );
+			}
+		});
+		// The project directory changes when the project is renamed
+		trend.setFile( file );
+		return trend;
+	}
+	
+	/**
+	 * Loads the trend of a project, or rebuilds it.
+	 */
+	private static TestLinkTrend open( AbstractProject<?, ?> project, XmlFile file )
+	{
+		final TestLinkTrend trend = new TestLinkTrend( file );
+		boolean loaded = false;
+		try
+		{
+			loaded = trend.load();
+		}
+		catch ( IOException ioe )
+		{
+			LOGGER.log( Level.WARNING, "Failed to load " + file.getFile() + ", rebuilding it", ioe );
+		}
+		if ( ! loaded )
+		{
+			trend.rebuild( project );
+			try
+			{
+				trend.save();
+			}
+			catch ( IOException ioe )
+			{
+				LOGGER.log( Level.WARNING, "Failed to save " + file.getFile(), ioe );
+			}
+		}
+		return trend;
+	}
+	
+	private static XmlFile getFile( AbstractProject<?, ?> project )
+	{
+		return new XmlFile( Hudson.XSTREAM, new File( project.getRootDir(), FILE_NAME ) );
+	}
+	
+	private synchronized void setFile( XmlFile file )
+	{
+		this.file = file;
+	}
+	
+	/**
+	 * Loads the trend from its file.
+	 * 
+	 * @return <code>true</code> if the file exists and was loaded.
+	 * @throws IOException if the file cannot be read.
+	 */
+	@SuppressWarnings("unchecked")
+	public synchronized boolean load() 
+	throws IOException
+	{
+		this.points.clear();
+		if ( this.file == null || ! this.file.exists() )
+		{
+			return false;
+		}
+		final Collection<Point> loaded = (Collection<Point>) this.file.read();
+		if ( loaded != null )
+		{
+			for ( Point point : loaded )
+			{
+				this.points.put( point.getBuildNumber(), point );
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Saves the trend into its file.
+	 * 
+	 * @throws IOException if the file cannot be written.
+	 */
+	public synchronized void save() 
+	throws IOException
+	{
+		if ( this.file != null )
+		{
+			this.file.write( new ArrayList<Point>( this.points.values() ) );
+		}
+	}
+	
+	/**
+	 * Rebuilds the trend out of the TestLink build actions of a project.
+	 * 
+	 * @param project the project.
+	 */
+	public synchronized void rebuild( AbstractProject<?, ?> project )
+	{
+		this.points.clear();
+		for ( AbstractBuild<?, ?> build = project.getLastBuild(); build != null; build = build.getPreviousBuild() )
+		{
+			final TestLinkBuildAction action = build.getAction( TestLinkBuildAction.class );
+			if ( action != null )
+			{
+				this.add( build.getNumber(), build.getTimeInMillis(), action );
+			}
+		}
+	}
+	
+	/**
+	 * Adds, or replaces, the point of a build.
+	 * 
+	 * @param buildNumber build number.
+	 * @param timestamp when the build was scheduled, in milliseconds.
+	 * @param action TestLink build action of the build.
+	 */
+	public synchronized void add( int buildNumber, long timestamp, TestLinkBuildAction action )
+	{
+		this.add( new Point( 
+			buildNumber, 
+			timestamp, 
+			action.getTestsPassed(), 
+			action.getTestsFailed(), 
+			action.getTestsBlocked(), 
+			action.getTestsNotRun(), 
+			action.getDuration() ) );
+	}
+	
+	/**
+	 * Adds, or replaces, a point.
+	 * 
+	 * @param point the point.
+	 */
+	public synchronized void add( Point point )
+	{
+		this.points.put( point.getBuildNumber(), point );
+	}
+	
+	/**
+	 * Removes the point of a build.
+	 * 
+	 * @param buildNumber build number.
+	 * @return <code>true</code> if there was a point for the build.
+	 */
+	public synchronized boolean remove( int buildNumber )
+	{
+		return this.points.remove( buildNumber ) != null;
+	}
+	
+	/**
+	 * Gets the points of the last builds, oldest first.
+	 * 
+	 * @param max maximum number of points, or a negative number for all of 
+	 * them.
+	 * @return the points.
+	 */
+	public synchronized List<Point> getPoints( int max )
+	{
+		return this.getPoints( max, 0L, Long.MAX_VALUE );
+	}
+	
+	/**
+	 * Gets the points of the last builds scheduled within a date range, 
+	 * oldest first. Only the points shown are visited, as builds are 
+	 * scheduled in the order of their numbers.
+	 * 
+	 * @param max maximum number of points, or a negative number for all of 
+	 * them.
+	 * @param from start of the range, in milliseconds, inclusive.
+	 * @param to end of the range, in milliseconds, inclusive.
+	 * @return the points.
+	 */
+	public synchronized List<Point> getPoints( int max, long from, long to )
+	{
+		final LinkedList<Point> list = new LinkedList<Point>();
+		for ( Point point : this.points.descendingMap().values() )
+		{
+			if ( max >= 0 && list.size() >= max )
+			{
+				break;
+			}
+			if ( point.getTimestamp() > to )
+			{
+				continue;
+			}
+			if ( point.getTimestamp() < from )
+			{
+				break;
+			}
+			list.addFirst( point );
+		}
+		return new ArrayList<Point>( list );
+	}
+	
+	/**
+	 * Downsamples points into at most a maximum number of buckets of 
+	 * consecutive builds, keeping the minimum, maximum and average of each 
+	 * series.
+	 * 
+	 * @param points points, oldest first.
+	 * @param maxBuckets maximum number of buckets.
+	 * @return the buckets, oldest first. With fewer points than buckets, each 
+	 * bucket holds a single point.
+	 */
+	public static List<Bucket> downsample( List<Point> points, int maxBuckets )
+	{
+		final int size = points.size();
+		final int buckets = Math.max( 1, Math.min( size, maxBuckets ) );
+		final List<Bucket> list = new ArrayList<Bucket>( buckets );
+		for ( int i = 0 ; i < buckets && size > 0 ; i++ )
+		{
+			final int start = (int) ( (long) i * size / buckets );
+			final int end = (int) ( (long) ( i + 1 ) * size / buckets );
+			list.add( new Bucket( points.subList( start, end ) ) );
+		}
+		return list;
+	}
+	
+	/**
+	 * @return the point of the last build, or <code>null</code> if the trend 
+	 * is empty.
+	 */
+	public synchronized Point getLastPoint()
+	{
+		return this.points.isEmpty() ? null : this.points.lastEntry().getValue();
+	}
+	
+	/**
+	 * Gets the last build with TestLink results before a build number. Points 
+	 * of builds that no longer exist, e.g. removed without notifying the 
+	 * listeners, are removed on the way.
+	 * 
+	 * @param project the project of the trend.
+	 * @param buildNumber build number.
+	 * @return the build, or <code>null</code> if there is no such build.
+	 */
+	public AbstractBuild<?, ?> getBuildBefore( AbstractProject<?, ?> project, int buildNumber )
+	{
+		Integer number;
+		synchronized ( this )
+		{
+			number = this.points.lowerKey( buildNumber );
+		}
+		while ( number != null )
+		{
+			final AbstractBuild<?, ?> build = project.getBuildByNumber( number );
+			if ( build != null && build.getAction( TestLinkBuildAction.class ) != null )
+			{
+				return build;
+			}
+			synchronized ( this )
+			{
+				this.points.remove( number );
+				number = this.points.lowerKey( number );
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * @param project the project of the trend.
+	 * @return the last build with TestLink results, or <code>null</code> if 
+	 * there is no such build.
+	 * @see #getBuildBefore(AbstractProject, int)
+	 */
+	public AbstractBuild<?, ?> getLastBuild( AbstractProject<?, ?> project )
+	{
+		return this.getBuildBefore( project, Integer.MAX_VALUE );
+	}
+	
+	/**
+	 * @return number of points.
+	 */
+	public synchronized int size()
+	{
+		return this.points.size();
+	}
+	
+	/**
+	 * TestLink counters of a build.
+	 * 
+	 * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+	 * @since 3.0.3
+	 */
+	@ExportedBean
+	public static class Point
+	implements Serializable, Comparable<Point>
+	{
+		
+		private static final long serialVersionUID = -2748136305183207413L;
+		
+		private final int buildNumber;
+		private final long timestamp;
+		private final int passed;
+		private final int failed;
+		private final int blocked;
+		private final int notRun;
+		
+		/**
+		 * Sum of the durations of the test cases, in milliseconds. It is 
+		 * <code>null</code> when unknown, e.g. for points saved before 3.0.3.
+		 */
+		private final Long duration;
+		
+		public Point( int buildNumber, int passed, int failed, int blocked, int notRun )
+		{
+			this( buildNumber, 0L, passed, failed, blocked, notRun );
+		}
+		
+		public Point( int buildNumber, long timestamp, int passed, int failed, int blocked, int notRun )
+		{
+			this( buildNumber, timestamp, passed, failed, blocked, notRun, -1L );
+		}
+		
+		public Point( int buildNumber, long timestamp, int passed, int failed, int blocked, int notRun, long duration )
+		{
+			this.duration = duration < 0 ? null : Long.valueOf( duration );
+			this.buildNumber = buildNumber;
+			this.timestamp = timestamp;
+			this.passed = passed;
+			this.failed = failed;
+			this.blocked = blocked;
+			this.notRun = notRun;
+		}
+		
+		@Exported
+		public int getBuildNumber()
+		{
+			return this.buildNumber;
+		}
+		
+		/**
+		 * @return when the build was scheduled, in milliseconds, or 0 if 
+		 * unknown.
+		 */
+		@Exported
+		public long getTimestamp()
+		{
+			return this.timestamp;
+		}
+		
+		@Exported
+		public int getPassed()
+		{
+			return this.passed;
+		}
+		
+		@Exported
+		public int getFailed()
+		{
+			return this.failed;
+		}
+		
+		@Exported
+		public int getBlocked()
+		{
+			return this.blocked;
+		}
+		
+		@Exported
+		public int getNotRun()
+		{
+			return this.notRun;
+		}
+		
+		/**
+		 * @return sum of the durations of the test cases, in milliseconds, 
+		 * -1 if unknown.
+		 */
+		@Exported
+		public long getDuration()
+		{
+			return this.duration != null ? this.duration : -1L;
+		}
+		
+		public int getTotal()
+		{
+			return this.passed + this.failed + this.blocked + this.notRun;
+		}
+		
+		/**
+		 * @param series index of the series in {@link TestLinkTrend#SERIES}.
+		 * @return the value of the series.
+		 */
+		public int getValue( int series )
+		{
+			switch ( series )
+			{
+				case 0:
+					return this.blocked;
+				case 1:
+					return this.failed;
+				case 2:
+					return this.notRun;
+				case 3:
+					return this.passed;
+				default:
+					throw new IllegalArgumentException( "Invalid series: " + series );
+			}
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		public int compareTo( Point o )
+		{
+			return this.buildNumber < o.buildNumber ? -1 : ( this.buildNumber == o.buildNumber ? 0 : 1 );
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals( Object obj )
+		{
+			return obj instanceof Point && ((Point) obj).buildNumber == this.buildNumber;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode()
+		{
+			return this.buildNumber;
+		}
+		
+		/**
+		 * Label of the point in the graphs, like the build labels of Jenkins.
+		 */
+		@Override
+		public String toString()
+		{
+			return "#" + this.buildNumber;
+		}
+		
+	}
+	
+	/**
+	 * Consecutive points of the trend shown as a single column of the graphs, 
+	 * with the minimum, maximum and average of each series and the tooltips 
+	 * of the column, computed when the bucket is created.
+	 * 
+	 * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+	 * @since 3.0.3
+	 */
+	public static class Bucket
+	implements Comparable<Bucket>
+	{
+		
+		private final int firstBuildNumber;
+		private final int lastBuildNumber;
+		private final int count;
+		private final int[] min = new int[SERIES.length];
+		private final int[] max = new int[SERIES.length];
+		private final double[] average = new double[SERIES.length];
+		private final String[] toolTips = new String[SERIES.length];
+		
+		/**
+		 * @param points the points of the bucket, oldest first, at least one.
+		 */
+		public Bucket( List<Point> points )
+		{
+			this.firstBuildNumber = points.get( 0 ).getBuildNumber();
+			this.lastBuildNumber = points.get( points.size() - 1 ).getBuildNumber();
+			this.count = points.size();
+			
+			for ( int series = 0 ; series < SERIES.length ; series++ )
+			{
+				int minValue = Integer.MAX_VALUE;
+				int maxValue = Integer.MIN_VALUE;
+				long sum = 0L;
+				for ( Point point : points )
+				{
+					final int value = point.getValue( series );
+					minValue = Math.min( minValue, value );
+					maxValue = Math.max( maxValue, value );
+					sum += value;
+				}
+				this.min[series] = minValue;
+				this.max[series] = maxValue;
+				this.average[series] = (double) sum / this.count;
+				
+				if ( this.count == 1 )
+				{
+					this.toolTips[series] = minValue + " " + SERIES[series];
+				}
+				else
+				{
+					this.toolTips[series] = String.format( 
+						"%s: %.1f on average, %d min, %d max (%d builds, %s)", 
+						SERIES[series], this.average[series], minValue, maxValue, this.count, this.toString() );
+				}
+			}
+		}
+		
+		public int getFirstBuildNumber()
+		{
+			return this.firstBuildNumber;
+		}
+		
+		public int getLastBuildNumber()
+		{
+			return this.lastBuildNumber;
+		}
+		
+		/**
+		 * @return number of builds in the bucket.
+		 */
+		public int getCount()
+		{
+			return this.count;
+		}
+		
+		public int getMin( int series )
+		{
+			return this.min[series];
+		}
+		
+		public int getMax( int series )
+		{
+			return this.max[series];
+		}
+		
+		public double getAverage( int series )
+		{
+			return this.average[series];
+		}
+		
+		/**
+		 * @param series index of the series in {@link TestLinkTrend#SERIES}.
+		 * @return tooltip of the series in this column.
+		 */
+		public String getToolTip( int series )
+		{
+			return series >= 0 && series < SERIES.length ? this.toolTips[series] : "";
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.lang.Comparable#compareTo(java.lang.Object)
+		 */
+		public int compareTo( Bucket o )
+		{
+			return this.firstBuildNumber < o.firstBuildNumber ? -1 : ( this.firstBuildNumber == o.firstBuildNumber ? 0 : 1 );
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals( Object obj )
+		{
+			return obj instanceof Bucket && ((Bucket) obj).firstBuildNumber == this.firstBuildNumber;
+		}
+		
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode()
+		{
+			return this.firstBuildNumber;
+		}
+		
+		/**
+		 * Label of the column in the graphs.
+		 */
+		@Override
+		public String toString()
+		{
+			return this.count == 1 ? "#" + this.firstBuildNumber : "#" + this.firstBuildNumber + "-#" + this.lastBuildNumber;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,200 @@
+/* 
+ * The MIT License
+ * 
+ * Copyright (c) 2010 Bruno P. Kinoshita <http://www.kinoshita.eti.br>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * A SAX based parser. Each call to {@link #parse(InputStream)} uses a new 
+ * handler, so the parser keeps no state between calls and the same instance 
+ * can be used repeatedly or by several threads at the same time. The 
+ * {@link SAXParser} instances are pooled and shared by all the XML parsers 
+ * instead of being created by a new {@link SAXParserFactory} on each call.
+ * 
+ * @param <T> Type of the parsed object.
+ * @param <H> Type of the SAX handler.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public abstract class AbstractXmlParser<T, H extends DefaultHandler>
+extends Parser<T>
+{
+
+	private static final long serialVersionUID = 4096584796462547232L;
+
+	private static final String APACHE_EXT_DTD = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
+	
+	/**
+	 * Maximum number of idle SAX parsers kept in the pool.
+	 */
+	private static final int MAX_POOLED_PARSERS = 32;
+	
+	private static final SAXParserFactory FACTORY = createFactory();
+	
+	private static final Queue<SAXParser> POOL = new ConcurrentLinkedQueue<SAXParser>();
+	
+	private static final AtomicInteger POOL_SIZE = new AtomicInteger();
+	
+	/**
+	 * Creates the SAX handler used by a single parse.
+	 * 
+	 * @return a new SAX handler.
+	 */
+	protected abstract H createHandler();
+	
+	/**
+	 * Gets the parsed object out of the handler once the document was parsed.
+	 * 
+	 * @param handler SAX handler used to parse the document.
+	 * @return parsed object.
+	 * @throws ParserException
+	 */
+	protected abstract T getResult( H handler ) 
+	throws ParserException;
+	
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.parser.Parser#parse(java.io.InputStream)
+	 */
+	@Override
+	public T parse( InputStream inputStream ) 
+	throws ParserException
+	{
+		final H handler = this.createHandler();
+		final SAXParser parser = borrowParser();
+		boolean reusable = false;
+		
+		try
+		{
+			parser.parse( inputStream, handler );
+			reusable = true;
+		}
+		catch (SAXException e) 
+		{
+			throw new ParserException( e );
+		} 
+		catch (IOException e) 
+		{
+			throw new ParserException( e );
+		}
+		finally
+		{
+			// A parser that failed is discarded, as it may be in an undefined state
+			if ( reusable )
+			{
+				returnParser( parser );
+			}
+		}
+		
+		return this.getResult( handler );
+	}
+	
+	/**
+	 * Gets a SAX parser from the pool, or creates a new one if the pool is 
+	 * empty.
+	 */
+	protected static SAXParser borrowParser()
+	throws ParserException
+	{
+		final SAXParser parser = POOL.poll();
+		if ( parser != null )
+		{
+			POOL_SIZE.decrementAndGet();
+			return parser;
+		}
+		
+		try
+		{
+			// SAXParserFactory is not guaranteed to be thread safe
+			synchronized ( FACTORY )
+			{
+				return FACTORY.newSAXParser();
+			}
+		}
+		catch (ParserConfigurationException e) 
+		{
+			throw new ParserException( e );
+		}
+		catch (SAXException e) 
+		{
+			throw new ParserException( e );
+		}
+	}
+	
+	/**
+	 * Resets a SAX parser and gives it back to the pool, unless the pool is 
+	 * full.
+	 */
+	protected static void returnParser( SAXParser parser )
+	{
+		try
+		{
+			parser.reset();
+		}
+		catch ( UnsupportedOperationException e )
+		{
+			return;
+		}
+		
+		if ( POOL_SIZE.incrementAndGet() <= MAX_POOLED_PARSERS )
+		{
+			POOL.offer( parser );
+		}
+		else
+		{
+			POOL_SIZE.decrementAndGet();
+		}
+	}
+	
+	/**
+	 * Creates the non validating SAX parser factory shared by all the XML 
+	 * parsers.
+	 */
+	private static SAXParserFactory createFactory()
+	{
+		final SAXParserFactory factory = SAXParserFactory.newInstance();
+		factory.setValidating(false);
+		try {
+            factory.setFeature(APACHE_EXT_DTD, false);
+        } catch (ParserConfigurationException e) {
+        } catch (SAXNotRecognizedException e) {
+        } catch (SAXNotSupportedException e) {
+        }
+		return factory;
+	}
+	
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.parser;
+
+import org.apache.commons.lang.StringUtils;
+
+/**
+ * Parses the durations written in the test reports.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public final class Durations
+{
+
+	/**
+	 * Duration of a test that did not report one.
+	 */
+	public static final long UNKNOWN = -1L;
+	
+	private Durations()
+	{
+		super();
+	}
+	
+	/**
+	 * Parses a time in seconds, as in the JUnit reports, ignoring the 
+	 * grouping separators some tools write.
+	 * 
+	 * @param time time in seconds.
+	 * @return duration in milliseconds, {@link #UNKNOWN} if it is missing or 
+	 * invalid.
+	 */
+	public static long parseSeconds( String time )
+	{
+		if ( StringUtils.isBlank( time ) )
+		{
+			return UNKNOWN;
+		}
+		try
+		{
+			final double seconds = Double.parseDouble( time.replace( ",", "" ).trim() );
+			return seconds < 0 ? UNKNOWN : Math.round( seconds * 1000d );
+		}
+		catch ( NumberFormatException nfe )
+		{
+			return UNKNOWN;
+		}
+	}
+	
+	/**
+	 * Parses a time in milliseconds, as in the TestNG reports.
+	 * 
+	 * @param time time in milliseconds.
+	 * @return duration in milliseconds, {@link #UNKNOWN} if it is missing or 
+	 * invalid.
+	 */
+	public static long parseMillis( String time )
+	{
+		if ( StringUtils.isBlank( time ) )
+		{
+			return UNKNOWN;
+		}
+		try
+		{
+			final long millis = Long.parseLong( time.trim() );
+			return millis < 0 ? UNKNOWN : millis;
+		}
+		catch ( NumberFormatException nfe )
+		{
+			return UNKNOWN;
+		}
+	}
+	
+	/**
+	 * Adds two durations, either of them possibly unknown.
+	 * 
+	 * @return the sum, {@link #UNKNOWN} if both are unknown.
+	 */
+	public static long add( long duration, long other )
+	{
+		if ( other < 0 )
+		{
+			return duration;
+		}
+		return Math.max( duration, 0L ) + other;
+	}
+	
+}
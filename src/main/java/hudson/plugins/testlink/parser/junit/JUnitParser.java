@@ -23,23 +23,13 @@
  */
 package hudson.plugins.testlink.parser.junit;
 
-import hudson.plugins.testlink.parser.Parser;
+import hudson.plugins.testlink.parser.AbstractXmlParser;
 import hudson.plugins.testlink.parser.ParserException;
 import hudson.plugins.testlink.util.Messages;
 
-import java.io.IOException;
-import java.io.InputStream;
 import java.util.Iterator;
 import java.util.List;
 
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXNotRecognizedException;
-import org.xml.sax.SAXNotSupportedException;
-
 /**
  * JUnit Parser. Returns a TestSuite.
  * 
@@ -49,7 +39,7 @@ import org.xml.sax.SAXNotSupportedException;
  * @since 2.0
  */
 public class JUnitParser 
-extends Parser<List<TestSuite>>
+extends AbstractXmlParser<List<TestSuite>, JUnitXmlHandler>
 {
 
 	private static final String NAME = "JUnit";
@@ -57,63 +47,37 @@ extends Parser<List<TestSuite>>
 	private static final long serialVersionUID = -7796590517576772260L;
 	
 	/**
-	 * The JUnit XML Handler.
-	 */
-	private JUnitXmlHandler handler;
-	
-	/**
-	 * Default constructor. Initializes the JUnit XML Handler.
+	 * Default constructor.
 	 */
 	public JUnitParser()
 	{
 		super();
-		this.handler = new JUnitXmlHandler();
 	}
 	
 	/* (non-Javadoc)
-	 * @see hudson.plugins.testlink.parser.Parser#parse(java.io.InputStream)
+	 * @see hudson.plugins.testlink.parser.AbstractXmlParser#createHandler()
 	 */
 	@Override
-	public List<TestSuite> parse( InputStream inputStream ) 
+	protected JUnitXmlHandler createHandler()
+	{
+		return new JUnitXmlHandler();
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.parser.AbstractXmlParser#getResult(org.xml.sax.helpers.DefaultHandler)
+	 */
+	@Override
+	protected List<TestSuite> getResult( JUnitXmlHandler handler )
 	throws ParserException
 	{
-		SAXParserFactory factory = SAXParserFactory.newInstance();
-		factory.setValidating(false);
-		try {
-            factory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
-        } catch (ParserConfigurationException e) {
-        } catch (SAXNotRecognizedException e) {
-        } catch (SAXNotSupportedException e) {
-        }
-        
-        SAXParser parser = null; 
-        	
-        try 
-        {
-			parser = factory.newSAXParser();
-			parser.parse(inputStream, this.handler );
-		} 
-    	catch (ParserConfigurationException e) 
-		{
-			throw new ParserException( e );
-		}	
-    	catch (SAXException e) 
-		{
-    		throw new ParserException( e );
-		} 
-		catch (IOException e) 
+		List<TestSuite> suites = handler.getSuite();
+		
+		for ( TestSuite suite : suites )
 		{
-			throw new ParserException( e );
+			this.validateJUnitTestSuite( suite );
 		}
-        
-        List<TestSuite> suites = this.handler.getSuite();
-        
-        for ( TestSuite suite : suites )
-        {
-        	this.validateJUnitTestSuite( suite );
-        }
-        
-        return suites;
+		
+		return suites;
 	}
 
 	/**
@@ -23,6 +23,8 @@
  */
 package hudson.plugins.testlink.parser.junit;
 
+import hudson.plugins.testlink.parser.Durations;
+
 import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
@@ -54,6 +56,11 @@ implements Serializable
 	 */
 	private String time;
 	
+	/**
+	 * The time attribute, in milliseconds.
+	 */
+	private long timeMillis = Durations.UNKNOWN;
+	
 	/**
 	 * List of <failure> tags.
 	 */
@@ -134,6 +141,34 @@ implements Serializable
 	public void setTime( String time ) 
 	{
 		this.time = time;
+		this.timeMillis = Durations.parseSeconds( time );
+	}
+	
+	/**
+	 * Retrieves the time parsed when it was set.
+	 * 
+	 * @return the time in milliseconds, -1 when unknown.
+	 * @since 3.0.3
+	 */
+	public long getTimeMillis()
+	{
+		return timeMillis;
+	}
+	
+	/**
+	 * Parses the time again for reports loaded from builds recorded before 
+	 * 3.0.3, which have no timeMillis field.
+	 * 
+	 * @return this object.
+	 * @since 3.0.3
+	 */
+	protected Object readResolve()
+	{
+		if ( this.timeMillis == 0L )
+		{
+			this.timeMillis = Durations.parseSeconds( this.time );
+		}
+		return this;
 	}
 
 	/**
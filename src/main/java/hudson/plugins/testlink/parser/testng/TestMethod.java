@@ -23,6 +23,8 @@
  */
 package hudson.plugins.testlink.parser.testng;
 
+import hudson.plugins.testlink.parser.Durations;
+
 import java.io.Serializable;
 
 /**
@@ -62,6 +64,11 @@ implements Serializable
 	 */
 	private String durationMs;
 	
+	/**
+	 * The duration-ms attribute, parsed.
+	 */
+	private long durationMillis = Durations.UNKNOWN;
+	
 	/**
 	 * The started-at attribute.
 	 */
@@ -178,6 +185,34 @@ implements Serializable
 	public void setDurationMs( String durationMs ) 
 	{
 		this.durationMs = durationMs;
+		this.durationMillis = Durations.parseMillis( durationMs );
+	}
+	
+	/**
+	 * Retrieves the duration parsed when it was set.
+	 * 
+	 * @return the duration in ms, -1 when unknown.
+	 * @since 3.0.3
+	 */
+	public long getDurationMillis()
+	{
+		return durationMillis;
+	}
+	
+	/**
+	 * Parses the duration again for reports loaded from builds recorded before 
+	 * 3.0.3, which have no durationMillis field.
+	 * 
+	 * @return this object.
+	 * @since 3.0.3
+	 */
+	protected Object readResolve()
+	{
+		if ( this.durationMillis == 0L )
+		{
+			this.durationMillis = Durations.parseMillis( this.durationMs );
+		}
+		return this;
 	}
 
 	/**
@@ -23,90 +23,44 @@
  */
 package hudson.plugins.testlink.parser.testng;
 
-import hudson.plugins.testlink.parser.Parser;
-import hudson.plugins.testlink.parser.ParserException;
-
-import java.io.IOException;
-import java.io.InputStream;
-
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-
-import org.xml.sax.SAXException;
-import org.xml.sax.SAXNotRecognizedException;
-import org.xml.sax.SAXNotSupportedException;
+import hudson.plugins.testlink.parser.AbstractXmlParser;
 
 /**
  *
  * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
  */
 public class TestNGParser 
-extends Parser<Suite>
+extends AbstractXmlParser<Suite, TestNGXmlHandler>
 {
 
-	/**
-	 * 
-	 */
-	private static final String APACHE_EXT_DTD = "http://apache.org/xml/features/nonvalidating/load-external-dtd";
-
 	private static final String NAME = "TestNG";
 
 	private static final long serialVersionUID = -7538241225523763422L;
 	
 	/**
-	 * The TestNG XML Handler.
-	 */
-	private TestNGXmlHandler handler;
-	
-	/**
-	 * Default constructor. Initializes the TestNG XML Handler.
+	 * Default constructor.
 	 */
 	public TestNGParser()
 	{
 		super();
-		this.handler = new TestNGXmlHandler();
 	}
 	
 	/* (non-Javadoc)
-	 * @see hudson.plugins.testlink.parser.Parser#parse(java.io.InputStream)
+	 * @see hudson.plugins.testlink.parser.AbstractXmlParser#createHandler()
+	 */
+	@Override
+	protected TestNGXmlHandler createHandler()
+	{
+		return new TestNGXmlHandler();
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.parser.AbstractXmlParser#getResult(org.xml.sax.helpers.DefaultHandler)
 	 */
 	@Override
-	public Suite parse( InputStream inputStream ) 
-	throws ParserException
+	protected Suite getResult( TestNGXmlHandler handler )
 	{
-		SAXParserFactory factory = SAXParserFactory.newInstance();
-		factory.setValidating(false);
-		try {
-            factory.setFeature(APACHE_EXT_DTD, false);
-        } catch (ParserConfigurationException e) {
-        } catch (SAXNotRecognizedException e) {
-        } catch (SAXNotSupportedException e) {
-        }
-        
-        SAXParser parser = null; 
-        	
-        try
-        {
-	        parser = factory.newSAXParser();
-	        parser.parse(inputStream, this.handler );
-        } 
-        catch (ParserConfigurationException e) 
-		{
-			throw new ParserException( e );
-		}	
-    	catch (SAXException e) 
-		{
-    		throw new ParserException( e );
-		} 
-		catch (IOException e) 
-		{
-			throw new ParserException( e );
-		}
-        
-        Suite suite = this.handler.getSuite();
-        
-        return suite;
+		return handler.getSuite();
 	}
 	
 	/* (non-Javadoc)
@@ -0,0 +1,325 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010 Bruno P. Kinoshita <http://www.kinoshita.eti.br>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.result;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Cache of the Base64 encoded content of report files. A report file 
+ * matched by several TestLink test cases is read and encoded only once, 
+ * and every attachment created for it shares the same encoded String.
+ * 
+ * <p>While seeking test results, only the digests of the files are 
+ * computed and cached, keyed by the file path, size and last modification 
+ * time, so a file that changes is read again. When uploading, the encoded 
+ * content of the {@link FileAttachment}s is cached by digest. The least 
+ * recently used entries are evicted once the characters held exceed the 
+ * maximum size.</p>
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class AttachmentContentCache
+{
+
+	/**
+	 * Default maximum size of the encoded content kept in the cache (64 MB).
+	 */
+	public static final long DEFAULT_MAX_SIZE = 64L * 1024L * 1024L;
+	
+	private final long maxSize;
+	
+	private final LinkedHashMap<String, String> entries = new LinkedHashMap<String, String>( 16, 0.75f, true );
+	
+	/**
+	 * Files being read and encoded, by key.
+	 */
+	private final Map<String, FutureTask<String>> reading = new HashMap<String, FutureTask<String>>();
+	
+	private long size = 0L;
+	
+	private int hits = 0;
+	
+	private int misses = 0;
+	
+	private int evictions = 0;
+	
+	public AttachmentContentCache()
+	{
+		this( DEFAULT_MAX_SIZE );
+	}
+	
+	/**
+	 * @param maxSize maximum number of characters kept in the cache.
+	 */
+	public AttachmentContentCache( long maxSize )
+	{
+		super();
+		this.maxSize = maxSize;
+	}
+	
+	/**
+	 * Gets the file content encoded in Base64, reading the file only if it 
+	 * is not in the cache.
+	 * 
+	 * @param file file to read the content.
+	 * @return file content encoded in Base64.
+	 * @throws IOException
+	 */
+	public synchronized String getBase64FileContent( File file )
+	throws IOException
+	{
+		final String key = "content|" + this.getKey( file );
+		
+		String content = this.get( key );
+		if ( content == null )
+		{
+			byte[] fileData = FileUtils.readFileToByteArray( file );
+			content = Base64.encodeBase64String( fileData );
+			this.put( key, content );
+		}
+		
+		return content;
+	}
+	
+	/**
+	 * Gets the MD5 digest of the file content, reading the file only if its 
+	 * digest is not in the cache.
+	 * 
+	 * @param file file to digest.
+	 * @return MD5 digest of the file content, in hexadecimal.
+	 * @throws IOException
+	 */
+	public synchronized String getDigest( File file )
+	throws IOException
+	{
+		final String key = "digest|" + this.getKey( file );
+		
+		String digest = this.get( key );
+		if ( digest == null )
+		{
+			final InputStream input = new FileInputStream( file );
+			try
+			{
+				digest = DigestUtils.md5Hex( input );
+			}
+			finally
+			{
+				input.close();
+			}
+			this.put( key, digest );
+		}
+		
+		return digest;
+	}
+	
+	/**
+	 * Gets the content of a file attachment encoded in Base64, reading the 
+	 * file only if no file with the same digest was read before. The file is 
+	 * read and encoded without holding the lock of the cache, so different 
+	 * files are read at the same time, and a thread asking for a file being 
+	 * read waits for that read instead of reading it again.
+	 * 
+	 * @param attachment file attachment.
+	 * @return file content encoded in Base64.
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public String getBase64Content( final FileAttachment attachment )
+	throws IOException, InterruptedException
+	{
+		if ( attachment.getDigest() == null )
+		{
+			synchronized ( this )
+			{
+				this.misses += 1;
+			}
+			return attachment.getBase64Content();
+		}
+		
+		final String key = "md5|" + attachment.getDigest() + '|' + attachment.getFileSize();
+		
+		final FutureTask<String> task;
+		boolean owner = false;
+		synchronized ( this )
+		{
+			final String content = this.get( key );
+			if ( content != null )
+			{
+				return content;
+			}
+			FutureTask<String> existing = this.reading.get( key );
+			if ( existing == null )
+			{
+				existing = new FutureTask<String>( new Callable<String>()
+				{
+					public String call() 
+					throws IOException, InterruptedException
+					{
+						return attachment.getBase64Content();
+					}
+				});
+				this.reading.put( key, existing );
+				owner = true;
+			}
+			task = existing;
+		}
+		
+		if ( owner )
+		{
+			task.run();
+		}
+		
+		try
+		{
+			final String content = task.get();
+			if ( owner )
+			{
+				synchronized ( this )
+				{
+					this.put( key, content );
+				}
+			}
+			return content;
+		}
+		catch ( ExecutionException ee )
+		{
+			final Throwable cause = ee.getCause();
+			if ( cause instanceof IOException )
+			{
+				throw (IOException) cause;
+			}
+			if ( cause instanceof InterruptedException )
+			{
+				throw (InterruptedException) cause;
+			}
+			if ( cause instanceof RuntimeException )
+			{
+				throw (RuntimeException) cause;
+			}
+			if ( cause instanceof Error )
+			{
+				throw (Error) cause;
+			}
+			throw new IOException( cause );
+		}
+		finally
+		{
+			if ( owner )
+			{
+				synchronized ( this )
+				{
+					this.reading.remove( key );
+				}
+			}
+		}
+	}
+	
+	private String get( String key )
+	{
+		final String value = this.entries.get( key );
+		if ( value != null )
+		{
+			this.hits += 1;
+		}
+		else
+		{
+			this.misses += 1;
+		}
+		return value;
+	}
+	
+	private void put( String key, String value )
+	{
+		if ( value.length() <= this.maxSize )
+		{
+			final String previous = this.entries.put( key, value );
+			if ( previous != null )
+			{
+				this.size -= previous.length();
+			}
+			this.size += value.length();
+			this.evict();
+		}
+	}
+	
+	/**
+	 * Removes the least recently used entries until the cache fits in its 
+	 * maximum size.
+	 */
+	private void evict()
+	{
+		final Iterator<Map.Entry<String, String>> iterator = this.entries.entrySet().iterator();
+		while ( this.size > this.maxSize && iterator.hasNext() )
+		{
+			final Map.Entry<String, String> eldest = iterator.next();
+			this.size -= eldest.getValue().length();
+			iterator.remove();
+			this.evictions += 1;
+		}
+	}
+	
+	private String getKey( File file )
+	{
+		return file.getAbsolutePath() + '|' + file.length() + '|' + file.lastModified();
+	}
+	
+	public synchronized int getHits()
+	{
+		return this.hits;
+	}
+	
+	public synchronized int getMisses()
+	{
+		return this.misses;
+	}
+	
+	public synchronized int getEvictions()
+	{
+		return this.evictions;
+	}
+	
+	/**
+	 * @return number of characters held by the cache.
+	 */
+	public synchronized long getSize()
+	{
+		return this.size;
+	}
+	
+}
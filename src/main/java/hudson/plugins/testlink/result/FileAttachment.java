@@ -0,0 +1,195 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010 Bruno P. Kinoshita <http://www.kinoshita.eti.br>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.result;
+
+import hudson.FilePath;
+import hudson.Util;
+import hudson.plugins.testlink.util.Messages;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.apache.commons.codec.binary.Base64;
+
+import br.eti.kinoshita.testlinkjavaapi.model.Attachment;
+
+/**
+ * Attachment backed by a file in the workspace. Only a reference to the 
+ * file (its path, size and MD5 digest) is kept while the test results are 
+ * sought, sent to the master and recorded. The file is read and encoded 
+ * in Base64 only when the attachment is uploaded to TestLink, in chunks, 
+ * through the channel of the node where the file is.
+ * 
+ * <p>The TestLink API takes the content of an attachment as a String, so 
+ * the content is not streamed to TestLink: the whole encoded content of 
+ * the file, about 4/3 of its size, is held in memory while it is uploaded. 
+ * Files whose encoded content is larger than 
+ * {@link hudson.plugins.testlink.ResultUploader#getMaxInFlightBytes()} 
+ * are not uploaded.</p>
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class FileAttachment 
+extends Attachment
+{
+
+	private static final long serialVersionUID = 4208547325741925867L;
+	
+	/**
+	 * Number of bytes read and encoded at a time. A multiple of 57 bytes, 
+	 * so that the chunks encoded add up to the same 76 characters lines 
+	 * of the content encoded at once.
+	 */
+	public static final int CHUNK_SIZE = 57 * 1024;
+
+	private final FilePath file;
+	
+	private final String digest;
+	
+	/**
+	 * @param file file attached.
+	 * @param digest MD5 digest of the file content, in hexadecimal.
+	 */
+	public FileAttachment( File file, String digest )
+	{
+		super();
+		this.file = new FilePath( file );
+		this.digest = digest;
+		this.setFileName( file.getName() );
+		this.setFileSize( file.length() );
+	}
+	
+	/**
+	 * @return file attached.
+	 */
+	public FilePath getFile()
+	{
+		return this.file;
+	}
+	
+	/**
+	 * @return MD5 digest of the file content, in hexadecimal.
+	 */
+	public String getDigest()
+	{
+		return this.digest;
+	}
+	
+	/**
+	 * @return length of the file content encoded in Base64, line 
+	 * separators included.
+	 */
+	public long getBase64Length()
+	{
+		final Long fileSize = this.getFileSize();
+		return fileSize != null ? ( ( fileSize + 2 ) / 3 ) * 4 + ( fileSize / 57 + 1 ) * 2 : 0L;
+	}
+	
+	/**
+	 * Reads the file and encodes its content in Base64. The content is not 
+	 * kept by the attachment, so each call reads the file again. The file 
+	 * is read in chunks, but the content returned is built in memory, 
+	 * {@link #getBase64Length()} characters long.
+	 * 
+	 * @return file content encoded in Base64.
+	 * @throws IOException if the file cannot be read or if it changed since 
+	 * the attachment was created.
+	 * @throws InterruptedException
+	 */
+	public String getBase64Content() 
+	throws IOException, InterruptedException
+	{
+		final MessageDigest md5;
+		try
+		{
+			md5 = MessageDigest.getInstance( "MD5" );
+		}
+		catch ( NoSuchAlgorithmException nsae )
+		{
+			throw new IOException( nsae );
+		}
+		
+		final StringBuilder content = new StringBuilder( (int) Math.min( this.getBase64Length(), Integer.MAX_VALUE - 8 ) );
+		
+		final byte[] buffer = new byte[ CHUNK_SIZE ];
+		final InputStream input = this.file.read();
+		try
+		{
+			int length;
+			while ( ( length = fill( input, buffer ) ) > 0 )
+			{
+				md5.update( buffer, 0, length );
+				
+				final byte[] chunk;
+				if ( length == buffer.length )
+				{
+					chunk = buffer;
+				}
+				else
+				{
+					chunk = new byte[ length ];
+					System.arraycopy( buffer, 0, chunk, 0, length );
+				}
+				content.append( new String( Base64.encodeBase64Chunked( chunk ), "US-ASCII" ) );
+			}
+		}
+		finally
+		{
+			input.close();
+		}
+		
+		if ( this.digest != null && ! this.digest.equals( Util.toHexString( md5.digest() ) ) )
+		{
+			throw new IOException( Messages.Results_AttachmentChanged( this.file.getRemote() ) );
+		}
+		
+		return content.toString();
+	}
+	
+	/**
+	 * Reads until the buffer is full or the end of the stream is reached.
+	 * 
+	 * @return number of bytes read.
+	 */
+	private static int fill( InputStream input, byte[] buffer ) 
+	throws IOException
+	{
+		int total = 0;
+		while ( total < buffer.length )
+		{
+			final int read = input.read( buffer, total, buffer.length - total );
+			if ( read < 0 )
+			{
+				break;
+			}
+			total += read;
+		}
+		return total;
+	}
+	
+}
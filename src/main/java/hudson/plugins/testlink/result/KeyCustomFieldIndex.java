@@ -0,0 +1,237 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010 Bruno P. Kinoshita <http://www.kinoshita.eti.br>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.result;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+import org.apache.commons.lang.StringUtils;
+
+import br.eti.kinoshita.testlinkjavaapi.model.CustomField;
+import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
+
+/**
+ * Immutable index of the automated TestLink test cases by the values of
+ * their key custom field. The key custom field value of each test case is
+ * split only once, when the index is created, so that the test result
+ * seekers can match a report element with a single lookup instead of
+ * iterating over every automated test case.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class KeyCustomFieldIndex
+implements Serializable
+{
+
+	private static final long serialVersionUID = -3161839496287349937L;
+
+	private final TestCase[] automatedTestCases;
+
+	private final String keyCustomFieldName;
+
+	/**
+	 * Key custom field value -> entries, in the same order of the
+	 * automated test cases.
+	 */
+	private final Map<String, List<Entry>> entries;
+
+	/**
+	 * @param automatedTestCases Automated test cases.
+	 * @param keyCustomFieldName Name of the Key Custom Field.
+	 */
+	public KeyCustomFieldIndex(
+		TestCase[] automatedTestCases,
+		String keyCustomFieldName )
+	{
+		super();
+
+		this.automatedTestCases = automatedTestCases;
+		this.keyCustomFieldName = keyCustomFieldName;
+
+		final Map<String, List<Entry>> temp = new HashMap<String, List<Entry>>();
+
+		if ( automatedTestCases != null )
+		{
+			for ( TestCase testCase : automatedTestCases )
+			{
+				final CustomField keyCustomField = getKeyCustomField( testCase.getCustomFields(), keyCustomFieldName );
+				if ( keyCustomField == null )
+				{
+					continue;
+				}
+
+				final String[] commaSeparatedValues = split( keyCustomField.getValue() );
+
+				for ( String value : commaSeparatedValues )
+				{
+					List<Entry> list = temp.get( value );
+					if ( list == null )
+					{
+						list = new ArrayList<Entry>();
+						temp.put( value, list );
+					}
+					list.add( new Entry( testCase, commaSeparatedValues ) );
+				}
+			}
+		}
+
+		for ( Map.Entry<String, List<Entry>> e : temp.entrySet() )
+		{
+			e.setValue( Collections.unmodifiableList( e.getValue() ) );
+		}
+
+		this.entries = Collections.unmodifiableMap( temp );
+	}
+
+	/**
+	 * @return automated test cases used to create this index.
+	 */
+	public TestCase[] getAutomatedTestCases()
+	{
+		return this.automatedTestCases;
+	}
+
+	/**
+	 * @return name of the key custom field.
+	 */
+	public String getKeyCustomFieldName()
+	{
+		return this.keyCustomFieldName;
+	}
+
+	/**
+	 * Looks up the test cases which key custom field contains a given value.
+	 *
+	 * @param value key custom field value.
+	 * @return list of entries, never <code>null</code>.
+	 */
+	public List<Entry> lookup( String value )
+	{
+		if ( value == null )
+		{
+			return Collections.emptyList();
+		}
+		final List<Entry> list = this.entries.get( value );
+		if ( list == null )
+		{
+			return Collections.emptyList();
+		}
+		return list;
+	}
+
+	/**
+	 * @return number of distinct key custom field values.
+	 */
+	public int size()
+	{
+		return this.entries.size();
+	}
+
+	/**
+	 * Splits a String by comma and gets an array of trimmed Strings.
+	 */
+	public static String[] split( String input )
+	{
+		if ( StringUtils.isBlank( input ) )
+		{
+			return new String[0];
+		}
+
+		StringTokenizer tokenizer = new StringTokenizer( input, ",");
+
+		String[] values = new String[ tokenizer.countTokens() ];
+
+		for( int i = 0 ; tokenizer.hasMoreTokens() ; i++ )
+		{
+			values[i] = tokenizer.nextToken().trim();
+		}
+
+		return values;
+	}
+
+	/**
+	 * Gets the key custom field out of a list using the key custom field name.
+	 */
+	public static CustomField getKeyCustomField(
+		List<CustomField> customFields,
+		String keyCustomFieldName )
+	{
+		CustomField customField = null;
+
+		if ( customFields != null )
+		{
+			for ( CustomField cf : customFields )
+			{
+				if ( cf.getName().equals( keyCustomFieldName ) )
+				{
+					customField = cf;
+					break;
+				}
+			}
+		}
+
+		return customField;
+	}
+
+	/**
+	 * A TestLink test case and its key custom field values.
+	 *
+	 * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+	 * @since 3.0.3
+	 */
+	public static class Entry
+	implements Serializable
+	{
+
+		private static final long serialVersionUID = 2470183458468563417L;
+
+		private final TestCase testCase;
+
+		private final String[] commaSeparatedValues;
+
+		public Entry( TestCase testCase, String[] commaSeparatedValues )
+		{
+			this.testCase = testCase;
+			this.commaSeparatedValues = commaSeparatedValues;
+		}
+
+		public TestCase getTestCase()
+		{
+			return this.testCase;
+		}
+
+		public String[] getCommaSeparatedValues()
+		{
+			return this.commaSeparatedValues;
+		}
+
+	}
+
+}
@@ -26,7 +26,10 @@ package hudson.plugins.testlink.result;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import br.eti.kinoshita.testlinkjavaapi.model.Build;
 import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
@@ -43,7 +46,13 @@ implements Serializable
 	
 	private static final long serialVersionUID = -7174933827533855528L;
 	
-	private final List<TestCaseWrapper<?>> testCases;
+	/**
+	 * Test cases of the builds recorded before 3.0.3, with their report 
+	 * elements, notes and attachments. Only read from old build records, 
+	 * and converted into {@link #records} when they are loaded.
+	 */
+	private List<TestCaseWrapper<?>> testCases;
+	private List<TestCaseRecord> records;
 	private final Build build;
 	
 	private int passed;
@@ -51,11 +60,63 @@ implements Serializable
 	private int blocked;
 	private int notRun;
 	
+	/**
+	 * Records by test case id, created when first used.
+	 */
+	private transient Map<Integer, TestCaseRecord> recordsById;
+	
+	/**
+	 * Records sorted by a column, created when first used. Key is the sort 
+	 * column and the order.
+	 */
+	private transient Map<String, List<TestCaseRecord>> sortedRecords;
+	
+	/**
+	 * Whether the test cases were converted into records when loaded.
+	 */
+	private transient boolean migrated;
+	
 	public Report(Build build) 
 	{
 		super();
 		this.build = build;
-		this.testCases = new ArrayList<TestCaseWrapper<?>>();
+		this.records = new ArrayList<TestCaseRecord>();
+	}
+	
+	/**
+	 * Converts the test cases of reports recorded before 3.0.3 into compact 
+	 * records. The report is then flagged as migrated, so that its owner 
+	 * writes it again, see {@link #isMigrated()}.
+	 * 
+	 * @return this report.
+	 */
+	protected Object readResolve()
+	{
+		if ( this.records == null )
+		{
+			this.records = new ArrayList<TestCaseRecord>();
+			if ( this.testCases != null )
+			{
+				for ( TestCaseWrapper<?> testCase : this.testCases )
+				{
+					this.records.add( new TestCaseRecord( testCase ) );
+				}
+			}
+			this.migrated = true;
+		}
+		this.testCases = null;
+		return this;
+	}
+	
+	/**
+	 * @return <code>true</code> if the test cases were converted into 
+	 * records when this report was loaded, so it must be written again to 
+	 * keep only the records.
+	 * @since 3.0.3
+	 */
+	public boolean isMigrated()
+	{
+		return this.migrated;
 	}
 	
 	public Build getBuild() 
@@ -63,17 +124,29 @@ implements Serializable
 		return this.build;
 	}
 	
-	public List<TestCaseWrapper<?>> getTestCases() 
+	public List<TestCaseRecord> getTestCases() 
 	{
-		return Collections.unmodifiableList(this.testCases);
+		return Collections.unmodifiableList(this.records);
 	}
 	
 	/**
-	 * Adds a Test Case into the list of automated Test Cases.
+	 * Adds a Test Case into the list of automated Test Cases. Only a compact 
+	 * record of the test case is kept.
 	 * 
 	 * @param testCase the Test Case.
 	 */
 	public void addTestCase(final TestCaseWrapper<?> testCase)
+	{
+		this.addTestCase( new TestCaseRecord( testCase ) );
+	}
+	
+	/**
+	 * Adds a Test Case record into the list of automated Test Cases.
+	 * 
+	 * @param testCase the Test Case record.
+	 * @since 3.0.3
+	 */
+	public synchronized void addTestCase(final TestCaseRecord testCase)
 	{
 		final ExecutionStatus status = testCase.getExecutionStatus();
 		if ( status == ExecutionStatus.PASSED )
@@ -92,30 +165,188 @@ implements Serializable
 		{
 			this.notRun += 1;
 		}
-		this.testCases.add( testCase );
+		this.records.add( testCase );
+		this.recordsById = null;
+		this.sortedRecords = null;
+	}
+	
+	/**
+	 * Gets the record of a test case.
+	 * 
+	 * @param id test case id.
+	 * @return the record, or <code>null</code> if the test case is not in 
+	 * this report.
+	 * @since 3.0.3
+	 */
+	public synchronized TestCaseRecord getTestCase( Integer id )
+	{
+		if ( this.recordsById == null )
+		{
+			final Map<Integer, TestCaseRecord> index = new HashMap<Integer, TestCaseRecord>( this.records.size() * 2 );
+			for ( TestCaseRecord record : this.records )
+			{
+				if ( ! index.containsKey( record.getId() ) )
+				{
+					index.put( record.getId(), record );
+				}
+			}
+			this.recordsById = index;
+		}
+		return this.recordsById.get( id );
+	}
+	
+	/**
+	 * Gets a page of the records of this report, sorted and filtered by 
+	 * execution status.
+	 * 
+	 * @param page page number, starting at 1.
+	 * @param pageSize number of records per page.
+	 * @param sort sort column, one of {@link ReportPage#SORT_COLUMNS}.
+	 * @param descending whether the records are sorted in descending order.
+	 * @param status execution status of the records, <code>null</code> for 
+	 * all of them.
+	 * @return the page.
+	 * @since 3.0.3
+	 */
+	public ReportPage getPage( int page, int pageSize, String sort, boolean descending, ExecutionStatus status )
+	{
+		final String column = ReportPage.getSortColumn( sort );
+		final List<TestCaseRecord> sorted = this.getSortedRecords( column, descending );
+		final int total = status == null ? sorted.size() : this.getTestsWithStatus( status );
+		final int size = Math.max( 1, pageSize );
+		final int pageCount = Math.max( 1, ( total + size - 1 ) / size );
+		final int current = Math.min( Math.max( 1, page ), pageCount );
+		final int first = ( current - 1 ) * size;
+		
+		final List<TestCaseRecord> pageRecords = new ArrayList<TestCaseRecord>( size );
+		if ( status == null )
+		{
+			pageRecords.addAll( sorted.subList( Math.min( first, total ), Math.min( first + size, total ) ) );
+		}
+		else
+		{
+			int matched = 0;
+			for ( TestCaseRecord record : sorted )
+			{
+				if ( record.getExecutionStatus() != status )
+				{
+					continue;
+				}
+				if ( matched >= first )
+				{
+					pageRecords.add( record );
+					if ( pageRecords.size() >= size )
+					{
+						break;
+					}
+				}
+				matched += 1;
+			}
+		}
+		return new ReportPage( pageRecords, current, size, pageCount, total, column, descending, status );
+	}
+	
+	private synchronized List<TestCaseRecord> getSortedRecords( String column, boolean descending )
+	{
+		if ( this.sortedRecords == null )
+		{
+			this.sortedRecords = new HashMap<String, List<TestCaseRecord>>();
+		}
+		final String key = column + ( descending ? ":desc" : ":asc" );
+		List<TestCaseRecord> sorted = this.sortedRecords.get( key );
+		if ( sorted == null )
+		{
+			final List<TestCaseRecord> list = new ArrayList<TestCaseRecord>( this.records );
+			Comparator<TestCaseRecord> comparator = ReportPage.getComparator( column );
+			if ( descending )
+			{
+				comparator = Collections.reverseOrder( comparator );
+			}
+			Collections.sort( list, comparator );
+			sorted = Collections.unmodifiableList( list );
+			this.sortedRecords.put( key, sorted );
+		}
+		return sorted;
+	}
+	
+	/**
+	 * Gets the records with the longest durations.
+	 * 
+	 * @param max maximum number of records.
+	 * @return the records, the longest first, without the records of unknown 
+	 * duration.
+	 * @since 3.0.3
+	 */
+	public List<TestCaseRecord> getSlowest( int max )
+	{
+		final List<TestCaseRecord> slowest = new ArrayList<TestCaseRecord>();
+		for ( TestCaseRecord record : this.getSortedRecords( "duration", true ) )
+		{
+			if ( slowest.size() >= max || record.getDuration() < 0 )
+			{
+				break;
+			}
+			slowest.add( record );
+		}
+		return slowest;
+	}
+	
+	/**
+	 * @return sum of the durations of the records, in milliseconds, -1 if 
+	 * none of them is known.
+	 * @since 3.0.3
+	 */
+	public synchronized long getDuration()
+	{
+		long duration = -1L;
+		for ( TestCaseRecord record : this.records )
+		{
+			if ( record.getDuration() >= 0 )
+			{
+				duration = Math.max( duration, 0L ) + record.getDuration();
+			}
+		}
+		return duration;
+	}
+	
+	private synchronized int getTestsWithStatus( ExecutionStatus status )
+	{
+		if ( status == ExecutionStatus.PASSED )
+		{
+			return this.passed;
+		}
+		else if ( status == ExecutionStatus.FAILED )
+		{
+			return this.failed;
+		}
+		else if ( status == ExecutionStatus.BLOCKED )
+		{
+			return this.blocked;
+		}
+		return this.notRun;
 	}
 
-	public int getTestsTotal() 
+	public synchronized int getTestsTotal() 
 	{
-		return this.testCases.size();
+		return this.records.size();
 	}
 	
-	public int getTestsPassed()
+	public synchronized int getTestsPassed()
 	{
 		return this.passed;
 	}
 	
-	public int getTestsFailed()
+	public synchronized int getTestsFailed()
 	{
 		return this.failed;
 	}
 	
-	public int getTestsBlocked()
+	public synchronized int getTestsBlocked()
 	{
 		return this.blocked;
 	}
 	
-	public int getTestsNotRun() 
+	public synchronized int getTestsNotRun() 
 	{
 		return this.notRun;
 	}
@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.result;
+
+import hudson.model.Api;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
+
+/**
+ * Differences between the test cases of two reports, usually of a build and 
+ * of the previous build with TestLink results. Every test case id is 
+ * classified as a new failure, fixed, still failing, added, removed or 
+ * unchanged.
+ * 
+ * <p>The reports are joined by test case id through their id indexes, so 
+ * the differences are found in time proportional to the number of test 
+ * cases of both reports.</p>
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+@ExportedBean
+public class ReportDiff
+{
+
+	private final List<TestCaseRecord> newFailures = new ArrayList<TestCaseRecord>();
+	private final List<TestCaseRecord> fixed = new ArrayList<TestCaseRecord>();
+	private final List<TestCaseRecord> stillFailing = new ArrayList<TestCaseRecord>();
+	private final List<TestCaseRecord> added = new ArrayList<TestCaseRecord>();
+	private final List<TestCaseRecord> removed = new ArrayList<TestCaseRecord>();
+	private int unchanged = 0;
+	
+	/**
+	 * Compares two reports. When a report has more than one record for the 
+	 * same test case id, only the first one is compared.
+	 * 
+	 * @param current the report of the build.
+	 * @param previous the report of the previous build.
+	 */
+	public ReportDiff( Report current, Report previous )
+	{
+		super();
+		
+		for ( TestCaseRecord record : current.getTestCases() )
+		{
+			if ( current.getTestCase( record.getId() ) != record )
+			{
+				continue;
+			}
+			final TestCaseRecord previousRecord = previous.getTestCase( record.getId() );
+			final boolean failing = isFailing( record );
+			if ( previousRecord == null )
+			{
+				this.added.add( record );
+			}
+			else if ( failing && isFailing( previousRecord ) )
+			{
+				this.stillFailing.add( record );
+			}
+			else if ( failing )
+			{
+				this.newFailures.add( record );
+			}
+			else if ( isFailing( previousRecord ) )
+			{
+				this.fixed.add( record );
+			}
+			else
+			{
+				this.unchanged += 1;
+			}
+		}
+		
+		for ( TestCaseRecord previousRecord : previous.getTestCases() )
+		{
+			if ( previous.getTestCase( previousRecord.getId() ) == previousRecord 
+					&& current.getTestCase( previousRecord.getId() ) == null )
+			{
+				this.removed.add( previousRecord );
+			}
+		}
+	}
+	
+	private static boolean isFailing( TestCaseRecord record )
+	{
+		return record.getExecutionStatus() == ExecutionStatus.FAILED;
+	}
+	
+	/**
+	 * @return remote API of the differences, at 
+	 * <code>testLinkResult/diff/api</code>, as they are not exported with 
+	 * the result.
+	 */
+	public Api getApi()
+	{
+		return new Api( this );
+	}
+	
+	/**
+	 * @return test cases that failed in this build but not in the previous.
+	 */
+	@Exported
+	public List<TestCaseRecord> getNewFailures()
+	{
+		return Collections.unmodifiableList( this.newFailures );
+	}
+	
+	/**
+	 * @return test cases that failed in the previous build but not in this.
+	 */
+	@Exported
+	public List<TestCaseRecord> getFixed()
+	{
+		return Collections.unmodifiableList( this.fixed );
+	}
+	
+	/**
+	 * @return test cases that failed in both builds.
+	 */
+	@Exported
+	public List<TestCaseRecord> getStillFailing()
+	{
+		return Collections.unmodifiableList( this.stillFailing );
+	}
+	
+	/**
+	 * @return test cases that are only in this build.
+	 */
+	@Exported
+	public List<TestCaseRecord> getAdded()
+	{
+		return Collections.unmodifiableList( this.added );
+	}
+	
+	/**
+	 * @return test cases that are only in the previous build, with their 
+	 * previous records.
+	 */
+	@Exported
+	public List<TestCaseRecord> getRemoved()
+	{
+		return Collections.unmodifiableList( this.removed );
+	}
+	
+	/**
+	 * @return number of test cases in both builds that neither failed nor 
+	 * were fixed.
+	 */
+	@Exported
+	public int getUnchanged()
+	{
+		return this.unchanged;
+	}
+	
+}
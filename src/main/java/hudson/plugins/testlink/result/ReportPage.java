@@ -0,0 +1,287 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.result;
+
+import hudson.Util;
+import hudson.plugins.testlink.util.TestLinkHelper;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
+
+/**
+ * A page of the test case records of a report, as shown in the table of the 
+ * TestLink result page.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class ReportPage
+{
+
+	/**
+	 * Columns the records can be sorted by. The first one is the default.
+	 */
+	public static final List<String> SORT_COLUMNS = Collections.unmodifiableList( Arrays.asList( 
+		"id", "name", "version", "testProjectId", "platform", "status", "duration" ) );
+	
+	private final List<TestCaseRecord> records;
+	private final int page;
+	private final int pageSize;
+	private final int pageCount;
+	private final int total;
+	private final String sort;
+	private final boolean descending;
+	private final ExecutionStatus status;
+	
+	public ReportPage( 
+		List<TestCaseRecord> records, 
+		int page, 
+		int pageSize, 
+		int pageCount, 
+		int total, 
+		String sort, 
+		boolean descending, 
+		ExecutionStatus status )
+	{
+		super();
+		this.records = Collections.unmodifiableList( records );
+		this.page = page;
+		this.pageSize = pageSize;
+		this.pageCount = pageCount;
+		this.total = total;
+		this.sort = sort;
+		this.descending = descending;
+		this.status = status;
+	}
+	
+	/**
+	 * @return records of this page.
+	 */
+	public List<TestCaseRecord> getRecords()
+	{
+		return this.records;
+	}
+	
+	/**
+	 * @return page number, starting at 1.
+	 */
+	public int getPage()
+	{
+		return this.page;
+	}
+	
+	public int getPageSize()
+	{
+		return this.pageSize;
+	}
+	
+	public int getPageCount()
+	{
+		return this.pageCount;
+	}
+	
+	/**
+	 * @return number of records matching the status filter.
+	 */
+	public int getTotal()
+	{
+		return this.total;
+	}
+	
+	public String getSort()
+	{
+		return this.sort;
+	}
+	
+	public boolean isDescending()
+	{
+		return this.descending;
+	}
+	
+	/**
+	 * @return execution status filter, <code>null</code> for all records.
+	 */
+	public ExecutionStatus getStatus()
+	{
+		return this.status;
+	}
+	
+	public boolean isFirst()
+	{
+		return this.page <= 1;
+	}
+	
+	public boolean isLast()
+	{
+		return this.page >= this.pageCount;
+	}
+	
+	/**
+	 * @return the status filter as a request parameter, empty for all 
+	 * records.
+	 */
+	public String getStatusParameter()
+	{
+		return this.status == null ? "" : this.status.name().toLowerCase( Locale.ENGLISH );
+	}
+	
+	/**
+	 * @param newPage page number.
+	 * @return relative URL of another page, with the same sort and filter.
+	 */
+	public String getPageUrl( int newPage )
+	{
+		return getUrl( newPage, this.pageSize, this.sort, this.descending, this.getStatusParameter() );
+	}
+	
+	/**
+	 * @param column sort column.
+	 * @return relative URL of the first page sorted by a column, in the 
+	 * reverse order if the records are already sorted by it.
+	 */
+	public String getSortUrl( String column )
+	{
+		final boolean newDescending = column.equals( this.sort ) && ! this.descending;
+		return getUrl( 1, this.pageSize, column, newDescending, this.getStatusParameter() );
+	}
+	
+	/**
+	 * @param newStatus status filter as a request parameter, empty for all 
+	 * records.
+	 * @return relative URL of the first page of the records with a status.
+	 */
+	public String getStatusUrl( String newStatus )
+	{
+		return getUrl( 1, this.pageSize, this.sort, this.descending, newStatus );
+	}
+	
+	private static String getUrl( int page, int pageSize, String sort, boolean descending, String status )
+	{
+		final StringBuilder url = new StringBuilder( "?page=" ).append( page );
+		url.append( "&size=" ).append( pageSize );
+		url.append( "&sort=" ).append( sort );
+		url.append( "&order=" ).append( descending ? "desc" : "asc" );
+		if ( status != null && status.length() > 0 )
+		{
+			url.append( "&status=" ).append( status );
+		}
+		return url.toString();
+	}
+	
+	/**
+	 * @param record a test case record.
+	 * @return the colored execution status of the record, as HTML.
+	 */
+	public static String getStatusText( TestCaseRecord record )
+	{
+		return TestLinkHelper.getExecutionStatusTextColored( record.getExecutionStatus() );
+	}
+	
+	/**
+	 * @param record a test case record.
+	 * @return the duration of the record, empty if unknown.
+	 */
+	public static String getDurationText( TestCaseRecord record )
+	{
+		return record.getDuration() < 0 ? "" : Util.getTimeSpanString( record.getDuration() );
+	}
+	
+	/**
+	 * @param column sort column requested.
+	 * @return the column, or the default column if it is not valid.
+	 */
+	public static String getSortColumn( String column )
+	{
+		return SORT_COLUMNS.contains( column ) ? column : SORT_COLUMNS.get( 0 );
+	}
+	
+	/**
+	 * Gets the comparator of a sort column. Records with the same value are 
+	 * sorted by test case id.
+	 * 
+	 * @param column sort column.
+	 * @return the comparator.
+	 */
+	public static Comparator<TestCaseRecord> getComparator( final String column )
+	{
+		return new Comparator<TestCaseRecord>()
+		{
+			public int compare( TestCaseRecord o1, TestCaseRecord o2 )
+			{
+				int result = 0;
+				if ( "name".equals( column ) )
+				{
+					result = compareValues( o1.getName(), o2.getName() );
+				}
+				else if ( "version".equals( column ) )
+				{
+					result = compareValues( o1.getVersion(), o2.getVersion() );
+				}
+				else if ( "testProjectId".equals( column ) )
+				{
+					result = compareValues( o1.getTestProjectId(), o2.getTestProjectId() );
+				}
+				else if ( "platform".equals( column ) )
+				{
+					result = compareValues( o1.getPlatform(), o2.getPlatform() );
+				}
+				else if ( "status".equals( column ) )
+				{
+					result = compareValues( o1.getExecutionStatus(), o2.getExecutionStatus() );
+				}
+				else if ( "duration".equals( column ) )
+				{
+					result = compareValues( o1.getDuration(), o2.getDuration() );
+				}
+				if ( result == 0 )
+				{
+					result = compareValues( o1.getId(), o2.getId() );
+				}
+				return result;
+			}
+		};
+	}
+	
+	/**
+	 * Compares two values, <code>null</code> first.
+	 */
+	private static <T extends Comparable<T>> int compareValues( T v1, T v2 )
+	{
+		if ( v1 == null )
+		{
+			return v2 == null ? 0 : -1;
+		}
+		if ( v2 == null )
+		{
+			return 1;
+		}
+		return v1.compareTo( v2 );
+	}
+	
+}
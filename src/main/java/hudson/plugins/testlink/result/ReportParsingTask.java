@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2010 Bruno P. Kinoshita <http://www.kinoshita.eti.br>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.result;
+
+import hudson.plugins.testlink.parser.Parser;
+import hudson.plugins.testlink.parser.ParserException;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+
+/**
+ * Parses a single report file. Used by {@link TestResultsCallable} to parse 
+ * report files concurrently. The parsed report, the time spent parsing it 
+ * and the parser error, if any, are kept in this task so that the results 
+ * can be merged in the order the files were scanned.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class ReportParsingTask 
+implements Callable<ReportParsingTask>
+{
+
+	private final Parser<?> parser;
+	
+	private final File reportFile;
+	
+	private Object report;
+	
+	private ParserException parserException;
+	
+	private long elapsedNanos;
+	
+	/**
+	 * @param parser Parser. Must be safe to be used by several threads.
+	 * @param reportFile Report file.
+	 */
+	public ReportParsingTask( Parser<?> parser, File reportFile )
+	{
+		super();
+		this.parser = parser;
+		this.reportFile = reportFile;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Callable#call()
+	 */
+	public ReportParsingTask call() 
+	throws Exception
+	{
+		final long start = System.nanoTime();
+		try
+		{
+			this.report = this.parser.parse( this.reportFile );
+		}
+		catch ( ParserException e )
+		{
+			this.parserException = e;
+		}
+		finally
+		{
+			this.elapsedNanos = System.nanoTime() - start;
+		}
+		return this;
+	}
+	
+	public File getReportFile()
+	{
+		return this.reportFile;
+	}
+	
+	/**
+	 * @return parsed report or <code>null</code> if the parser failed.
+	 */
+	public Object getReport()
+	{
+		return this.report;
+	}
+	
+	public ParserException getParserException()
+	{
+		return this.parserException;
+	}
+	
+	public long getElapsedNanos()
+	{
+		return this.elapsedNanos;
+	}
+	
+}
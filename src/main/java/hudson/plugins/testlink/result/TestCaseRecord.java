@@ -0,0 +1,216 @@
+/* 
+ * The MIT License
+ * 
+ * Copyright (c) 2010 Bruno P. Kinoshita <http://www.kinoshita.eti.br>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.result;
+
+import hudson.plugins.testlink.parser.Durations;
+import hudson.plugins.testlink.parser.testng.TestMethod;
+
+import java.io.Serializable;
+
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
+
+/**
+ * Compact record of a test case execution, kept in the build report. Unlike 
+ * {@link TestCaseWrapper}, it does not hold the report elements, the notes 
+ * nor the attachments of the test case, only what is shown and compared 
+ * between builds.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+@ExportedBean
+public class TestCaseRecord 
+implements Serializable
+{
+
+	private static final long serialVersionUID = 5390946254393539129L;
+	
+	private static final byte NOT_RUN = 0;
+	private static final byte PASSED = 1;
+	private static final byte FAILED = 2;
+	private static final byte BLOCKED = 3;
+	
+	private final Integer id;
+	private final Integer version;
+	private final String name;
+	private final Integer testProjectId;
+	private final byte status;
+	private final String platform;
+	
+	/**
+	 * Duration in milliseconds, -1 when unknown.
+	 */
+	private final long duration;
+	
+	public TestCaseRecord( 
+		Integer id, 
+		Integer version, 
+		String name, 
+		Integer testProjectId, 
+		ExecutionStatus executionStatus, 
+		String platform, 
+		long duration )
+	{
+		super();
+		this.id = id;
+		this.version = version;
+		this.name = name;
+		this.testProjectId = testProjectId;
+		this.status = toByte( executionStatus );
+		this.platform = platform;
+		this.duration = duration;
+	}
+	
+	/**
+	 * Creates the record of a test case execution.
+	 * 
+	 * @param testCase the test case and its test results.
+	 */
+	public TestCaseRecord( TestCaseWrapper<?> testCase )
+	{
+		this( 
+			testCase.getId(), 
+			testCase.getVersion(), 
+			testCase.getName(), 
+			testCase.getTestProjectId(), 
+			testCase.getExecutionStatus(), 
+			testCase.getPlatform(), 
+			testCase.getDuration() );
+	}
+	
+	@Exported
+	public Integer getId()
+	{
+		return this.id;
+	}
+	
+	@Exported
+	public Integer getVersion()
+	{
+		return this.version;
+	}
+	
+	@Exported
+	public String getName()
+	{
+		return this.name;
+	}
+	
+	@Exported
+	public Integer getTestProjectId()
+	{
+		return this.testProjectId;
+	}
+	
+	@Exported
+	public ExecutionStatus getExecutionStatus()
+	{
+		return toExecutionStatus( this.status );
+	}
+	
+	@Exported
+	public String getPlatform()
+	{
+		return this.platform;
+	}
+	
+	/**
+	 * @return duration in milliseconds, -1 when unknown.
+	 */
+	@Exported
+	public long getDuration()
+	{
+		return this.duration;
+	}
+	
+	private static byte toByte( ExecutionStatus executionStatus )
+	{
+		if ( executionStatus == ExecutionStatus.PASSED )
+		{
+			return PASSED;
+		}
+		else if ( executionStatus == ExecutionStatus.FAILED )
+		{
+			return FAILED;
+		}
+		else if ( executionStatus == ExecutionStatus.BLOCKED )
+		{
+			return BLOCKED;
+		}
+		return NOT_RUN;
+	}
+	
+	private static ExecutionStatus toExecutionStatus( byte status )
+	{
+		switch ( status )
+		{
+			case PASSED: 
+				return ExecutionStatus.PASSED;
+			case FAILED: 
+				return ExecutionStatus.FAILED;
+			case BLOCKED: 
+				return ExecutionStatus.BLOCKED;
+			default: 
+				return ExecutionStatus.NOT_RUN;
+		}
+	}
+	
+	/**
+	 * Gets the duration of the report element that originated a test result.
+	 * 
+	 * @param origin JUnit suite or test case, TestNG suite or class, or TAP 
+	 * test set.
+	 * @return duration in milliseconds, -1 when unknown.
+	 */
+	public static long getDuration( Object origin )
+	{
+		if ( origin instanceof hudson.plugins.testlink.parser.junit.TestSuite )
+		{
+			return ((hudson.plugins.testlink.parser.junit.TestSuite) origin).getTimeMillis();
+		}
+		else if ( origin instanceof hudson.plugins.testlink.parser.junit.TestCase )
+		{
+			return ((hudson.plugins.testlink.parser.junit.TestCase) origin).getTimeMillis();
+		}
+		else if ( origin instanceof hudson.plugins.testlink.parser.testng.Suite )
+		{
+			return ((hudson.plugins.testlink.parser.testng.Suite) origin).getDurationMillis();
+		}
+		else if ( origin instanceof hudson.plugins.testlink.parser.testng.Class )
+		{
+			long duration = Durations.UNKNOWN;
+			for ( TestMethod testMethod : ((hudson.plugins.testlink.parser.testng.Class) origin).getTestMethods() )
+			{
+				duration = Durations.add( duration, testMethod.getDurationMillis() );
+			}
+			return duration;
+		}
+		// TAP has no standard duration
+		return Durations.UNKNOWN;
+	}
+	
+}
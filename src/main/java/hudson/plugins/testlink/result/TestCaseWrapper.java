@@ -23,6 +23,8 @@
  */
 package hudson.plugins.testlink.result;
 
+import hudson.plugins.testlink.parser.Durations;
+
 import java.io.Serializable;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
@@ -51,6 +53,18 @@ public class TestCaseWrapper<T> extends TestCase implements Serializable
 	private List<Attachment> attachments;
 	private StringBuilder notes;
 	private String platform = null;
+	
+	/**
+	 * Duration in milliseconds of the test results of this test case, -1 
+	 * when unknown.
+	 */
+	private long duration;
+	
+	/**
+	 * Whether {@link #duration} was recorded, which is not the case for 
+	 * wrappers of builds recorded before 3.0.3.
+	 */
+	private boolean durationRecorded;
 
 	private final Map<String, ExecutionStatus> customFieldAndStatus;
 	private final String[] customFieldsNames;
@@ -72,6 +86,25 @@ public class TestCaseWrapper<T> extends TestCase implements Serializable
 			this.customFieldsNames = customFieldsNames;
 		}
 		this.origin = origin;
+		this.duration = TestCaseRecord.getDuration(origin);
+		this.durationRecorded = true;
+	}
+	
+	/**
+	 * Takes the duration from the origin for wrappers loaded from builds 
+	 * recorded before 3.0.3, whose duration XStream leaves at 0.
+	 * 
+	 * @return this wrapper.
+	 * @since 3.0.3
+	 */
+	protected Object readResolve()
+	{
+		if ( ! this.durationRecorded )
+		{
+			this.duration = TestCaseRecord.getDuration(this.origin);
+			this.durationRecorded = true;
+		}
+		return this;
 	}
 
 	public T getOrigin()
@@ -141,6 +174,27 @@ public class TestCaseWrapper<T> extends TestCase implements Serializable
 		this.notes.append(notes);
 	}
 
+	/**
+	 * @return duration in milliseconds of the test results of this test 
+	 * case, -1 when unknown.
+	 * @since 3.0.3
+	 */
+	public long getDuration()
+	{
+		return this.duration;
+	}
+
+	/**
+	 * Adds the duration of another test result of this test case.
+	 * 
+	 * @param duration duration in milliseconds, ignored if negative.
+	 * @since 3.0.3
+	 */
+	public void addDuration( long duration )
+	{
+		this.duration = Durations.add(this.duration, duration);
+	}
+
 	public String getPlatform()
 	{
 		return this.platform;
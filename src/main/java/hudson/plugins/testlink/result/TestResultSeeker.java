@@ -25,16 +25,14 @@ package hudson.plugins.testlink.result;
 
 import hudson.Util;
 import hudson.model.BuildListener;
+import hudson.plugins.testlink.parser.Parser;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.List;
 import java.util.Map;
-import java.util.StringTokenizer;
 
-import org.apache.commons.codec.binary.Base64;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.tools.ant.BuildException;
 import org.apache.tools.ant.DirectoryScanner;
@@ -60,6 +58,17 @@ implements Serializable
 	protected final String keyCustomFieldName;
 	protected final BuildListener listener;
 	
+	/**
+	 * Index of the automated test cases by key custom field value.
+	 */
+	protected final KeyCustomFieldIndex keyCustomFieldIndex;
+	
+	/**
+	 * Cache of the attachments digests, shared by the seekers of a build. 
+	 * Created when needed, as it is never sent to the slaves.
+	 */
+	protected transient AttachmentContentCache attachmentContentCache;
+	
 	/**
 	 * Default constructor.
 	 * 
@@ -73,12 +82,30 @@ implements Serializable
 		TestCase[] automatedTestCases, 
 		String keyCustomFieldName, 
 		BuildListener listener)
+	{
+		this( includePattern, new KeyCustomFieldIndex( automatedTestCases, keyCustomFieldName ), listener );
+	}
+	
+	/**
+	 * Creates a seeker that shares an index already built for the 
+	 * automated test cases.
+	 * 
+	 * @param includePattern Include pattern.
+	 * @param keyCustomFieldIndex Index of the automated test cases.
+	 * @param listener Hudson Build listener.
+	 * @since 3.0.3
+	 */
+	public TestResultSeeker( 
+		String includePattern, 
+		KeyCustomFieldIndex keyCustomFieldIndex, 
+		BuildListener listener)
 	{
 		super();
 		
 		this.includePattern = includePattern;
-		this.automatedTestCases = automatedTestCases;
-		this.keyCustomFieldName = keyCustomFieldName;
+		this.automatedTestCases = keyCustomFieldIndex.getAutomatedTestCases();
+		this.keyCustomFieldName = keyCustomFieldIndex.getKeyCustomFieldName();
+		this.keyCustomFieldIndex = keyCustomFieldIndex;
 		this.listener = listener;
 	}
 	
@@ -94,7 +121,43 @@ implements Serializable
 	throws TestResultSeekerException;
 	
 	/**
-	 * Retrieves the file content encoded in Base64.
+	 * Gets the parser used to read the report files. Seekers that use the 
+	 * same type of parser and the same include pattern share a single scan 
+	 * and parse of the report files.
+	 * 
+	 * @return parser of the report files.
+	 * @since 3.0.3
+	 */
+	public abstract Parser<?> getParser();
+	
+	/**
+	 * Looks for test results in a report file that was already parsed.
+	 * 
+	 * @param report object returned by the parser of this seeker.
+	 * @param reportFile the report file.
+	 * @since 3.0.3
+	 */
+	public abstract void processReport( Object report, File reportFile );
+	
+	/**
+	 * Gets the test results found so far.
+	 * 
+	 * @return map of test results.
+	 * @since 3.0.3
+	 */
+	public abstract Map<Integer, TestCaseWrapper<T>> getResults();
+	
+	/**
+	 * @return the include pattern.
+	 */
+	public String getIncludePattern()
+	{
+		return this.includePattern;
+	}
+	
+	/**
+	 * Retrieves the file content encoded in Base64. The content is read from 
+	 * the attachment cache, so each file is read and encoded only once.
 	 * 
 	 * @param file file to read the content.
 	 * @return file content encoded in Base64.
@@ -103,30 +166,55 @@ implements Serializable
 	protected String getBase64FileContent( File file ) 
 	throws IOException
 	{
-		byte[] fileData = FileUtils.readFileToByteArray(file);
-		return Base64.encodeBase64String( fileData );
+		return this.getAttachmentContentCache().getBase64FileContent( file );
 	}
 	
 	/**
-	 * Splits a String by comma and gets an array of Strings.
+	 * Creates an attachment that refers to a file, instead of holding its 
+	 * content. The file is only digested now, and is read and encoded when 
+	 * the attachment is uploaded to TestLink.
+	 * 
+	 * @param file file to attach.
+	 * @return file attachment.
+	 * @throws IOException 
+	 * @since 3.0.3
 	 */
-	protected String[] split( String input )
+	protected FileAttachment getFileAttachment( File file ) 
+	throws IOException
 	{
-		if ( StringUtils.isBlank( input ) )
-		{
-			return new String[0];
-		}
-		
-		StringTokenizer tokenizer = new StringTokenizer( input, ",");
-		
-		String[] values = new String[ tokenizer.countTokens() ];
-		
-		for( int i = 0 ; tokenizer.hasMoreTokens() ; i++ )
+		return new FileAttachment( file, this.getAttachmentContentCache().getDigest( file ) );
+	}
+	
+	/**
+	 * Gets the attachment cache used by this seeker.
+	 * 
+	 * @since 3.0.3
+	 */
+	public AttachmentContentCache getAttachmentContentCache()
+	{
+		if ( this.attachmentContentCache == null )
 		{
-			values[i] = tokenizer.nextToken().trim();
+			this.attachmentContentCache = new AttachmentContentCache();
 		}
-		
-		return values;		
+		return this.attachmentContentCache;
+	}
+	
+	/**
+	 * Sets the attachment cache, so that it can be shared with other seekers.
+	 * 
+	 * @since 3.0.3
+	 */
+	public void setAttachmentContentCache( AttachmentContentCache attachmentContentCache )
+	{
+		this.attachmentContentCache = attachmentContentCache;
+	}
+	
+	/**
+	 * Splits a String by comma and gets an array of Strings.
+	 */
+	protected String[] split( String input )
+	{
+		return KeyCustomFieldIndex.split( input );
 	}
 	
 	/**
@@ -175,20 +263,7 @@ implements Serializable
 	 */
 	protected CustomField getKeyCustomField( List<CustomField> customFields )
 	{
-		CustomField customField = null;
-		 
-		for ( CustomField cf : customFields )
-		{
-			boolean isKeyCustomField = cf.getName().equals(keyCustomFieldName);
-			
-			if ( isKeyCustomField )
-			{
-				customField = cf;
-				break;
-			}
-			
-		}
-		return customField;
+		return KeyCustomFieldIndex.getKeyCustomField( customFields, keyCustomFieldName );
 	}
 	
 }
@@ -24,17 +24,32 @@
 package hudson.plugins.testlink.result;
 
 import hudson.FilePath.FileCallable;
+import hudson.model.BuildListener;
+import hudson.plugins.testlink.parser.Parser;
+import hudson.plugins.testlink.parser.ParserException;
+import hudson.plugins.testlink.util.Messages;
 import hudson.remoting.VirtualChannel;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang.StringUtils;
+
+import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
 
 /**
  * Uses test results seekers to find results.
@@ -54,6 +69,17 @@ implements FileCallable<Map<Integer, TestCaseWrapper>>
 	 */
 	private List<TestResultSeeker<?>> testResultsSeekers;
 	
+	/**
+	 * Index of the automated test cases shared by the seekers.
+	 */
+	private KeyCustomFieldIndex keyCustomFieldIndex;
+	
+	/**
+	 * Number of threads used to parse the report files. A value lower than 
+	 * 2 means that the report files are parsed sequentially.
+	 */
+	private int parallelism = 1;
+	
 	/**
 	 * Adds a test result seeker.
 	 */
@@ -80,10 +106,61 @@ implements FileCallable<Map<Integer, TestCaseWrapper>>
 		this.testResultsSeekers = new LinkedList<TestResultSeeker<?>>();
 	}
 	
+	/**
+	 * Creates the callable and indexes the automated test cases by their 
+	 * key custom field values, only once for all the seekers.
+	 * 
+	 * @param automatedTestCases Automated test cases.
+	 * @param keyCustomFieldName Name of the Key Custom Field.
+	 * @since 3.0.3
+	 */
+	public TestResultsCallable( TestCase[] automatedTestCases, String keyCustomFieldName )
+	{
+		this();
+		
+		this.keyCustomFieldIndex = new KeyCustomFieldIndex( automatedTestCases, keyCustomFieldName );
+	}
+	
+	/**
+	 * Gets the index of the automated test cases, or <code>null</code> if 
+	 * this callable was created without test cases.
+	 * 
+	 * @since 3.0.3
+	 */
+	public KeyCustomFieldIndex getKeyCustomFieldIndex()
+	{
+		return this.keyCustomFieldIndex;
+	}
+	
+	/**
+	 * Gets the number of threads used to parse the report files.
+	 * 
+	 * @since 3.0.3
+	 */
+	public int getParallelism()
+	{
+		return this.parallelism;
+	}
+	
+	/**
+	 * Sets the number of threads used to parse the report files. Values 
+	 * lower than 2 disable the parallel parsing.
+	 * 
+	 * @since 3.0.3
+	 */
+	public void setParallelism( int parallelism )
+	{
+		this.parallelism = parallelism;
+	}
+	
 	/**
 	 * Seeks test results in a given directory. It will seek for JUnit, TestNG 
 	 * and TAP test results.
 	 * 
+	 * <p>Seekers that read the same report files (same type of parser and 
+	 * same include pattern) are grouped, so that each pattern is scanned 
+	 * once and each report file is parsed once for the whole group.</p>
+	 * 
 	 * @param directory directory to seek for test results.
 	 * @return list of test results.
 	 */
@@ -93,15 +170,236 @@ implements FileCallable<Map<Integer, TestCaseWrapper>>
 	{
 		final Map<Integer, TestCaseWrapper> testResults = new LinkedHashMap<Integer, TestCaseWrapper>();
 		
-		for( TestResultSeeker testResultSeeker : this.testResultsSeekers )
+		final AttachmentContentCache attachmentContentCache = new AttachmentContentCache();
+		for( TestResultSeeker<?> testResultSeeker : this.testResultsSeekers )
 		{
-			final Map<Integer, TestCaseWrapper> results = testResultSeeker.seek( directory );
-			
-			testResults.putAll( results );
+			testResultSeeker.setAttachmentContentCache( attachmentContentCache );
+		}
+		
+		for( List<TestResultSeeker<?>> group : this.groupTestResultSeekers() )
+		{
+			if ( group.size() == 1 && ( this.parallelism <= 1 || StringUtils.isBlank( group.get( 0 ).getIncludePattern() ) ) )
+			{
+				final TestResultSeeker testResultSeeker = group.get( 0 );
+				final Map<Integer, TestCaseWrapper> results = testResultSeeker.seek( directory );
+				
+				testResults.putAll( results );
+			}
+			else
+			{
+				this.seekTestResults( directory, group );
+				
+				for( TestResultSeeker testResultSeeker : group )
+				{
+					testResults.putAll( testResultSeeker.getResults() );
+				}
+			}
+		}
+		
+		if ( ! this.testResultsSeekers.isEmpty() )
+		{
+			this.testResultsSeekers.get( 0 ).listener.getLogger().println( 
+				Messages.Results_AttachmentCacheStatistics( 
+					attachmentContentCache.getHits(), 
+					attachmentContentCache.getMisses(), 
+					attachmentContentCache.getEvictions() ) );
 		}
 		
 		return testResults;
 	}
+	
+	/**
+	 * Groups the test result seekers by type of parser and include pattern, 
+	 * keeping the order in which they were added.
+	 * 
+	 * @return groups of test result seekers.
+	 */
+	protected Collection<List<TestResultSeeker<?>>> groupTestResultSeekers()
+	{
+		final Map<String, List<TestResultSeeker<?>>> groups = new LinkedHashMap<String, List<TestResultSeeker<?>>>();
+		
+		for( TestResultSeeker<?> testResultSeeker : this.testResultsSeekers )
+		{
+			String key = null;
+			if ( StringUtils.isBlank( testResultSeeker.getIncludePattern() ) )
+			{
+				// Let the seeker log that it has nothing to do
+				key = "#" + groups.size();
+			}
+			else
+			{
+				key = testResultSeeker.getParser().getClass().getName() + "@" + testResultSeeker.getIncludePattern();
+			}
+			
+			List<TestResultSeeker<?>> group = groups.get( key );
+			if ( group == null )
+			{
+				group = new LinkedList<TestResultSeeker<?>>();
+				groups.put( key, group );
+			}
+			group.add( testResultSeeker );
+		}
+		
+		return groups.values();
+	}
+	
+	/**
+	 * Scans the include pattern of a group of seekers once and parses each 
+	 * report file once, handing the parsed report to every seeker of the 
+	 * group.
+	 * 
+	 * @param directory directory to seek for test results.
+	 * @param group seekers that share the parser type and include pattern.
+	 */
+	protected void seekTestResults( File directory, List<TestResultSeeker<?>> group )
+	throws TestResultSeekerException
+	{
+		final TestResultSeeker<?> first = group.get( 0 );
+		final Parser<?> parser = first.getParser();
+		final BuildListener listener = first.listener;
+		
+		try
+		{
+			final String[] reports = first.scan( directory, first.getIncludePattern(), listener );
+			
+			listener.getLogger().println( Messages.Results_SharedReportsParse( reports.length, parser.getName(), group.size() ) );
+			
+			if ( this.parallelism > 1 && reports.length > 1 )
+			{
+				this.parseInParallel( directory, reports, group );
+			}
+			else
+			{
+				for ( int i = 0 ; i < reports.length ; ++i )
+				{
+					final File reportFile = new File( directory, reports[i] );
+					
+					try
+					{
+						final Object report = parser.parse( reportFile );
+						
+						for ( TestResultSeeker<?> testResultSeeker : group )
+						{
+							testResultSeeker.processReport( report, reportFile );
+						}
+					}
+					catch ( ParserException e )
+					{
+						e.printStackTrace( listener.getLogger() );
+					}
+				}
+			}
+		}
+		catch ( IOException e )
+		{
+			throw new TestResultSeekerException( Messages.Results_ErrorToLookForTestResults( e.getMessage() ), e );
+		}
+		catch ( InterruptedException e )
+		{
+			Thread.currentThread().interrupt();
+			throw new TestResultSeekerException( Messages.Results_ErrorToLookForTestResults( e.getMessage() ), e );
+		}
+		catch ( TestResultSeekerException e )
+		{
+			throw e;
+		}
+		catch ( Throwable t )
+		{
+			throw new TestResultSeekerException( Messages.Results_ErrorToLookForTestResults( t.getMessage() ), t );
+		}
+	}
+
+	/**
+	 * Parses the report files of a group of seekers with a bounded pool of 
+	 * threads. The parsed reports are handed to the seekers in the same order 
+	 * the files were scanned, so the results are the same as with the 
+	 * sequential parsing. At most two files per thread are parsed ahead of 
+	 * the one being matched, which keeps the memory used by parsed reports 
+	 * bounded.
+	 * 
+	 * @param directory directory to seek for test results.
+	 * @param reports report files, relative to the directory.
+	 * @param group seekers that share the parser type and include pattern.
+	 */
+	protected void parseInParallel( File directory, String[] reports, List<TestResultSeeker<?>> group )
+	throws InterruptedException
+	{
+		final TestResultSeeker<?> first = group.get( 0 );
+		final Parser<?> parser = first.getParser();
+		final BuildListener listener = first.listener;
+		
+		final int threads = Math.min( this.parallelism, reports.length );
+		final int window = threads * 2;
+		
+		final ExecutorService executor = Executors.newFixedThreadPool( threads, new ThreadFactory()
+		{
+			private final AtomicInteger count = new AtomicInteger();
+			
+			public Thread newThread( Runnable r )
+			{
+				final Thread thread = new Thread( r, "TestLink report parser #" + count.incrementAndGet() );
+				thread.setDaemon( true );
+				return thread;
+			}
+		});
+		
+		final LinkedList<Future<ReportParsingTask>> pending = new LinkedList<Future<ReportParsingTask>>();
+		
+		final long start = System.nanoTime();
+		long parsingNanos = 0L;
+		int next = 0;
+		
+		try
+		{
+			while ( next < reports.length || ! pending.isEmpty() )
+			{
+				while ( next < reports.length && pending.size() < window )
+				{
+					final File reportFile = new File( directory, reports[next++] );
+					pending.add( executor.submit( new ReportParsingTask( parser, reportFile ) ) );
+				}
+				
+				final ReportParsingTask task;
+				try
+				{
+					task = pending.removeFirst().get();
+				}
+				catch ( ExecutionException e )
+				{
+					throw new TestResultSeekerException( Messages.Results_ErrorToLookForTestResults( e.getCause().getMessage() ), e.getCause() );
+				}
+				
+				parsingNanos += task.getElapsedNanos();
+				
+				if ( task.getParserException() != null )
+				{
+					task.getParserException().printStackTrace( listener.getLogger() );
+				}
+				else
+				{
+					for ( TestResultSeeker<?> testResultSeeker : group )
+					{
+						testResultSeeker.processReport( task.getReport(), task.getReportFile() );
+					}
+				}
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+		
+		final long elapsedNanos = System.nanoTime() - start;
+		final double speedUp = elapsedNanos > 0 ? (double)parsingNanos / elapsedNanos : 1.0d;
+		
+		listener.getLogger().println( 
+			Messages.Results_ParallelParsingSpeedUp( 
+				reports.length, 
+				threads, 
+				TimeUnit.NANOSECONDS.toMillis( elapsedNanos ), 
+				TimeUnit.NANOSECONDS.toMillis( parsingNanos ), 
+				String.format( "%.2f", speedUp ) ) );
+	}
 
 	/**
 	 * Retrieves the file content encoded in Base64.
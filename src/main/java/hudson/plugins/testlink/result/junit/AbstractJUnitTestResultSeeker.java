@@ -24,6 +24,7 @@
 package hudson.plugins.testlink.result.junit;
 
 import hudson.model.BuildListener;
+import hudson.plugins.testlink.result.KeyCustomFieldIndex;
 import hudson.plugins.testlink.result.TestResultSeeker;
 
 import java.io.File;
@@ -51,6 +52,12 @@ extends TestResultSeeker<T>
 	{
 		super(includePattern, automatedTestCases, keyCustomFieldName, listener);
 	}
+	
+	public AbstractJUnitTestResultSeeker(String includePattern,
+			KeyCustomFieldIndex keyCustomFieldIndex, BuildListener listener)
+	{
+		super(includePattern, keyCustomFieldIndex, listener);
+	}
 
 	/**
 	 * Retrieves the JUnit report file as attachment for TestLink.
@@ -62,13 +69,9 @@ extends TestResultSeeker<T>
 	protected Attachment getJUnitAttachment( File junitReportFile ) 
 	throws IOException
 	{
-		Attachment attachment = new Attachment();
+		Attachment attachment = this.getFileAttachment( junitReportFile );
 		
-		String fileContent = this.getBase64FileContent(junitReportFile );
-		attachment.setContent( fileContent );
 		attachment.setDescription( "JUnit XML" + junitReportFile.getName() );
-		attachment.setFileName( junitReportFile.getName() );
-		attachment.setFileSize( junitReportFile.length() );
 		attachment.setTitle( junitReportFile.getName() );
 		attachment.setFileType("text/xml");
 		
@@ -27,6 +27,7 @@ import hudson.model.BuildListener;
 import hudson.plugins.testlink.parser.ParserException;
 import hudson.plugins.testlink.parser.junit.JUnitParser;
 import hudson.plugins.testlink.parser.junit.TestSuite;
+import hudson.plugins.testlink.result.KeyCustomFieldIndex;
 import hudson.plugins.testlink.result.TestCaseWrapper;
 import hudson.plugins.testlink.result.TestResultSeekerException;
 import hudson.plugins.testlink.util.Messages;
@@ -40,7 +41,6 @@ import java.util.Map;
 import org.apache.commons.lang.StringUtils;
 
 import br.eti.kinoshita.testlinkjavaapi.model.Attachment;
-import br.eti.kinoshita.testlinkjavaapi.model.CustomField;
 import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
 import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
 
@@ -67,6 +67,12 @@ extends AbstractJUnitTestResultSeeker<TestSuite>
 		super(includePattern, automatedTestCases, keyCustomFieldName, listener);
 	}
 	
+	public JUnitSuitesTestResultSeeker(String includePattern,
+			KeyCustomFieldIndex keyCustomFieldIndex, BuildListener listener)
+	{
+		super(includePattern, keyCustomFieldIndex, listener);
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -107,6 +113,37 @@ extends AbstractJUnitTestResultSeeker<TestSuite>
 		return this.results;
 	}
 	
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.result.TestResultSeeker#getParser()
+	 */
+	@Override
+	public JUnitParser getParser()
+	{
+		return this.parser;
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.result.TestResultSeeker#processReport(java.lang.Object, java.io.File)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void processReport( Object report, File reportFile )
+	{
+		for ( TestSuite junitSuite : (List<TestSuite>)report )
+		{
+			this.processJUnitSuite( junitSuite, reportFile );
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.result.TestResultSeeker#getResults()
+	 */
+	@Override
+	public Map<Integer, TestCaseWrapper<TestSuite>> getResults()
+	{
+		return this.results;
+	}
+	
 	/**
 	 * Processes all JUnit reports.
 	 */
@@ -144,9 +181,9 @@ extends AbstractJUnitTestResultSeeker<TestSuite>
 		
 		if ( ! StringUtils.isBlank( suiteName ) )
 		{
-			for( TestCase testCase : automatedTestCases ) 
+			for( KeyCustomFieldIndex.Entry entry : keyCustomFieldIndex.lookup( suiteName ) ) 
 			{
-				this.findTestResults( junitSuite, testCase, junitFile );
+				this.findTestResults( junitSuite, entry, junitFile );
 			}
 		}
 		
@@ -157,45 +194,34 @@ extends AbstractJUnitTestResultSeeker<TestSuite>
 	 */
 	protected void findTestResults( 
 		TestSuite junitSuite,
-		TestCase testLinkTestCase, 
+		KeyCustomFieldIndex.Entry entry, 
 		File junitFile )
 	{
-		final List<CustomField> customFields = testLinkTestCase.getCustomFields();
-		//listener.getLogger().println( Messages.Results_JUnit_ListOfCustomFields( customFields ) );
+		final TestCase testLinkTestCase = entry.getTestCase();
 		
-		final CustomField keyCustomField = this.getKeyCustomField( customFields );
-		if ( keyCustomField != null ) 
+		if ( ExecutionStatus.BLOCKED != testLinkTestCase.getExecutionStatus() )
 		{
-		
-			final String[] commaSeparatedValues = this.split ( keyCustomField.getValue() );
+			final TestCaseWrapper<TestSuite> testResult = new TestCaseWrapper<TestSuite>( testLinkTestCase, entry.getCommaSeparatedValues(), junitSuite );
+			
+			final ExecutionStatus status = this.getJUnitExecutionStatus( junitSuite );
+			testResult.addCustomFieldAndStatus(junitSuite.getName(), status);
 			
-			for ( String value : commaSeparatedValues )
+			String notes = this.getJUnitNotes( junitSuite );
+			
+			try
 			{
-				if ( junitSuite.getName().equals( value ) && ExecutionStatus.BLOCKED != testLinkTestCase.getExecutionStatus())
-				{
-					final TestCaseWrapper<TestSuite> testResult = new TestCaseWrapper<TestSuite>( testLinkTestCase, commaSeparatedValues, junitSuite );
-					
-					final ExecutionStatus status = this.getJUnitExecutionStatus( junitSuite );
-					testResult.addCustomFieldAndStatus(value, status);
-					
-					String notes = this.getJUnitNotes( junitSuite );
-					
-					try
-					{
-						final Attachment junitAttachment = this.getJUnitAttachment( junitFile );
-						testResult.addAttachment( junitAttachment );
-					}
-					catch ( IOException ioe )
-					{
-						notes += Messages.Results_JUnit_AddAttachmentsFail( ioe.getMessage() );
-						ioe.printStackTrace( listener.getLogger() );
-					}
-					
-					testResult.appendNotes( notes );
-					
-					this.addOrUpdate( testResult );
-				}
+				final Attachment junitAttachment = this.getJUnitAttachment( junitFile );
+				testResult.addAttachment( junitAttachment );
 			}
+			catch ( IOException ioe )
+			{
+				notes += Messages.Results_JUnit_AddAttachmentsFail( ioe.getMessage() );
+				ioe.printStackTrace( listener.getLogger() );
+			}
+			
+			testResult.appendNotes( notes );
+			
+			this.addOrUpdate( testResult );
 		}
 	}
 
@@ -222,6 +248,7 @@ extends AbstractJUnitTestResultSeeker<TestSuite>
 				temp.addAttachment(attachment);
 			}
 			temp.getCustomFieldAndStatus().putAll( testResult.getCustomFieldAndStatus() );
+			temp.addDuration( testResult.getDuration() );
 		}
 	}
 
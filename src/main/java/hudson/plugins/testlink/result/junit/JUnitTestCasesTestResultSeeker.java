@@ -28,6 +28,7 @@ import hudson.plugins.testlink.parser.ParserException;
 import hudson.plugins.testlink.parser.junit.JUnitParser;
 import hudson.plugins.testlink.parser.junit.TestCase;
 import hudson.plugins.testlink.parser.junit.TestSuite;
+import hudson.plugins.testlink.result.KeyCustomFieldIndex;
 import hudson.plugins.testlink.result.TestCaseWrapper;
 import hudson.plugins.testlink.result.TestResultSeekerException;
 import hudson.plugins.testlink.util.Messages;
@@ -43,7 +44,6 @@ import java.util.Set;
 import org.apache.commons.lang.StringUtils;
 
 import br.eti.kinoshita.testlinkjavaapi.model.Attachment;
-import br.eti.kinoshita.testlinkjavaapi.model.CustomField;
 import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
 
 /**
@@ -80,6 +80,15 @@ extends AbstractJUnitTestResultSeeker<TestCase>
 		super(includePattern, automatedTestCases, keyCustomFieldName, listener);
 	}
 	
+	public JUnitTestCasesTestResultSeeker(
+		String includePattern,
+		KeyCustomFieldIndex keyCustomFieldIndex,
+		BuildListener listener
+	)
+	{
+		super(includePattern, keyCustomFieldIndex, listener);
+	}
+	
 	/* (non-Javadoc)
 	 * @see hudson.plugins.testlink.result.TestResultSeeker#seek(java.io.File, java.lang.String, hudson.plugins.testlink.result.TestLinkReport, hudson.model.BuildListener)
 	 */
@@ -116,6 +125,37 @@ extends AbstractJUnitTestResultSeeker<TestCase>
 		
 	}
 	
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.result.TestResultSeeker#getParser()
+	 */
+	@Override
+	public JUnitParser getParser()
+	{
+		return this.parser;
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.result.TestResultSeeker#processReport(java.lang.Object, java.io.File)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public void processReport( Object report, File reportFile )
+	{
+		for ( TestSuite junitSuite : (List<TestSuite>)report )
+		{
+			this.processJUnitSuite( junitSuite, reportFile );
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.result.TestResultSeeker#getResults()
+	 */
+	@Override
+	public Map<Integer, TestCaseWrapper<TestCase>> getResults()
+	{
+		return this.results;
+	}
+	
 	/**
 	 * Processes all JUnit test result files.
 	 */
@@ -166,9 +206,9 @@ extends AbstractJUnitTestResultSeeker<TestCase>
 		
 		if ( ! StringUtils.isBlank( testClassOrTestName ) )
 		{
-			for( br.eti.kinoshita.testlinkjavaapi.model.TestCase testLinkTestCase : automatedTestCases )
+			for( KeyCustomFieldIndex.Entry entry : keyCustomFieldIndex.lookup( testClassOrTestName ) )
 			{
-				this.findTestResults( junitTestCase, testClassOrTestName, testLinkTestCase, junitFile );
+				this.findTestResults( junitTestCase, testClassOrTestName, entry, junitFile );
 			}
 		}
 	}
@@ -176,43 +216,33 @@ extends AbstractJUnitTestResultSeeker<TestCase>
 	/**
 	 * Looks for test results in a JUnit test case.
 	 */
-	protected void findTestResults( TestCase junitTestCase, String testClassOrTestName, br.eti.kinoshita.testlinkjavaapi.model.TestCase testLinkTestCase, File junitFile ) 
+	protected void findTestResults( TestCase junitTestCase, String testClassOrTestName, KeyCustomFieldIndex.Entry entry, File junitFile ) 
 	{
-		final List<CustomField> customFields = testLinkTestCase.getCustomFields();
-		//listener.getLogger().println( Messages.Results_JUnit_ListOfCustomFields( customFields ) );
+		final br.eti.kinoshita.testlinkjavaapi.model.TestCase testLinkTestCase = entry.getTestCase();
 		
-		final CustomField keyCustomField = this.getKeyCustomField( customFields );
-		if ( keyCustomField != null )
+		if ( ExecutionStatus.BLOCKED != testLinkTestCase.getExecutionStatus() )
 		{
-			final String[] commaSeparatedValues = this.split ( keyCustomField.getValue() );
+			final TestCaseWrapper<TestCase> testResult = new TestCaseWrapper<TestCase>( testLinkTestCase, entry.getCommaSeparatedValues(), junitTestCase );
+			
+			final ExecutionStatus status = this.getJUnitExecutionStatus( junitTestCase, testClassOrTestName );
+			testResult.addCustomFieldAndStatus(testClassOrTestName, status);
 			
-			for ( String value : commaSeparatedValues )
+			String notes = this.getJUnitNotes( junitTestCase );
+			
+			try
 			{
-				if ( testClassOrTestName.equals( value ) && ExecutionStatus.BLOCKED != testLinkTestCase.getExecutionStatus())
-				{
-					final TestCaseWrapper<TestCase> testResult = new TestCaseWrapper<TestCase>( testLinkTestCase, commaSeparatedValues, junitTestCase );
-					
-					final ExecutionStatus status = this.getJUnitExecutionStatus( junitTestCase, testClassOrTestName );
-					testResult.addCustomFieldAndStatus(value, status);
-					
-					String notes = this.getJUnitNotes( junitTestCase );
-					
-					try
-					{
-						final Attachment junitAttachment = this.getJUnitAttachment( junitFile );
-						testResult.addAttachment( junitAttachment );
-					}
-					catch ( IOException ioe )
-					{
-						notes += Messages.Results_JUnit_AddAttachmentsFail( ioe.getMessage() );
-						ioe.printStackTrace( listener.getLogger() );
-					}
-					
-					testResult.appendNotes( notes );
-					
-					this.addOrUpdate( testResult );
-				}
+				final Attachment junitAttachment = this.getJUnitAttachment( junitFile );
+				testResult.addAttachment( junitAttachment );
 			}
+			catch ( IOException ioe )
+			{
+				notes += Messages.Results_JUnit_AddAttachmentsFail( ioe.getMessage() );
+				ioe.printStackTrace( listener.getLogger() );
+			}
+			
+			testResult.appendNotes( notes );
+			
+			this.addOrUpdate( testResult );
 		}
 	}
 	
@@ -238,6 +268,7 @@ extends AbstractJUnitTestResultSeeker<TestCase>
 				temp.addAttachment(attachment);
 			}
 			temp.getCustomFieldAndStatus().putAll( testResult.getCustomFieldAndStatus() );
+			temp.addDuration( testResult.getDuration() );
 		}
 	}
 
@@ -26,6 +26,7 @@ package hudson.plugins.testlink.result.tap;
 import hudson.model.BuildListener;
 import hudson.plugins.testlink.parser.ParserException;
 import hudson.plugins.testlink.parser.tap.TAPParser;
+import hudson.plugins.testlink.result.KeyCustomFieldIndex;
 import hudson.plugins.testlink.result.TestCaseWrapper;
 import hudson.plugins.testlink.result.TestResultSeeker;
 import hudson.plugins.testlink.result.TestResultSeekerException;
@@ -49,7 +50,6 @@ import org.tap4j.model.TestSet;
 import org.tap4j.util.DirectiveValues;
 
 import br.eti.kinoshita.testlinkjavaapi.model.Attachment;
-import br.eti.kinoshita.testlinkjavaapi.model.CustomField;
 import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
 import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
 
@@ -81,6 +81,17 @@ extends TestResultSeeker<TestSet>
 		super(includePattern, automatedTestCases, keyCustomFieldName, listener);
 	}
 	
+	/**
+	 * @param includePattern
+	 * @param keyCustomFieldIndex
+	 * @param listener
+	 */
+	public TAPTestResultSeeker(String includePattern, KeyCustomFieldIndex keyCustomFieldIndex,
+			BuildListener listener)
+	{
+		super(includePattern, keyCustomFieldIndex, listener);
+	}
+	
 	/* (non-Javadoc)
 	 * @see hudson.plugins.testlink.result.TestResultSeeker#seek(java.io.File, java.lang.String)
 	 */
@@ -117,6 +128,33 @@ extends TestResultSeeker<TestSet>
 		return results;
 	}
 
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.result.TestResultSeeker#getParser()
+	 */
+	@Override
+	public TAPParser getParser()
+	{
+		return this.parser;
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.result.TestResultSeeker#processReport(java.lang.Object, java.io.File)
+	 */
+	@Override
+	public void processReport( Object report, File reportFile )
+	{
+		this.doTAPTestSet( (TestSet)report, reportFile );
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.result.TestResultSeeker#getResults()
+	 */
+	@Override
+	public Map<Integer, TestCaseWrapper<TestSet>> getResults()
+	{
+		return this.results;
+	}
+	
 	/**
 	 * Parses TAP report files to look for Test Results of TestLink 
 	 * Automated Test Cases.
@@ -167,9 +205,9 @@ extends TestResultSeeker<TestSet>
 			tapFileNameWithoutExtension = tapFileNameWithoutExtension.substring(0, tapFileNameWithoutExtension.lastIndexOf('.'));
 		}
 		
-		for ( br.eti.kinoshita.testlinkjavaapi.model.TestCase testLinkTestCase : automatedTestCases )
+		for ( KeyCustomFieldIndex.Entry entry : keyCustomFieldIndex.lookup( tapFileNameWithoutExtension ) )
 		{
-			this.findTestResult( tapFileNameWithoutExtension, tapTestSet, testLinkTestCase, tapFile );
+			this.findTestResult( tapFileNameWithoutExtension, tapTestSet, entry, tapFile );
 		}
 		
 	}
@@ -180,53 +218,42 @@ extends TestResultSeeker<TestSet>
 	protected void findTestResult( 
 		String tapFileNameWithoutExtension,
 		TestSet tapTestSet, 
-		TestCase testLinkTestCase, 
+		KeyCustomFieldIndex.Entry entry, 
 		File tapFile )
 	{
+		final TestCase testLinkTestCase = entry.getTestCase();
 		
-		final List<CustomField> customFields = testLinkTestCase.getCustomFields();
-		
-		final CustomField keyCustomField = this.getKeyCustomField( customFields );
-		if ( keyCustomField != null ) 
+		if ( ExecutionStatus.BLOCKED != testLinkTestCase.getExecutionStatus() )
 		{
-			final String[] commaSeparatedValues = this.split ( keyCustomField.getValue() );
+			final TestCaseWrapper<TestSet> testResult = new TestCaseWrapper<TestSet>( testLinkTestCase, entry.getCommaSeparatedValues(), tapTestSet );
 			
-			for ( String value : commaSeparatedValues )
+			final ExecutionStatus status = this.getTapExecutionStatus( tapTestSet );
+			testResult.addCustomFieldAndStatus(tapFileNameWithoutExtension, status);
+			
+			String notes = this.getTapNotes( tapTestSet );
+			
+			try
 			{
-				if ( tapFileNameWithoutExtension.equals(value) && ExecutionStatus.BLOCKED != testLinkTestCase.getExecutionStatus() )
+				List<Attachment> tapAttachments = this.getTapAttachments( testResult.getVersionId(), tapFile, tapTestSet );
+				
+				for( Attachment attachment : tapAttachments )
 				{
-					final TestCaseWrapper<TestSet> testResult = new TestCaseWrapper<TestSet>( testLinkTestCase, commaSeparatedValues, tapTestSet );
-					
-					final ExecutionStatus status = this.getTapExecutionStatus( tapTestSet );
-					testResult.addCustomFieldAndStatus(value, status);
-					
-					String notes = this.getTapNotes( tapTestSet );
-					
-					try
-					{
-						List<Attachment> tapAttachments = this.getTapAttachments( testResult.getVersionId(), tapFile, tapTestSet );
-						
-						for( Attachment attachment : tapAttachments )
-						{
-							testResult.addAttachment( attachment );
-						}
-					}
-					catch ( IOException ioe )
-					{
-						notes += Messages.Results_TAP_AddAttachmentsFail( ioe.getMessage() );
-						ioe.printStackTrace( listener.getLogger() );
-					}
-					
-					testResult.appendNotes( notes );
-					
-					String platform = this.retrievePlatform( tapTestSet );
-					
-					testResult.setPlatform(platform);
-					
-					this.addOrUpdate( testResult, tapFileNameWithoutExtension );
-					
+					testResult.addAttachment( attachment );
 				}
 			}
+			catch ( IOException ioe )
+			{
+				notes += Messages.Results_TAP_AddAttachmentsFail( ioe.getMessage() );
+				ioe.printStackTrace( listener.getLogger() );
+			}
+			
+			testResult.appendNotes( notes );
+			
+			String platform = this.retrievePlatform( tapTestSet );
+			
+			testResult.setPlatform(platform);
+			
+			this.addOrUpdate( testResult, tapFileNameWithoutExtension );
 		}
 	}
 
@@ -250,6 +277,7 @@ extends TestResultSeeker<TestSet>
 				temp.addAttachment(attachment);
 			}
 			temp.getCustomFieldAndStatus().putAll( testResult.getCustomFieldAndStatus() );
+			temp.addDuration( testResult.getDuration() );
 		}
 	}
 
@@ -421,13 +449,9 @@ extends TestResultSeeker<TestSet>
 		
 		List<Attachment> attachments = this.retrieveListOfTapAttachments( testSet );
 		
-		Attachment attachment = new Attachment();
+		Attachment attachment = this.getFileAttachment( tapReportFile );
 		
-		String fileContent = this.getBase64FileContent( tapReportFile );
-		attachment.setContent( fileContent );
 		attachment.setDescription( "TAP file " + tapReportFile );
-		attachment.setFileName( tapReportFile.getName() );
-		attachment.setFileSize( tapReportFile.length() );
 		attachment.setTitle( tapReportFile.getName() );
 		attachment.setFileType("text/plan");
 		
@@ -528,11 +552,12 @@ extends TestResultSeeker<TestSet>
 							
 							if ( file.exists() )
 							{
-								Attachment attachment = new Attachment();
+								final Attachment attachment;
 								
 								Object oContent = entryObjectMap.get("File-Content");
 								if ( oContent != null )
 								{
+									attachment = new Attachment();
 									attachment.setContent( ""+oContent );
 									try
 									{
@@ -545,9 +570,7 @@ extends TestResultSeeker<TestSet>
 								}
 								else
 								{
-									String fileContent = this.getBase64FileContent( file );
-									attachment.setContent( fileContent );
-									attachment.setFileSize( file.length() );
+									attachment = this.getFileAttachment( file );
 								}
 								
 								attachment.setFileName( ""+entryObjectMap.get("File-Name") );
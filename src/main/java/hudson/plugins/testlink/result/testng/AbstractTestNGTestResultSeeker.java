@@ -24,6 +24,7 @@
 package hudson.plugins.testlink.result.testng;
 
 import hudson.model.BuildListener;
+import hudson.plugins.testlink.result.KeyCustomFieldIndex;
 import hudson.plugins.testlink.result.TestResultSeeker;
 
 import java.io.File;
@@ -49,6 +50,12 @@ extends TestResultSeeker<T>
 		super(includePattern, automatedTestCases, keyCustomFieldName, listener);
 	}
 	
+	public AbstractTestNGTestResultSeeker(String includePattern,
+			KeyCustomFieldIndex keyCustomFieldIndex, BuildListener listener)
+	{
+		super(includePattern, keyCustomFieldIndex, listener);
+	}
+	
 	/**
 	 * Retrieves attachments for TestNG test cases.
 	 * 
@@ -60,13 +67,9 @@ extends TestResultSeeker<T>
 	)
 	throws IOException
 	{
-		Attachment attachment = new Attachment();
+		Attachment attachment = this.getFileAttachment( testNGReportFile );
 		
-		String fileContent = this.getBase64FileContent(testNGReportFile );
-		attachment.setContent( fileContent );
 		attachment.setDescription( "TestNG XML " + testNGReportFile.getName() );
-		attachment.setFileName( testNGReportFile.getName() );
-		attachment.setFileSize( testNGReportFile.length() );
 		attachment.setTitle( testNGReportFile.getName() );
 		attachment.setFileType("text/xml");
 		
@@ -29,6 +29,7 @@ import hudson.plugins.testlink.parser.testng.Suite;
 import hudson.plugins.testlink.parser.testng.Test;
 import hudson.plugins.testlink.parser.testng.TestMethod;
 import hudson.plugins.testlink.parser.testng.TestNGParser;
+import hudson.plugins.testlink.result.KeyCustomFieldIndex;
 import hudson.plugins.testlink.result.TestCaseWrapper;
 import hudson.plugins.testlink.result.TestResultSeekerException;
 import hudson.plugins.testlink.util.Messages;
@@ -42,7 +43,6 @@ import java.util.Map;
 import org.apache.commons.lang.StringUtils;
 
 import br.eti.kinoshita.testlinkjavaapi.model.Attachment;
-import br.eti.kinoshita.testlinkjavaapi.model.CustomField;
 import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
 import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
 
@@ -71,6 +71,12 @@ extends AbstractTestNGTestResultSeeker<hudson.plugins.testlink.parser.testng.Cla
 		super(includePattern, automatedTestCases, keyCustomFieldName, listener);
 	}
 	
+	public TestNGClassesTestResultSeeker(String includePattern, KeyCustomFieldIndex keyCustomFieldIndex,
+			BuildListener listener)
+	{
+		super(includePattern, keyCustomFieldIndex, listener);
+	}
+	
 	/* (non-Javadoc)
 	 * @see hudson.plugins.testlink.result.TestResultSeeker#seek(java.io.File, java.lang.String)
 	 */
@@ -107,6 +113,33 @@ extends AbstractTestNGTestResultSeeker<hudson.plugins.testlink.parser.testng.Cla
 		return this.results;
 	}
 
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.result.TestResultSeeker#getParser()
+	 */
+	@Override
+	public TestNGParser getParser()
+	{
+		return this.parser;
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.result.TestResultSeeker#processReport(java.lang.Object, java.io.File)
+	 */
+	@Override
+	public void processReport( Object report, File reportFile )
+	{
+		this.processTestNGSuite( (Suite)report, reportFile );
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.result.TestResultSeeker#getResults()
+	 */
+	@Override
+	public Map<Integer, TestCaseWrapper<hudson.plugins.testlink.parser.testng.Class>> getResults()
+	{
+		return this.results;
+	}
+	
 	/**
 	 * Processes TestNG reports.
 	 */
@@ -171,9 +204,9 @@ extends AbstractTestNGTestResultSeeker<hudson.plugins.testlink.parser.testng.Cla
 		
 		if ( ! StringUtils.isBlank( testNGTestClassName ) )
 		{
-			for ( br.eti.kinoshita.testlinkjavaapi.model.TestCase testLinkTestCase : this.automatedTestCases )
+			for ( KeyCustomFieldIndex.Entry entry : keyCustomFieldIndex.lookup( testNGTestClassName ) )
 			{
-				this.findTestResults( testNGSuite, clazz, testLinkTestCase, testNGFile );
+				this.findTestResults( testNGSuite, clazz, entry, testNGFile );
 			}
 		}
 	}
@@ -181,43 +214,34 @@ extends AbstractTestNGTestResultSeeker<hudson.plugins.testlink.parser.testng.Cla
 	/**
 	 * Looks for test results in a TestNG test case.
 	 */
-	protected void findTestResults( Suite testNGSuite, hudson.plugins.testlink.parser.testng.Class clazz, TestCase testLinkTestCase, File testNGFile )
+	protected void findTestResults( Suite testNGSuite, hudson.plugins.testlink.parser.testng.Class clazz, KeyCustomFieldIndex.Entry entry, File testNGFile )
 	{
-		final List<CustomField> customFields = testLinkTestCase.getCustomFields();
-
-		final CustomField keyCustomField = this.getKeyCustomField( customFields );
-		if ( keyCustomField != null )
+		final TestCase testLinkTestCase = entry.getTestCase();
+		
+		if ( ExecutionStatus.BLOCKED != testLinkTestCase.getExecutionStatus() )
 		{
-			final String[] commaSeparatedValues = this.split ( keyCustomField.getValue() );
+			final TestCaseWrapper<hudson.plugins.testlink.parser.testng.Class> testResult = 
+				new TestCaseWrapper<hudson.plugins.testlink.parser.testng.Class>( testLinkTestCase, entry.getCommaSeparatedValues(), clazz );
+			
+			final ExecutionStatus status = this.getTestNGExecutionStatus( clazz );
+			testResult.addCustomFieldAndStatus(clazz.getName(), status);
 			
-			for ( String value : commaSeparatedValues )
+			String notes = this.getTestNGNotes( testNGSuite, clazz );
+			
+			try
 			{
-				if ( clazz.getName().equals( value ) && ExecutionStatus.BLOCKED != testLinkTestCase.getExecutionStatus() )
-				{
-					final TestCaseWrapper<hudson.plugins.testlink.parser.testng.Class> testResult = 
-						new TestCaseWrapper<hudson.plugins.testlink.parser.testng.Class>( testLinkTestCase, commaSeparatedValues, clazz );
-					
-					final ExecutionStatus status = this.getTestNGExecutionStatus( clazz );
-					testResult.addCustomFieldAndStatus(value, status);
-					
-					String notes = this.getTestNGNotes( testNGSuite, clazz );
-					
-					try
-					{
-						Attachment testNGAttachment = this.getTestNGAttachment( testNGFile );
-						testResult.addAttachment( testNGAttachment );
-					}
-					catch ( IOException ioe )
-					{
-						notes += Messages.Results_TestNG_AddAttachmentsFail( ioe.getMessage() );
-						ioe.printStackTrace( listener.getLogger() );
-					}
-					
-					testResult.appendNotes( notes );
-					
-					this.addOrUpdate( testResult );
-				}
-			} 
+				Attachment testNGAttachment = this.getTestNGAttachment( testNGFile );
+				testResult.addAttachment( testNGAttachment );
+			}
+			catch ( IOException ioe )
+			{
+				notes += Messages.Results_TestNG_AddAttachmentsFail( ioe.getMessage() );
+				ioe.printStackTrace( listener.getLogger() );
+			}
+			
+			testResult.appendNotes( notes );
+			
+			this.addOrUpdate( testResult );
 		} 
 	}
 	
@@ -241,6 +265,7 @@ extends AbstractTestNGTestResultSeeker<hudson.plugins.testlink.parser.testng.Cla
 				temp.addAttachment(attachment);
 			}
 			temp.getCustomFieldAndStatus().putAll( testResult.getCustomFieldAndStatus() );
+			temp.addDuration( testResult.getDuration() );
 		}
 	}
 
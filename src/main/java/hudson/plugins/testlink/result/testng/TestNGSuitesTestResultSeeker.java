@@ -29,6 +29,7 @@ import hudson.plugins.testlink.parser.testng.Suite;
 import hudson.plugins.testlink.parser.testng.Test;
 import hudson.plugins.testlink.parser.testng.TestMethod;
 import hudson.plugins.testlink.parser.testng.TestNGParser;
+import hudson.plugins.testlink.result.KeyCustomFieldIndex;
 import hudson.plugins.testlink.result.TestCaseWrapper;
 import hudson.plugins.testlink.result.TestResultSeekerException;
 import hudson.plugins.testlink.util.Messages;
@@ -36,13 +37,11 @@ import hudson.plugins.testlink.util.Messages;
 import java.io.File;
 import java.io.IOException;
 import java.util.LinkedHashMap;
-import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 
 import br.eti.kinoshita.testlinkjavaapi.model.Attachment;
-import br.eti.kinoshita.testlinkjavaapi.model.CustomField;
 import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
 import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
 
@@ -68,6 +67,12 @@ extends AbstractTestNGTestResultSeeker<Suite>
 	{
 		super(includePattern, automatedTestCases, keyCustomFieldName, listener);
 	}
+	
+	public TestNGSuitesTestResultSeeker(String includePattern,
+			KeyCustomFieldIndex keyCustomFieldIndex, BuildListener listener)
+	{
+		super(includePattern, keyCustomFieldIndex, listener);
+	}
 
 	/* (non-Javadoc)
 	 * @see hudson.plugins.testlink.result.TestResultSeeker#seek(java.io.File)
@@ -105,6 +110,33 @@ extends AbstractTestNGTestResultSeeker<Suite>
 		return this.results;
 	}
 
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.result.TestResultSeeker#getParser()
+	 */
+	@Override
+	public TestNGParser getParser()
+	{
+		return this.parser;
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.result.TestResultSeeker#processReport(java.lang.Object, java.io.File)
+	 */
+	@Override
+	public void processReport( Object report, File reportFile )
+	{
+		this.processTestNGSuite( (Suite)report, reportFile );
+	}
+	
+	/* (non-Javadoc)
+	 * @see hudson.plugins.testlink.result.TestResultSeeker#getResults()
+	 */
+	@Override
+	public Map<Integer, TestCaseWrapper<Suite>> getResults()
+	{
+		return this.results;
+	}
+	
 	/**
 	 * Processes TestNG reports.
 	 */
@@ -136,9 +168,9 @@ extends AbstractTestNGTestResultSeeker<Suite>
 		
 		if ( ! StringUtils.isBlank( suiteName ) )
 		{
-			for(TestCase testLinkTestCase : automatedTestCases )
+			for( KeyCustomFieldIndex.Entry entry : keyCustomFieldIndex.lookup( suiteName ) )
 			{
-				this.findTestResults( testNGSuite, testLinkTestCase, testNGFile );
+				this.findTestResults( testNGSuite, entry, testNGFile );
 			}
 		}
 	}
@@ -146,43 +178,34 @@ extends AbstractTestNGTestResultSeeker<Suite>
 	/**
 	 * Looks for test results in a TestNG suite.
 	 */
-	protected void findTestResults( Suite testNGSuite, TestCase testLinkTestCase,
+	protected void findTestResults( Suite testNGSuite, KeyCustomFieldIndex.Entry entry,
 			File testNGFile )
 	{
-		final List<CustomField> customFields = testLinkTestCase.getCustomFields();
-		final CustomField keyCustomField = this.getKeyCustomField( customFields );
-		if ( keyCustomField != null ) 
-		{
+		final TestCase testLinkTestCase = entry.getTestCase();
 		
-			final String[] commaSeparatedValues = this.split ( keyCustomField.getValue() );
+		if ( ExecutionStatus.BLOCKED != testLinkTestCase.getExecutionStatus() )
+		{
+			final TestCaseWrapper<Suite> testResult = new TestCaseWrapper<Suite>( testLinkTestCase, entry.getCommaSeparatedValues(), testNGSuite );
+			
+			final ExecutionStatus status = this.getTestNGExecutionStatus( testNGSuite );
+			testResult.addCustomFieldAndStatus(testNGSuite.getName(), status);
+			
+			String notes = this.getTestNGNotes( testNGSuite );
 			
-			for ( String value : commaSeparatedValues )
+			try
 			{
-				if ( testNGSuite.getName().equals( value ) && ExecutionStatus.BLOCKED != testLinkTestCase.getExecutionStatus())
-				{
-					final TestCaseWrapper<Suite> testResult = new TestCaseWrapper<Suite>( testLinkTestCase, commaSeparatedValues, testNGSuite );
-					
-					final ExecutionStatus status = this.getTestNGExecutionStatus( testNGSuite );
-					testResult.addCustomFieldAndStatus(value, status);
-					
-					String notes = this.getTestNGNotes( testNGSuite );
-					
-					try
-					{
-						final Attachment testNGAttachment = this.getTestNGAttachment( testNGFile );
-						testResult.addAttachment( testNGAttachment );
-					}
-					catch ( IOException ioe )
-					{
-						notes += Messages.Results_TestNG_AddAttachmentsFail( ioe.getMessage() );
-						ioe.printStackTrace( listener.getLogger() );
-					}
-					
-					testResult.appendNotes( notes );
-					
-					this.addOrUpdate( testResult );
-				}
+				final Attachment testNGAttachment = this.getTestNGAttachment( testNGFile );
+				testResult.addAttachment( testNGAttachment );
 			}
+			catch ( IOException ioe )
+			{
+				notes += Messages.Results_TestNG_AddAttachmentsFail( ioe.getMessage() );
+				ioe.printStackTrace( listener.getLogger() );
+			}
+			
+			testResult.appendNotes( notes );
+			
+			this.addOrUpdate( testResult );
 		}
 	}
 
@@ -206,6 +229,7 @@ extends AbstractTestNGTestResultSeeker<Suite>
 				temp.addAttachment(attachment);
 			}
 			temp.getCustomFieldAndStatus().putAll( testResult.getCustomFieldAndStatus() );
+			temp.addDuration( testResult.getDuration() );
 		}
 	}
 
@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.util;
+
+import hudson.plugins.testlink.result.Report;
+import hudson.plugins.testlink.result.TestCaseRecord;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
+import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
+
+/**
+ * Keeps only the Test Cases that failed or were blocked before, so that a 
+ * build runs again only what did not pass.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public final class FailedTestCasesFilter
+{
+
+	/**
+	 * Takes the failed Test Cases from the report of the previous build.
+	 */
+	public static final String RERUN_REPORT = "report";
+	
+	/**
+	 * Takes the failed Test Cases from their last execution status in 
+	 * TestLink, returned with the automated Test Cases.
+	 */
+	public static final String RERUN_TESTLINK = "testlink";
+	
+	private FailedTestCasesFilter()
+	{
+		super();
+	}
+	
+	/**
+	 * @param report build report.
+	 * @return ids of the Test Cases of the report that failed or were blocked.
+	 */
+	public static Set<Integer> getFailedTestCases( Report report )
+	{
+		final Set<Integer> ids = new HashSet<Integer>();
+		for ( TestCaseRecord record : report.getTestCases() )
+		{
+			if ( record.getExecutionStatus() == ExecutionStatus.FAILED || 
+				 record.getExecutionStatus() == ExecutionStatus.BLOCKED )
+			{
+				ids.add( record.getId() );
+			}
+		}
+		return ids;
+	}
+	
+	/**
+	 * @param testCases Test Cases.
+	 * @param failedTestCases ids of the Test Cases to keep.
+	 * @return Test Cases whose ids are in the set, in the same order.
+	 */
+	public static TestCase[] filter( TestCase[] testCases, Set<Integer> failedTestCases )
+	{
+		final List<TestCase> filtered = new ArrayList<TestCase>();
+		for ( TestCase testCase : testCases )
+		{
+			if ( failedTestCases.contains( testCase.getId() ) )
+			{
+				filtered.add( testCase );
+			}
+		}
+		return filtered.toArray( new TestCase[ filtered.size() ] );
+	}
+	
+}
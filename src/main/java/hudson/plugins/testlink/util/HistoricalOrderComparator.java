@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.util;
+
+import java.util.Comparator;
+import java.util.Map;
+
+import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
+
+/**
+ * Compares Test Cases by a weight taken from the earlier builds, like their 
+ * duration or how often they failed, the highest weight first. Test Cases 
+ * without a weight come after the ones with a weight, and Test Cases with 
+ * the same weight are compared by another comparator, usually by execution 
+ * order.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class HistoricalOrderComparator 
+implements Comparator<TestCase>
+{
+
+	/**
+	 * Orders the Test Cases by execution order only.
+	 */
+	public static final String ORDER_EXECUTION = "execution";
+	
+	/**
+	 * Orders the Test Cases by their average duration in the last builds, 
+	 * the longest first.
+	 */
+	public static final String ORDER_DURATION = "duration";
+	
+	/**
+	 * Orders the Test Cases by how often they failed in the last builds, the 
+	 * likeliest failure first.
+	 */
+	public static final String ORDER_FAILURE = "failure";
+	
+	private final Map<Integer, Double> weights;
+	
+	private final Comparator<TestCase> fallback;
+	
+	/**
+	 * @param weights Test Case id -> weight.
+	 * @param fallback comparator of the Test Cases with the same weight.
+	 */
+	public HistoricalOrderComparator( Map<Integer, Double> weights, Comparator<TestCase> fallback )
+	{
+		super();
+		this.weights = weights;
+		this.fallback = fallback;
+	}
+	
+	public int compare( TestCase o1, TestCase o2 )
+	{
+		final Double w1 = o1 != null ? this.weights.get( o1.getId() ) : null;
+		final Double w2 = o2 != null ? this.weights.get( o2.getId() ) : null;
+		if ( w1 != null && w2 != null )
+		{
+			final int c = Double.compare( w2, w1 );
+			if ( c != 0 )
+			{
+				return c;
+			}
+		}
+		else if ( w1 != null )
+		{
+			return -1;
+		}
+		else if ( w2 != null )
+		{
+			return 1;
+		}
+		return this.fallback.compare( o1, o2 );
+	}
+	
+}
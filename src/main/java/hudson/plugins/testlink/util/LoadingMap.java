@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.util;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Map of objects loaded once per key, such as the trend or the history of a 
+ * project. The first thread asking for a key loads its value while other 
+ * threads asking for the same key wait for it, as in 
+ * {@link hudson.plugins.testlink.GraphCache}. The lock of the map is only 
+ * held to find or add the entry of a key, so loading the value of a key 
+ * does not block the threads asking for the other keys. A value that fails 
+ * to load is not kept, and is loaded again by the next thread.
+ * 
+ * <p>The keys are weakly referenced, so the values of deleted projects are 
+ * dropped with them.</p>
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class LoadingMap<K, V>
+{
+
+	private final Map<K, FutureTask<V>> entries = new WeakHashMap<K, FutureTask<V>>();
+	
+	/**
+	 * Gets the value of a key, loading it if it is not in the map yet.
+	 * 
+	 * @param key the key.
+	 * @param loader loads the value, only called by the first thread asking 
+	 * for the key.
+	 * @return the value of the key.
+	 */
+	public V get( K key, Callable<V> loader )
+	{
+		final FutureTask<V> task;
+		boolean owner = false;
+		synchronized ( this )
+		{
+			FutureTask<V> existing = this.entries.get( key );
+			if ( existing == null )
+			{
+				existing = new FutureTask<V>( new Loader<V>( loader ) );
+				this.entries.put( key, existing );
+				owner = true;
+			}
+			task = existing;
+		}
+		
+		if ( owner )
+		{
+			task.run();
+		}
+		
+		boolean interrupted = false;
+		try
+		{
+			while ( true )
+			{
+				try
+				{
+					return task.get();
+				}
+				catch ( InterruptedException ie )
+				{
+					// The value is still needed, so wait for it
+					interrupted = true;
+				}
+				catch ( ExecutionException ee )
+				{
+					synchronized ( this )
+					{
+						if ( this.entries.get( key ) == task )
+						{
+							this.entries.remove( key );
+						}
+					}
+					final Throwable cause = ee.getCause();
+					if ( cause instanceof RuntimeException )
+					{
+						throw (RuntimeException) cause;
+					}
+					if ( cause instanceof Error )
+					{
+						throw (Error) cause;
+					}
+					throw new RuntimeException( cause );
+				}
+			}
+		}
+		finally
+		{
+			if ( interrupted )
+			{
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * Drops the loader once called, as the loader of a project refers to the 
+	 * project, which is the weak key of its own entry.
+	 */
+	private static class Loader<V> 
+	implements Callable<V>
+	{
+		private Callable<V> callable;
+		
+		public Loader( Callable<V> callable )
+		{
+			this.callable = callable;
+		}
+		
+		public V call() 
+		throws Exception
+		{
+			final Callable<V> callable = this.callable;
+			this.callable = null;
+			return callable.call();
+		}
+	}
+	
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+/**
+ * Writes complete lines to a shared log, each one starting with a prefix. 
+ * The lines of several streams writing to the same log at the same time 
+ * are not mixed, as each line is written at once while holding the lock of 
+ * the log.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class PrefixedOutputStream 
+extends OutputStream
+{
+
+	private final byte[] prefix;
+	
+	private final PrintStream log;
+	
+	/**
+	 * Current line, without the prefix.
+	 */
+	private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+	
+	/**
+	 * @param prefix prefix of each line.
+	 * @param log shared log.
+	 */
+	public PrefixedOutputStream( String prefix, PrintStream log )
+	{
+		super();
+		this.prefix = prefix.getBytes();
+		this.log = log;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.io.OutputStream#write(int)
+	 */
+	@Override
+	public synchronized void write( int b ) 
+	throws IOException
+	{
+		this.line.write( b );
+		if ( b == '\n' )
+		{
+			this.writeLine();
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.io.OutputStream#write(byte[], int, int)
+	 */
+	@Override
+	public synchronized void write( byte[] b, int off, int len ) 
+	throws IOException
+	{
+		final int end = off + len;
+		int start = off;
+		for ( int i = off ; i < end ; ++i )
+		{
+			if ( b[i] == '\n' )
+			{
+				this.line.write( b, start, i + 1 - start );
+				this.writeLine();
+				start = i + 1;
+			}
+		}
+		this.line.write( b, start, end - start );
+	}
+	
+	/**
+	 * Writes the incomplete line, if any, followed by a line break.
+	 */
+	@Override
+	public synchronized void flush() 
+	throws IOException
+	{
+		if ( this.line.size() > 0 )
+		{
+			this.line.write( '\n' );
+			this.writeLine();
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.io.OutputStream#close()
+	 */
+	@Override
+	public void close() 
+	throws IOException
+	{
+		this.flush();
+	}
+	
+	private void writeLine()
+	{
+		synchronized ( this.log )
+		{
+			this.log.write( this.prefix, 0, this.prefix.length );
+			this.log.write( this.line.toByteArray(), 0, this.line.size() );
+			this.log.flush();
+		}
+		this.line.reset();
+	}
+	
+}
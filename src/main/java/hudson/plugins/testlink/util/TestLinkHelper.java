@@ -24,9 +24,12 @@
 package hudson.plugins.testlink.util;
 
 import hudson.EnvVars;
+import hudson.Util;
 import hudson.model.BuildListener;
 import hudson.plugins.testlink.TestLinkBuildAction;
+import hudson.plugins.testlink.result.KeyCustomFieldIndex;
 import hudson.plugins.testlink.result.Report;
+import hudson.plugins.testlink.result.TestCaseRecord;
 
 import java.util.HashMap;
 import java.util.List;
@@ -64,6 +67,12 @@ public final class TestLinkHelper
 	private static final String TESTLINK_BUILD_NAME_ENVVAR = "TESTLINK_BUILD_NAME";
 	private static final String TESTLINK_TESTPLAN_NAME_ENVVAR = "TESTLINK_TESTPLAN_NAME";
 	private static final String TESTLINK_TESTPROJECT_NAME_ENVVAR = "TESTLINK_TESTPROJECT_NAME";
+	private static final String TESTLINK_TESTCASE_IDS_ENVVAR = "TESTLINK_TESTCASE_IDS";
+	private static final String TESTLINK_TESTCASE_NAMES_ENVVAR = "TESTLINK_TESTCASE_NAMES";
+	private static final String TESTLINK_TESTCASE_KEYS_ENVVAR = "TESTLINK_TESTCASE_KEYS";
+	private static final String TESTLINK_TESTCASE_COUNT_ENVVAR = "TESTLINK_TESTCASE_COUNT";
+	private static final String TESTLINK_BATCH_NUMBER_ENVVAR = "TESTLINK_BATCH_NUMBER";
+	private static final String TESTLINK_BATCH_MANIFEST_ENVVAR = "TESTLINK_BATCH_MANIFEST";
 	
 	// Used for HTTP basic auth
 	private static final String BASIC_HTTP_PASSWORD = "basicPassword";
@@ -285,6 +294,97 @@ public final class TestLinkHelper
 		}
 	}
 	
+	/**
+	 * <p>Creates the environment variables of a batch of Test Cases, executed 
+	 * by a single invocation of the iterative build steps.</p>
+	 * 
+	 * <p>TESTLINK_TESTCASE_IDS and TESTLINK_TESTCASE_KEYS contain the comma 
+	 * separated ids and key custom field values of the Test Cases of the 
+	 * batch. As names may contain commas, TESTLINK_TESTCASE_NAMES contains 
+	 * the names one per line. TESTLINK_BATCH_MANIFEST contains the path of a 
+	 * file in the workspace with a line per Test Case, as created by 
+	 * {@link #createBatchManifest(TestCase[], String)}.</p>
+	 * 
+	 * @param testCases TestLink Test Cases of the batch.
+	 * @param batchNumber number of the batch, starting at 1.
+	 * @param manifest path of the manifest file of the batch.
+	 * @param keyCustomFieldName name of the key custom field.
+	 * @param testProject TestLink Test Project.
+	 * @param testPlan TestLink Test Plan.
+	 * @param build TestLink Build.
+	 * @return Map (name, value) of environment variables.
+	 * @since 3.0.3
+	 */
+	public static Map<String, String> createBatchEnvironmentVariables( TestCase[] testCases, int batchNumber, String manifest, String keyCustomFieldName, TestProject testProject, TestPlan testPlan, Build build )
+	{
+		final Map<String, String> testLinkEnvVar = new HashMap<String, String>();
+		
+		final StringBuilder ids = new StringBuilder();
+		final StringBuilder names = new StringBuilder();
+		final StringBuilder keys = new StringBuilder();
+		for ( TestCase testCase : testCases )
+		{
+			if ( ids.length() > 0 )
+			{
+				ids.append( ',' );
+				names.append( '\n' );
+			}
+			ids.append( testCase.getId() );
+			names.append( testCase.getName() );
+			for ( String key : getKeyCustomFieldValues( testCase, keyCustomFieldName ) )
+			{
+				if ( keys.length() > 0 )
+				{
+					keys.append( ',' );
+				}
+				keys.append( key );
+			}
+		}
+		
+		testLinkEnvVar.put( TESTLINK_TESTCASE_IDS_ENVVAR, ids.toString() );
+		testLinkEnvVar.put( TESTLINK_TESTCASE_NAMES_ENVVAR, names.toString() );
+		testLinkEnvVar.put( TESTLINK_TESTCASE_KEYS_ENVVAR, keys.toString() );
+		testLinkEnvVar.put( TESTLINK_TESTCASE_COUNT_ENVVAR, Integer.toString( testCases.length ) );
+		testLinkEnvVar.put( TESTLINK_BATCH_NUMBER_ENVVAR, Integer.toString( batchNumber ) );
+		testLinkEnvVar.put( TESTLINK_BATCH_MANIFEST_ENVVAR, manifest );
+		testLinkEnvVar.put( TESTLINK_BUILD_NAME_ENVVAR, build.getName() );
+		testLinkEnvVar.put( TESTLINK_TESTPLAN_NAME_ENVVAR, testPlan.getName() );
+		testLinkEnvVar.put( TESTLINK_TESTPROJECT_NAME_ENVVAR, testProject.getName() );
+		
+		return testLinkEnvVar;
+	}
+	
+	/**
+	 * Creates the manifest of a batch of Test Cases: a line per Test Case 
+	 * with its id, its key custom field values separated by commas and its 
+	 * name, separated by tabs.
+	 * 
+	 * @param testCases TestLink Test Cases of the batch.
+	 * @param keyCustomFieldName name of the key custom field.
+	 * @return manifest contents.
+	 * @since 3.0.3
+	 */
+	public static String createBatchManifest( TestCase[] testCases, String keyCustomFieldName )
+	{
+		final StringBuilder manifest = new StringBuilder();
+		for ( TestCase testCase : testCases )
+		{
+			manifest.append( testCase.getId() ).append( '\t' );
+			manifest.append( StringUtils.join( getKeyCustomFieldValues( testCase, keyCustomFieldName ), "," ) ).append( '\t' );
+			manifest.append( StringUtils.defaultString( testCase.getName() ).replaceAll( "[\\t\\r\\n]+", " " ) ).append( '\n' );
+		}
+		return manifest.toString();
+	}
+	
+	/**
+	 * Gets the trimmed values of the key custom field of a Test Case.
+	 */
+	private static String[] getKeyCustomFieldValues( TestCase testCase, String keyCustomFieldName )
+	{
+		final CustomField keyCustomField = KeyCustomFieldIndex.getKeyCustomField( testCase.getCustomFields(), keyCustomFieldName );
+		return keyCustomField != null ? KeyCustomFieldIndex.split( keyCustomField.getValue() ) : new String[0];
+	}
+	
 	/**
 	 * Creates EnvVars for a TestLink Test Case.
 	 * 
@@ -318,28 +418,139 @@ public final class TestLinkHelper
 			Report testLinkReport,
 			Report previous) 
 	{
+		return createReportSummary(
+			testLinkReport.getBuild(), 
+			new int[] { 
+				testLinkReport.getTestsTotal(), 
+				testLinkReport.getTestsPassed(), 
+				testLinkReport.getTestsFailed(), 
+				testLinkReport.getTestsBlocked(), 
+				testLinkReport.getTestsNotRun() }, 
+			previous == null ? null : new int[] { 
+				previous.getTestsTotal(), 
+				previous.getTestsPassed(), 
+				previous.getTestsFailed(), 
+				previous.getTestsBlocked(), 
+				previous.getTestsNotRun() } );
+	}
+	
+	/**
+	 * Creates Report Summary out of the counters kept in the build actions, 
+	 * without loading the reports.
+	 * 
+	 * @param action TestLink build action
+	 * @param previous Previous TestLink build action
+	 * @return Report Summary
+	 * @since 3.0.3
+	 */
+	public static String createReportSummary(
+			TestLinkBuildAction action,
+			TestLinkBuildAction previous) 
+	{
+		return createReportSummary(
+			action.getTestLinkBuild(), 
+			new int[] { 
+				action.getTestsTotal(), 
+				action.getTestsPassed(), 
+				action.getTestsFailed(), 
+				action.getTestsBlocked(), 
+				action.getTestsNotRun() }, 
+			previous == null ? null : new int[] { 
+				previous.getTestsTotal(), 
+				previous.getTestsPassed(), 
+				previous.getTestsFailed(), 
+				previous.getTestsBlocked(), 
+				previous.getTestsNotRun() } );
+	}
+	
+	/**
+	 * Creates Report Summary out of the counters of a build action and of the 
+	 * previous build, both kept in the build action, without loading any 
+	 * other build.
+	 * 
+	 * @param action TestLink build action
+	 * @return Report Summary
+	 * @since 3.0.3
+	 */
+	public static String createReportSummary(
+			TestLinkBuildAction action) 
+	{
+		return createReportSummary(
+			action.getTestLinkBuild(), 
+			new int[] { 
+				action.getTestsTotal(), 
+				action.getTestsPassed(), 
+				action.getTestsFailed(), 
+				action.getTestsBlocked(), 
+				action.getTestsNotRun() }, 
+			! action.hasPreviousTests() ? null : new int[] { 
+				action.getPreviousTestsTotal(), 
+				action.getPreviousTestsPassed(), 
+				action.getPreviousTestsFailed(), 
+				action.getPreviousTestsBlocked(), 
+				action.getPreviousTestsNotRun() } ) 
+			+ createChangesSummary( action );
+	}
+	
+	/**
+	 * Creates the summary of the differences with the previous build, 
+	 * linking to the page that lists them.
+	 * 
+	 * @param action TestLink build action
+	 * @return Changes Summary, or an empty String if the differences were 
+	 * not counted
+	 * @since 3.0.3
+	 */
+	private static String createChangesSummary(
+			TestLinkBuildAction action )
+	{
+		if ( ! action.hasChanges() )
+		{
+			return "";
+		}
 		StringBuilder builder = new StringBuilder();
-		builder.append("<p><b>"+Messages.ReportSummary_Summary_BuildID(testLinkReport.getBuild().getId())+"</b></p>");
-		builder.append("<p><b>"+Messages.ReportSummary_Summary_BuildName(testLinkReport.getBuild().getName())+"</b></p>");
-		builder.append("<p><a href=\"" + TestLinkBuildAction.URL_NAME + "\">");
+		builder.append("<p><a href=\"" + TestLinkBuildAction.URL_NAME + "/changes\">");
+		builder.append( Messages.ReportSummary_Changes_Text(
+			action.getNewFailures(), 
+			action.getFixed(), 
+			action.getStillFailing(), 
+			action.getAdded(), 
+			action.getRemoved()
+		) );
+		builder.append("</p>");
+		return builder.toString();
+	}
+	
+	/**
+	 * Creates Report Summary.
+	 * 
+	 * @param build TestLink Build
+	 * @param current total, passed, failed, blocked and not run tests
+	 * @param previous previous total, passed, failed, blocked and not run 
+	 * tests, or <code>null</code>
+	 * @return Report Summary
+	 */
+	private static String createReportSummary(
+			Build build, 
+			int[] current, 
+			int[] previous )
+	{
+		if ( previous == null )
+		{
+			previous = current;
+		}
 		
-		Integer total = testLinkReport.getTestsTotal();
-		Integer previousTotal = previous != null ? previous.getTestsTotal() : total;
-		Integer passed = testLinkReport.getTestsPassed();
-		Integer previousPassed = previous != null ? previous.getTestsPassed() : passed;
-		Integer failed = testLinkReport.getTestsFailed();
-		Integer previousFailed = previous != null ? previous.getTestsFailed() : failed;
-		Integer blocked = testLinkReport.getTestsBlocked();
-		Integer previousBlocked = previous != null ? previous.getTestsBlocked() : blocked;
-		Integer notRun = testLinkReport.getTestsNotRun();
-		Integer previousNotRun = previous != null ? previous.getTestsNotRun() : notRun;
+		StringBuilder builder = new StringBuilder();
+		builder.append("<p><b>"+Messages.ReportSummary_Summary_BuildID(build != null ? build.getId() : null)+"</b></p>");
+		builder.append("<p><b>"+Messages.ReportSummary_Summary_BuildName(build != null ? build.getName() : null)+"</b></p>");
+		builder.append("<p><a href=\"" + TestLinkBuildAction.URL_NAME + "\">");
 		
 		builder.append( Messages.ReportSummary_Summary_Text(
-			 total + getPlusSignal(total, previousTotal), 
-			 passed + getPlusSignal(passed, previousPassed), 
-			 failed + getPlusSignal(failed, previousFailed), 
-			 blocked + getPlusSignal(blocked, previousBlocked), 
-			 notRun + getPlusSignal(notRun, previousNotRun)
+			 current[0] + getPlusSignal(current[0], previous[0]), 
+			 current[1] + getPlusSignal(current[1], previous[1]), 
+			 current[2] + getPlusSignal(current[2], previous[2]), 
+			 current[3] + getPlusSignal(current[3], previous[3]), 
+			 current[4] + getPlusSignal(current[4], previous[4])
 		) );
 		
         builder.append("</p>");
@@ -374,13 +585,13 @@ public final class TestLinkHelper
 		builder.append(Messages.ReportSummary_Details_ExecutionStatus());
 		builder.append("</th></tr>\n");
 		
-        for(TestCase tc: report.getTestCases() )
+        for(TestCaseRecord tc: report.getTestCases() )
         {
         	builder.append("<tr>\n");
         	
         	builder.append("<td>"+tc.getId()+"</td>");
         	builder.append("<td>"+tc.getVersion()+"</td>");
-        	builder.append("<td>"+tc.getName()+"</td>");
+        	builder.append("<td>"+Util.xmlEscape(tc.getName())+"</td>");
         	builder.append("<td>"+tc.getTestProjectId()+"</td>");
     		builder.append("<td>"+TestLinkHelper.getExecutionStatusTextColored( tc.getExecutionStatus() )+"</td>\n");
         	
@@ -0,0 +1,135 @@
+/* 
+ * The MIT License
+ * 
+ * Copyright (c) 2010 Bruno P. Kinoshita <http://www.kinoshita.eti.br>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.XmlFile;
+
+import java.io.File;
+import java.io.IOException;
+
+import br.eti.kinoshita.testlinkjavaapi.model.CustomField;
+import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
+
+/**
+ * Tests CustomFieldCache.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestCustomFieldCache 
+extends junit.framework.TestCase
+{
+
+	private static final long TTL = 60000L;
+	
+	private TestCase testCase;
+	
+	private CustomField customField;
+	
+	public void setUp()
+	{
+		this.testCase = new TestCase();
+		this.testCase.setId( 10 );
+		this.testCase.setVersion( 1 );
+		
+		this.customField = new CustomField();
+		this.customField.setName( "testCustomField" );
+		this.customField.setValue( "br.eti.kinoshita.Test" );
+	}
+	
+	public void testValueIsReusedForTheSameVersion()
+	{
+		CustomFieldCache cache = new CustomFieldCache( null, 10 );
+		assertNull( cache.get( "TestLink", this.testCase, "testCustomField", TTL ) );
+		
+		cache.put( "TestLink", this.testCase, "testCustomField", this.customField );
+		
+		assertSame( this.customField, cache.get( "TestLink", this.testCase, "testCustomField", TTL ) );
+		assertNull( cache.get( "Other TestLink", this.testCase, "testCustomField", TTL ) );
+		assertNull( cache.get( "TestLink", this.testCase, "otherCustomField", TTL ) );
+	}
+	
+	public void testNewerVersionInvalidatesValue()
+	{
+		CustomFieldCache cache = new CustomFieldCache( null, 10 );
+		cache.put( "TestLink", this.testCase, "testCustomField", this.customField );
+		
+		this.testCase.setVersion( 2 );
+		
+		assertNull( cache.get( "TestLink", this.testCase, "testCustomField", TTL ) );
+		assertEquals( 0, cache.size() );
+	}
+	
+	public void testExpiredValueIsRemoved()
+	{
+		CustomFieldCache cache = new CustomFieldCache( null, 10 );
+		cache.put( "TestLink", this.testCase, "testCustomField", this.customField );
+		
+		assertNull( cache.get( "TestLink", this.testCase, "testCustomField", -1L ) );
+		assertEquals( 0, cache.size() );
+	}
+	
+	public void testLeastRecentlyUsedIsEvicted()
+	{
+		CustomFieldCache cache = new CustomFieldCache( null, 2 );
+		TestCase other = new TestCase();
+		other.setId( 11 );
+		other.setVersion( 1 );
+		TestCase another = new TestCase();
+		another.setId( 12 );
+		another.setVersion( 1 );
+		
+		cache.put( "TestLink", this.testCase, "testCustomField", this.customField );
+		cache.put( "TestLink", other, "testCustomField", this.customField );
+		// Uses the first one, so the second one is the least recently used
+		cache.get( "TestLink", this.testCase, "testCustomField", TTL );
+		cache.put( "TestLink", another, "testCustomField", this.customField );
+		
+		assertEquals( 2, cache.size() );
+		assertEquals( 1, cache.getEvictions() );
+		assertNotNull( cache.get( "TestLink", this.testCase, "testCustomField", TTL ) );
+		assertNull( cache.get( "TestLink", other, "testCustomField", TTL ) );
+	}
+	
+	public void testSaveAndLoad()
+	throws IOException
+	{
+		File file = File.createTempFile( "testlink", ".xml" );
+		file.delete();
+		file.deleteOnExit();
+		
+		CustomFieldCache cache = new CustomFieldCache( new XmlFile( file ), 10 );
+		cache.put( "TestLink", this.testCase, "testCustomField", this.customField );
+		cache.save();
+		
+		CustomFieldCache loaded = new CustomFieldCache( new XmlFile( file ), 10 );
+		loaded.load();
+		
+		assertEquals( 1, loaded.size() );
+		CustomField cached = loaded.get( "TestLink", this.testCase, "testCustomField", TTL );
+		assertNotNull( cached );
+		assertEquals( "br.eti.kinoshita.Test", cached.getValue() );
+	}
+	
+}
@@ -0,0 +1,201 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests GraphCache.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestGraphCache 
+extends junit.framework.TestCase
+{
+
+	private AtomicInteger rendered;
+	
+	public void setUp()
+	{
+		this.rendered = new AtomicInteger();
+	}
+	
+	private Callable<GraphCache.RenderedGraph> renderer( final int size )
+	{
+		return new Callable<GraphCache.RenderedGraph>()
+		{
+			public GraphCache.RenderedGraph call()
+			{
+				rendered.incrementAndGet();
+				return new GraphCache.RenderedGraph( new byte[size], "<map name=\"map\"></map>" );
+			}
+		};
+	}
+	
+	public void testGraphIsRenderedOnce() 
+	throws IOException
+	{
+		GraphCache cache = new GraphCache( 10, 1024 * 1024 );
+		String key = GraphCache.getKey( "My project", "500x200", 3 );
+		
+		GraphCache.RenderedGraph graph = cache.get( key, this.renderer( 100 ) );
+		assertSame( graph, cache.get( key, this.renderer( 100 ) ) );
+		
+		assertEquals( 1, this.rendered.get() );
+		assertEquals( 1, cache.getRenders() );
+		assertEquals( 1, cache.getHits() );
+		assertEquals( graph.getSize(), cache.getBytes() );
+		assertTrue( graph.getPngETag().startsWith( "\"" ) );
+		assertFalse( graph.getPngETag().equals( graph.getMapETag() ) );
+	}
+	
+	public void testLeastRecentlyUsedGraphsAreEvicted() 
+	throws IOException
+	{
+		GraphCache cache = new GraphCache( 2, 1024 * 1024 );
+		cache.get( "a", this.renderer( 10 ) );
+		cache.get( "b", this.renderer( 10 ) );
+		cache.get( "a", this.renderer( 10 ) );
+		cache.get( "c", this.renderer( 10 ) );
+		
+		assertEquals( 2, cache.size() );
+		cache.get( "a", this.renderer( 10 ) );
+		assertEquals( 3, this.rendered.get() );
+		cache.get( "b", this.renderer( 10 ) );
+		assertEquals( 4, this.rendered.get() );
+	}
+	
+	public void testCacheIsBoundedByBytes() 
+	throws IOException
+	{
+		GraphCache cache = new GraphCache( 100, 1000 );
+		for ( int i = 0 ; i < 10 ; i++ )
+		{
+			cache.get( "graph" + i, this.renderer( 300 ) );
+		}
+		assertTrue( cache.getBytes() <= 1000 );
+		assertTrue( cache.size() < 10 );
+	}
+	
+	public void testProjectGraphsAreInvalidated() 
+	throws IOException
+	{
+		GraphCache cache = new GraphCache( 10, 1024 * 1024 );
+		cache.get( GraphCache.getKey( "project", "500x200", 1 ), this.renderer( 10 ) );
+		cache.get( GraphCache.getKey( "project", "250x100", 1 ), this.renderer( 10 ) );
+		cache.get( GraphCache.getKey( "project 2", "500x200", 1 ), this.renderer( 10 ) );
+		
+		cache.invalidate( "project" );
+		
+		assertEquals( 1, cache.size() );
+		cache.clear();
+		assertEquals( 0, cache.size() );
+		assertEquals( 0, cache.getBytes() );
+	}
+	
+	public void testFailuresAreNotCached()
+	{
+		GraphCache cache = new GraphCache( 10, 1024 * 1024 );
+		try
+		{
+			cache.get( "a", new Callable<GraphCache.RenderedGraph>()
+			{
+				public GraphCache.RenderedGraph call() throws IOException
+				{
+					throw new IOException( "Failed to render" );
+				}
+			});
+			fail( "Expected an IOException" );
+		}
+		catch ( IOException ioe )
+		{
+			assertEquals( "Failed to render", ioe.getMessage() );
+		}
+		assertEquals( 0, cache.size() );
+	}
+	
+	public void testConcurrentRequestsShareTheRendering() 
+	throws Exception
+	{
+		final GraphCache cache = new GraphCache( 10, 1024 * 1024 );
+		final CountDownLatch started = new CountDownLatch( 1 );
+		final CountDownLatch release = new CountDownLatch( 1 );
+		final Callable<GraphCache.RenderedGraph> slow = new Callable<GraphCache.RenderedGraph>()
+		{
+			public GraphCache.RenderedGraph call() throws Exception
+			{
+				rendered.incrementAndGet();
+				started.countDown();
+				release.await( 10, TimeUnit.SECONDS );
+				return new GraphCache.RenderedGraph( new byte[10], "" );
+			}
+		};
+		
+		ExecutorService executor = Executors.newFixedThreadPool( 4 );
+		try
+		{
+			Future<GraphCache.RenderedGraph> first = executor.submit( new Callable<GraphCache.RenderedGraph>()
+			{
+				public GraphCache.RenderedGraph call() throws Exception
+				{
+					return cache.get( "a", slow );
+				}
+			});
+			started.await( 10, TimeUnit.SECONDS );
+			Future<GraphCache.RenderedGraph> second = executor.submit( new Callable<GraphCache.RenderedGraph>()
+			{
+				public GraphCache.RenderedGraph call() throws Exception
+				{
+					return cache.get( "a", slow );
+				}
+			});
+			release.countDown();
+			
+			assertSame( first.get( 10, TimeUnit.SECONDS ), second.get( 10, TimeUnit.SECONDS ) );
+			assertEquals( 1, this.rendered.get() );
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+	}
+	
+	public void testETagMatching()
+	{
+		assertFalse( GraphCache.matches( null, "\"abc\"" ) );
+		assertTrue( GraphCache.matches( "\"abc\"", "\"abc\"" ) );
+		assertTrue( GraphCache.matches( "\"xyz\", W/\"abc\"", "\"abc\"" ) );
+		assertTrue( GraphCache.matches( "*", "\"abc\"" ) );
+		assertFalse( GraphCache.matches( "\"xyz\"", "\"abc\"" ) );
+	}
+	
+}
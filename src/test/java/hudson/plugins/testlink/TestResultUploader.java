@@ -0,0 +1,369 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.plugins.testlink.result.FileAttachment;
+import hudson.plugins.testlink.result.TestCaseWrapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+
+import br.eti.kinoshita.testlinkjavaapi.TestLinkAPIException;
+import br.eti.kinoshita.testlinkjavaapi.model.Attachment;
+import br.eti.kinoshita.testlinkjavaapi.model.Build;
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionType;
+import br.eti.kinoshita.testlinkjavaapi.model.ReportTCResultResponse;
+import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
+import br.eti.kinoshita.testlinkjavaapi.model.TestPlan;
+
+/**
+ * Tests the retries and the bound on the attachments in flight of 
+ * ResultUploader, with the calls to TestLink stubbed.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestResultUploader 
+extends junit.framework.TestCase
+{
+
+	/**
+	 * ResultUploader that throws the queued failures before succeeding.
+	 */
+	private static class StubResultUploader 
+	extends ResultUploader
+	{
+		private final List<RuntimeException> reportFailures = Collections.synchronizedList( new LinkedList<RuntimeException>() );
+		private final List<RuntimeException> uploadFailures = Collections.synchronizedList( new LinkedList<RuntimeException>() );
+		private final AtomicInteger reports = new AtomicInteger();
+		private final AtomicInteger uploads = new AtomicInteger();
+		private final AtomicInteger uploading = new AtomicInteger();
+		private final AtomicInteger maxUploading = new AtomicInteger();
+		private long uploadTime = 0L;
+		
+		public StubResultUploader()
+		{
+			super( null, new TestPlan(), new Build() );
+			this.setInitialBackoff( 1L );
+		}
+		
+		@SuppressWarnings("rawtypes")
+		@Override
+		protected ReportTCResultResponse reportTCResult( TestCaseWrapper testCase )
+		{
+			this.reports.incrementAndGet();
+			if ( ! this.reportFailures.isEmpty() )
+			{
+				throw this.reportFailures.remove( 0 );
+			}
+			final ReportTCResultResponse response = new ReportTCResultResponse();
+			response.setExecutionId( testCase.getId() );
+			return response;
+		}
+		
+		@Override
+		protected Attachment uploadExecutionAttachment( Integer executionId, Attachment attachment, String content )
+		{
+			this.uploads.incrementAndGet();
+			final int now = this.uploading.incrementAndGet();
+			synchronized ( this.maxUploading )
+			{
+				this.maxUploading.set( Math.max( this.maxUploading.get(), now ) );
+			}
+			try
+			{
+				if ( this.uploadTime > 0L )
+				{
+					Thread.sleep( this.uploadTime );
+				}
+				if ( ! this.uploadFailures.isEmpty() )
+				{
+					throw this.uploadFailures.remove( 0 );
+				}
+				return attachment;
+			}
+			catch ( InterruptedException ie )
+			{
+				throw new TestLinkAPIException( ie.getMessage(), ie );
+			}
+			finally
+			{
+				this.uploading.decrementAndGet();
+			}
+		}
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private static List<TestCaseWrapper> testCases( int count, ExecutionStatus status, int attachmentSize )
+	{
+		final List<TestCaseWrapper> testCases = new ArrayList<TestCaseWrapper>();
+		for ( int id = 1 ; id <= count ; ++id )
+		{
+			final TestCase testCase = new TestCase( id, "tc" + id, id, id, "kinow", "No summary", null, "", null, ExecutionType.AUTOMATED, null, id, id, false, null, id, id, null, null, ExecutionStatus.NOT_RUN );
+			final TestCaseWrapper<Object> wrapper = new TestCaseWrapper<Object>( testCase, new String[]{ "cf1" }, null );
+			if ( status != ExecutionStatus.NOT_RUN )
+			{
+				wrapper.addCustomFieldAndStatus( "cf1", status );
+			}
+			if ( attachmentSize > 0 )
+			{
+				final Attachment attachment = new Attachment();
+				attachment.setFileName( "tc" + id + ".txt" );
+				final StringBuilder content = new StringBuilder( attachmentSize );
+				for ( int i = 0 ; i < attachmentSize ; ++i )
+				{
+					content.append( 'A' );
+				}
+				attachment.setContent( content.toString() );
+				wrapper.addAttachment( attachment );
+			}
+			testCases.add( wrapper );
+		}
+		return testCases;
+	}
+	
+	private static TestLinkAPIException failure( Throwable cause )
+	{
+		return new TestLinkAPIException( cause.getMessage(), cause );
+	}
+	
+	public void testUpload() 
+	throws InterruptedException
+	{
+		final StubResultUploader uploader = new StubResultUploader();
+		final List<ResultUploader.Outcome> outcomes = uploader.upload( testCases( 3, ExecutionStatus.PASSED, 10 ) );
+		
+		assertEquals( 3, outcomes.size() );
+		for ( int i = 0 ; i < outcomes.size() ; ++i )
+		{
+			assertTrue( outcomes.get( i ).isSuccessful() );
+			assertEquals( Integer.valueOf( i + 1 ), outcomes.get( i ).getExecutionId() );
+			assertEquals( 1, outcomes.get( i ).getAttachments() );
+			assertEquals( 0, outcomes.get( i ).getRetries() );
+		}
+		assertEquals( 3, uploader.reports.get() );
+		assertEquals( 3, uploader.uploads.get() );
+	}
+	
+	/**
+	 * Test cases not run are reported as well, as they were before 3.0.3.
+	 */
+	public void testNotRunIsReported() 
+	throws InterruptedException
+	{
+		final StubResultUploader uploader = new StubResultUploader();
+		final List<ResultUploader.Outcome> outcomes = uploader.upload( testCases( 2, ExecutionStatus.NOT_RUN, 10 ) );
+		
+		assertEquals( 2, outcomes.size() );
+		assertEquals( ExecutionStatus.NOT_RUN, outcomes.get( 0 ).getTestCase().getExecutionStatus() );
+		assertEquals( Integer.valueOf( 1 ), outcomes.get( 0 ).getExecutionId() );
+		assertTrue( outcomes.get( 0 ).isSuccessful() );
+		assertEquals( 2, uploader.reports.get() );
+		assertEquals( 2, uploader.uploads.get() );
+	}
+	
+	public void testReportIsRetriedWhenNotConnected() 
+	throws InterruptedException
+	{
+		final StubResultUploader uploader = new StubResultUploader();
+		uploader.setRetries( 2 );
+		uploader.reportFailures.add( failure( new ConnectException( "Connection refused" ) ) );
+		uploader.reportFailures.add( failure( new UnknownHostException( "testlink" ) ) );
+		final ResultUploader.Outcome outcome = uploader.upload( testCases( 1, ExecutionStatus.FAILED, 0 ) ).get( 0 );
+		
+		assertTrue( outcome.isSuccessful() );
+		assertEquals( 2, outcome.getRetries() );
+		assertEquals( 3, uploader.reports.get() );
+	}
+	
+	/**
+	 * TestLink may have stored the execution of a report whose response was 
+	 * lost, so it is not reported again.
+	 */
+	public void testReportIsNotRetriedAfterTheRequestWasSent() 
+	throws InterruptedException
+	{
+		final StubResultUploader uploader = new StubResultUploader();
+		uploader.setRetries( 2 );
+		uploader.reportFailures.add( failure( new SocketTimeoutException( "Read timed out" ) ) );
+		uploader.reportFailures.add( failure( new SocketException( "Connection reset" ) ) );
+		final List<ResultUploader.Outcome> outcomes = uploader.upload( testCases( 2, ExecutionStatus.PASSED, 10 ) );
+		
+		assertFalse( outcomes.get( 0 ).isSuccessful() );
+		assertFalse( outcomes.get( 1 ).isSuccessful() );
+		assertEquals( 0, outcomes.get( 0 ).getRetries() );
+		assertNull( outcomes.get( 0 ).getExecutionId() );
+		assertEquals( 2, uploader.reports.get() );
+		assertEquals( 0, uploader.uploads.get() );
+	}
+	
+	public void testAttachmentIsRetriedWithBackoff() 
+	throws InterruptedException
+	{
+		final StubResultUploader uploader = new StubResultUploader();
+		uploader.setRetries( 3 );
+		uploader.setInitialBackoff( 50L );
+		uploader.uploadFailures.add( failure( new SocketTimeoutException( "Read timed out" ) ) );
+		uploader.uploadFailures.add( failure( new IOException( "Broken pipe" ) ) );
+		
+		final long start = System.nanoTime();
+		final ResultUploader.Outcome outcome = uploader.upload( testCases( 1, ExecutionStatus.PASSED, 10 ) ).get( 0 );
+		final long elapsed = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+		
+		assertTrue( outcome.isSuccessful() );
+		assertEquals( 2, outcome.getRetries() );
+		assertEquals( 1, outcome.getAttachments() );
+		assertEquals( 1, uploader.reports.get() );
+		assertEquals( 3, uploader.uploads.get() );
+		// Waited 50 ms and then 100 ms
+		assertTrue( "Retried after " + elapsed + " ms", elapsed >= 150L );
+	}
+	
+	public void testAttachmentRetriesAreBounded() 
+	throws InterruptedException
+	{
+		final StubResultUploader uploader = new StubResultUploader();
+		uploader.setRetries( 1 );
+		for ( int i = 0 ; i < 3 ; ++i )
+		{
+			uploader.uploadFailures.add( failure( new IOException( "Connection reset" ) ) );
+		}
+		final ResultUploader.Outcome outcome = uploader.upload( testCases( 1, ExecutionStatus.PASSED, 10 ) ).get( 0 );
+		
+		assertFalse( outcome.isSuccessful() );
+		assertEquals( 1, outcome.getRetries() );
+		assertEquals( 0, outcome.getAttachments() );
+		assertEquals( Integer.valueOf( 1 ), outcome.getExecutionId() );
+		assertEquals( 2, uploader.uploads.get() );
+	}
+	
+	public void testTestLinkErrorIsNotRetried() 
+	throws InterruptedException
+	{
+		final StubResultUploader uploader = new StubResultUploader();
+		uploader.setRetries( 3 );
+		uploader.uploadFailures.add( new TestLinkAPIException( "Invalid execution id" ) );
+		final ResultUploader.Outcome outcome = uploader.upload( testCases( 1, ExecutionStatus.PASSED, 10 ) ).get( 0 );
+		
+		assertFalse( outcome.isSuccessful() );
+		assertEquals( 0, outcome.getRetries() );
+		assertEquals( 1, uploader.uploads.get() );
+	}
+	
+	public void testFailureClassification()
+	{
+		assertTrue( ResultUploader.isTransient( failure( new SocketTimeoutException( "Read timed out" ) ) ) );
+		assertTrue( ResultUploader.isTransient( failure( new ConnectException( "Connection refused" ) ) ) );
+		assertTrue( ResultUploader.isTransient( new TestLinkAPIException( "Upload failed", failure( new IOException( "Broken pipe" ) ) ) ) );
+		assertFalse( ResultUploader.isTransient( new TestLinkAPIException( "Invalid execution id" ) ) );
+		assertFalse( ResultUploader.isTransient( new IllegalStateException() ) );
+		
+		assertTrue( ResultUploader.isConnectFailure( failure( new ConnectException( "Connection refused" ) ) ) );
+		assertTrue( ResultUploader.isConnectFailure( failure( new UnknownHostException( "testlink" ) ) ) );
+		assertTrue( ResultUploader.isConnectFailure( failure( new SocketTimeoutException( "connect timed out" ) ) ) );
+		assertFalse( ResultUploader.isConnectFailure( failure( new SocketTimeoutException( "Read timed out" ) ) ) );
+		assertFalse( ResultUploader.isConnectFailure( failure( new SocketException( "Connection reset" ) ) ) );
+		assertFalse( ResultUploader.isConnectFailure( new TestLinkAPIException( "Invalid execution id" ) ) );
+	}
+	
+	/**
+	 * The attachments of several test cases are uploaded at the same time 
+	 * only while their encoded content fits in the maximum in flight.
+	 */
+	public void testAttachmentsInFlightAreBounded() 
+	throws InterruptedException
+	{
+		final StubResultUploader uploader = new StubResultUploader();
+		uploader.setConcurrency( 4 );
+		uploader.setMaxInFlightBytes( 4L * 1024L );
+		uploader.uploadTime = 20L;
+		// 3 KB each, only one fits
+		List<ResultUploader.Outcome> outcomes = uploader.upload( testCases( 4, ExecutionStatus.PASSED, 3 * 1024 ) );
+		
+		assertEquals( 4, outcomes.size() );
+		for ( ResultUploader.Outcome outcome : outcomes )
+		{
+			assertTrue( outcome.isSuccessful() );
+			assertEquals( 1, outcome.getAttachments() );
+		}
+		assertEquals( 1, uploader.maxUploading.get() );
+		
+		// 2 KB each, two fit
+		uploader.maxUploading.set( 0 );
+		outcomes = uploader.upload( testCases( 4, ExecutionStatus.PASSED, 2 * 1024 ) );
+		assertEquals( 4, outcomes.size() );
+		assertTrue( uploader.maxUploading.get() <= 2 );
+		
+		// Larger than the maximum, uploaded alone
+		uploader.maxUploading.set( 0 );
+		outcomes = uploader.upload( testCases( 4, ExecutionStatus.PASSED, 8 * 1024 ) );
+		assertEquals( 4, outcomes.size() );
+		assertTrue( outcomes.get( 3 ).isSuccessful() );
+		assertEquals( 1, uploader.maxUploading.get() );
+	}
+	
+	/**
+	 * A file whose encoded content would not fit in the maximum in flight 
+	 * is not read, and is listed in the outcome instead.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void testLargeFileAttachmentIsSkipped() 
+	throws Exception
+	{
+		final byte[] data = new byte[ 8 * 1024 ];
+		final File file = File.createTempFile( "testlink", ".bin" );
+		file.deleteOnExit();
+		FileUtils.writeByteArrayToFile( file, data );
+		
+		final StubResultUploader uploader = new StubResultUploader();
+		uploader.setMaxInFlightBytes( 4L * 1024L );
+		final List<TestCaseWrapper> testCases = testCases( 1, ExecutionStatus.PASSED, 10 );
+		final FileAttachment large = new FileAttachment( file, DigestUtils.md5Hex( data ) );
+		testCases.get( 0 ).addAttachment( large );
+		
+		final ResultUploader.Outcome outcome = uploader.upload( testCases ).get( 0 );
+		
+		assertTrue( outcome.isSuccessful() );
+		assertEquals( 1, outcome.getAttachments() );
+		assertEquals( 1, outcome.getSkippedAttachments().size() );
+		assertSame( large, outcome.getSkippedAttachments().get( 0 ) );
+		assertTrue( large.getBase64Length() > 8 * 1024 );
+		assertEquals( 1, uploader.uploads.get() );
+	}
+	
+}
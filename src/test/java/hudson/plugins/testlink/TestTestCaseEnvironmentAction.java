@@ -0,0 +1,111 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.EnvVars;
+
+import java.lang.reflect.Field;
+
+import junit.framework.TestCase;
+
+/**
+ * Tests the TestCaseEnvironmentAction class.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestTestCaseEnvironmentAction
+extends TestCase
+{
+
+	private TestCaseEnvironmentAction action;
+	
+	public void setUp()
+	{
+		this.action = new TestCaseEnvironmentAction();
+	}
+	
+	public void testEachThreadSeesItsOwnVariables()
+	throws InterruptedException
+	{
+		final EnvVars mine = new EnvVars();
+		mine.put( "TESTLINK_TESTCASE_ID", "1" );
+		this.action.set( mine );
+		
+		final EnvVars other = new EnvVars();
+		final Thread thread = new Thread()
+		{
+			public void run()
+			{
+				EnvVars otherVars = new EnvVars();
+				otherVars.put( "TESTLINK_TESTCASE_ID", "2" );
+				action.set( otherVars );
+				action.buildEnvVars( null, other );
+				action.clear();
+			}
+		};
+		thread.start();
+		thread.join();
+		
+		final EnvVars env = new EnvVars();
+		this.action.buildEnvVars( null, env );
+		assertEquals( "1", env.get( "TESTLINK_TESTCASE_ID" ) );
+		assertEquals( "2", other.get( "TESTLINK_TESTCASE_ID" ) );
+	}
+	
+	public void testClear()
+	{
+		final EnvVars vars = new EnvVars();
+		vars.put( "TESTLINK_TESTCASE_ID", "1" );
+		this.action.set( vars );
+		this.action.clear();
+		
+		final EnvVars env = new EnvVars();
+		this.action.buildEnvVars( null, env );
+		assertNull( env.get( "TESTLINK_TESTCASE_ID" ) );
+	}
+	
+	/**
+	 * XStream does not run the field initializers of a loaded action.
+	 */
+	public void testLoadedAction()
+	throws Exception
+	{
+		final Field overlay = TestCaseEnvironmentAction.class.getDeclaredField( "overlay" );
+		overlay.setAccessible( true );
+		overlay.set( this.action, null );
+		
+		final EnvVars env = new EnvVars();
+		this.action.buildEnvVars( null, env );
+		assertTrue( env.isEmpty() );
+		
+		this.action.readResolve();
+		final EnvVars vars = new EnvVars();
+		vars.put( "TESTLINK_TESTCASE_ID", "1" );
+		this.action.set( vars );
+		this.action.buildEnvVars( null, env );
+		assertEquals( "1", env.get( "TESTLINK_TESTCASE_ID" ) );
+	}
+	
+}
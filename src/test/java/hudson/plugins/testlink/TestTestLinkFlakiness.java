@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.plugins.testlink.result.Report;
+import hudson.plugins.testlink.result.TestCaseRecord;
+
+import java.io.IOException;
+import java.util.List;
+
+import br.eti.kinoshita.testlinkjavaapi.model.Build;
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
+
+/**
+ * Tests TestLinkFlakiness.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestTestLinkFlakiness 
+extends junit.framework.TestCase
+{
+
+	private static final byte P = TestLinkHistory.PASSED;
+	private static final byte F = TestLinkHistory.FAILED;
+	private static final byte B = TestLinkHistory.BLOCKED;
+	
+	public void testFlipsAreCounted()
+	{
+		TestLinkFlakiness flakiness = new TestLinkFlakiness();
+		flakiness.add( new byte[] { P, P, F } );
+		flakiness.add( new byte[] { F, P, F } );
+		flakiness.add( new byte[] { B, P, F } );
+		flakiness.add( new byte[] { P, F, F } );
+		
+		assertEquals( 3, flakiness.getExecutions( 0 ) );
+		assertEquals( 2, flakiness.getFlips( 0 ) );
+		assertEquals( 1, flakiness.getFailures( 0 ) );
+		assertEquals( 1, flakiness.getFlips( 1 ) );
+		assertEquals( 0, flakiness.getFlips( 2 ) );
+		assertEquals( 4, flakiness.getFailures( 2 ) );
+	}
+	
+	public void testOnlyLastExecutionsAreKept()
+	{
+		TestLinkFlakiness flakiness = new TestLinkFlakiness();
+		for ( int i = 0 ; i < TestLinkFlakiness.WINDOW ; i++ )
+		{
+			flakiness.add( new byte[] { i % 2 == 0 ? P : F } );
+		}
+		assertEquals( TestLinkFlakiness.WINDOW - 1, flakiness.getFlips( 0 ) );
+		for ( int i = 0 ; i < TestLinkFlakiness.WINDOW ; i++ )
+		{
+			flakiness.add( new byte[] { P } );
+		}
+		assertEquals( TestLinkFlakiness.WINDOW, flakiness.getExecutions( 0 ) );
+		assertEquals( 0, flakiness.getFlips( 0 ) );
+		assertEquals( 0, flakiness.getFailures( 0 ) );
+	}
+	
+	public void testRanking()
+	{
+		TestLinkFlakiness flakiness = new TestLinkFlakiness();
+		flakiness.add( new byte[] { P, P, P } );
+		flakiness.add( new byte[] { F, F, P } );
+		flakiness.add( new byte[] { P, F, P } );
+		flakiness.add( new byte[] { F, P } );
+		
+		List<TestLinkFlakiness.FlakyTestCase> flaky = flakiness.rank( new int[] { 10, 11, 12 }, 3, 2, -1 );
+		assertEquals( 2, flaky.size() );
+		assertEquals( 10, flaky.get( 0 ).getId() );
+		assertEquals( 1.0, flaky.get( 0 ).getFlipRate(), 0.0001 );
+		assertEquals( 11, flaky.get( 1 ).getId() );
+		assertEquals( 2, flaky.get( 1 ).getFlips() );
+		
+		assertEquals( 1, flakiness.rank( new int[] { 10, 11, 12 }, 3, 2, 1 ).size() );
+		assertTrue( flakiness.rank( new int[] { 10, 11, 12 }, 3, 5, -1 ).isEmpty() );
+	}
+	
+	public void testHistoryReplaysFlakinessAfterRemoval() 
+	throws IOException
+	{
+		TestLinkHistory history = new TestLinkHistory( null );
+		ExecutionStatus[] statuses = { ExecutionStatus.PASSED, ExecutionStatus.FAILED, ExecutionStatus.PASSED };
+		for ( int i = 0 ; i < statuses.length ; i++ )
+		{
+			Report report = new Report( new Build() );
+			report.addTestCase( new TestCaseRecord( 10, 1, "TC", 1, statuses[ i ], null, -1L ) );
+			history.append( i + 1, report );
+		}
+		assertEquals( 2, history.getFlakyTestCases( 0, -1 ).get( 0 ).getFlips() );
+		
+		history.remove( 2 );
+		assertTrue( history.getFlakyTestCases( 0, -1 ).isEmpty() );
+	}
+	
+}
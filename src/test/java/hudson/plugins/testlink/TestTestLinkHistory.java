@@ -0,0 +1,223 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.plugins.testlink.result.Report;
+import hudson.plugins.testlink.result.TestCaseRecord;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.Map;
+
+import br.eti.kinoshita.testlinkjavaapi.model.Build;
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
+
+/**
+ * Tests TestLinkHistory.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestTestLinkHistory 
+extends junit.framework.TestCase
+{
+
+	private File file;
+	
+	public void setUp() 
+	throws IOException
+	{
+		this.file = File.createTempFile( "testlink-history", ".bin" );
+		this.file.delete();
+	}
+	
+	public void tearDown()
+	{
+		this.file.delete();
+	}
+	
+	private static Report report( Object... idsAndStatuses )
+	{
+		Report report = new Report( new Build() );
+		for ( int i = 0 ; i < idsAndStatuses.length ; i += 2 )
+		{
+			report.addTestCase( new TestCaseRecord( (Integer) idsAndStatuses[ i ], 1, "TC", 1, 
+				(ExecutionStatus) idsAndStatuses[ i + 1 ], null, -1L ) );
+		}
+		return report;
+	}
+	
+	/**
+	 * @param idsAndDurations test case ids and durations, passed.
+	 */
+	private static Report reportWithDurations( Object... idsAndDurations )
+	{
+		Report report = new Report( new Build() );
+		for ( int i = 0 ; i < idsAndDurations.length ; i += 2 )
+		{
+			report.addTestCase( new TestCaseRecord( (Integer) idsAndDurations[ i ], 1, "TC", 1, 
+				ExecutionStatus.PASSED, null, (Long) idsAndDurations[ i + 1 ] ) );
+		}
+		return report;
+	}
+	
+	public void testHistoryOfTestCase() 
+	throws IOException
+	{
+		TestLinkHistory history = new TestLinkHistory( null );
+		history.append( 1, report( 10, ExecutionStatus.PASSED, 11, ExecutionStatus.FAILED ) );
+		history.append( 2, report( 10, ExecutionStatus.FAILED ) );
+		history.append( 3, report( 10, ExecutionStatus.BLOCKED, 12, ExecutionStatus.PASSED ) );
+		
+		assertEquals( 3, history.size() );
+		assertEquals( 3, history.getTestCaseCount() );
+		
+		List<TestLinkHistory.Entry> entries = history.getHistory( 10, -1 );
+		assertEquals( 3, entries.size() );
+		assertEquals( 3, entries.get( 0 ).getBuildNumber() );
+		assertEquals( ExecutionStatus.BLOCKED, entries.get( 0 ).getExecutionStatus() );
+		assertEquals( ExecutionStatus.PASSED, entries.get( 2 ).getExecutionStatus() );
+		
+		entries = history.getHistory( 11, -1 );
+		assertEquals( 1, entries.size() );
+		assertEquals( 1, entries.get( 0 ).getBuildNumber() );
+		
+		assertEquals( 2, history.getHistory( 10, 2 ).size() );
+		assertTrue( history.getHistory( 99, -1 ).isEmpty() );
+		assertEquals( TestLinkHistory.ABSENT, history.getStatus( 1, 12 ) );
+		assertEquals( TestLinkHistory.PASSED, history.getStatus( 3, 12 ) );
+	}
+	
+	public void testAppendedHistoryIsLoaded() 
+	throws IOException
+	{
+		TestLinkHistory history = new TestLinkHistory( this.file );
+		history.append( 1, report( 10, ExecutionStatus.PASSED ) );
+		history.append( 2, report( 10, ExecutionStatus.FAILED, 11, ExecutionStatus.NOT_RUN ) );
+		history.append( 3, report( 11, ExecutionStatus.PASSED ) );
+		assertTrue( history.remove( 2 ) );
+		assertFalse( history.remove( 2 ) );
+		
+		TestLinkHistory loaded = new TestLinkHistory( this.file );
+		assertTrue( loaded.load() );
+		assertEquals( 2, loaded.size() );
+		assertEquals( 2, loaded.getTestCaseCount() );
+		assertEquals( TestLinkHistory.PASSED, loaded.getStatus( 1, 10 ) );
+		assertEquals( TestLinkHistory.ABSENT, loaded.getStatus( 2, 10 ) );
+		assertEquals( TestLinkHistory.PASSED, loaded.getStatus( 3, 11 ) );
+		
+		loaded.save();
+		TestLinkHistory compacted = new TestLinkHistory( this.file );
+		assertTrue( compacted.load() );
+		assertEquals( 2, compacted.size() );
+		assertEquals( TestLinkHistory.PASSED, compacted.getStatus( 3, 11 ) );
+	}
+	
+	public void testTruncatedRecordIsDropped() 
+	throws IOException
+	{
+		TestLinkHistory history = new TestLinkHistory( this.file );
+		history.append( 1, report( 10, ExecutionStatus.PASSED ) );
+		history.append( 2, report( 10, ExecutionStatus.FAILED ) );
+		
+		RandomAccessFile raf = new RandomAccessFile( this.file, "rw" );
+		raf.setLength( raf.length() - 1 );
+		raf.close();
+		
+		TestLinkHistory loaded = new TestLinkHistory( this.file );
+		assertTrue( loaded.load() );
+		assertEquals( 1, loaded.size() );
+		assertEquals( TestLinkHistory.PASSED, loaded.getStatus( 1, 10 ) );
+		
+		loaded.append( 3, report( 10, ExecutionStatus.BLOCKED, 11, ExecutionStatus.PASSED ) );
+		TestLinkHistory reloaded = new TestLinkHistory( this.file );
+		assertTrue( reloaded.load() );
+		assertEquals( 2, reloaded.size() );
+		assertEquals( 2, reloaded.getTestCaseCount() );
+		assertEquals( TestLinkHistory.ABSENT, reloaded.getStatus( 2, 10 ) );
+		assertEquals( TestLinkHistory.BLOCKED, reloaded.getStatus( 3, 10 ) );
+		assertEquals( TestLinkHistory.PASSED, reloaded.getStatus( 3, 11 ) );
+	}
+	
+	public void testMissingFileIsNotLoaded() 
+	throws IOException
+	{
+		assertFalse( new TestLinkHistory( this.file ).load() );
+	}
+	
+	public void testAverageDurations() 
+	throws IOException
+	{
+		TestLinkHistory history = new TestLinkHistory( this.file );
+		history.append( 1, reportWithDurations( 10, 100L, 11, 1000L ) );
+		history.append( 2, reportWithDurations( 10, 300L, 11, -1L ) );
+		history.append( 3, report( 10, ExecutionStatus.PASSED ) );
+		history.append( 4, reportWithDurations( 10, 500L, 12, 50L ) );
+		
+		Map<Integer, Double> averages = history.getAverageDurations( 64 );
+		assertEquals( 3, averages.size() );
+		assertEquals( 300.0, averages.get( 10 ) );
+		assertEquals( 1000.0, averages.get( 11 ) );
+		assertEquals( 50.0, averages.get( 12 ) );
+		
+		// Only the last two builds with durations
+		averages = history.getAverageDurations( 2 );
+		assertEquals( 400.0, averages.get( 10 ) );
+		assertNull( averages.get( 11 ) );
+		
+		assertEquals( TestLinkHistory.NO_DURATION, history.getDuration( 2, 11 ) );
+		assertEquals( TestLinkHistory.NO_DURATION, history.getDuration( 3, 10 ) );
+		assertTrue( history.remove( 4 ) );
+		
+		TestLinkHistory loaded = new TestLinkHistory( this.file );
+		assertTrue( loaded.load() );
+		assertEquals( 300, loaded.getDuration( 2, 10 ) );
+		assertEquals( TestLinkHistory.NO_DURATION, loaded.getDuration( 4, 10 ) );
+		assertEquals( 200.0, loaded.getAverageDurations( 64 ).get( 10 ) );
+		
+		loaded.save();
+		TestLinkHistory compacted = new TestLinkHistory( this.file );
+		assertTrue( compacted.load() );
+		assertEquals( 1000, compacted.getDuration( 1, 11 ) );
+		assertEquals( 200.0, compacted.getAverageDurations( 64 ).get( 10 ) );
+	}
+	
+	/**
+	 * Histories written before the durations were kept are rebuilt.
+	 */
+	public void testHistoryWithoutDurationsIsNotLoaded() 
+	throws IOException
+	{
+		DataOutputStream out = new DataOutputStream( new FileOutputStream( this.file ) );
+		out.writeInt( 0x544C4831 );
+		out.close();
+		
+		assertFalse( new TestLinkHistory( this.file ).load() );
+	}
+	
+}
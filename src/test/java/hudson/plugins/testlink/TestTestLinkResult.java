@@ -25,8 +25,14 @@ package hudson.plugins.testlink;
 
 import hudson.model.AbstractBuild;
 import hudson.plugins.testlink.result.Report;
+import hudson.plugins.testlink.result.TestCaseRecord;
+
+import java.lang.reflect.Field;
+
 import junit.framework.TestCase;
 
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
+
 /**
  * Tests the TestLinkResult object.
  * 
@@ -52,4 +58,52 @@ extends TestCase
 		assertNotNull( tlr.getReport() );
 	}
 	
+	/**
+	 * Results recorded before 3.0.3 kept the report in the build record, and 
+	 * must be saved once loaded.
+	 */
+	public void testOldResultIsMigrated()
+	{
+		TestLinkResult tlr = new TestLinkResult(new Report(null), null);
+		assertFalse( tlr.isMigrated() );
+		
+		tlr.readResolve();
+		
+		assertTrue( tlr.isMigrated() );
+		assertNotNull( tlr.getReport() );
+	}
+	
+	/**
+	 * The counters are kept in the result, and set once for the results 
+	 * recorded without them.
+	 */
+	public void testCountersAreKept() 
+	throws Exception
+	{
+		Report report = new Report(null);
+		report.addTestCase( new TestCaseRecord( 1, 1, "TC1", 1, ExecutionStatus.PASSED, null, -1L ) );
+		report.addTestCase( new TestCaseRecord( 2, 1, "TC2", 1, ExecutionStatus.FAILED, null, -1L ) );
+		report.addTestCase( new TestCaseRecord( 3, 1, "TC3", 1, ExecutionStatus.FAILED, null, -1L ) );
+		TestLinkResult tlr = new TestLinkResult(report, null);
+		
+		assertEquals( 3, tlr.getTestsTotal() );
+		assertEquals( 1, tlr.getTestsPassed() );
+		assertEquals( 2, tlr.getTestsFailed() );
+		assertEquals( 0, tlr.getTestsBlocked() );
+		assertEquals( 0, tlr.getTestsNotRun() );
+		
+		Field testsTotal = TestLinkResult.class.getDeclaredField( "testsTotal" );
+		testsTotal.setAccessible( true );
+		testsTotal.set( tlr, null );
+		Field testsFailed = TestLinkResult.class.getDeclaredField( "testsFailed" );
+		testsFailed.setAccessible( true );
+		testsFailed.set( tlr, 0 );
+		
+		tlr.readResolve();
+		
+		assertTrue( tlr.isMigrated() );
+		assertEquals( 3, tlr.getTestsTotal() );
+		assertEquals( 2, tlr.getTestsFailed() );
+	}
+	
 }
@@ -0,0 +1,208 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import br.eti.kinoshita.testlinkjavaapi.TestLinkAPIException;
+import br.eti.kinoshita.testlinkjavaapi.model.Build;
+import br.eti.kinoshita.testlinkjavaapi.model.CustomField;
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
+import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
+import br.eti.kinoshita.testlinkjavaapi.model.TestPlan;
+import br.eti.kinoshita.testlinkjavaapi.model.TestProject;
+
+/**
+ * Tests the fetch of the custom fields of the automated test cases by 
+ * TestLinkSite, with the calls to TestLink stubbed.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestTestLinkSite 
+extends junit.framework.TestCase
+{
+
+	private static final String[] CUSTOM_FIELDS = new String[]{ "class", "time" };
+	
+	/**
+	 * TestLinkSite returning a few test cases, whose custom field values 
+	 * are the custom field name followed by the test case id.
+	 */
+	private static class StubTestLinkSite 
+	extends TestLinkSite
+	{
+		protected final AtomicInteger running = new AtomicInteger();
+		protected final AtomicInteger maxRunning = new AtomicInteger();
+		
+		public StubTestLinkSite()
+		{
+			super( null, new TestProject(), new TestPlan(), new Build() );
+			this.getTestProject().setId( 1 );
+			this.getTestPlan().setId( 2 );
+		}
+		
+		@Override
+		protected TestCase[] getTestCasesForTestPlan()
+		{
+			final TestCase[] testCases = new TestCase[ 4 ];
+			for ( int i = 0 ; i < testCases.length ; ++i )
+			{
+				testCases[i] = new TestCase();
+				testCases[i].setId( i + 1 );
+				testCases[i].setVersion( 1 );
+				testCases[i].setExecutionStatus( i == 1 ? ExecutionStatus.FAILED : ExecutionStatus.PASSED );
+			}
+			return testCases;
+		}
+		
+		@Override
+		protected CustomField getCustomField( TestCase testCase, String customFieldName )
+		{
+			final int now = this.running.incrementAndGet();
+			synchronized ( this.maxRunning )
+			{
+				this.maxRunning.set( Math.max( this.maxRunning.get(), now ) );
+			}
+			try
+			{
+				this.await( testCase, customFieldName );
+			}
+			finally
+			{
+				this.running.decrementAndGet();
+			}
+			final CustomField customField = new CustomField();
+			customField.setName( customFieldName );
+			customField.setValue( customFieldName + testCase.getId() );
+			return customField;
+		}
+		
+		protected void await( TestCase testCase, String customFieldName )
+		{
+		}
+	}
+	
+	private static void assertCustomFields( TestCase[] testCases )
+	{
+		assertEquals( 4, testCases.length );
+		for ( TestCase testCase : testCases )
+		{
+			assertEquals( ExecutionStatus.NOT_RUN, testCase.getExecutionStatus() );
+			assertEquals( CUSTOM_FIELDS.length, testCase.getCustomFields().size() );
+			for ( int i = 0 ; i < CUSTOM_FIELDS.length ; ++i )
+			{
+				assertEquals( CUSTOM_FIELDS[i] + testCase.getId(), testCase.getCustomFields().get( i ).getValue() );
+			}
+		}
+	}
+	
+	public void testCustomFieldsFetchedSequentially()
+	{
+		final StubTestLinkSite site = new StubTestLinkSite();
+		final TestCase[] testCases = site.getAutomatedTestCases( CUSTOM_FIELDS );
+		
+		assertCustomFields( testCases );
+		assertEquals( 8, site.getCustomFieldsFetched() );
+		assertEquals( 1, site.maxRunning.get() );
+		assertEquals( 1, site.getLastFailedTestCases().size() );
+		assertTrue( site.getLastFailedTestCases().contains( 2 ) );
+	}
+	
+	/**
+	 * The values of calls that complete out of order are still added in 
+	 * the order of the test cases and custom fields.
+	 */
+	public void testCustomFieldsFetchedConcurrently()
+	{
+		final CountDownLatch started = new CountDownLatch( 3 );
+		final StubTestLinkSite site = new StubTestLinkSite()
+		{
+			@Override
+			protected void await( TestCase testCase, String customFieldName )
+			{
+				started.countDown();
+				try
+				{
+					started.await( 5, TimeUnit.SECONDS );
+					// The first calls complete last
+					Thread.sleep( Math.max( 0, 40 - 10 * testCase.getId() ) );
+				}
+				catch ( InterruptedException ie )
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		site.setCustomFieldsConcurrency( 3 );
+		final TestCase[] testCases = site.getAutomatedTestCases( CUSTOM_FIELDS );
+		
+		assertCustomFields( testCases );
+		assertEquals( 8, site.getCustomFieldsFetched() );
+		assertEquals( 3, site.maxRunning.get() );
+	}
+	
+	/**
+	 * The timeout of a call counts from its submission, not from the time 
+	 * the calls before it completed.
+	 */
+	public void testTimeoutCountsFromSubmission()
+	{
+		final StubTestLinkSite site = new StubTestLinkSite()
+		{
+			@Override
+			protected void await( TestCase testCase, String customFieldName )
+			{
+				try
+				{
+					// The first call takes 0.6 s and the second one 2 s, so 
+					// the second one only times out counting from submission
+					Thread.sleep( "class".equals( customFieldName ) ? 600L : 2000L );
+				}
+				catch ( InterruptedException ie )
+				{
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		site.setCustomFieldsConcurrency( 2 );
+		site.setCustomFieldsTimeout( 1 );
+		
+		final long start = System.nanoTime();
+		try
+		{
+			site.getAutomatedTestCases( CUSTOM_FIELDS );
+			fail( "Expected the custom field call to time out" );
+		}
+		catch ( TestLinkAPIException tlae )
+		{
+			final long elapsed = TimeUnit.NANOSECONDS.toMillis( System.nanoTime() - start );
+			assertTrue( "Timed out after " + elapsed + " ms", elapsed >= 900L && elapsed < 1500L );
+			assertTrue( tlae.getMessage(), tlae.getMessage().contains( "custom field time of the test case 1 " ) );
+		}
+	}
+	
+}
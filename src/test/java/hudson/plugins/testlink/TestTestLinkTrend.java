@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink;
+
+import hudson.XmlFile;
+import hudson.model.Hudson;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests TestLinkTrend.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestTestLinkTrend 
+extends junit.framework.TestCase
+{
+
+	public void testPointsAreSortedByBuildNumber()
+	{
+		TestLinkTrend trend = new TestLinkTrend( null );
+		trend.add( new TestLinkTrend.Point( 3, 1, 0, 0, 0 ) );
+		trend.add( new TestLinkTrend.Point( 1, 1, 1, 0, 0 ) );
+		trend.add( new TestLinkTrend.Point( 2, 1, 1, 1, 0 ) );
+		
+		List<TestLinkTrend.Point> points = trend.getPoints( -1 );
+		assertEquals( 3, points.size() );
+		assertEquals( 1, points.get( 0 ).getBuildNumber() );
+		assertEquals( 2, points.get( 1 ).getBuildNumber() );
+		assertEquals( 3, points.get( 2 ).getBuildNumber() );
+		assertEquals( 3, points.get( 1 ).getTotal() );
+		assertEquals( "#3", points.get( 2 ).toString() );
+		assertEquals( 3, trend.getLastPoint().getBuildNumber() );
+	}
+	
+	public void testOnlyLastPointsAreReturned()
+	{
+		TestLinkTrend trend = new TestLinkTrend( null );
+		for ( int i = 1 ; i <= 10 ; i++ )
+		{
+			trend.add( new TestLinkTrend.Point( i, i, 0, 0, 0 ) );
+		}
+		
+		List<TestLinkTrend.Point> points = trend.getPoints( 3 );
+		assertEquals( 3, points.size() );
+		assertEquals( 8, points.get( 0 ).getBuildNumber() );
+		assertEquals( 10, points.get( 2 ).getBuildNumber() );
+	}
+	
+	public void testPointsWithinDateRange()
+	{
+		TestLinkTrend trend = new TestLinkTrend( null );
+		for ( int i = 1 ; i <= 10 ; i++ )
+		{
+			trend.add( new TestLinkTrend.Point( i, i * 1000L, i, 0, 0, 0 ) );
+		}
+		
+		List<TestLinkTrend.Point> points = trend.getPoints( -1, 3000L, 6000L );
+		assertEquals( 4, points.size() );
+		assertEquals( 3, points.get( 0 ).getBuildNumber() );
+		assertEquals( 6, points.get( 3 ).getBuildNumber() );
+		
+		points = trend.getPoints( 2, 3000L, 6000L );
+		assertEquals( 2, points.size() );
+		assertEquals( 5, points.get( 0 ).getBuildNumber() );
+	}
+	
+	public void testPointsAreDownsampled()
+	{
+		TestLinkTrend trend = new TestLinkTrend( null );
+		for ( int i = 1 ; i <= 10 ; i++ )
+		{
+			trend.add( new TestLinkTrend.Point( i, 10 - i, i, 0, 0 ) );
+		}
+		
+		List<TestLinkTrend.Bucket> buckets = TestLinkTrend.downsample( trend.getPoints( -1 ), 3 );
+		assertEquals( 3, buckets.size() );
+		
+		TestLinkTrend.Bucket first = buckets.get( 0 );
+		assertEquals( 1, first.getFirstBuildNumber() );
+		assertEquals( 3, first.getLastBuildNumber() );
+		assertEquals( 3, first.getCount() );
+		assertEquals( "#1-#3", first.toString() );
+		// series 1 is Failed
+		assertEquals( 1, first.getMin( 1 ) );
+		assertEquals( 3, first.getMax( 1 ) );
+		assertEquals( 2.0, first.getAverage( 1 ), 0.001 );
+		assertTrue( first.getToolTip( 1 ).startsWith( "Failed:" ) );
+		assertEquals( "", first.getToolTip( 4 ) );
+		
+		int builds = 0;
+		for ( TestLinkTrend.Bucket bucket : buckets )
+		{
+			builds += bucket.getCount();
+		}
+		assertEquals( 10, builds );
+		assertEquals( 10, buckets.get( 2 ).getLastBuildNumber() );
+	}
+	
+	public void testFewPointsAreNotDownsampled()
+	{
+		List<TestLinkTrend.Point> points = new ArrayList<TestLinkTrend.Point>();
+		points.add( new TestLinkTrend.Point( 7, 1, 2, 3, 4 ) );
+		
+		List<TestLinkTrend.Bucket> buckets = TestLinkTrend.downsample( points, 100 );
+		assertEquals( 1, buckets.size() );
+		assertEquals( "#7", buckets.get( 0 ).toString() );
+		// series 0 is Blocked
+		assertEquals( "3 Blocked", buckets.get( 0 ).getToolTip( 0 ) );
+		assertTrue( TestLinkTrend.downsample( new ArrayList<TestLinkTrend.Point>(), 100 ).isEmpty() );
+	}
+	
+	public void testPointIsReplacedAndRemoved()
+	{
+		TestLinkTrend trend = new TestLinkTrend( null );
+		trend.add( new TestLinkTrend.Point( 1, 1, 0, 0, 0 ) );
+		trend.add( new TestLinkTrend.Point( 1, 0, 1, 0, 0 ) );
+		
+		assertEquals( 1, trend.size() );
+		assertEquals( 1, trend.getLastPoint().getFailed() );
+		
+		assertTrue( trend.remove( 1 ) );
+		assertFalse( trend.remove( 1 ) );
+		assertNull( trend.getLastPoint() );
+	}
+	
+	public void testTrendIsPersisted() 
+	throws IOException
+	{
+		File file = File.createTempFile( "testlink-trend", ".xml" );
+		file.delete();
+		try
+		{
+			XmlFile xmlFile = new XmlFile( Hudson.XSTREAM, file );
+			TestLinkTrend trend = new TestLinkTrend( xmlFile );
+			assertFalse( trend.load() );
+			
+			trend.add( new TestLinkTrend.Point( 1, 2, 3, 4, 5 ) );
+			trend.add( new TestLinkTrend.Point( 2, 5, 4, 3, 2 ) );
+			trend.save();
+			
+			TestLinkTrend loaded = new TestLinkTrend( xmlFile );
+			assertTrue( loaded.load() );
+			assertEquals( 2, loaded.size() );
+			TestLinkTrend.Point point = loaded.getPoints( -1 ).get( 0 );
+			assertEquals( 1, point.getBuildNumber() );
+			assertEquals( 2, point.getPassed() );
+			assertEquals( 3, point.getFailed() );
+			assertEquals( 4, point.getBlocked() );
+			assertEquals( 5, point.getNotRun() );
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+	
+}
@@ -0,0 +1,171 @@
+/* 
+ * The MIT License
+ * 
+ * Copyright (c) 2010 Bruno P. Kinoshita <http://www.kinoshita.eti.br>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.result;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Tests AttachmentContentCache.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestAttachmentContentCache 
+extends junit.framework.TestCase
+{
+
+	private File file1;
+	
+	private File file2;
+	
+	protected void setUp()
+	throws IOException
+	{
+		this.file1 = File.createTempFile( "testlink", ".xml" );
+		this.file1.deleteOnExit();
+		FileUtils.writeStringToFile( this.file1, "<testsuite name=\"a\"/>" );
+		
+		this.file2 = File.createTempFile( "testlink", ".xml" );
+		this.file2.deleteOnExit();
+		FileUtils.writeStringToFile( this.file2, "<testsuite name=\"b\"/>" );
+	}
+	
+	public void testSameInstanceIsShared()
+	throws IOException
+	{
+		AttachmentContentCache cache = new AttachmentContentCache();
+		
+		String content = cache.getBase64FileContent( this.file1 );
+		
+		assertSame( content, cache.getBase64FileContent( this.file1 ) );
+		assertEquals( 1, cache.getHits() );
+		assertEquals( 1, cache.getMisses() );
+		assertEquals( content.length(), cache.getSize() );
+	}
+	
+	public void testChangedFileIsReadAgain()
+	throws IOException
+	{
+		AttachmentContentCache cache = new AttachmentContentCache();
+		
+		String content = cache.getBase64FileContent( this.file1 );
+		
+		FileUtils.writeStringToFile( this.file1, "<testsuite name=\"changed\"/>" );
+		
+		assertFalse( content.equals( cache.getBase64FileContent( this.file1 ) ) );
+		assertEquals( 2, cache.getMisses() );
+	}
+	
+	public void testLeastRecentlyUsedEntryIsEvicted()
+	throws IOException
+	{
+		String content = new AttachmentContentCache().getBase64FileContent( this.file1 );
+		AttachmentContentCache cache = new AttachmentContentCache( content.length() );
+		
+		cache.getBase64FileContent( this.file1 );
+		cache.getBase64FileContent( this.file2 );
+		
+		assertEquals( 1, cache.getEvictions() );
+		assertTrue( cache.getSize() <= content.length() );
+		
+		cache.getBase64FileContent( this.file2 );
+		assertEquals( 1, cache.getHits() );
+	}
+	
+	public void testFilesAreNotReadUnderTheLock()
+	throws Exception
+	{
+		final AttachmentContentCache cache = new AttachmentContentCache();
+		final CountDownLatch reading = new CountDownLatch( 1 );
+		final CountDownLatch release = new CountDownLatch( 1 );
+		final AtomicInteger reads = new AtomicInteger();
+		final FileAttachment slow = new FileAttachment( this.file1, DigestUtils.md5Hex( FileUtils.readFileToByteArray( this.file1 ) ) )
+		{
+			public String getBase64Content() 
+			throws IOException, InterruptedException
+			{
+				reads.incrementAndGet();
+				reading.countDown();
+				release.await();
+				return super.getBase64Content();
+			}
+		};
+		final FileAttachment fast = new FileAttachment( this.file2, DigestUtils.md5Hex( FileUtils.readFileToByteArray( this.file2 ) ) );
+		
+		final AtomicReference<String> first = new AtomicReference<String>();
+		final AtomicReference<String> second = new AtomicReference<String>();
+		final Thread reader = new Thread()
+		{
+			public void run()
+			{
+				try
+				{
+					first.set( cache.getBase64Content( slow ) );
+				}
+				catch ( Exception e )
+				{
+					throw new RuntimeException( e );
+				}
+			}
+		};
+		final Thread waiter = new Thread()
+		{
+			public void run()
+			{
+				try
+				{
+					second.set( cache.getBase64Content( slow ) );
+				}
+				catch ( Exception e )
+				{
+					throw new RuntimeException( e );
+				}
+			}
+		};
+		reader.start();
+		assertTrue( reading.await( 10, TimeUnit.SECONDS ) );
+		waiter.start();
+		
+		// Another file is read while the first one is still being read
+		assertNotNull( cache.getBase64Content( fast ) );
+		
+		release.countDown();
+		reader.join();
+		waiter.join();
+		
+		assertEquals( 1, reads.get() );
+		assertNotNull( first.get() );
+		assertSame( first.get(), second.get() );
+		assertSame( first.get(), cache.getBase64Content( slow ) );
+	}
+	
+}
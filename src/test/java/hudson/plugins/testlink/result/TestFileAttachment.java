@@ -0,0 +1,107 @@
+/* 
+ * The MIT License
+ * 
+ * Copyright (c) 2010 Bruno P. Kinoshita <http://www.kinoshita.eti.br>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.result;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Tests FileAttachment.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestFileAttachment 
+extends junit.framework.TestCase
+{
+
+	private File file;
+	
+	private byte[] data;
+	
+	protected void setUp()
+	throws IOException
+	{
+		// Larger than a chunk and not a multiple of 3
+		this.data = new byte[ FileAttachment.CHUNK_SIZE * 2 + 100 ];
+		new Random( 42L ).nextBytes( this.data );
+		
+		this.file = File.createTempFile( "testlink", ".bin" );
+		this.file.deleteOnExit();
+		FileUtils.writeByteArrayToFile( this.file, this.data );
+	}
+	
+	public void testContentIsReadOnlyWhenRequested()
+	throws Exception
+	{
+		FileAttachment attachment = new FileAttachment( this.file, DigestUtils.md5Hex( this.data ) );
+		
+		assertNull( attachment.getContent() );
+		assertEquals( this.file.getName(), attachment.getFileName() );
+		assertEquals( Long.valueOf( this.data.length ), attachment.getFileSize() );
+		assertEquals( Base64.encodeBase64String( this.data ), attachment.getBase64Content() );
+		assertNull( attachment.getContent() );
+	}
+	
+	public void testChangedFileIsRejected()
+	throws Exception
+	{
+		FileAttachment attachment = new FileAttachment( this.file, DigestUtils.md5Hex( this.data ) );
+		
+		FileUtils.writeStringToFile( this.file, "changed" );
+		
+		try
+		{
+			attachment.getBase64Content();
+			fail( "Not supposed to upload a file that changed." );
+		}
+		catch ( IOException ioe )
+		{
+			assertTrue( ioe.getMessage().contains( this.file.getPath() ) );
+		}
+	}
+	
+	public void testContentIsCachedByDigest()
+	throws Exception
+	{
+		AttachmentContentCache cache = new AttachmentContentCache();
+		String digest = cache.getDigest( this.file );
+		assertEquals( DigestUtils.md5Hex( this.data ), digest );
+		assertSame( digest, cache.getDigest( this.file ) );
+		
+		FileAttachment attachment1 = new FileAttachment( this.file, digest );
+		FileAttachment attachment2 = new FileAttachment( this.file, digest );
+		
+		String content = cache.getBase64Content( attachment1 );
+		assertSame( content, cache.getBase64Content( attachment2 ) );
+		assertEquals( 2, cache.getHits() );
+		assertEquals( 2, cache.getMisses() );
+	}
+	
+}
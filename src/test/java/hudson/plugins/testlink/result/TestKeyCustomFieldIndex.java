@@ -0,0 +1,91 @@
+/* 
+ * The MIT License
+ * 
+ * Copyright (c) 2010 Bruno P. Kinoshita <http://www.kinoshita.eti.br>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.result;
+
+import java.util.List;
+
+import br.eti.kinoshita.testlinkjavaapi.model.CustomField;
+import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
+
+/**
+ * Tests KeyCustomFieldIndex.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestKeyCustomFieldIndex 
+extends junit.framework.TestCase
+{
+
+	private final static String KEY_CUSTOM_FIELD = "testCustomField";
+	
+	private KeyCustomFieldIndex index;
+	
+	protected void setUp()
+	{
+		TestCase[] tcs = new TestCase[3];
+		tcs[0] = this.createTestCase( 1, KEY_CUSTOM_FIELD, "br.eti.kinoshita.Test" );
+		tcs[1] = this.createTestCase( 2, KEY_CUSTOM_FIELD, "br.eti.kinoshita.Test, br.eti.kinoshita.TestImmo" );
+		tcs[2] = this.createTestCase( 3, "anotherCustomField", "br.eti.kinoshita.Test" );
+		
+		this.index = new KeyCustomFieldIndex( tcs, KEY_CUSTOM_FIELD );
+	}
+	
+	private TestCase createTestCase( Integer id, String customFieldName, String value )
+	{
+		TestCase tc = new TestCase();
+		CustomField cf = new CustomField();
+		cf.setName( customFieldName );
+		cf.setValue( value );
+		tc.getCustomFields().add( cf );
+		tc.setId( id );
+		return tc;
+	}
+	
+	public void testLookupKeepsTestCasesOrder()
+	{
+		List<KeyCustomFieldIndex.Entry> entries = this.index.lookup( "br.eti.kinoshita.Test" );
+		
+		assertEquals( 2, entries.size() );
+		assertEquals( Integer.valueOf( 1 ), entries.get( 0 ).getTestCase().getId() );
+		assertEquals( Integer.valueOf( 2 ), entries.get( 1 ).getTestCase().getId() );
+	}
+	
+	public void testLookupTrimmedValues()
+	{
+		List<KeyCustomFieldIndex.Entry> entries = this.index.lookup( "br.eti.kinoshita.TestImmo" );
+		
+		assertEquals( 1, entries.size() );
+		assertEquals( 2, entries.get( 0 ).getCommaSeparatedValues().length );
+		assertEquals( "br.eti.kinoshita.TestImmo", entries.get( 0 ).getCommaSeparatedValues()[1] );
+	}
+	
+	public void testLookupUnknownValue()
+	{
+		assertEquals( 0, this.index.lookup( "br.eti.kinoshita.Nothing" ).size() );
+		assertEquals( 0, this.index.lookup( null ).size() );
+		assertEquals( 2, this.index.size() );
+	}
+	
+}
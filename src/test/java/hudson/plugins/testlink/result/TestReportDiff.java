@@ -0,0 +1,106 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.result;
+
+import br.eti.kinoshita.testlinkjavaapi.model.Build;
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
+
+/**
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestReportDiff 
+extends junit.framework.TestCase
+{
+
+	private Report previous;
+	
+	private Report current;
+	
+	public void setUp()
+	{
+		this.previous = new Report( new Build() );
+		this.current = new Report( new Build() );
+	}
+	
+	private static TestCaseRecord record( int id, ExecutionStatus status )
+	{
+		return new TestCaseRecord( id, 1, "TC-" + id, 10, status, null, -1L );
+	}
+	
+	public void testClassification()
+	{
+		previous.addTestCase( record( 1, ExecutionStatus.PASSED ) );
+		previous.addTestCase( record( 2, ExecutionStatus.FAILED ) );
+		previous.addTestCase( record( 3, ExecutionStatus.FAILED ) );
+		previous.addTestCase( record( 4, ExecutionStatus.BLOCKED ) );
+		previous.addTestCase( record( 5, ExecutionStatus.PASSED ) );
+		
+		current.addTestCase( record( 1, ExecutionStatus.FAILED ) );
+		current.addTestCase( record( 2, ExecutionStatus.PASSED ) );
+		current.addTestCase( record( 3, ExecutionStatus.FAILED ) );
+		current.addTestCase( record( 4, ExecutionStatus.PASSED ) );
+		current.addTestCase( record( 6, ExecutionStatus.FAILED ) );
+		
+		ReportDiff diff = new ReportDiff( current, previous );
+		
+		assertEquals( 1, diff.getNewFailures().size() );
+		assertEquals( Integer.valueOf( 1 ), diff.getNewFailures().get( 0 ).getId() );
+		assertEquals( 1, diff.getFixed().size() );
+		assertEquals( Integer.valueOf( 2 ), diff.getFixed().get( 0 ).getId() );
+		assertEquals( 1, diff.getStillFailing().size() );
+		assertEquals( Integer.valueOf( 3 ), diff.getStillFailing().get( 0 ).getId() );
+		assertEquals( 1, diff.getAdded().size() );
+		assertEquals( Integer.valueOf( 6 ), diff.getAdded().get( 0 ).getId() );
+		assertEquals( 1, diff.getRemoved().size() );
+		assertEquals( Integer.valueOf( 5 ), diff.getRemoved().get( 0 ).getId() );
+		assertEquals( 1, diff.getUnchanged() );
+	}
+	
+	public void testDuplicatedIdsAreComparedOnce()
+	{
+		previous.addTestCase( record( 1, ExecutionStatus.PASSED ) );
+		previous.addTestCase( record( 1, ExecutionStatus.FAILED ) );
+		current.addTestCase( record( 1, ExecutionStatus.FAILED ) );
+		current.addTestCase( record( 1, ExecutionStatus.PASSED ) );
+		
+		ReportDiff diff = new ReportDiff( current, previous );
+		
+		assertEquals( 1, diff.getNewFailures().size() );
+		assertEquals( 0, diff.getFixed().size() );
+		assertEquals( 0, diff.getRemoved().size() );
+		assertEquals( 0, diff.getUnchanged() );
+	}
+	
+	public void testEmptyPrevious()
+	{
+		current.addTestCase( record( 1, ExecutionStatus.FAILED ) );
+		
+		ReportDiff diff = new ReportDiff( current, previous );
+		
+		assertEquals( 1, diff.getAdded().size() );
+		assertEquals( 0, diff.getNewFailures().size() );
+	}
+	
+}
@@ -24,6 +24,10 @@
 package hudson.plugins.testlink.result;
 
 import hudson.plugins.testlink.parser.junit.TestSuite;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+
 import br.eti.kinoshita.testlinkjavaapi.model.Attachment;
 import br.eti.kinoshita.testlinkjavaapi.model.Build;
 import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
@@ -119,5 +123,38 @@ extends junit.framework.TestCase
 		
 		assertEquals( testResult.getCustomFieldAndStatus().size(), 0 );
 	}
+	
+	/**
+	 * Wrappers and origins loaded from builds recorded before 3.0.3 have 
+	 * neither the duration nor the parsed time, which XStream leaves at 0.
+	 */
+	public void testDurationOfOldWrapper()
+	throws Exception
+	{
+		final TestSuite suite = new TestSuite();
+		suite.setTime( "1.5" );
+		final TestCaseWrapper<TestSuite> wrapper = new TestCaseWrapper<TestSuite>( testCase, customFieldsNames, suite );
+		
+		final Field timeMillis = TestSuite.class.getDeclaredField( "timeMillis" );
+		timeMillis.setAccessible( true );
+		timeMillis.setLong( suite, 0L );
+		final Field duration = TestCaseWrapper.class.getDeclaredField( "duration" );
+		duration.setAccessible( true );
+		duration.setLong( wrapper, 0L );
+		final Field durationRecorded = TestCaseWrapper.class.getDeclaredField( "durationRecorded" );
+		durationRecorded.setAccessible( true );
+		durationRecorded.setBoolean( wrapper, false );
+		
+		final Method readResolve = TestSuite.class.getDeclaredMethod( "readResolve" );
+		readResolve.setAccessible( true );
+		readResolve.invoke( suite );
+		wrapper.readResolve();
+		assertEquals( 1500L, wrapper.getDuration() );
+		
+		duration.setLong( this.testResult, 0L );
+		durationRecorded.setBoolean( this.testResult, false );
+		this.testResult.readResolve();
+		assertEquals( -1L, this.testResult.getDuration() );
+	}
 
 }
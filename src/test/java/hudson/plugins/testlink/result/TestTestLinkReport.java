@@ -23,6 +23,8 @@
  */
 package hudson.plugins.testlink.result;
 
+import java.util.List;
+
 import br.eti.kinoshita.testlinkjavaapi.model.Build;
 import br.eti.kinoshita.testlinkjavaapi.model.CustomField;
 import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
@@ -149,4 +151,173 @@ extends junit.framework.TestCase
 		assertTrue( report.getTestsPassed() == 3 );
 		assertTrue( report.getTestsTotal() == 5 );
 	}
+	
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void testRecordsAreCompact()
+	{
+		TestCase testCase = new TestCase();
+		testCase.setId( 1 );
+		testCase.setVersion( 2 );
+		testCase.setName( "tc1" );
+		testCase.setExecutionStatus( ExecutionStatus.FAILED );
+		hudson.plugins.testlink.parser.junit.TestCase junitTestCase = new hudson.plugins.testlink.parser.junit.TestCase();
+		junitTestCase.setTime( "1.5" );
+		TestCaseWrapper<?> tcw1 = new TestCaseWrapper(testCase, new String[]{"cf1"}, junitTestCase);
+		tcw1.addCustomFieldAndStatus("cf1", ExecutionStatus.FAILED);
+		tcw1.setPlatform( "Linux" );
+		report.addTestCase( tcw1 );
+		
+		TestCaseRecord record = report.getTestCases().get( 0 );
+		assertEquals( Integer.valueOf( 1 ), record.getId() );
+		assertEquals( Integer.valueOf( 2 ), record.getVersion() );
+		assertEquals( "tc1", record.getName() );
+		assertEquals( ExecutionStatus.FAILED, record.getExecutionStatus() );
+		assertEquals( "Linux", record.getPlatform() );
+		assertEquals( 1500L, record.getDuration() );
+	}
+	
+	/**
+	 * Reports recorded before 3.0.3 kept the wrappers, and are migrated when 
+	 * loaded.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void testOldReportIsMigrated()
+	throws Exception
+	{
+		TestCase testCase = new TestCase();
+		testCase.setId( 1 );
+		testCase.setExecutionStatus( ExecutionStatus.PASSED );
+		TestCaseWrapper<?> tcw1 = new TestCaseWrapper(testCase, new String[]{"cf1"}, null);
+		tcw1.addCustomFieldAndStatus("cf1", ExecutionStatus.PASSED);
+		
+		java.util.List<TestCaseWrapper<?>> oldTestCases = new java.util.ArrayList<TestCaseWrapper<?>>();
+		oldTestCases.add( tcw1 );
+		java.lang.reflect.Field testCasesField = Report.class.getDeclaredField( "testCases" );
+		testCasesField.setAccessible( true );
+		testCasesField.set( report, oldTestCases );
+		java.lang.reflect.Field recordsField = Report.class.getDeclaredField( "records" );
+		recordsField.setAccessible( true );
+		recordsField.set( report, null );
+		
+		assertFalse( report.isMigrated() );
+		
+		report.readResolve();
+		
+		assertTrue( report.isMigrated() );
+		assertNull( testCasesField.get( report ) );
+		assertEquals( 1, report.getTestCases().size() );
+		assertEquals( ExecutionStatus.PASSED, report.getTestCases().get( 0 ).getExecutionStatus() );
+		
+		report.readResolve();
+		assertEquals( 1, report.getTestCases().size() );
+	}
+	
+	public void testPageOfRecords()
+	{
+		for ( int i = 1 ; i <= 25 ; i++ )
+		{
+			ExecutionStatus status = i % 5 == 0 ? ExecutionStatus.FAILED : ExecutionStatus.PASSED;
+			this.report.addTestCase( new TestCaseRecord( i, 1, "tc" + ( 100 - i ), 1, status, null, i * 10L ) );
+		}
+		
+		ReportPage page = this.report.getPage( 1, 10, null, false, null );
+		assertEquals( "id", page.getSort() );
+		assertEquals( 25, page.getTotal() );
+		assertEquals( 3, page.getPageCount() );
+		assertEquals( 10, page.getRecords().size() );
+		assertEquals( Integer.valueOf( 1 ), page.getRecords().get( 0 ).getId() );
+		assertTrue( page.isFirst() );
+		assertFalse( page.isLast() );
+		
+		page = this.report.getPage( 3, 10, "id", false, null );
+		assertEquals( 5, page.getRecords().size() );
+		assertTrue( page.isLast() );
+		
+		// out of range pages show the last page
+		page = this.report.getPage( 99, 10, "id", false, null );
+		assertEquals( 3, page.getPage() );
+		
+		page = this.report.getPage( 1, 10, "name", false, null );
+		assertEquals( "tc75", page.getRecords().get( 0 ).getName() );
+		
+		page = this.report.getPage( 1, 10, "duration", true, null );
+		assertEquals( 250L, page.getRecords().get( 0 ).getDuration() );
+	}
+	
+	public void testPageOfRecordsWithStatus()
+	{
+		for ( int i = 1 ; i <= 25 ; i++ )
+		{
+			ExecutionStatus status = i % 5 == 0 ? ExecutionStatus.FAILED : ExecutionStatus.PASSED;
+			this.report.addTestCase( new TestCaseRecord( i, 1, "tc" + i, 1, status, null, -1L ) );
+		}
+		
+		ReportPage page = this.report.getPage( 1, 2, "id", true, ExecutionStatus.FAILED );
+		assertEquals( 5, page.getTotal() );
+		assertEquals( 3, page.getPageCount() );
+		assertEquals( Integer.valueOf( 25 ), page.getRecords().get( 0 ).getId() );
+		assertEquals( Integer.valueOf( 20 ), page.getRecords().get( 1 ).getId() );
+		assertEquals( "failed", page.getStatusParameter() );
+		assertEquals( "?page=2&size=2&sort=id&order=desc&status=failed", page.getPageUrl( 2 ) );
+		assertEquals( "?page=1&size=2&sort=id&order=asc&status=failed", page.getSortUrl( "id" ) );
+		assertEquals( "?page=1&size=2&sort=id&order=desc", page.getStatusUrl( "" ) );
+		
+		page = this.report.getPage( 3, 2, "id", true, ExecutionStatus.FAILED );
+		assertEquals( 1, page.getRecords().size() );
+		assertEquals( Integer.valueOf( 5 ), page.getRecords().get( 0 ).getId() );
+	}
+	
+	public void testRecordById()
+	{
+		this.report.addTestCase( new TestCaseRecord( 10, 1, "tc10", 1, ExecutionStatus.PASSED, null, -1L ) );
+		assertEquals( "tc10", this.report.getTestCase( 10 ).getName() );
+		assertNull( this.report.getTestCase( 11 ) );
+		
+		this.report.addTestCase( new TestCaseRecord( 11, 1, "tc11", 1, ExecutionStatus.PASSED, null, -1L ) );
+		assertEquals( "tc11", this.report.getTestCase( 11 ).getName() );
+	}
+	
+	/**
+	 * The durations of the test results of a test case are added.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void testDurationsAreAggregated()
+	{
+		TestCase testCase = new TestCase();
+		testCase.setId( 1 );
+		hudson.plugins.testlink.parser.junit.TestCase junitTestCase = new hudson.plugins.testlink.parser.junit.TestCase();
+		junitTestCase.setTime( "1,000.25" );
+		assertEquals( 1000250L, junitTestCase.getTimeMillis() );
+		junitTestCase.setTime( "0.5" );
+		assertEquals( 500L, junitTestCase.getTimeMillis() );
+		TestCaseWrapper<?> tcw1 = new TestCaseWrapper(testCase, new String[]{"cf1"}, junitTestCase);
+		tcw1.addDuration( 250L );
+		tcw1.addDuration( -1L );
+		assertEquals( 750L, tcw1.getDuration() );
+		
+		hudson.plugins.testlink.parser.junit.TestCase untimed = new hudson.plugins.testlink.parser.junit.TestCase();
+		untimed.setTime( "n/a" );
+		TestCaseWrapper<?> tcw2 = new TestCaseWrapper(testCase, new String[]{"cf1"}, untimed);
+		assertEquals( -1L, tcw2.getDuration() );
+		tcw2.addDuration( 100L );
+		assertEquals( 100L, tcw2.getDuration() );
+	}
+	
+	public void testSlowestAndTotalDuration()
+	{
+		assertEquals( -1L, this.report.getDuration() );
+		this.report.addTestCase( new TestCaseRecord( 1, 1, "tc1", 1, ExecutionStatus.PASSED, null, 100L ) );
+		this.report.addTestCase( new TestCaseRecord( 2, 1, "tc2", 1, ExecutionStatus.PASSED, null, -1L ) );
+		this.report.addTestCase( new TestCaseRecord( 3, 1, "tc3", 1, ExecutionStatus.FAILED, null, 300L ) );
+		this.report.addTestCase( new TestCaseRecord( 4, 1, "tc4", 1, ExecutionStatus.PASSED, null, 200L ) );
+		
+		assertEquals( 600L, this.report.getDuration() );
+		
+		List<TestCaseRecord> slowest = this.report.getSlowest( 2 );
+		assertEquals( 2, slowest.size() );
+		assertEquals( Integer.valueOf( 3 ), slowest.get( 0 ).getId() );
+		assertEquals( Integer.valueOf( 4 ), slowest.get( 1 ).getId() );
+		assertEquals( 3, this.report.getSlowest( 10 ).size() );
+	}
+	
 }
@@ -0,0 +1,139 @@
+/* 
+ * The MIT License
+ * 
+ * Copyright (c) 2010 Bruno P. Kinoshita <http://www.kinoshita.eti.br>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.result;
+
+import hudson.model.BuildListener;
+import hudson.model.StreamBuildListener;
+import hudson.plugins.testlink.result.junit.JUnitSuitesTestResultSeeker;
+import hudson.plugins.testlink.result.junit.JUnitTestCasesTestResultSeeker;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.Map;
+
+import br.eti.kinoshita.testlinkjavaapi.model.CustomField;
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
+import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
+
+/**
+ * Tests TestResultsCallable with seekers that share the same report files.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+@SuppressWarnings("rawtypes")
+public class TestTestResultsCallable 
+extends junit.framework.TestCase
+{
+
+	private final static String KEY_CUSTOM_FIELD = "testCustomField";
+	
+	private BuildListener listener;
+	
+	private TestCase[] tcs;
+	
+	private File junitDir;
+	
+	protected void setUp()
+	{
+		this.listener = new StreamBuildListener(new PrintStream(System.out), Charset.defaultCharset());
+		
+		this.tcs = new TestCase[3];
+		this.tcs[0] = this.createTestCase( 1, "br.eti.kinoshita.Test" );
+		this.tcs[1] = this.createTestCase( 2, "br.eti.kinoshita.TestImmo" );
+		this.tcs[2] = this.createTestCase( 3, "Consultation" );
+		
+		ClassLoader cl = TestTestResultsCallable.class.getClassLoader();
+		URL url = cl.getResource("hudson/plugins/testlink/result/junit/");
+		this.junitDir = new File( url.getFile() );
+	}
+	
+	private TestCase createTestCase( Integer id, String value )
+	{
+		TestCase tc = new TestCase();
+		CustomField cf = new CustomField();
+		cf.setName( KEY_CUSTOM_FIELD );
+		cf.setValue( value );
+		tc.getCustomFields().add( cf );
+		tc.setId( id );
+		return tc;
+	}
+	
+	public void testSharedParseFindsSameResults()
+	{
+		TestResultsCallable callable = new TestResultsCallable( tcs, KEY_CUSTOM_FIELD );
+		callable.addTestResultSeeker( new JUnitSuitesTestResultSeeker<hudson.plugins.testlink.parser.junit.TestSuite>( "TEST-*.xml", callable.getKeyCustomFieldIndex(), listener ) );
+		callable.addTestResultSeeker( new JUnitTestCasesTestResultSeeker<hudson.plugins.testlink.parser.junit.TestCase>( "TEST-*.xml", callable.getKeyCustomFieldIndex(), listener ) );
+		
+		assertEquals( 1, callable.groupTestResultSeekers().size() );
+		
+		Map<Integer, TestCaseWrapper> shared = callable.seekTestResults( junitDir );
+		
+		Map<Integer, TestCaseWrapper<hudson.plugins.testlink.parser.junit.TestCase>> alone = 
+			new JUnitTestCasesTestResultSeeker<hudson.plugins.testlink.parser.junit.TestCase>( "TEST-*.xml", tcs, KEY_CUSTOM_FIELD, listener ).seek( junitDir );
+		
+		assertEquals( alone.size(), shared.size() );
+		for ( Integer id : alone.keySet() )
+		{
+			assertEquals( alone.get( id ).getExecutionStatus(), shared.get( id ).getExecutionStatus() );
+		}
+		assertTrue( shared.get( 1 ).getExecutionStatus() == ExecutionStatus.FAILED );
+	}
+	
+	public void testParallelParsingFindsSameResults()
+	{
+		Map<Integer, TestCaseWrapper> sequential = this.seekJUnit( 1 );
+		Map<Integer, TestCaseWrapper> parallel = this.seekJUnit( 4 );
+		
+		assertEquals( sequential.size(), parallel.size() );
+		assertEquals( sequential.keySet().toString(), parallel.keySet().toString() );
+		for ( Integer id : sequential.keySet() )
+		{
+			assertEquals( sequential.get( id ).getExecutionStatus(), parallel.get( id ).getExecutionStatus() );
+			assertEquals( sequential.get( id ).getNotes(), parallel.get( id ).getNotes() );
+			assertEquals( sequential.get( id ).getAttachments().size(), parallel.get( id ).getAttachments().size() );
+		}
+	}
+	
+	private Map<Integer, TestCaseWrapper> seekJUnit( int parallelism )
+	{
+		TestResultsCallable callable = new TestResultsCallable( tcs, KEY_CUSTOM_FIELD );
+		callable.setParallelism( parallelism );
+		callable.addTestResultSeeker( new JUnitSuitesTestResultSeeker<hudson.plugins.testlink.parser.junit.TestSuite>( "TEST-*.xml", callable.getKeyCustomFieldIndex(), listener ) );
+		callable.addTestResultSeeker( new JUnitTestCasesTestResultSeeker<hudson.plugins.testlink.parser.junit.TestCase>( "TEST-*.xml", callable.getKeyCustomFieldIndex(), listener ) );
+		return callable.seekTestResults( junitDir );
+	}
+	
+	public void testSeekersWithDifferentPatternsAreNotGrouped()
+	{
+		TestResultsCallable callable = new TestResultsCallable( tcs, KEY_CUSTOM_FIELD );
+		callable.addTestResultSeeker( new JUnitSuitesTestResultSeeker<hudson.plugins.testlink.parser.junit.TestSuite>( "TEST-*.xml", callable.getKeyCustomFieldIndex(), listener ) );
+		callable.addTestResultSeeker( new JUnitTestCasesTestResultSeeker<hudson.plugins.testlink.parser.junit.TestCase>( "*.xml", callable.getKeyCustomFieldIndex(), listener ) );
+		
+		assertEquals( 2, callable.groupTestResultSeekers().size() );
+	}
+	
+}
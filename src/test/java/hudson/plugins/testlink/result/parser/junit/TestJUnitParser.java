@@ -32,7 +32,12 @@ import hudson.plugins.testlink.parser.junit.TestSuite;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import junit.framework.Assert;
 
@@ -237,4 +242,52 @@ extends junit.framework.TestCase
 		Assert.assertTrue( testSuites.size() == 0 );
 	}
 	
+	public void testRepeatedParseReturnsOnlyTheSuitesOfTheFile()
+	{
+		ClassLoader cl = TestJUnitParser.class.getClassLoader();
+		File pistonFile = new File( cl.getResource("hudson/plugins/testlink/result/parser/junit/TEST-net.cars.engine.PistonTest.xml").getFile() );
+		File delcoFile = new File( cl.getResource("hudson/plugins/testlink/result/parser/junit/TEST-net.cars.engine.DelcoTest.xml").getFile() );
+		
+		Assert.assertEquals( 1, this.parser.parse( pistonFile ).size() );
+		
+		List<TestSuite> testSuites = this.parser.parse( delcoFile );
+		Assert.assertEquals( 1, testSuites.size() );
+		Assert.assertEquals( "net.cars.engine.DelcoTest", testSuites.get( 0 ).getName() );
+		
+		Assert.assertEquals( 1, this.parser.parse( pistonFile ).size() );
+	}
+	
+	public void testConcurrentParse()
+	throws Exception
+	{
+		ClassLoader cl = TestJUnitParser.class.getClassLoader();
+		final File pistonFile = new File( cl.getResource("hudson/plugins/testlink/result/parser/junit/TEST-net.cars.engine.PistonTest.xml").getFile() );
+		
+		ExecutorService executor = Executors.newFixedThreadPool( 4 );
+		try
+		{
+			List<Future<List<TestSuite>>> futures = new ArrayList<Future<List<TestSuite>>>();
+			for ( int i = 0 ; i < 20 ; ++i )
+			{
+				futures.add( executor.submit( new Callable<List<TestSuite>>()
+				{
+					public List<TestSuite> call() throws Exception
+					{
+						return parser.parse( pistonFile );
+					}
+				}));
+			}
+			for ( Future<List<TestSuite>> future : futures )
+			{
+				List<TestSuite> testSuites = future.get();
+				Assert.assertEquals( 1, testSuites.size() );
+				Assert.assertEquals( 5, testSuites.get( 0 ).getTestCases().size() );
+			}
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+	
 }
@@ -79,6 +79,7 @@ extends TestCase
 		
 		assertTrue( suite.getName().equals("Command line suite") );
 		assertTrue( suite.getDurationMs().equals("0") );
+		assertEquals( 0L, suite.getDurationMillis() );
 		assertTrue( suite.getStartedAt().equals("2010-11-17T13:31:41Z") );
 		assertTrue( suite.getFinishedAt().equals("2010-11-17T13:31:41Z") );
 		
@@ -111,6 +112,7 @@ extends TestCase
 		assertTrue( testMethod.getSignature().equals("testVoid()") );
 		assertTrue( testMethod.getName().equals("testVoid") );
 		assertTrue( testMethod.getDurationMs().equals("0") );
+		assertEquals( 0L, testMethod.getDurationMillis() );
 		assertTrue( testMethod.getStartedAt().equals("2010-11-17T13:31:41Z") );
 		assertTrue( testMethod.getFinishedAt().equals("2010-11-17T13:31:41Z") );
 		
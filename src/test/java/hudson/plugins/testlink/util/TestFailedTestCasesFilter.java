@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.util;
+
+import hudson.plugins.testlink.result.Report;
+import hudson.plugins.testlink.result.TestCaseWrapper;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import br.eti.kinoshita.testlinkjavaapi.model.Build;
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionStatus;
+import br.eti.kinoshita.testlinkjavaapi.model.ExecutionType;
+import br.eti.kinoshita.testlinkjavaapi.model.TestCase;
+
+/**
+ * Tests the FailedTestCasesFilter class.
+ *
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+@SuppressWarnings({ "unchecked", "rawtypes" })
+public class TestFailedTestCasesFilter 
+extends junit.framework.TestCase
+{
+
+	private TestCase createTestCase( int id, ExecutionStatus status )
+	{
+		return new TestCase(id, "tc" + id, id, id, "kinow", "No summary", null, "", null, ExecutionType.AUTOMATED, null, id, id, false, null, id, id, null, null, status );
+	}
+	
+	private TestCaseWrapper createTestCaseWrapper( int id, ExecutionStatus status )
+	{
+		TestCaseWrapper tcw = new TestCaseWrapper(createTestCase(id, status), new String[]{"cf1"}, null);
+		tcw.addCustomFieldAndStatus("cf1", status);
+		return tcw;
+	}
+	
+	/**
+	 * Tests that only the failed and blocked test cases of a report are 
+	 * found.
+	 */
+	public void testFailedTestCasesOfReport()
+	{
+		Report report = new Report(new Build(1, 1, "My build", "Notes about my build"));
+		report.addTestCase( createTestCaseWrapper(1, ExecutionStatus.PASSED) );
+		report.addTestCase( createTestCaseWrapper(2, ExecutionStatus.FAILED) );
+		report.addTestCase( createTestCaseWrapper(3, ExecutionStatus.BLOCKED) );
+		report.addTestCase( createTestCaseWrapper(4, ExecutionStatus.NOT_RUN) );
+		
+		Set<Integer> failed = FailedTestCasesFilter.getFailedTestCases( report );
+		
+		assertEquals( 2, failed.size() );
+		assertTrue( failed.contains( 2 ) );
+		assertTrue( failed.contains( 3 ) );
+	}
+	
+	/**
+	 * Tests that the filter keeps the order of the test cases.
+	 */
+	public void testFilter()
+	{
+		TestCase[] testCases = new TestCase[] {
+			createTestCase(3, ExecutionStatus.NOT_RUN), 
+			createTestCase(1, ExecutionStatus.NOT_RUN), 
+			createTestCase(2, ExecutionStatus.NOT_RUN)
+		};
+		Set<Integer> failed = new HashSet<Integer>();
+		failed.add( 2 );
+		failed.add( 3 );
+		failed.add( 5 );
+		
+		TestCase[] filtered = FailedTestCasesFilter.filter( testCases, failed );
+		
+		assertEquals( 2, filtered.length );
+		assertSame( testCases[0], filtered[0] );
+		assertSame( testCases[2], filtered[1] );
+		assertEquals( 0, FailedTestCasesFilter.filter( testCases, new HashSet<Integer>() ).length );
+	}
+	
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import junit.framework.Assert;
+import junit.framework.TestCase;
+
+/**
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestHistoricalOrderComparator
+extends TestCase
+{
+	
+	private br.eti.kinoshita.testlinkjavaapi.model.TestCase tc1 = 
+		new br.eti.kinoshita.testlinkjavaapi.model.TestCase();
+	
+	private br.eti.kinoshita.testlinkjavaapi.model.TestCase tc2 = 
+		new br.eti.kinoshita.testlinkjavaapi.model.TestCase();
+	
+	private br.eti.kinoshita.testlinkjavaapi.model.TestCase tc3 = 
+		new br.eti.kinoshita.testlinkjavaapi.model.TestCase();
+	
+	private br.eti.kinoshita.testlinkjavaapi.model.TestCase tc4 = 
+		new br.eti.kinoshita.testlinkjavaapi.model.TestCase();
+	
+	br.eti.kinoshita.testlinkjavaapi.model.TestCase[] arr =
+		new br.eti.kinoshita.testlinkjavaapi.model.TestCase[4];
+	
+	public void setUp()
+	{
+		tc1.setId(1);
+		tc2.setId(2);
+		tc3.setId(3);
+		tc4.setId(4);
+		
+		tc1.setExecutionOrder(1);
+		tc2.setExecutionOrder(2);
+		tc3.setExecutionOrder(3);
+		tc4.setExecutionOrder(4);
+		
+		this.arr[0] = tc1;
+		this.arr[1] = tc2;
+		this.arr[2] = tc3;
+		this.arr[3] = tc4;
+	}
+	
+	public void testHighestWeightFirst()
+	{
+		Map<Integer, Double> weights = new HashMap<Integer, Double>();
+		weights.put( 2, 0.5d );
+		weights.put( 3, 0.9d );
+		weights.put( 4, 0.5d );
+		
+		Arrays.sort( arr, new HistoricalOrderComparator( weights, new ExecutionOrderComparator() ) );
+		
+		Assert.assertEquals( tc3, arr[0] );
+		Assert.assertEquals( tc2, arr[1] );
+		Assert.assertEquals( tc4, arr[2] );
+		Assert.assertEquals( tc1, arr[3] );
+	}
+	
+	public void testNoWeightsKeepsExecutionOrder()
+	{
+		tc1.setExecutionOrder(4);
+		tc4.setExecutionOrder(1);
+		
+		Arrays.sort( arr, new HistoricalOrderComparator( new HashMap<Integer, Double>(), new ExecutionOrderComparator() ) );
+		
+		Assert.assertEquals( tc4, arr[0] );
+		Assert.assertEquals( tc2, arr[1] );
+		Assert.assertEquals( tc3, arr[2] );
+		Assert.assertEquals( tc1, arr[3] );
+	}
+
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.util;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Tests LoadingMap.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestLoadingMap 
+extends junit.framework.TestCase
+{
+
+	/**
+	 * A slow key does not block the other keys, and the threads asking for 
+	 * it while it is loaded get the same value, loaded once.
+	 */
+	public void testKeysAreLoadedOutsideTheLock() 
+	throws InterruptedException
+	{
+		final LoadingMap<String, Object> map = new LoadingMap<String, Object>();
+		final CountDownLatch loading = new CountDownLatch( 1 );
+		final CountDownLatch release = new CountDownLatch( 1 );
+		final AtomicInteger loads = new AtomicInteger();
+		final Callable<Object> slowLoader = new Callable<Object>()
+		{
+			public Object call() 
+			throws InterruptedException
+			{
+				loads.incrementAndGet();
+				loading.countDown();
+				release.await();
+				return new Object();
+			}
+		};
+		
+		final AtomicReference<Object> first = new AtomicReference<Object>();
+		final AtomicReference<Object> second = new AtomicReference<Object>();
+		final Thread thread1 = new Thread()
+		{
+			public void run()
+			{
+				first.set( map.get( "slow", slowLoader ) );
+			}
+		};
+		final Thread thread2 = new Thread()
+		{
+			public void run()
+			{
+				second.set( map.get( "slow", slowLoader ) );
+			}
+		};
+		thread1.start();
+		assertTrue( loading.await( 5, TimeUnit.SECONDS ) );
+		thread2.start();
+		
+		final Object fast = new Object();
+		assertSame( fast, map.get( "fast", new Callable<Object>()
+		{
+			public Object call()
+			{
+				return fast;
+			}
+		}) );
+		
+		release.countDown();
+		thread1.join( 5000L );
+		thread2.join( 5000L );
+		assertNotNull( first.get() );
+		assertSame( first.get(), second.get() );
+		assertSame( first.get(), map.get( "slow", slowLoader ) );
+		assertEquals( 1, loads.get() );
+	}
+	
+	public void testFailedLoadIsRetried()
+	{
+		final LoadingMap<String, String> map = new LoadingMap<String, String>();
+		try
+		{
+			map.get( "key", new Callable<String>()
+			{
+				public String call()
+				{
+					throw new IllegalStateException( "Corrupt" );
+				}
+			});
+			fail( "Not supposed to return a value that failed to load." );
+		}
+		catch ( IllegalStateException ise )
+		{
+			assertEquals( "Corrupt", ise.getMessage() );
+		}
+		
+		assertEquals( "value", map.get( "key", new Callable<String>()
+		{
+			public String call()
+			{
+				return "value";
+			}
+		}) );
+	}
+	
+}
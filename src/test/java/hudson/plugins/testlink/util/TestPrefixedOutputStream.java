@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) <2011> <Bruno P. Kinoshita>
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package hudson.plugins.testlink.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/**
+ * Tests the PrefixedOutputStream class.
+ * 
+ * @author Bruno P. Kinoshita - http://www.kinoshita.eti.br
+ * @since 3.0.3
+ */
+public class TestPrefixedOutputStream 
+extends junit.framework.TestCase
+{
+
+	public void testLinesArePrefixed() 
+	throws IOException
+	{
+		final ByteArrayOutputStream log = new ByteArrayOutputStream();
+		final PrintStream logger = new PrintStream( log );
+		final PrintStream out = new PrintStream( new PrefixedOutputStream( "[batch 1] ", logger ) );
+		out.print( "first " );
+		out.print( "line\nsecond line\nlast" );
+		assertEquals( "[batch 1] first line\n[batch 1] second line\n", log.toString() );
+		
+		out.flush();
+		assertEquals( "[batch 1] first line\n[batch 1] second line\n[batch 1] last\n", log.toString() );
+		out.flush();
+		assertEquals( "[batch 1] first line\n[batch 1] second line\n[batch 1] last\n", log.toString() );
+	}
+	
+	/**
+	 * Lines written by several threads to the same log are not mixed.
+	 */
+	public void testConcurrentLinesAreNotMixed() 
+	throws InterruptedException
+	{
+		final ByteArrayOutputStream log = new ByteArrayOutputStream();
+		final PrintStream logger = new PrintStream( log );
+		final Thread[] threads = new Thread[ 4 ];
+		for ( int i = 0 ; i < threads.length ; ++i )
+		{
+			final String name = "worker" + i;
+			threads[i] = new Thread()
+			{
+				public void run()
+				{
+					final PrintStream out = new PrintStream( new PrefixedOutputStream( "[" + name + "] ", logger ) );
+					for ( int j = 0 ; j < 200 ; ++j )
+					{
+						out.print( name );
+						out.print( " line " );
+						out.println( j );
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for ( Thread thread : threads )
+		{
+			thread.join();
+		}
+		final String[] lines = log.toString().split( "\n" );
+		assertEquals( 800, lines.length );
+		for ( String line : lines )
+		{
+			assertTrue( line, line.matches( "\\[(worker\\d)\\] \\1 line \\d+" ) );
+		}
+	}
+	
+}
@@ -23,6 +23,8 @@
  */
 package hudson.plugins.testlink.util;
 
+import hudson.plugins.testlink.TestLinkBuildAction;
+import hudson.plugins.testlink.TestLinkResult;
 import hudson.plugins.testlink.result.Report;
 import hudson.plugins.testlink.result.TestCaseWrapper;
 
@@ -156,6 +158,46 @@ extends junit.framework.TestCase
 		assertEquals(reportSummary, "<p><b>TestLink build ID: 1</b></p><p><b>TestLink build name: My build</b></p><p><a href=\"testLinkResult\">Total of 3 (+1) tests</a>. Where 1 passed, 1 failed, 1 (+1) were blocked and 0 were not executed.</p>");
 	}
 	
+	/**
+	 * Tests the createReportSummary() method with the counters kept in the 
+	 * build actions.
+	 */
+	public void testSummaryFromActions()
+	{
+		Build build = new Build(1, 1, "My build", "Notes about my build");
+		
+		Report report = new Report(build);
+		
+		TestCase testCase1 = new TestCase(1, "tc1", 1, 1, "kinow", "No summary", null, "", null, ExecutionType.AUTOMATED, null, 1, 1, false, null, 1, 1, null, null, ExecutionStatus.PASSED );
+		TestCaseWrapper tcw1 = new TestCaseWrapper(testCase1, new String[]{"cf1"}, null);
+		tcw1.addCustomFieldAndStatus("cf1", testCase1.getExecutionStatus());
+		report.addTestCase( tcw1 );
+		
+		TestCase testCase2 = new TestCase(2, "tc2", 2, 2, "kinow", "No summary", null, "", null, ExecutionType.AUTOMATED, null, 2, 2, false, null, 2, 2, null, null, ExecutionStatus.BLOCKED );
+		TestCaseWrapper tcw2 = new TestCaseWrapper(testCase2, new String[]{"cf1"}, null);
+		tcw2.addCustomFieldAndStatus("cf1", testCase2.getExecutionStatus());
+		report.addTestCase( tcw2 );
+		
+		Report previous = new Report(build);
+		previous.addTestCase( tcw1 );
+		
+		TestLinkBuildAction action = new TestLinkBuildAction(null, new TestLinkResult(report, null));
+		TestLinkBuildAction previousAction = new TestLinkBuildAction(null, new TestLinkResult(previous, null));
+		
+		assertEquals( 2, action.getTestsTotal() );
+		assertEquals( 1, action.getTestsPassed() );
+		assertEquals( 1, action.getTestsBlocked() );
+		assertEquals( build, action.getTestLinkBuild() );
+		
+		String reportSummary = TestLinkHelper.createReportSummary(action, previousAction);
+		assertEquals(TestLinkHelper.createReportSummary(report, previous), reportSummary);
+		
+		// without a previous build, there are no deltas
+		assertFalse( action.hasPreviousTests() );
+		assertEquals(TestLinkHelper.createReportSummary(report, null), TestLinkHelper.createReportSummary(action));
+		assertEquals(reportSummary, "<p><b>TestLink build ID: 1</b></p><p><b>TestLink build name: My build</b></p><p><a href=\"testLinkResult\">Total of 2 (+1) tests</a>. Where 1 passed, 0 failed, 1 (+1) were blocked and 0 were not executed.</p>");
+	}
+	
 	/**
 	 * Tests the createReportSummaryDetails() method.
 	 */
@@ -189,4 +189,50 @@ extends TestCase
 		assertTrue( envVarsEnvVars.equals(envVars) );
 	}
 	
+	private br.eti.kinoshita.testlinkjavaapi.model.TestCase createBatchTestCase( int id, String name, String key )
+	{
+		br.eti.kinoshita.testlinkjavaapi.model.TestCase testCase = 
+			new br.eti.kinoshita.testlinkjavaapi.model.TestCase();
+		testCase.setId( id );
+		testCase.setName( name );
+		
+		CustomField cf = new CustomField();
+		cf.setName("class");
+		cf.setValue(key);
+		testCase.getCustomFields().add(cf);
+		return testCase;
+	}
+	
+	public void testCreateBatchEnvVars()
+	{
+		br.eti.kinoshita.testlinkjavaapi.model.TestCase[] testCases = 
+			new br.eti.kinoshita.testlinkjavaapi.model.TestCase[] {
+				createBatchTestCase( 1, "First", "a.FirstTest" ), 
+				createBatchTestCase( 2, "Second, or not", "b.SecondTest, b.OtherTest" ), 
+				createBatchTestCase( 3, "Third", null )
+			};
+		
+		TestProject testProject = new TestProject();
+		testProject.setName("Sample project name");
+		
+		TestPlan testPlan = new TestPlan();
+		testPlan.setName ( "10000" );
+		
+		Build build = new Build();
+		build.setName( "100000" );
+		
+		Map<String, String> envVars = TestLinkHelper.createBatchEnvironmentVariables(testCases, 2, "testlink-batch-2.tsv", "class", testProject, testPlan, build);
+		
+		assertEquals( "1,2,3", envVars.get("TESTLINK_TESTCASE_IDS") );
+		assertEquals( "First\nSecond, or not\nThird", envVars.get("TESTLINK_TESTCASE_NAMES") );
+		assertEquals( "a.FirstTest,b.SecondTest,b.OtherTest", envVars.get("TESTLINK_TESTCASE_KEYS") );
+		assertEquals( "3", envVars.get("TESTLINK_TESTCASE_COUNT") );
+		assertEquals( "2", envVars.get("TESTLINK_BATCH_NUMBER") );
+		assertEquals( "testlink-batch-2.tsv", envVars.get("TESTLINK_BATCH_MANIFEST") );
+		assertEquals( "100000", envVars.get("TESTLINK_BUILD_NAME") );
+		
+		String manifest = TestLinkHelper.createBatchManifest(testCases, "class");
+		assertEquals( "1\ta.FirstTest\tFirst\n2\tb.SecondTest,b.OtherTest\tSecond, or not\n3\t\tThird\n", manifest );
+	}
+	
 }